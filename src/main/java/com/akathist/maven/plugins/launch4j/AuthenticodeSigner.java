@@ -0,0 +1,414 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Signs executables with Authenticode in this JVM, without starting a signing tool per executable.
+ * <p/>
+ * The Authenticode hash covers the whole file but the checksum and the certificate table entry, so the
+ * executable is read once, hashing it and summing up its PE checksum in the same pass. The signature is a
+ * PKCS#7 SignedData over that hash, optionally with an RFC 3161 timestamp, appended as the certificate table.
+ * <p/>
+ * The JVM finds the jar wrapped in the executable by the end of its central directory, which older JVMs only
+ * accept at the very end of the file, so the jar's comment is made to cover the certificate table, as sign4j does.
+ * The comment is hashed as well, so its length has to be known before signing: it is taken from the size of the
+ * last signature, and the executable is hashed again in the rare case the signature came out bigger or smaller.
+ */
+final class AuthenticodeSigner {
+
+    static final String SIGNED_DATA = "1.2.840.113549.1.7.2";
+    static final String SPC_INDIRECT_DATA = "1.3.6.1.4.1.311.2.1.4";
+    static final String SPC_PE_IMAGE_DATA = "1.3.6.1.4.1.311.2.1.15";
+    static final String SPC_SP_OPUS_INFO = "1.3.6.1.4.1.311.2.1.12";
+    static final String SPC_STATEMENT_TYPE = "1.3.6.1.4.1.311.2.1.11";
+    static final String INDIVIDUAL_CODE_SIGNING = "1.3.6.1.4.1.311.2.1.21";
+    static final String CONTENT_TYPE = "1.2.840.113549.1.9.3";
+    static final String MESSAGE_DIGEST = "1.2.840.113549.1.9.4";
+    static final String RFC3161_TIMESTAMP = "1.3.6.1.4.1.311.3.3.1";
+    private static final String RSA_ENCRYPTION = "1.2.840.113549.1.1.1";
+
+    private static final Map<String, String> DIGEST_OIDS = new HashMap<>();
+    private static final Map<String, String> ECDSA_OIDS = new HashMap<>();
+
+    static {
+        DIGEST_OIDS.put("SHA-1", "1.3.14.3.2.26");
+        DIGEST_OIDS.put("SHA-256", "2.16.840.1.101.3.4.2.1");
+        DIGEST_OIDS.put("SHA-384", "2.16.840.1.101.3.4.2.2");
+        DIGEST_OIDS.put("SHA-512", "2.16.840.1.101.3.4.2.3");
+        ECDSA_OIDS.put("SHA-1", "1.2.840.10045.4.1");
+        ECDSA_OIDS.put("SHA-256", "1.2.840.10045.4.3.2");
+        ECDSA_OIDS.put("SHA-384", "1.2.840.10045.4.3.3");
+        ECDSA_OIDS.put("SHA-512", "1.2.840.10045.4.3.4");
+    }
+
+    private static final int WIN_CERT_REVISION_2_0 = 0x0200;
+    private static final int WIN_CERT_TYPE_PKCS_SIGNED_DATA = 0x0002;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054B50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final PrivateKey key;
+    private final X509Certificate[] chain;
+    private final String digestAlgorithm;
+    private final TimestampClient timestamps;
+    private final String programName;
+    private final String programUrl;
+
+    /**
+     * The size of the last certificate table, the guess for the next one.
+     */
+    private final AtomicInteger lastTableSize = new AtomicInteger();
+
+    /**
+     * @param timestamps the timestamp server, or null to sign without a timestamp
+     * @throws IllegalArgumentException if the digest or the key algorithm is not supported
+     */
+    AuthenticodeSigner(PrivateKey key, X509Certificate[] chain, String digestAlgorithm, TimestampClient timestamps,
+                       String programName, String programUrl) {
+        if (!DIGEST_OIDS.containsKey(digestAlgorithm)) {
+            throw new IllegalArgumentException("Unsupported digest algorithm " + digestAlgorithm
+                    + ", expected one of " + Collections.unmodifiableSet(DIGEST_OIDS.keySet()));
+        }
+        if (!"RSA".equals(key.getAlgorithm()) && !"EC".equals(key.getAlgorithm())) {
+            throw new IllegalArgumentException("Unsupported key algorithm " + key.getAlgorithm() + ", expected RSA or EC");
+        }
+        if (chain.length == 0) {
+            throw new IllegalArgumentException("The key has no certificate");
+        }
+        this.key = key;
+        this.chain = chain.clone();
+        this.digestAlgorithm = digestAlgorithm;
+        this.timestamps = timestamps;
+        this.programName = programName;
+        this.programUrl = programUrl;
+    }
+
+    String getSubject() {
+        return chain[0].getSubjectX500Principal().getName();
+    }
+
+    /**
+     * Signs the executable in place. On failure it is left as it was.
+     *
+     * @throws IOException if the executable is not a PE file, is signed already or cannot be signed
+     */
+    void sign(File exe) throws IOException, GeneralSecurityException {
+        PeExecutable pe = PeExecutable.read(exe);
+        if (pe.dataDirectoryCount <= PeExecutable.CERTIFICATE_DIRECTORY) {
+            throw new IOException(exe + " has no certificate table entry");
+        }
+        if (pe.dataDirectory(PeExecutable.CERTIFICATE_DIRECTORY) != null) {
+            throw new IOException(exe + " is signed already");
+        }
+        long entry = pe.dataDirectoryPosition(PeExecutable.CERTIFICATE_DIRECTORY);
+        long length = pe.length;
+        long padded = PeExecutable.align(length, 8);
+
+        try (RandomAccessFile file = new RandomAccessFile(exe, "rw")) {
+            long commentPosition = commentLengthPosition(file);
+            int comment = commentPosition >= 0 ? readShort(file, commentPosition) : 0;
+            try {
+                file.setLength(padded);
+                int tableSize = lastTableSize.get();
+                byte[] signedData;
+                Hash hash;
+                for (int attempt = 1; ; attempt++) {
+                    if (commentPosition >= 0) {
+                        long covered = comment + padded - length + tableSize;
+                        if (covered > 0xFFFF) {
+                            throw new IOException("The signature of " + exe + " does not fit into the comment of its jar");
+                        }
+                        writeShort(file, commentPosition, (int) covered);
+                    }
+                    hash = hash(file, padded, pe.checksumPosition, entry);
+                    signedData = signedData(hash.digest);
+                    int actual = (int) PeExecutable.align(8 + signedData.length, 8);
+                    if (actual == tableSize || commentPosition < 0) {
+                        tableSize = actual;
+                        break;
+                    }
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw new IOException("The size of the signature of " + exe + " keeps changing");
+                    }
+                    tableSize = actual;
+                }
+                lastTableSize.set(tableSize);
+
+                byte[] table = new byte[tableSize];
+                putInt(table, 0, tableSize);
+                table[4] = (byte) WIN_CERT_REVISION_2_0;
+                table[5] = (byte) (WIN_CERT_REVISION_2_0 >>> 8);
+                table[6] = (byte) WIN_CERT_TYPE_PKCS_SIGNED_DATA;
+                System.arraycopy(signedData, 0, table, 8, signedData.length);
+                file.seek(padded);
+                file.write(table);
+
+                byte[] directory = new byte[8];
+                putInt(directory, 0, (int) padded);
+                putInt(directory, 4, tableSize);
+                file.seek(entry);
+                file.write(directory);
+
+                long sum = ReproducibleExecutable.addToChecksum(hash.checksum, directory, 8, entry, pe.checksumPosition);
+                sum = ReproducibleExecutable.addToChecksum(sum, table, table.length, padded, pe.checksumPosition);
+                byte[] checksum = new byte[4];
+                putInt(checksum, 0, (int) ReproducibleExecutable.finishChecksum(sum, padded + tableSize));
+                file.seek(pe.checksumPosition);
+                file.write(checksum);
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                file.setLength(length);
+                file.seek(entry);
+                file.write(new byte[8]);
+                if (commentPosition >= 0) {
+                    writeShort(file, commentPosition, comment);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Removes the signature of an executable signed like {@link #sign(File)} does, shortening the jar's comment
+     * by the certificate table again.
+     *
+     * @return false if the executable was not signed
+     * @throws IOException if the certificate table is not at the end of the executable
+     */
+    static boolean unsign(File exe) throws IOException {
+        PeExecutable pe = PeExecutable.read(exe);
+        long[] table = pe.dataDirectory(PeExecutable.CERTIFICATE_DIRECTORY);
+        if (table == null) {
+            return false;
+        }
+        if (table[0] + table[1] != pe.length) {
+            throw new IOException("The signature of " + exe + " is not at its end");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(exe, "rw")) {
+            long commentPosition = commentLengthPosition(file);
+            file.setLength(table[0]);
+            file.seek(pe.dataDirectoryPosition(PeExecutable.CERTIFICATE_DIRECTORY));
+            file.write(new byte[8]);
+            if (commentPosition >= 0) {
+                writeShort(file, commentPosition, (int) Math.max(0, readShort(file, commentPosition) - table[1]));
+            }
+            if (readInt(file, pe.checksumPosition) != 0) {
+                byte[] checksum = new byte[4];
+                putInt(checksum, 0, (int) ReproducibleExecutable.checksum(file, pe.checksumPosition));
+                file.seek(pe.checksumPosition);
+                file.write(checksum);
+            }
+        }
+        return true;
+    }
+
+    private static final class Hash {
+        final byte[] digest;
+        /**
+         * The PE checksum of everything but the certificate table entry, which is zero while hashing.
+         */
+        final long checksum;
+
+        Hash(byte[] digest, long checksum) {
+            this.digest = digest;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * The Authenticode hash of the executable, everything but the checksum and the certificate table entry,
+     * and its PE checksum, in one pass.
+     */
+    private Hash hash(RandomAccessFile file, long length, long checksumPosition, long entry) throws IOException {
+        MessageDigest digest = messageDigest(digestAlgorithm);
+        long[][] excluded = {{checksumPosition, checksumPosition + 4}, {entry, entry + 8}};
+        byte[] buffer = new byte[64 * 1024];
+        long sum = 0;
+        long position = 0;
+        file.seek(0);
+        while (position < length) {
+            int read = file.read(buffer, 0, (int) Math.min(buffer.length, length - position));
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            sum = ReproducibleExecutable.addToChecksum(sum, buffer, read, position, checksumPosition);
+            int from = 0;
+            for (long[] range : excluded) {
+                int start = (int) Math.max(from, Math.min(read, range[0] - position));
+                int end = (int) Math.max(start, Math.min(read, range[1] - position));
+                digest.update(buffer, from, start - from);
+                from = end;
+            }
+            digest.update(buffer, from, read - from);
+            position += read;
+        }
+        return new Hash(digest.digest(), sum);
+    }
+
+    /**
+     * A PKCS#7 ContentInfo with the SignedData of the Authenticode hash: an SpcIndirectDataContent holding the
+     * hash, the certificates and one SignerInfo.
+     */
+    byte[] signedData(byte[] peHash) throws IOException, GeneralSecurityException {
+        byte[] digestAlgorithmIdentifier = algorithmIdentifier(digestAlgorithm);
+        byte[] imageData = Der.sequence(
+                Der.tlv(Der.BIT_STRING, new byte[]{0}),
+                Der.constructed(0xA0, Der.constructed(0xA2, Der.bmpString(0x80, "<<<Obsolete>>>"))));
+        byte[] indirectDataContent = Der.concat(
+                Der.sequence(Der.oid(SPC_PE_IMAGE_DATA), imageData),
+                Der.sequence(digestAlgorithmIdentifier, Der.octetString(peHash)));
+
+        byte[] opusInfo = Der.sequence(
+                programName != null ? Der.constructed(0xA0, Der.bmpString(0x80, programName)) : new byte[0],
+                programUrl != null ? Der.constructed(0xA1, Der.tlv(0x80, programUrl.getBytes("US-ASCII"))) : new byte[0]);
+        // the message digest covers the content of the SpcIndirectDataContent, without its tag and length
+        byte[] authenticatedAttributes = Der.setOf(
+                attribute(CONTENT_TYPE, Der.oid(SPC_INDIRECT_DATA)),
+                attribute(SPC_SP_OPUS_INFO, opusInfo),
+                attribute(SPC_STATEMENT_TYPE, Der.sequence(Der.oid(INDIVIDUAL_CODE_SIGNING))),
+                attribute(MESSAGE_DIGEST, Der.octetString(messageDigest(digestAlgorithm).digest(indirectDataContent))));
+
+        Signature signature = Signature.getInstance(digestAlgorithm.replace("-", "")
+                + ("EC".equals(key.getAlgorithm()) ? "withECDSA" : "withRSA"));
+        signature.initSign(key);
+        signature.update(authenticatedAttributes);
+        byte[] encryptedDigest = signature.sign();
+
+        byte[] unauthenticatedAttributes = new byte[0];
+        if (timestamps != null) {
+            byte[] token = timestamps.timestamp(digestAlgorithm, encryptedDigest);
+            unauthenticatedAttributes = implicit(0xA1, Der.setOf(attribute(RFC3161_TIMESTAMP, token)));
+        }
+
+        X509Certificate signer = chain[0];
+        byte[] signerInfo = Der.sequence(
+                Der.integer(1),
+                Der.sequence(signer.getIssuerX500Principal().getEncoded(), Der.integer(signer.getSerialNumber())),
+                digestAlgorithmIdentifier,
+                implicit(0xA0, authenticatedAttributes),
+                "EC".equals(key.getAlgorithm())
+                        ? Der.sequence(Der.oid(ECDSA_OIDS.get(digestAlgorithm)))
+                        : Der.sequence(Der.oid(RSA_ENCRYPTION), Der.nul()),
+                Der.octetString(encryptedDigest),
+                unauthenticatedAttributes);
+
+        byte[][] certificates = new byte[chain.length][];
+        for (int i = 0; i < chain.length; i++) {
+            certificates[i] = chain[i].getEncoded();
+        }
+        byte[] signedData = Der.sequence(
+                Der.integer(1),
+                Der.setOf(digestAlgorithmIdentifier),
+                Der.sequence(Der.oid(SPC_INDIRECT_DATA), Der.constructed(0xA0, Der.tlv(Der.SEQUENCE, indirectDataContent))),
+                Der.constructed(0xA0, certificates),
+                Der.setOf(signerInfo));
+        return Der.sequence(Der.oid(SIGNED_DATA), Der.constructed(0xA0, signedData));
+    }
+
+    static byte[] algorithmIdentifier(String digestAlgorithm) {
+        return Der.sequence(Der.oid(DIGEST_OIDS.get(digestAlgorithm)), Der.nul());
+    }
+
+    static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    private static byte[] attribute(String type, byte[] value) {
+        return Der.sequence(Der.oid(type), Der.setOf(value));
+    }
+
+    /**
+     * The SET OF with an implicit tag in place of its own.
+     */
+    private static byte[] implicit(int tag, byte[] set) {
+        byte[] tagged = set.clone();
+        tagged[0] = (byte) tag;
+        return tagged;
+    }
+
+    /**
+     * The position of the comment length of the jar's end of central directory, or -1 if the file does not end
+     * with a zip file.
+     */
+    private static long commentLengthPosition(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        int tail = (int) Math.min(length, END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF);
+        byte[] buffer = new byte[tail];
+        file.seek(length - tail);
+        file.readFully(buffer);
+        for (int i = tail - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (getInt(buffer, i) == END_OF_CENTRAL_DIRECTORY
+                    && i + END_OF_CENTRAL_DIRECTORY_SIZE + (getShort(buffer, i + 20)) == tail) {
+                return length - tail + i + 20;
+            }
+        }
+        return -1;
+    }
+
+    private static int getInt(byte[] buffer, int offset) {
+        return getShort(buffer, offset) | getShort(buffer, offset + 2) << 16;
+    }
+
+    private static int getShort(byte[] buffer, int offset) {
+        return buffer[offset] & 0xFF | (buffer[offset + 1] & 0xFF) << 8;
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static int readShort(RandomAccessFile file, long position) throws IOException {
+        file.seek(position);
+        return file.read() | file.read() << 8;
+    }
+
+    private static int readInt(RandomAccessFile file, long position) throws IOException {
+        return readShort(file, position) | readShort(file, position + 2) << 16;
+    }
+
+    private static void writeShort(RandomAccessFile file, long position, int value) throws IOException {
+        file.seek(position);
+        file.write(value & 0xFF);
+        file.write(value >>> 8 & 0xFF);
+    }
+
+    @Override
+    public String toString() {
+        return "Authenticode " + digestAlgorithm + " signer " + getSubject() + (timestamps != null ? " with " + timestamps : "");
+    }
+}
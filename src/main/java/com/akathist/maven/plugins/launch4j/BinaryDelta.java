@@ -0,0 +1,590 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary patches turning one file into another, the way rsync finds what two files share: the old file is cut
+ * into blocks indexed by a rolling checksum, and the new file is searched for them at every byte offset, so
+ * content that moved, like the entries of a jar after a changed class, is still found. What matches is copied
+ * from the old file, the rest is inserted. Both files are streamed; the memory needed is the block index,
+ * which holds at most {@link #MAX_BLOCKS} blocks, and a window of the new file.
+ * <p/>
+ * A patch starts with {@link #MAGIC}, the format, the length and SHA-256 of the old file and the length of the
+ * new one, followed by the deflated operations: {@code COPY offset length}, {@code INSERT length bytes} and
+ * {@code END} with the SHA-256 of the new file. Lengths and offsets are unsigned variable-length integers.
+ */
+final class BinaryDelta {
+
+    static final String MAGIC = "L4JDELTA";
+
+    static final int FORMAT = 1;
+
+    static final int DEFAULT_BLOCK_SIZE = 2048;
+
+    /**
+     * About 20 bytes of index per block, so a few tens of megabytes at most; larger files get larger blocks.
+     */
+    static final int MAX_BLOCKS = 1 << 20;
+
+    private static final int WINDOW_SIZE = 4 * 1024 * 1024;
+
+    private static final int END = 0;
+    private static final int COPY = 1;
+    private static final int INSERT = 2;
+
+    private BinaryDelta() {
+    }
+
+    static final class Result {
+        final long oldLength;
+        final String oldSha256;
+        final long newLength;
+        final String newSha256;
+        final long patchLength;
+        final String patchSha256;
+        final int blockSize;
+        /**
+         * Bytes of the new file copied from the old one, the rest is in the patch.
+         */
+        final long copied;
+        final long inserted;
+
+        Result(long oldLength, String oldSha256, long newLength, String newSha256, long patchLength,
+               String patchSha256, int blockSize, long copied, long inserted) {
+            this.oldLength = oldLength;
+            this.oldSha256 = oldSha256;
+            this.newLength = newLength;
+            this.newSha256 = newSha256;
+            this.patchLength = patchLength;
+            this.patchSha256 = patchSha256;
+            this.blockSize = blockSize;
+            this.copied = copied;
+            this.inserted = inserted;
+        }
+    }
+
+    /**
+     * Writes the patch turning the old file into the new one.
+     *
+     * @param blockSize the size of the blocks looked for; raised for old files of more than {@link #MAX_BLOCKS} blocks
+     */
+    static Result diff(File oldFile, File newFile, File patch, int blockSize) throws IOException {
+        if (blockSize < 16) {
+            throw new IllegalArgumentException("The block size must be at least 16 bytes, not " + blockSize);
+        }
+        long oldLength = oldFile.length();
+        while (oldLength / blockSize > MAX_BLOCKS) {
+            blockSize *= 2;
+        }
+        BlockIndex index = BlockIndex.of(oldFile, blockSize);
+        long newLength = newFile.length();
+
+        Path target = patch.toPath();
+        Path temp = AtomicFiles.tempFileFor(target);
+        try {
+            MessageDigest patchDigest = sha256();
+            Encoder encoder;
+            try (OutputStream file = new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024), patchDigest)) {
+                DataOutputStream header = new DataOutputStream(file);
+                header.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+                header.writeByte(FORMAT);
+                header.writeLong(oldLength);
+                header.write(index.sha256);
+                header.writeLong(newLength);
+                header.flush();
+
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    DeflaterOutputStream operations = new DeflaterOutputStream(file, deflater, 64 * 1024);
+                    encoder = new Encoder(operations);
+                    byte[] newSha256 = scan(oldFile, newFile, index, encoder);
+                    encoder.end(newSha256);
+                    operations.finish();
+                } finally {
+                    deflater.end();
+                }
+            }
+            long patchLength = Files.size(temp);
+            AtomicFiles.moveIntoPlace(temp, target);
+            return new Result(oldLength, Fingerprint.toHex(index.sha256), newLength, Fingerprint.toHex(encoder.newSha256),
+                    patchLength, Fingerprint.toHex(patchDigest.digest()), blockSize, encoder.copied, encoder.inserted);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Slides a window of one block over the new file, emitting a copy whenever the window matches a block of the
+     * old file and moving on by a byte otherwise. Copies are extended byte by byte into the bytes around them,
+     * which the old file has as well, so a change of a few bytes, like a timestamp, costs a few bytes instead of a
+     * block.
+     *
+     * @return the SHA-256 of the new file
+     */
+    private static byte[] scan(File oldFile, File newFile, BlockIndex index, Encoder encoder) throws IOException {
+        int blockSize = index.blockSize;
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[Math.max(WINDOW_SIZE, 4 * blockSize)];
+        byte[] oldBytes = new byte[blockSize];
+        int start = 0;
+        int position = 0;
+        int end = 0;
+        boolean eof = false;
+        boolean hashed = false;
+        int a = 0;
+        int b = 0;
+        int expected = -1;
+        long copyEnd = -1;
+
+        try (InputStream in = Files.newInputStream(newFile.toPath());
+             RandomAccessFile old = new RandomAccessFile(oldFile, "r")) {
+            while (true) {
+                if (end - position <= blockSize && !eof) {
+                    // keep the window and the byte after it in the buffer
+                    encoder.insert(buffer, start, position - start);
+                    System.arraycopy(buffer, position, buffer, 0, end - position);
+                    end -= position;
+                    position = 0;
+                    start = 0;
+                    while (end < buffer.length) {
+                        int read = in.read(buffer, end, buffer.length - end);
+                        if (read < 0) {
+                            eof = true;
+                            break;
+                        }
+                        digest.update(buffer, end, read);
+                        end += read;
+                    }
+                    continue;
+                }
+                if (end - position < blockSize) {
+                    break;
+                }
+                if (!hashed) {
+                    a = 0;
+                    b = 0;
+                    for (int i = 0; i < blockSize; i++) {
+                        int x = buffer[position + i] & 0xFF;
+                        a += x;
+                        b += (blockSize - i) * x;
+                    }
+                    hashed = true;
+                }
+
+                int block = index.find(a & 0xFFFF | b << 16, buffer, position, expected);
+                if (block >= 0) {
+                    long offset = (long) block * blockSize;
+                    int before = commonSuffix(old, offset, buffer, start, position - start, oldBytes);
+                    encoder.insert(buffer, start, position - start - before);
+                    encoder.copy(offset - before, blockSize + before);
+                    position += blockSize;
+                    start = position;
+                    expected = block + 1;
+                    copyEnd = offset + blockSize;
+                    hashed = false;
+                    continue;
+                }
+                if (copyEnd >= 0) {
+                    // the first bytes after a copy often continue it
+                    int after = commonPrefix(old, copyEnd, buffer, position, blockSize, oldBytes);
+                    if (after > 0) {
+                        encoder.copy(copyEnd, after);
+                        position += after;
+                        start = position;
+                        copyEnd = after == blockSize ? copyEnd + after : -1;
+                        expected = -1;
+                        hashed = false;
+                        continue;
+                    }
+                    copyEnd = -1;
+                }
+                if (end - position == blockSize) {
+                    break;
+                }
+                int out = buffer[position] & 0xFF;
+                a += (buffer[position + blockSize] & 0xFF) - out;
+                b += a - blockSize * out;
+                position++;
+            }
+        }
+        encoder.insert(buffer, start, end - start);
+        return digest.digest();
+    }
+
+    /**
+     * @return how many of the given bytes the old file has at the offset, at most the length of the scratch buffer
+     */
+    private static int commonPrefix(RandomAccessFile old, long offset, byte[] data, int from, int length,
+                                    byte[] scratch) throws IOException {
+        int count = (int) Math.min(Math.min(length, scratch.length), old.length() - offset);
+        if (count <= 0) {
+            return 0;
+        }
+        old.seek(offset);
+        old.readFully(scratch, 0, count);
+        int same = 0;
+        while (same < count && scratch[same] == data[from + same]) {
+            same++;
+        }
+        return same;
+    }
+
+    /**
+     * @return how many of the last of the given bytes the old file has right before the offset,
+     * at most the length of the scratch buffer
+     */
+    private static int commonSuffix(RandomAccessFile old, long offset, byte[] data, int from, int length,
+                                    byte[] scratch) throws IOException {
+        int count = (int) Math.min(Math.min(length, scratch.length), offset);
+        if (count <= 0) {
+            return 0;
+        }
+        old.seek(offset - count);
+        old.readFully(scratch, 0, count);
+        int same = 0;
+        while (same < count && scratch[count - 1 - same] == data[from + length - 1 - same]) {
+            same++;
+        }
+        return same;
+    }
+
+    /**
+     * Writes the file the patch was made for, from the file it was made against.
+     *
+     * @throws IOException if either file is not the one the patch was made with
+     */
+    static void apply(File oldFile, File patch, File newFile) throws IOException {
+        Path target = newFile.toPath();
+        Path temp = AtomicFiles.tempFileFor(target);
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(patch.toPath()), 64 * 1024);
+             RandomAccessFile old = new RandomAccessFile(oldFile, "r")) {
+            DataInputStream header = new DataInputStream(file);
+            byte[] magic = new byte[MAGIC.length()];
+            header.readFully(magic);
+            if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII)) || header.readUnsignedByte() != FORMAT) {
+                throw new IOException(patch + " is not a patch of format " + FORMAT);
+            }
+            long oldLength = header.readLong();
+            byte[] oldSha256 = new byte[32];
+            header.readFully(oldSha256);
+            long newLength = header.readLong();
+            if (old.length() != oldLength || !Arrays.equals(oldSha256, sha256(oldFile))) {
+                throw new IOException(patch + " was not made against " + oldFile);
+            }
+
+            MessageDigest digest = sha256();
+            long written = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try (OutputStream out = new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024), digest)) {
+                DataInputStream operations = new DataInputStream(new InflaterInputStream(file, new Inflater(), 64 * 1024));
+                int operation;
+                while ((operation = operations.readUnsignedByte()) != END) {
+                    if (operation == COPY) {
+                        long offset = readVarLong(operations);
+                        long length = readVarLong(operations);
+                        if (offset + length > oldLength) {
+                            throw new IOException(patch + " copies beyond the end of " + oldFile);
+                        }
+                        old.seek(offset);
+                        for (long left = length; left > 0; ) {
+                            int chunk = (int) Math.min(buffer.length, left);
+                            old.readFully(buffer, 0, chunk);
+                            out.write(buffer, 0, chunk);
+                            left -= chunk;
+                        }
+                        written += length;
+                    } else if (operation == INSERT) {
+                        long length = readVarLong(operations);
+                        for (long left = length; left > 0; ) {
+                            int chunk = (int) Math.min(buffer.length, left);
+                            operations.readFully(buffer, 0, chunk);
+                            out.write(buffer, 0, chunk);
+                            left -= chunk;
+                        }
+                        written += length;
+                    } else {
+                        throw new IOException(patch + " is corrupt, unknown operation " + operation);
+                    }
+                }
+                byte[] newSha256 = new byte[32];
+                operations.readFully(newSha256);
+                out.flush();
+                if (written != newLength || !Arrays.equals(newSha256, digest.digest())) {
+                    throw new IOException("Applying " + patch + " did not result in the file it was made for");
+                }
+            } catch (EOFException e) {
+                throw new IOException(patch + " is truncated", e);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            AtomicFiles.moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The blocks of the old file: the weak rolling checksum and a strong 64-bit hash of each block, in an open
+     * addressing table keyed by the weak checksum. A block identical to an earlier one is left out, so runs of
+     * the same content, like padding, do not make long probe sequences.
+     */
+    private static final class BlockIndex {
+        final int blockSize;
+        final byte[] sha256;
+        private final int[] weak;
+        private final long[] strong;
+        private final int[] table;
+        private final int mask;
+
+        private BlockIndex(int blockSize, int blocks, byte[] sha256, int[] weak, long[] strong) {
+            this.blockSize = blockSize;
+            this.sha256 = sha256;
+            this.weak = weak;
+            this.strong = strong;
+            int size = Integer.highestOneBit(Math.max(2, blocks) * 2 - 1) * 2;
+            this.table = new int[size];
+            this.mask = size - 1;
+            for (int block = 0; block < blocks; block++) {
+                add(block);
+            }
+        }
+
+        static BlockIndex of(File oldFile, int blockSize) throws IOException {
+            int blocks = (int) (oldFile.length() / blockSize);
+            int[] weak = new int[blocks];
+            long[] strong = new long[blocks];
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[Math.max(64 * 1024 / blockSize, 1) * blockSize];
+            int block = 0;
+            try (InputStream in = Files.newInputStream(oldFile.toPath())) {
+                int filled;
+                while ((filled = readFully(in, buffer)) > 0) {
+                    digest.update(buffer, 0, filled);
+                    for (int offset = 0; offset + blockSize <= filled && block < blocks; offset += blockSize, block++) {
+                        weak[block] = weak(buffer, offset, blockSize);
+                        strong[block] = strong(buffer, offset, blockSize);
+                    }
+                }
+            }
+            return new BlockIndex(blockSize, blocks, digest.digest(), weak, strong);
+        }
+
+        private void add(int block) {
+            int slot = slot(weak[block]);
+            while (table[slot] != 0) {
+                int other = table[slot] - 1;
+                if (weak[other] == weak[block] && strong[other] == strong[block]) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = block + 1;
+        }
+
+        /**
+         * @param expected the block following the last match, preferred so consecutive copies merge
+         * @return the block with the content of the window, or -1
+         */
+        int find(int weakChecksum, byte[] window, int offset, int expected) {
+            if (expected >= 0 && expected < weak.length && weak[expected] == weakChecksum
+                    && strong[expected] == strong(window, offset, blockSize)) {
+                return expected;
+            }
+            long strongHash = 0;
+            boolean hashed = false;
+            for (int slot = slot(weakChecksum); table[slot] != 0; slot = (slot + 1) & mask) {
+                int block = table[slot] - 1;
+                if (weak[block] != weakChecksum) {
+                    continue;
+                }
+                if (!hashed) {
+                    strongHash = strong(window, offset, blockSize);
+                    hashed = true;
+                }
+                if (strong[block] == strongHash) {
+                    return block;
+                }
+            }
+            return -1;
+        }
+
+        private int slot(int weakChecksum) {
+            return (weakChecksum * 0x9E3779B1) >>> 7 & mask;
+        }
+    }
+
+    /**
+     * Writes the operations, merging copies of consecutive ranges of the old file.
+     */
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private long copyOffset = -1;
+        private long copyLength;
+        long copied;
+        long inserted;
+        byte[] newSha256;
+
+        Encoder(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        void copy(long offset, long length) throws IOException {
+            if (copyOffset >= 0 && copyOffset + copyLength == offset) {
+                copyLength += length;
+            } else {
+                flushCopy();
+                copyOffset = offset;
+                copyLength = length;
+            }
+            copied += length;
+        }
+
+        void insert(byte[] data, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            flushCopy();
+            out.writeByte(INSERT);
+            writeVarLong(out, length);
+            out.write(data, offset, length);
+            inserted += length;
+        }
+
+        void end(byte[] newSha256) throws IOException {
+            flushCopy();
+            out.writeByte(END);
+            out.write(newSha256);
+            out.flush();
+            this.newSha256 = newSha256;
+        }
+
+        private void flushCopy() throws IOException {
+            if (copyOffset >= 0) {
+                out.writeByte(COPY);
+                writeVarLong(out, copyOffset);
+                writeVarLong(out, copyLength);
+                copyOffset = -1;
+            }
+        }
+    }
+
+    static int weak(byte[] data, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int x = data[offset + i] & 0xFF;
+            a += x;
+            b += (length - i) * x;
+        }
+        return a & 0xFFFF | b << 16;
+    }
+
+    /**
+     * FNV-1a, finished with a mix of the high bits into the low ones.
+     */
+    static long strong(byte[] data, int offset, int length) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= data[offset + i] & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        return hash ^ hash >>> 33;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt length in the patch");
+    }
+
+    private static byte[] sha256(File file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
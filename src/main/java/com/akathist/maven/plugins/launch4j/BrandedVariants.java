@@ -0,0 +1,131 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the variants of a {@link BrandingMatrix} from the executable launch4j built, several at a time.
+ * Each variant only reads the headers and the resources of the executable and streams the rest of it,
+ * the wrapped jar included, into its copy.
+ */
+final class BrandedVariants {
+
+    static final String SUMMARY = "branding-summary.csv";
+
+    private BrandedVariants() {
+    }
+
+    static final class Written {
+        /**
+         * The outfile as listed in the table.
+         */
+        final String outfile;
+        final File file;
+        final long size;
+        final String sha256;
+
+        Written(String outfile, File file, long size, String sha256) {
+            this.outfile = outfile;
+            this.file = file;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+    }
+
+    /**
+     * @param baseDir the directory icons of the table are resolved against
+     * @param signer  signs each variant once written, or null to leave them unsigned
+     * @return the variants written, in the order of the table
+     */
+    static List<Written> write(File executable, List<BrandingMatrix.Variant> variants, File outputDirectory,
+                               File baseDir, int threads, AuthenticodeSigner signer) throws IOException {
+        int poolSize = Math.max(1, Math.min(variants.size(),
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "launch4j-branding");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Written>> futures = new ArrayList<>();
+            for (BrandingMatrix.Variant variant : variants) {
+                futures.add(executor.submit(() -> write(executable, variant, outputDirectory, baseDir, signer)));
+            }
+            List<Written> written = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    written.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw new IOException("Cannot write the variant " + variants.get(i).outfile + ": "
+                            + cause.getMessage(), cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing the branded variants");
+                }
+            }
+            return written;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Written write(File executable, BrandingMatrix.Variant variant, File outputDirectory, File baseDir,
+                                 AuthenticodeSigner signer) throws IOException, GeneralSecurityException {
+        File target = new File(outputDirectory, variant.outfile);
+        if (target.getAbsoluteFile().equals(executable.getAbsoluteFile())) {
+            throw new IOException("The variant would overwrite the executable it is made from");
+        }
+        ResourceTable resources = ResourceEditor.read(executable);
+        variant.toStamp(baseDir).applyTo(resources);
+        ResourceEditor.write(executable, resources, target);
+        if (signer != null) {
+            signer.sign(target);
+            // like an unsigned variant, it keeps the modification time of the executable, e.g. the output timestamp
+            Files.setLastModifiedTime(target.toPath(), Files.getLastModifiedTime(executable.toPath()));
+        }
+        return new Written(variant.outfile, target, target.length(), new FileDigests().of(target));
+    }
+
+    /**
+     * Writes the outfile, size and SHA-256 of each variant as CSV.
+     */
+    static void writeSummary(List<Written> written, File summary) throws IOException {
+        Files.createDirectories(summary.getAbsoluteFile().getParentFile().toPath());
+        try (Writer out = Files.newBufferedWriter(summary.toPath(), StandardCharsets.UTF_8)) {
+            out.write("outfile,size,sha256\n");
+            for (Written variant : written) {
+                out.write(variant.outfile + "," + variant.size + "," + variant.sha256 + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Branded variants of the executable, listed in a table. launch4j builds the executable once,
+ * each variant is a copy of it with the resources of its row written over, which takes milliseconds
+ * instead of a full build.
+ * <p/>
+ * The table is either a CSV file with a header row or a properties file with keys of the form
+ * {@code variant.column}. The {@code outfile} column names the variant's executable, relative to
+ * {@link #outputDirectory}; in a properties file it defaults to {@code variant.exe}. The other columns
+ * are listed by {@link #COLUMNS}, an empty cell keeps the value of the executable built by launch4j.
+ */
+public class BrandingMatrix {
+
+    static final String OUTFILE = "outfile";
+
+    /**
+     * The columns a variant may change, besides {@link #OUTFILE}.
+     */
+    static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "productName", "companyName", "trademarks", "fileDescription", "copyright", "internalName",
+            "originalFilename", "txtFileVersion", "txtProductVersion", "fileVersion", "productVersion",
+            "icon", "manifest", "errTitle", "startupErr", "jreNotFoundErr", "jreVersionErr", "launcherErr",
+            "instanceAlreadyExistsMsg"));
+
+    /**
+     * The table of variants, a .csv or a .properties file.
+     */
+    @Parameter
+    File table;
+
+    /**
+     * Where the variants are written, by default next to the outfile.
+     */
+    @Parameter
+    File outputDirectory;
+
+    /**
+     * How many variants are written at a time, by default one per processor.
+     */
+    @Parameter(defaultValue = "0")
+    int threads;
+
+    /**
+     * @throws IllegalArgumentException if the table has unknown columns or a variant has no outfile
+     */
+    List<Variant> readVariants() throws IOException {
+        if (table == null) {
+            throw new IllegalArgumentException("<brandingMatrix> requires a <table>");
+        }
+        List<Variant> variants = table.getName().toLowerCase(Locale.ROOT).endsWith(".properties") ? readProperties() : readCsv();
+        List<String> outfiles = new ArrayList<>();
+        for (Variant variant : variants) {
+            if (outfiles.contains(variant.outfile)) {
+                throw new IllegalArgumentException("The outfile " + variant.outfile + " appears twice in " + table);
+            }
+            outfiles.add(variant.outfile);
+        }
+        return variants;
+    }
+
+    private List<Variant> readCsv() throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(table.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // a quoted cell may span lines
+                while (quotesOpen(line)) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        throw new IllegalArgumentException("Unterminated quote in " + table);
+                    }
+                    line += "\n" + next;
+                }
+                if (!line.trim().isEmpty()) {
+                    rows.add(parseCsvLine(line));
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> header = rows.get(0);
+        for (String column : header) {
+            checkColumn(column);
+        }
+        if (!header.contains(OUTFILE)) {
+            throw new IllegalArgumentException(table + " has no " + OUTFILE + " column");
+        }
+        List<Variant> variants = new ArrayList<>();
+        for (List<String> row : rows.subList(1, rows.size())) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int i = 0; i < header.size() && i < row.size(); i++) {
+                if (!row.get(i).isEmpty()) {
+                    values.put(header.get(i), row.get(i));
+                }
+            }
+            variants.add(new Variant(values));
+        }
+        return variants;
+    }
+
+    private List<Variant> readProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(table.toPath())) {
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        Map<String, Map<String, String>> rows = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException("The key " + key + " of " + table + " is not of the form variant.column");
+            }
+            String column = key.substring(dot + 1);
+            checkColumn(column);
+            String value = properties.getProperty(key);
+            if (!value.isEmpty()) {
+                rows.computeIfAbsent(key.substring(0, dot), name -> new LinkedHashMap<>()).put(column, value);
+            }
+        }
+        List<Variant> variants = new ArrayList<>();
+        for (Map.Entry<String, Map<String, String>> row : rows.entrySet()) {
+            row.getValue().putIfAbsent(OUTFILE, row.getKey() + ".exe");
+            variants.add(new Variant(row.getValue()));
+        }
+        return variants;
+    }
+
+    private void checkColumn(String column) {
+        if (!OUTFILE.equals(column) && !COLUMNS.contains(column)) {
+            throw new IllegalArgumentException("Unknown column " + column + " in " + table
+                    + ", expected " + OUTFILE + " or one of " + COLUMNS);
+        }
+    }
+
+    private static boolean quotesOpen(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 != 0;
+    }
+
+    /**
+     * Splits a line of RFC 4180 CSV: cells separated by commas, optionally quoted, quotes doubled within quotes.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+
+    /**
+     * A row of the table.
+     */
+    static final class Variant {
+        final String outfile;
+        final Map<String, String> values;
+
+        Variant(Map<String, String> values) {
+            this.outfile = values.get(OUTFILE);
+            if (outfile == null) {
+                throw new IllegalArgumentException("A variant has no " + OUTFILE + ": " + values);
+            }
+            this.values = values;
+        }
+
+        /**
+         * @param baseDir the directory the icon and the manifest are resolved against
+         */
+        ResourceStamp toStamp(File baseDir) {
+            ResourceStamp stamp = new ResourceStamp();
+            versionString(stamp, "productName", "ProductName");
+            versionString(stamp, "companyName", "CompanyName");
+            versionString(stamp, "trademarks", "LegalTrademarks");
+            versionString(stamp, "fileDescription", "FileDescription");
+            versionString(stamp, "copyright", "LegalCopyright");
+            versionString(stamp, "internalName", "InternalName");
+            versionString(stamp, "originalFilename", "OriginalFilename");
+            versionString(stamp, "txtFileVersion", "FileVersion");
+            versionString(stamp, "txtProductVersion", "ProductVersion");
+            if (values.containsKey("fileVersion")) {
+                stamp.fileVersion(values.get("fileVersion"));
+            }
+            if (values.containsKey("productVersion")) {
+                stamp.productVersion(values.get("productVersion"));
+            }
+            if (values.containsKey("icon")) {
+                stamp.icon(file(baseDir, values.get("icon")));
+            }
+            if (values.containsKey("manifest")) {
+                stamp.manifest(file(baseDir, values.get("manifest")));
+            }
+            text(stamp, "errTitle", ResourceStamp.ERR_TITLE);
+            text(stamp, "startupErr", ResourceStamp.STARTUP_ERR);
+            text(stamp, "jreNotFoundErr", ResourceStamp.JRE_NOT_FOUND_ERR);
+            text(stamp, "jreVersionErr", ResourceStamp.JRE_VERSION_ERR);
+            text(stamp, "launcherErr", ResourceStamp.LAUNCHER_ERR);
+            text(stamp, "instanceAlreadyExistsMsg", ResourceStamp.INSTANCE_ALREADY_EXISTS_MSG);
+            return stamp;
+        }
+
+        private static File file(File baseDir, String path) {
+            File file = new File(path);
+            return file.isAbsolute() ? file : new File(baseDir, path);
+        }
+
+        private void versionString(ResourceStamp stamp, String column, String key) {
+            if (values.containsKey(column)) {
+                stamp.versionString(key, values.get(column));
+            }
+        }
+
+        private void text(ResourceStamp stamp, String column, int id) {
+            if (values.containsKey(column)) {
+                stamp.text(id, values.get(column));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BrandingMatrix{" +
+                "table=" + table +
+                ", outputDirectory=" + outputDirectory +
+                ", threads=" + threads +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Details about the cache of finished executables shared between builds and CI nodes.
+ * Set either a directory or an url.
+ */
+public class BuildCache {
+
+    /**
+     * A directory keeping the cached executables, e.g. on a disk shared by the CI nodes.
+     */
+    @Parameter
+    File directory;
+
+    /**
+     * The base url of an HTTP server keeping the cached executables. Entries are read with GET
+     * and written with PUT to {url}/{fingerprint}/launcher.exe.
+     */
+    @Parameter
+    String url;
+
+    /**
+     * Connect and read timeout of the HTTP cache, in milliseconds.
+     */
+    @Parameter(defaultValue = "30000")
+    int timeout = 30000;
+
+    /**
+     * If set to true, the cache is only read and executables built on a miss are not stored,
+     * which is useful for pull request builds.
+     */
+    @Parameter(defaultValue = "false")
+    boolean readOnly;
+
+    OutputCache toOutputCache() {
+        if (url != null && !url.trim().isEmpty()) {
+            return new HttpOutputCache(url.trim(), timeout);
+        }
+        if (directory != null) {
+            return new LocalOutputCache(directory);
+        }
+        throw new IllegalArgumentException("<buildCache> requires either a <directory> or an <url>");
+    }
+
+    /**
+     * Hits and misses of all executions within the current Maven session.
+     */
+    static class Statistics {
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+
+        @Override
+        public String toString() {
+            return hits.get() + " hit(s), " + misses.get() + " miss(es) in this build";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BuildCache{" +
+                "directory=" + directory +
+                ", url='" + url + '\'' +
+                ", timeout=" + timeout +
+                ", readOnly=" + readOnly +
+                '}';
+    }
+}
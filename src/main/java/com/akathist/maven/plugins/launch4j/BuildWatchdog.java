@@ -0,0 +1,257 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.BuilderException;
+import net.sf.launch4j.Messages;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the native build with a timeout for the whole build and for each of its phases: compiling
+ * the resources with windres, linking with ld and wrapping the jar. launch4j announces the phases in its log.
+ * <p/>
+ * When a timeout elapses, the native processes of this build are killed (on Java 9 and newer), the partial outfile
+ * is deleted and the build fails with the stack of the build thread and the processes which were still running.
+ * Only this build's processes are killed, though the shared work directory is in the command line of every
+ * module's windres and ld: the build worker serving it, or else the processes this JVM started during the build.
+ * <p/>
+ * A build thread in this JVM which outlives the timeout may still be using launch4j's singleton, so no further
+ * build may run in this JVM until it has ended, see {@link #checkNoBuildLeftBehind()}.
+ */
+class BuildWatchdog {
+
+    interface Build {
+        File build() throws BuilderException;
+    }
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final long KILL_GRACE_MILLIS = 5000;
+
+    /**
+     * The thread of an in-JVM build which timed out and did not end, shared by all executions in this JVM
+     * as launch4j's singleton is.
+     */
+    private static volatile Thread leftBehind;
+
+    private final long buildTimeoutMillis;
+
+    private final long phaseTimeoutMillis;
+
+    private final Log log;
+
+    private volatile String phase = "preparing";
+
+    private volatile long phaseStart;
+
+    private volatile Process worker;
+
+    private Set<Object> childrenBefore = Collections.emptySet();
+
+    /**
+     * @param buildTimeoutMillis the time the whole build may take, 0 for no limit
+     * @param phaseTimeoutMillis the time each phase may take, 0 for no limit
+     */
+    BuildWatchdog(long buildTimeoutMillis, long phaseTimeoutMillis, Log log) {
+        this.buildTimeoutMillis = buildTimeoutMillis;
+        this.phaseTimeoutMillis = phaseTimeoutMillis;
+        this.log = log;
+    }
+
+    /**
+     * Wraps the log passed to launch4j, to follow the phases of the build.
+     */
+    net.sf.launch4j.Log watch(net.sf.launch4j.Log delegate) {
+        return new net.sf.launch4j.Log() {
+            @Override
+            public void clear() {
+                delegate.clear();
+            }
+
+            @Override
+            public void append(String line) {
+                enterPhase(line);
+                delegate.append(line);
+            }
+        };
+    }
+
+    /**
+     * Names the build worker process serving the build, which is killed with its native processes on a timeout.
+     */
+    void servedBy(Process worker) {
+        this.worker = worker;
+    }
+
+    /**
+     * Fails while the thread of an earlier in-JVM build which timed out is still running, as it may still read
+     * launch4j's singleton, which the next build would configure.
+     */
+    static void checkNoBuildLeftBehind() throws MojoExecutionException {
+        Thread thread = leftBehind;
+        if (thread != null && thread.isAlive()) {
+            throw new MojoExecutionException("The launch4j build thread " + thread.getName() + " of an earlier build"
+                    + " which timed out is still running in this JVM and may still use launch4j's configuration;"
+                    + " set buildWorkers to build in worker JVMs instead, or restart Maven");
+        }
+    }
+
+    /**
+     * @param build   the build to run
+     * @param outfile the executable being built, deleted if the build times out
+     * @param workDir the directory launch4j builds in, which the native tools are started from
+     */
+    File run(Build build, File outfile, File workDir) throws BuilderException, MojoExecutionException {
+        if (buildTimeoutMillis <= 0 && phaseTimeoutMillis <= 0) {
+            return build.build();
+        }
+
+        FutureTask<File> task = new FutureTask<>(build::build);
+        Thread thread = new Thread(task, "launch4j-build");
+        thread.setDaemon(true);
+        long start = System.nanoTime();
+        phaseStart = start;
+        childrenBefore = NativeProcesses.children();
+        thread.start();
+
+        while (true) {
+            try {
+                return task.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                String exceeded = exceededTimeout(start);
+                if (exceeded != null) {
+                    throw abort(exceeded, thread, outfile, workDir);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw abort("The build was interrupted", thread, outfile, workDir);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof BuilderException) {
+                    throw (BuilderException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new MojoExecutionException("The build failed", cause);
+            }
+        }
+    }
+
+    private String exceededTimeout(long start) {
+        long now = System.nanoTime();
+        if (buildTimeoutMillis > 0 && TimeUnit.NANOSECONDS.toMillis(now - start) >= buildTimeoutMillis) {
+            return "launch4j did not finish within " + buildTimeoutMillis + " ms, it was " + phase;
+        }
+        if (phaseTimeoutMillis > 0 && TimeUnit.NANOSECONDS.toMillis(now - phaseStart) >= phaseTimeoutMillis) {
+            return "launch4j did not finish " + phase + " within " + phaseTimeoutMillis + " ms";
+        }
+        return null;
+    }
+
+    private MojoExecutionException abort(String reason, Thread thread, File outfile, File workDir) {
+        StringBuilder message = new StringBuilder(reason).append('.');
+
+        List<Object> processes;
+        Process served = worker;
+        if (served != null) {
+            processes = NativeProcesses.tree(served);
+        } else {
+            List<String> markers = new ArrayList<>();
+            markers.add(workDir.getAbsolutePath());
+            markers.add(new File(workDir, "bin").getAbsoluteFile().toPath().normalize().toString());
+            Set<Object> started = new LinkedHashSet<>(NativeProcesses.children());
+            started.removeAll(childrenBefore);
+            processes = NativeProcesses.find(started, markers);
+        }
+        if (!NativeProcesses.isSupported()) {
+            message.append(System.lineSeparator()).append("Native processes cannot be listed or killed on this Java version.");
+        } else if (processes.isEmpty()) {
+            message.append(System.lineSeparator()).append("No native process was running.");
+        } else {
+            message.append(System.lineSeparator()).append("Killed native processes:");
+            for (Object process : processes) {
+                message.append(System.lineSeparator()).append("    ").append(NativeProcesses.describe(process));
+                NativeProcesses.destroyForcibly(process);
+            }
+        }
+
+        message.append(System.lineSeparator()).append("Build thread ").append(thread.getName())
+                .append(" (").append(thread.getState()).append("):");
+        for (StackTraceElement frame : thread.getStackTrace()) {
+            message.append(System.lineSeparator()).append("    at ").append(frame);
+        }
+
+        thread.interrupt();
+        try {
+            thread.join(KILL_GRACE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            if (served == null) {
+                leftBehind = thread;
+                log.warn("The launch4j build thread is still running, it is left behind as a daemon thread;"
+                        + " the following builds in this JVM fail until it ends");
+            } else {
+                log.warn("The launch4j build thread is still running, it is left behind as a daemon thread");
+            }
+        }
+
+        if (outfile != null && outfile.exists()) {
+            if (outfile.delete()) {
+                log.debug("Deleted the partial " + outfile);
+            } else {
+                log.warn("Cannot delete the partial " + outfile);
+            }
+        }
+
+        return new MojoExecutionException(message.toString());
+    }
+
+    private void enterPhase(String line) {
+        String next = null;
+        if (line.startsWith(Messages.getString("Builder.compiling.resources"))) {
+            next = "compiling resources (windres)";
+        } else if (line.startsWith(Messages.getString("Builder.linking"))) {
+            next = "linking (ld)";
+        } else if (line.startsWith(Messages.getString("Builder.wrapping").split("\n")[0])) {
+            next = "wrapping the jar";
+        }
+        if (next != null) {
+            phase = next;
+            phaseStart = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.Builder;
+import net.sf.launch4j.BuilderException;
+import net.sf.launch4j.Log;
+import net.sf.launch4j.config.Config;
+import net.sf.launch4j.config.ConfigPersister;
+import net.sf.launch4j.config.ConfigPersisterException;
+import net.sf.launch4j.config.Jre;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * The main class of a build worker, a JVM forked by {@link BuildWorkerPool} which keeps launch4j loaded
+ * and warmed up between builds. Each JVM has its own launch4j configuration singleton, so workers build
+ * in parallel without waiting for each other.
+ * <p/>
+ * The worker reads one request per line from stdin and answers on stdout, fields are separated by tabs
+ * and escaped with {@link #escape(String)}:
+ * <ul>
+ *     <li>{@code READY} once launch4j is warmed up</li>
+ *     <li>{@code BUILD config-xml base-dir work-dir} builds the configuration saved by launch4j,
+ *     answered by any number of {@code LOG line} followed by {@code OK outfile} or {@code FAIL message}</li>
+ * </ul>
+ * The worker exits when stdin is closed, so it never outlives the Maven process which started it.
+ */
+public final class BuildWorker {
+
+    static final String READY = "READY";
+    static final String BUILD = "BUILD";
+    static final String LOG = "LOG";
+    static final String OK = "OK";
+    static final String FAIL = "FAIL";
+
+    private final PrintStream protocol;
+
+    private BuildWorker(PrintStream protocol) {
+        this.protocol = protocol;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // stdout carries the protocol only, anything else printed goes to stderr
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+        System.setOut(System.err);
+
+        BuildWorker worker = new BuildWorker(protocol);
+        worker.warmUp();
+        worker.send(READY);
+
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = requests.readLine()) != null) {
+            worker.handle(line.split("\t", -1));
+        }
+    }
+
+    private void handle(String[] request) {
+        if (request.length != 4 || !BUILD.equals(request[0])) {
+            send(FAIL, "Malformed request to the build worker");
+            return;
+        }
+        try {
+            File outfile = build(new File(unescape(request[1])), new File(unescape(request[2])), new File(unescape(request[3])));
+            send(OK, outfile.getPath());
+        } catch (BuilderException | ConfigPersisterException | RuntimeException e) {
+            send(FAIL, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private File build(File configXml, File baseDir, File workDir) throws ConfigPersisterException, BuilderException {
+        ConfigPersister persister = ConfigPersister.getInstance();
+        persister.load(configXml);
+        persister.setAntConfig(persister.getConfig(), baseDir);
+        return new Builder(new Log() {
+            @Override
+            public void clear() {
+            }
+
+            @Override
+            public void append(String line) {
+                send(LOG, line);
+            }
+        }, workDir).build();
+    }
+
+    /**
+     * Loads launch4j and runs XStream once both ways, the expensive part of the first build in a fresh JVM.
+     */
+    private void warmUp() {
+        try {
+            File temp = Files.createTempFile("launch4j-worker", ".xml").toFile();
+            try {
+                Config config = new Config();
+                config.setHeaderType(Config.GUI_HEADER);
+                config.setOutfile(new File("warm-up.exe"));
+                Jre jre = new Jre();
+                jre.setPath("%JAVA_HOME%");
+                config.setJre(jre);
+                ConfigPersister.getInstance().setAntConfig(config, temp.getParentFile());
+                ConfigPersister.getInstance().save(temp);
+                ConfigPersister.getInstance().load(temp);
+                Class.forName(Builder.class.getName());
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException | ConfigPersisterException | ClassNotFoundException e) {
+            System.err.println("Cannot warm up the launch4j build worker: " + e);
+        }
+    }
+
+    private synchronized void send(String type, String... fields) {
+        StringBuilder message = new StringBuilder(type);
+        for (String field : fields) {
+            message.append('\t').append(escape(field));
+        }
+        protocol.println(message);
+    }
+
+    static String escape(String field) {
+        StringBuilder escaped = new StringBuilder(field.length());
+        for (char c : field.toCharArray()) {
+            switch (c) {
+                case '\\': escaped.append("\\\\"); break;
+                case '\t': escaped.append("\\t"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    static String unescape(String field) {
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.BuilderException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A pool of {@link BuildWorker} JVMs, shared by all executions in this JVM which use the same classpath.
+ * All workers are started as soon as the pool is created, so they warm up while the first build runs;
+ * each stays alive for the following builds. A worker which fails to answer or is interrupted by the
+ * watchdog is killed and replaced by a fresh one when needed.
+ * <p/>
+ * The pool keeps nothing of the executions using it, not even their log, as a build daemon keeps it
+ * for the following builds. Workers exit as soon as this JVM does, when their stdin is closed,
+ * so there is no shutdown hook holding on to the plugin's class loader.
+ */
+class BuildWorkerPool {
+
+    private static final Map<List<File>, BuildWorkerPool> POOLS = new HashMap<>();
+
+    private static final long POLL_MILLIS = 5;
+
+    private final List<File> classpath;
+
+    private final Deque<Worker> idle = new ArrayDeque<>();
+
+    private final Set<Worker> all = new LinkedHashSet<>();
+
+    private int size;
+
+    private int started;
+
+    private BuildWorkerPool(List<File> classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * The pool for the given classpath, grown to the given size if it is smaller.
+     */
+    static synchronized BuildWorkerPool get(int size, List<File> classpath, Log log) throws BuilderException {
+        BuildWorkerPool pool = POOLS.get(classpath);
+        if (pool == null) {
+            pool = new BuildWorkerPool(new ArrayList<>(classpath));
+            POOLS.put(pool.classpath, pool);
+        }
+        pool.grow(size, log);
+        return pool;
+    }
+
+    /**
+     * Builds the configuration saved in configXml on an idle worker, waiting for one if all are busy.
+     *
+     * @param baseDir the directory relative paths of the configuration are resolved against
+     * @param launch4jLog receives the output of launch4j as it comes
+     * @param log receives the pool's own messages
+     */
+    File build(File configXml, File baseDir, File workDir, net.sf.launch4j.Log launch4jLog, Log log) throws BuilderException {
+        return build(configXml, baseDir, workDir, launch4jLog, log, worker -> {
+        });
+    }
+
+    /**
+     * @param servedBy told which worker process builds the configuration before the build starts,
+     *                 e.g. for the build watchdog to kill it on a timeout
+     */
+    File build(File configXml, File baseDir, File workDir, net.sf.launch4j.Log launch4jLog, Log log,
+               Consumer<Process> servedBy) throws BuilderException {
+        Worker worker = acquire(log);
+        boolean healthy = false;
+        try {
+            servedBy.accept(worker.process);
+            File outfile = worker.build(configXml, baseDir, workDir, launch4jLog);
+            healthy = true;
+            return outfile;
+        } catch (WorkerFailure e) {
+            healthy = true;
+            throw new BuilderException(e.getMessage());
+        } catch (IOException e) {
+            throw new BuilderException(e);
+        } finally {
+            release(worker, healthy, log);
+        }
+    }
+
+    synchronized int started() {
+        return started;
+    }
+
+    private synchronized void grow(int size, Log log) throws BuilderException {
+        this.size = Math.max(this.size, size);
+        while (all.size() < this.size) {
+            idle.add(start(log));
+        }
+    }
+
+    private synchronized Worker acquire(Log log) throws BuilderException {
+        while (idle.isEmpty()) {
+            if (all.size() < size) {
+                return start(log);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BuilderException("Interrupted while waiting for a launch4j build worker");
+            }
+        }
+        return idle.pop();
+    }
+
+    private synchronized void release(Worker worker, boolean healthy, Log log) {
+        if (healthy && worker.process.isAlive()) {
+            idle.push(worker);
+        } else {
+            worker.process.destroyForcibly();
+            all.remove(worker);
+            log.debug("Discarded launch4j build worker #" + worker.number + " after " + worker.builds + " build(s)");
+        }
+        notifyAll();
+    }
+
+    private Worker start(Log log) throws BuilderException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        StringBuilder path = new StringBuilder();
+        for (File entry : classpath) {
+            if (path.length() > 0) {
+                path.append(File.pathSeparatorChar);
+            }
+            path.append(entry.getAbsolutePath());
+        }
+        command.add(path.toString());
+        command.add(BuildWorker.class.getName());
+
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            Worker worker = new Worker(++started, process);
+            all.add(worker);
+            log.debug("Started launch4j build worker #" + worker.number);
+            return worker;
+        } catch (IOException e) {
+            throw new BuilderException("Cannot start a launch4j build worker: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The build failed in launch4j, the worker itself is fine.
+     */
+    private static final class WorkerFailure extends Exception {
+        WorkerFailure(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Worker {
+        final int number;
+        final Process process;
+        final BufferedReader answers;
+        final Writer requests;
+        int builds;
+        boolean ready;
+
+        Worker(int number, Process process) {
+            this.number = number;
+            this.process = process;
+            this.answers = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            this.requests = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        File build(File configXml, File baseDir, File workDir, net.sf.launch4j.Log launch4jLog) throws IOException, WorkerFailure {
+            if (!ready) {
+                expect(BuildWorker.READY);
+                ready = true;
+            }
+            builds++;
+            requests.write(BuildWorker.BUILD
+                    + "\t" + BuildWorker.escape(configXml.getAbsolutePath())
+                    + "\t" + BuildWorker.escape(baseDir.getAbsolutePath())
+                    + "\t" + BuildWorker.escape(workDir.getAbsolutePath()) + "\n");
+            requests.flush();
+
+            while (true) {
+                String[] answer = read();
+                String value = answer.length > 1 ? BuildWorker.unescape(answer[1]) : "";
+                switch (answer[0]) {
+                    case BuildWorker.LOG:
+                        launch4jLog.append(value);
+                        break;
+                    case BuildWorker.OK:
+                        return new File(value);
+                    case BuildWorker.FAIL:
+                        throw new WorkerFailure(value);
+                    default:
+                        throw new IOException("Unexpected answer from launch4j build worker #" + number + ": " + answer[0]);
+                }
+            }
+        }
+
+        private void expect(String type) throws IOException {
+            String[] answer = read();
+            if (!type.equals(answer[0])) {
+                throw new IOException("Unexpected answer from launch4j build worker #" + number + ": " + answer[0]);
+            }
+        }
+
+        /**
+         * Reads the next answer, giving up as soon as the thread is interrupted, e.g. by the build watchdog.
+         */
+        private String[] read() throws IOException {
+            while (!answers.ready() && process.isAlive()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while waiting for launch4j build worker #" + number);
+                }
+                try {
+                    Thread.sleep(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for launch4j build worker #" + number);
+                }
+            }
+            String line = answers.readLine();
+            if (line == null) {
+                throw new IOException("launch4j build worker #" + number + " exited"
+                        + (process.isAlive() ? "" : " with " + process.exitValue()));
+            }
+            return line.split("\t", -1);
+        }
+    }
+}
@@ -21,13 +21,23 @@ package com.akathist.maven.plugins.launch4j;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ClassPath {
 
+    private static final Comparator<Artifact> DEPENDENCY_ORDER = Comparator
+            .comparing(Artifact::getGroupId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Artifact::getArtifactId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Artifact::getClassifier, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(dependency -> dependency.getFile().getName());
+
     /**
      * The main class to run. This is not required if you are wrapping an executable jar.
      */
@@ -38,7 +48,8 @@ public class ClassPath {
      * The launch4j executable sets up a classpath before running your jar, but it must know what the
      * classpath should be. If you set this property to true, the plugin will indicate a classpath
      * based on all the dependencies your program will need at runtime. You can augment this classpath
-     * using the preCp and postCp properties.
+     * using the preCp and postCp properties. Set it to false for a launcher which does not need them,
+     * then the plugin does not resolve the dependencies at all.
      */
     @Parameter(defaultValue = "true")
     boolean addDependencies = true;
@@ -70,10 +81,78 @@ public class ClassPath {
     @Parameter
     String postCp;
 
+    /**
+     * If you set this property to true, the plugin will put the dependencies it adds to the classpath
+     * into the jarLocation directory next to the executable, so the generated classpath points at jars
+     * which are actually there. Jars are hard-linked from the local repository when possible and copied
+     * otherwise, unchanged jars are left alone and jars staged by a previous build which are no longer
+     * needed are removed. A hard-linked jar is the very file in the local repository, so a later step which
+     * rewrites a staged jar in place (signing or stripping it, say) changes the local repository too; such
+     * a step has to replace the file instead. Two dependencies with the same file name fail the build.
+     * This property has no effect unless addDependencies is true.
+     */
+    @Parameter(defaultValue = "false")
+    boolean stageDependencies;
+
     private void addToCp(List<String> cp, String cpStr) {
         cp.addAll(Arrays.asList(cpStr.split("\\s*;\\s*")));
     }
 
+    /**
+     * The jarLocation ending with a slash, or empty. The parameter itself is left as configured.
+     */
+    private String normalizedJarLocation() {
+        if (jarLocation == null) return "";
+        else if (!jarLocation.isEmpty() && !jarLocation.endsWith("/")) return jarLocation + "/";
+        return jarLocation;
+    }
+
+    /**
+     * Selects the dependencies which end up on the classpath. Both {@link #toL4j(Set)} and the dependency
+     * staging use this method, so the classpath and the staged files always match.
+     * The dependencies are sorted by their coordinates, so the classpath does not depend on the iteration
+     * order of the set and the executable is the same from one build to another.
+     *
+     * @throws IllegalArgumentException if the dependencies are staged and two of them have the same file name,
+     *                                  as only one of them could sit in the jarLocation the classpath points at
+     */
+    List<Artifact> selectDependencies(Set<Artifact> dependencies) {
+        List<Artifact> selected = new ArrayList<>();
+        if (!addDependencies || dependencies == null) {
+            return selected;
+        }
+
+        for (Artifact dependency : dependencies) {
+            if (dependency.getFile() != null) {
+                selected.add(dependency);
+            }
+        }
+        selected.sort(DEPENDENCY_ORDER);
+        if (!stageDependencies) {
+            return selected;
+        }
+
+        Map<String, Artifact> byFileName = new HashMap<>();
+        for (Artifact dependency : selected) {
+            Artifact previous = byFileName.putIfAbsent(dependency.getFile().getName(), dependency);
+            if (previous != null) {
+                throw new IllegalArgumentException("The dependencies " + previous + " and " + dependency
+                        + " have the same file name " + dependency.getFile().getName()
+                        + ", the classpath cannot tell them apart");
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * The directory where the dependencies have to sit at runtime, resolved against the executable's folder.
+     */
+    File stagingDirectory(File outfile) {
+        String location = normalizedJarLocation();
+        File exeDir = outfile.getAbsoluteFile().getParentFile();
+        return location.isEmpty() ? exeDir : new File(exeDir, location.replace('\\', '/'));
+    }
+
     net.sf.launch4j.config.ClassPath toL4j(Set<Artifact> dependencies) {
         net.sf.launch4j.config.ClassPath ret = new net.sf.launch4j.config.ClassPath();
         ret.setMainClass(mainClass);
@@ -82,14 +161,10 @@ public class ClassPath {
         if (preCp != null) addToCp(cp, preCp);
 
         if (addDependencies) {
-            if (jarLocation == null) jarLocation = "";
-            else if (!jarLocation.endsWith("/")) jarLocation += "/";
-
-            for (Artifact dependency : dependencies) {
-                    String depFilename;
-                    depFilename = dependency.getFile().getName();
-//                  System.out.println("dependency = " + depFilename);
-                    cp.add(jarLocation + depFilename);
+            String location = normalizedJarLocation();
+
+            for (Artifact dependency : selectDependencies(dependencies)) {
+                cp.add(location + dependency.getFile().getName());
             }
         }
 
@@ -107,6 +182,7 @@ public class ClassPath {
                 ", jarLocation='" + jarLocation + '\'' +
                 ", preCp='" + preCp + '\'' +
                 ", postCp='" + postCp + '\'' +
+                ", stageDependencies=" + stageDependencies +
                 '}';
     }
 
@@ -0,0 +1,111 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A report of what the executable is made of, compared with the previous build, and the budgets its
+ * components must keep to. See {@link ExecutableComposition} for the components.
+ */
+public class CompositionReport {
+
+    static final String SUFFIX = ".composition.properties";
+
+    /**
+     * The report, by default {@code <outfile>.composition.properties} next to the outfile.
+     */
+    @Parameter
+    File file;
+
+    /**
+     * The report or the executable of the build to compare with, by default the report left by the
+     * previous build in the same place.
+     */
+    @Parameter
+    File previous;
+
+    /**
+     * How many of the largest entries of the wrapped jar are listed.
+     */
+    @Parameter(defaultValue = "10")
+    int largestEntries = 10;
+
+    /**
+     * The most bytes a component may take, keyed by the component as named in the report, e.g.
+     * {@code <total>40MB</total>} or {@code <resource.icon>200KB</resource.icon>}. A component over
+     * its budget fails the build.
+     */
+    @Parameter
+    Map<String, String> budgets;
+
+    /**
+     * @throws IllegalArgumentException if a budget is not a size
+     */
+    Map<String, Long> parseBudgets() {
+        Map<String, Long> parsed = new LinkedHashMap<>();
+        if (budgets != null) {
+            for (Map.Entry<String, String> budget : budgets.entrySet()) {
+                if (!ExecutableComposition.isComponent(budget.getKey())) {
+                    throw new IllegalArgumentException("There is no component " + budget.getKey() + " to budget, the"
+                            + " components are total, headers, section.<name>, resource.<icon|splash|messages|config|"
+                            + "version|manifest>, jar, entry.<path> and signature");
+                }
+                parsed.put(budget.getKey(), parseSize(budget.getKey(), budget.getValue()));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * A number of bytes, optionally followed by KB, MB or GB, powers of 1024.
+     */
+    static long parseSize(String component, String size) {
+        String value = size == null ? "" : size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1024;
+        } else if (value.endsWith("MB")) {
+            unit = 1024 * 1024;
+        } else if (value.endsWith("GB")) {
+            unit = 1024 * 1024 * 1024;
+        }
+        try {
+            return Long.parseLong((unit == 1 ? value : value.substring(0, value.length() - 2)).trim()) * unit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The budget of " + component + " must be a number of bytes, KB, MB or GB, not "
+                    + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompositionReport{" +
+                "file=" + file +
+                ", previous=" + previous +
+                ", largestEntries=" + largestEntries +
+                ", budgets=" + budgets +
+                '}';
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.Util;
+import net.sf.launch4j.binding.InvariantViolationException;
+import net.sf.launch4j.config.Config;
+import org.apache.maven.plugin.logging.Log;
+import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds configuration errors which otherwise show up only when the native tools run:
+ * runs the invariant checks launch4j runs at the start of a build and verifies the formats of the icon,
+ * splash screen and manifest, which launch4j hands over to windres without looking at them.
+ */
+class ConfigurationValidator {
+
+    private static final int ICO_HEADER_SIZE = 6;
+
+    private static final int ICO_ENTRY_SIZE = 16;
+
+    private static final int BMP_HEADER_SIZE = 26;
+
+    private final Log log;
+
+    ConfigurationValidator(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * @param config         the configuration to check, as loaded into the ConfigPersister
+     * @param configPath     the directory relative paths of the configuration are resolved against
+     * @param buildDirectory the project's build directory, a jar inside it may not be built yet
+     * @return the problems found, empty if the configuration is valid
+     */
+    List<String> validate(Config config, File configPath, File buildDirectory) {
+        List<String> problems = new ArrayList<>();
+
+        checkInvariants(config, configPath, buildDirectory, problems);
+
+        File icon = existingFile(configPath, config.getIcon());
+        if (icon != null) {
+            checkIcon(icon, problems);
+        }
+        File splash = config.getSplash() != null ? existingFile(configPath, config.getSplash().getFile()) : null;
+        if (splash != null) {
+            checkSplash(splash, problems);
+        }
+        File manifest = existingFile(configPath, config.getManifest());
+        if (manifest != null) {
+            checkManifest(manifest, problems);
+        }
+
+        return problems;
+    }
+
+    /**
+     * Launch4j stops at the first violation, so at most one problem is reported from here.
+     * The configuration given is left as it is.
+     */
+    private void checkInvariants(Config config, File configPath, File buildDirectory, List<String> problems) {
+        Config checked = config;
+        File jar = config.getJar();
+        if (!config.isDontWrapJar() && jar != null && isBuiltLater(Util.getAbsoluteFile(configPath, jar), buildDirectory)) {
+            log.info("The jar " + jar + " is not built yet, its presence is checked when the executable is built");
+            // the presence of the wrapped jar is all launch4j checks about it, and it checks nothing else
+            // differently for a jar which is not wrapped, so a copy which does not wrap its jar skips that check only
+            checked = InfileConfigCache.copyOf(config);
+            checked.setDontWrapJar(true);
+            checked.setJar(new File(jar.getName()));
+        }
+
+        try {
+            checked.validate();
+        } catch (InvariantViolationException e) {
+            problems.add(e.getProperty() != null ? e.getProperty() + ": " + e.getMessage() : e.getMessage());
+        }
+    }
+
+    private void checkIcon(File icon, List<String> problems) {
+        try {
+            ByteBuffer ico = ByteBuffer.wrap(Files.readAllBytes(icon.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+            if (ico.limit() < ICO_HEADER_SIZE || ico.getShort(0) != 0 || ico.getShort(2) != 1) {
+                problems.add("icon: " + icon + " is not an ICO file");
+                return;
+            }
+
+            int images = ico.getShort(4) & 0xffff;
+            if (images == 0 || ico.limit() < ICO_HEADER_SIZE + images * ICO_ENTRY_SIZE) {
+                problems.add("icon: " + icon + " does not contain any complete image");
+                return;
+            }
+            for (int i = 0; i < images; i++) {
+                int entry = ICO_HEADER_SIZE + i * ICO_ENTRY_SIZE;
+                long size = ico.getInt(entry + 8) & 0xffffffffL;
+                long offset = ico.getInt(entry + 12) & 0xffffffffL;
+                if (size == 0 || offset + size > ico.limit()) {
+                    problems.add("icon: image " + (i + 1) + " of " + icon + " is truncated");
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            problems.add("icon: cannot read " + icon + ": " + e.getMessage());
+        }
+    }
+
+    private void checkSplash(File splash, List<String> problems) {
+        byte[] header = new byte[BMP_HEADER_SIZE];
+        int read;
+        try (InputStream in = Files.newInputStream(splash.toPath())) {
+            read = in.read(header);
+        } catch (IOException e) {
+            problems.add("splash.file: cannot read " + splash + ": " + e.getMessage());
+            return;
+        }
+        if (read < BMP_HEADER_SIZE || header[0] != 'B' || header[1] != 'M') {
+            problems.add("splash.file: " + splash + " is not a BMP file");
+        }
+    }
+
+    private void checkManifest(File manifest, List<String> problems) {
+        try {
+            Document document = newDocumentBuilder().parse(manifest);
+            if (!"assembly".equals(document.getDocumentElement().getLocalName())) {
+                problems.add("manifest: the root element of " + manifest + " must be <assembly>, found <"
+                        + document.getDocumentElement().getNodeName() + ">");
+            }
+        } catch (SAXException e) {
+            problems.add("manifest: " + manifest + " is not well-formed XML: " + e.getMessage());
+        } catch (IOException | ParserConfigurationException e) {
+            problems.add("manifest: cannot read " + manifest + ": " + e.getMessage());
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        // report through the exception only instead of printing to stderr
+        builder.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void warning(SAXParseException exception) {
+            }
+
+            @Override
+            public void error(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+
+            @Override
+            public void fatalError(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+        });
+        return builder;
+    }
+
+    private static File existingFile(File configPath, File file) {
+        if (file == null || file.getPath().isEmpty()) {
+            return null;
+        }
+        File absolute = Util.getAbsoluteFile(configPath, file);
+        return absolute.isFile() ? absolute : null;
+    }
+
+    private static boolean isBuiltLater(File file, File buildDirectory) {
+        return !file.exists() && buildDirectory != null
+                && file.toPath().toAbsolutePath().normalize().startsWith(buildDirectory.toPath().toAbsolutePath().normalize());
+    }
+}
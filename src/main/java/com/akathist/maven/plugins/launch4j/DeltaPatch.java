@@ -0,0 +1,109 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A binary patch turning the executable of the previous release into the one just built, so users update
+ * by downloading what changed instead of the whole executable. The previous release is either a file or
+ * an artifact of type {@code exe}; see {@link BinaryDelta} for the patch itself.
+ */
+public class DeltaPatch {
+
+    static final String PATCH_SUFFIX = ".patch";
+
+    static final String MANIFEST_SUFFIX = ".patch.properties";
+
+    /**
+     * The executable of the previous release.
+     */
+    @Parameter
+    File previous;
+
+    /**
+     * The previous release as an artifact of type exe, groupId:artifactId:version[:classifier],
+     * resolved from the local repository or else from the project's repositories.
+     */
+    @Parameter
+    String previousArtifact;
+
+    /**
+     * Where the patch and its manifest are written, by default next to the outfile.
+     */
+    @Parameter
+    File outputDirectory;
+
+    /**
+     * The size of the blocks of the previous release looked for in the new executable. Smaller blocks make
+     * smaller patches and take longer to find.
+     */
+    @Parameter(defaultValue = "2048")
+    int blockSize = BinaryDelta.DEFAULT_BLOCK_SIZE;
+
+    /**
+     * @return groupId, artifactId, version and classifier, the latter null if not given
+     * @throws IllegalArgumentException if the coordinates are malformed
+     */
+    String[] previousCoordinates() {
+        String[] parts = previousArtifact.trim().split(":");
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException("<previousArtifact> must be groupId:artifactId:version[:classifier], not "
+                    + previousArtifact);
+        }
+        return new String[]{parts[0], parts[1], parts[2], parts.length == 4 ? parts[3] : null};
+    }
+
+    /**
+     * Writes what a client needs to pick and check the patch, in the properties format, in a fixed order and
+     * without a date, so the same patch has the same manifest.
+     */
+    static void writeManifest(File manifest, File previous, File executable, File patch, BinaryDelta.Result result)
+            throws IOException {
+        try (Writer out = Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8)) {
+            out.write("format=" + BinaryDelta.FORMAT + "\n");
+            out.write("from.file=" + previous.getName() + "\n");
+            out.write("from.size=" + result.oldLength + "\n");
+            out.write("from.sha256=" + result.oldSha256 + "\n");
+            out.write("to.file=" + executable.getName() + "\n");
+            out.write("to.size=" + result.newLength + "\n");
+            out.write("to.sha256=" + result.newSha256 + "\n");
+            out.write("patch.file=" + patch.getName() + "\n");
+            out.write("patch.size=" + result.patchLength + "\n");
+            out.write("patch.sha256=" + result.patchSha256 + "\n");
+            out.write("blockSize=" + result.blockSize + "\n");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeltaPatch{" +
+                "previous=" + previous +
+                ", previousArtifact='" + previousArtifact + '\'' +
+                ", outputDirectory=" + outputDirectory +
+                ", blockSize=" + blockSize +
+                '}';
+    }
+}
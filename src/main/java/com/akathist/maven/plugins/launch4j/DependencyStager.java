@@ -0,0 +1,137 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the jarLocation directory next to the executable in sync with the dependencies on the classpath.
+ * <p/>
+ * Jars are hard-linked from the local repository whenever the file system allows it and copied otherwise.
+ * A hard link shares its content with the jar in the local repository, so whatever writes into a staged jar
+ * writes into the local repository as well; the staged jars must only ever be replaced, never rewritten.
+ * A jar which is already staged (the same file or the same size and modification time) is left alone.
+ * The names of the staged jars are recorded in {@link #STAGED_LIST}, so the next build removes only
+ * the jars it put there itself and never touches other files living in the same directory.
+ */
+class DependencyStager {
+
+    static final String STAGED_LIST = ".launch4j-staged";
+
+    private final Log log;
+
+    int linked;
+    int copied;
+    int upToDate;
+    int removed;
+
+    DependencyStager(Log log) {
+        this.log = log;
+    }
+
+    void stage(Path targetDir, List<Artifact> dependencies) throws MojoExecutionException {
+        Map<String, Path> wanted = new LinkedHashMap<>();
+        for (Artifact dependency : dependencies) {
+            Path source = dependency.getFile().toPath();
+            Path previous = wanted.putIfAbsent(source.getFileName().toString(), source);
+            if (previous != null && !previous.equals(source)) {
+                throw new MojoExecutionException("Dependency " + dependency + " has the same file name as " + previous
+                        + ", the classpath cannot tell them apart");
+            }
+        }
+
+        try {
+            Files.createDirectories(targetDir);
+            removeStale(targetDir, wanted.keySet());
+            for (Map.Entry<String, Path> entry : wanted.entrySet()) {
+                stageOne(entry.getValue(), targetDir.resolve(entry.getKey()));
+            }
+            Files.write(targetDir.resolve(STAGED_LIST), wanted.keySet(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot stage dependencies into " + targetDir, e);
+        }
+
+        log.info("Staged " + wanted.size() + " dependencies into " + targetDir
+                + " (" + linked + " linked, " + copied + " copied, " + upToDate + " up to date, " + removed + " removed)");
+    }
+
+    private void removeStale(Path targetDir, Set<String> wanted) throws IOException {
+        Path stagedList = targetDir.resolve(STAGED_LIST);
+        if (!Files.exists(stagedList)) {
+            return;
+        }
+
+        Set<String> previouslyStaged = new LinkedHashSet<>(Files.readAllLines(stagedList, StandardCharsets.UTF_8));
+        for (String name : previouslyStaged) {
+            if (name.isEmpty() || wanted.contains(name)) {
+                continue;
+            }
+            Path stale = targetDir.resolve(name).normalize();
+            if (stale.getParent() != null && stale.getParent().equals(targetDir.normalize())
+                    && Files.deleteIfExists(stale)) {
+                log.debug("Removed stale dependency " + stale);
+                removed++;
+            }
+        }
+    }
+
+    private void stageOne(Path source, Path dest) throws IOException {
+        if (isUpToDate(source, dest)) {
+            upToDate++;
+            return;
+        }
+
+        Files.deleteIfExists(dest);
+        try {
+            Files.createLink(dest, source);
+            log.debug("Linked " + source + " to " + dest);
+            linked++;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // different file systems or no hard link support, fall back to a plain copy
+            Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+            log.debug("Copied " + source + " to " + dest);
+            copied++;
+        }
+    }
+
+    private boolean isUpToDate(Path source, Path dest) throws IOException {
+        if (!Files.isRegularFile(dest)) {
+            return false;
+        }
+        if (Files.isSameFile(source, dest)) {
+            return true;
+        }
+        return Files.size(source) == Files.size(dest)
+                && Files.getLastModifiedTime(source).equals(Files.getLastModifiedTime(dest));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The few ASN.1 DER encodings Authenticode signatures and RFC 3161 timestamps are made of, and a reader
+ * for the structures received from a timestamp server.
+ */
+final class Der {
+
+    static final int INTEGER = 0x02;
+    static final int BIT_STRING = 0x03;
+    static final int OCTET_STRING = 0x04;
+    static final int NULL = 0x05;
+    static final int OID = 0x06;
+    static final int SEQUENCE = 0x30;
+    static final int SET = 0x31;
+
+    private Der() {
+    }
+
+    static byte[] tlv(int tag, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 6);
+        out.write(tag);
+        int length = content.length;
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                out.write(length >>> (8 * i));
+            }
+        }
+        out.write(content, 0, content.length);
+        return out.toByteArray();
+    }
+
+    static byte[] constructed(int tag, byte[]... parts) {
+        return tlv(tag, concat(parts));
+    }
+
+    static byte[] sequence(byte[]... parts) {
+        return constructed(SEQUENCE, parts);
+    }
+
+    /**
+     * A SET OF, its elements sorted by their encodings as DER requires.
+     */
+    static byte[] setOf(byte[]... elements) {
+        byte[][] sorted = elements.clone();
+        Arrays.sort(sorted, Der::compareUnsigned);
+        return constructed(SET, sorted);
+    }
+
+    static byte[] integer(BigInteger value) {
+        return tlv(INTEGER, value.toByteArray());
+    }
+
+    static byte[] integer(long value) {
+        return integer(BigInteger.valueOf(value));
+    }
+
+    static byte[] octetString(byte[] value) {
+        return tlv(OCTET_STRING, value);
+    }
+
+    static byte[] nul() {
+        return new byte[]{NULL, 0};
+    }
+
+    static byte[] oid(String dotted) {
+        String[] arcs = dotted.split("\\.");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeArc(out, Long.parseLong(arcs[0]) * 40 + Long.parseLong(arcs[1]));
+        for (int i = 2; i < arcs.length; i++) {
+            writeArc(out, Long.parseLong(arcs[i]));
+        }
+        return tlv(OID, out.toByteArray());
+    }
+
+    /**
+     * A BMPString, the UTF-16 strings of Authenticode's SpcString, with the given tag.
+     */
+    static byte[] bmpString(int tag, String value) {
+        return tlv(tag, value.getBytes(StandardCharsets.UTF_16BE));
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeArc(ByteArrayOutputStream out, long arc) {
+        int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(arc) + 6) / 7);
+        for (int i = groups - 1; i > 0; i--) {
+            out.write((int) (0x80 | (arc >>> (7 * i)) & 0x7F));
+        }
+        out.write((int) (arc & 0x7F));
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * An element of an encoding, pointing into it.
+     */
+    static final class Element {
+        final int tag;
+        private final byte[] data;
+        private final int start;
+        private final int contentStart;
+        final int length;
+
+        private Element(int tag, byte[] data, int start, int contentStart, int length) {
+            this.tag = tag;
+            this.data = data;
+            this.start = start;
+            this.contentStart = contentStart;
+            this.length = length;
+        }
+
+        static Element read(byte[] data) throws IOException {
+            Element element = read(data, 0, data.length);
+            if (element.end() != data.length) {
+                throw new IOException("Unexpected data after the DER element");
+            }
+            return element;
+        }
+
+        private static Element read(byte[] data, int offset, int limit) throws IOException {
+            if (offset + 2 > limit) {
+                throw new IOException("Truncated DER element");
+            }
+            int tag = data[offset] & 0xFF;
+            if ((tag & 0x1F) == 0x1F) {
+                throw new IOException("Multi-byte DER tags are not supported");
+            }
+            int first = data[offset + 1] & 0xFF;
+            int contentStart = offset + 2;
+            long length = first;
+            if (first > 0x80) {
+                int bytes = first & 0x7F;
+                if (bytes > 4 || contentStart + bytes > limit) {
+                    throw new IOException("Invalid DER length");
+                }
+                length = 0;
+                for (int i = 0; i < bytes; i++) {
+                    length = length << 8 | data[contentStart++] & 0xFF;
+                }
+            } else if (first == 0x80) {
+                throw new IOException("Indefinite lengths are not DER");
+            }
+            if (contentStart + length > limit) {
+                throw new IOException("Truncated DER element");
+            }
+            return new Element(tag, data, offset, contentStart, (int) length);
+        }
+
+        int end() {
+            return contentStart + length;
+        }
+
+        byte[] content() {
+            return Arrays.copyOfRange(data, contentStart, end());
+        }
+
+        byte[] encoded() {
+            return Arrays.copyOfRange(data, start, end());
+        }
+
+        List<Element> children() throws IOException {
+            List<Element> children = new ArrayList<>();
+            for (int offset = contentStart; offset < end(); ) {
+                Element child = read(data, offset, end());
+                children.add(child);
+                offset = child.end();
+            }
+            return children;
+        }
+
+        Element child(int index) throws IOException {
+            List<Element> children = children();
+            if (index >= children.size()) {
+                throw new IOException("Missing element " + index + " in a DER structure of tag " + tag);
+            }
+            return children.get(index);
+        }
+
+        BigInteger integer() throws IOException {
+            if (tag != INTEGER || length == 0) {
+                throw new IOException("Not a DER integer");
+            }
+            return new BigInteger(content());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * What an executable is made of: its headers, each section, the resources by type, the wrapped jar with its
+ * largest entries and the signature, in bytes. Resources are part of the resource section and the entries
+ * part of the jar, the other components add up to the size of the executable.
+ */
+final class ExecutableComposition {
+
+    static final String TOTAL = "total";
+    static final String HEADERS = "headers";
+    static final String SECTION = "section.";
+    static final String RESOURCE = "resource.";
+    static final String JAR = "jar";
+    static final String ENTRY = "entry.";
+    static final String SIGNATURE = "signature";
+
+    private static final int RT_BITMAP = 2;
+
+    /**
+     * The components a report may name: the resource kinds are those of {@link #resourceKind(Object, Object)}, a type
+     * without a kind by its number or, for a named type, by its name in capitals.
+     */
+    private static final Pattern COMPONENT = Pattern.compile("total|headers|jar|signature|section\\..+|entry\\..+"
+            + "|resource\\.(splash|icon|messages|config|version|manifest|type\\d+|[^a-z]+)");
+
+    private static final FigureReport REPORT = new FigureReport("composition", 48, component -> "bytes");
+
+    /**
+     * The components and their sizes, in the order they are reported.
+     */
+    final Map<String, Long> sizes;
+
+    private ExecutableComposition(Map<String, Long> sizes) {
+        this.sizes = Collections.unmodifiableMap(sizes);
+    }
+
+    /**
+     * @param largestEntries how many of the jar's entries are listed, the largest ones
+     */
+    static ExecutableComposition of(File exe, int largestEntries) throws IOException {
+        PeExecutable pe = PeExecutable.read(exe);
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        sizes.put(TOTAL, pe.length);
+
+        long headers = pe.overlayOffset;
+        for (PeExecutable.Section section : pe.sections) {
+            if (section.rawSize > 0) {
+                headers = Math.min(headers, section.rawPointer);
+            }
+        }
+        sizes.put(HEADERS, headers);
+        for (PeExecutable.Section section : pe.sections) {
+            sizes.merge(SECTION + section.name.replaceFirst("^\\.", ""), section.rawSize, Long::sum);
+        }
+        if (pe.resourceSection() != null) {
+            ResourceTable resources = ResourceEditor.read(exe);
+            for (Object type : resources.types()) {
+                for (Object name : resources.names(type)) {
+                    long size = 0;
+                    for (ResourceTable.Entry entry : resources.languages(type, name).values()) {
+                        size += entry.data.length;
+                    }
+                    sizes.merge(RESOURCE + resourceKind(type, name), size, Long::sum);
+                }
+            }
+        }
+
+        long[] certificates = pe.dataDirectory(PeExecutable.CERTIFICATE_DIRECTORY);
+        long signature = certificates != null && certificates[0] >= pe.overlayOffset ? certificates[1] : 0;
+        long jar = pe.overlayLength() - signature;
+        if (jar > 0) {
+            sizes.put(JAR, jar);
+            sizes.putAll(largestEntries(exe, largestEntries));
+        }
+        if (signature > 0) {
+            sizes.put(SIGNATURE, signature);
+        }
+        return new ExecutableComposition(sizes);
+    }
+
+    /**
+     * The resource types launch4j writes by what they are for, others by their number or name. launch4j keeps its
+     * runtime configuration as RCDATA too, so only errTitle and the messages count as messages, the rest as config.
+     */
+    private static String resourceKind(Object type, Object name) {
+        if (type instanceof Integer) {
+            switch ((Integer) type) {
+                case RT_BITMAP:
+                    return "splash";
+                case ResourceTable.RT_ICON:
+                case ResourceTable.RT_GROUP_ICON:
+                    return "icon";
+                case ResourceTable.RT_RCDATA:
+                    return isMessage(name) ? "messages" : "config";
+                case ResourceTable.RT_VERSION:
+                    return "version";
+                case ResourceTable.RT_MANIFEST:
+                    return "manifest";
+                default:
+                    return "type" + type;
+            }
+        }
+        return type.toString();
+    }
+
+    private static boolean isMessage(Object name) {
+        if (!(name instanceof Integer)) {
+            return false;
+        }
+        int id = (Integer) name;
+        return id == ResourceStamp.ERR_TITLE
+                || id >= ResourceStamp.STARTUP_ERR && id <= ResourceStamp.INSTANCE_ALREADY_EXISTS_MSG;
+    }
+
+    /**
+     * The compressed sizes of the largest entries, largest first; nothing if the overlay is not a jar.
+     */
+    private static Map<String, Long> largestEntries(File exe, int count) {
+        Map<String, Long> largest = new LinkedHashMap<>();
+        if (count <= 0) {
+            return largest;
+        }
+        PriorityQueue<ZipEntry> entries = new PriorityQueue<>(Comparator.comparingLong(ZipEntry::getCompressedSize));
+        try (ZipFile jar = new ZipFile(exe)) {
+            for (Enumeration<? extends ZipEntry> all = jar.entries(); all.hasMoreElements(); ) {
+                entries.add(all.nextElement());
+                if (entries.size() > count) {
+                    entries.poll();
+                }
+            }
+        } catch (IOException e) {
+            return largest;
+        }
+        List<ZipEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(ZipEntry::getCompressedSize).reversed().thenComparing(ZipEntry::getName));
+        for (ZipEntry entry : sorted) {
+            largest.put(ENTRY + entry.getName(), entry.getCompressedSize());
+        }
+        return largest;
+    }
+
+    /**
+     * Reads a report written by {@link #write(File)}, or analyses an executable.
+     */
+    static ExecutableComposition read(File reportOrExecutable, int largestEntries) throws IOException {
+        if (!reportOrExecutable.getName().endsWith(".properties")) {
+            return of(reportOrExecutable, largestEntries);
+        }
+        Map<String, Long> sizes = REPORT.figures(reportOrExecutable, FigureReport.load(reportOrExecutable));
+        return new ExecutableComposition(sizes);
+    }
+
+    /**
+     * Writes the sizes in the properties format, in the order of the components and without a date,
+     * so the same executable has the same report.
+     */
+    void write(File report) throws IOException {
+        FigureReport.write(report, Collections.<String, String>emptyMap(), sizes);
+    }
+
+    /**
+     * One line per component, with its change since the previous composition if there is one;
+     * components gone since then are listed with a size of 0.
+     */
+    List<String> describe(ExecutableComposition previous) {
+        return REPORT.describe(sizes, previous != null ? previous.sizes : null);
+    }
+
+    /**
+     * @param budgets the most bytes each component may take
+     * @return the components over their budget, with their size and budget
+     */
+    List<String> overBudget(Map<String, Long> budgets) {
+        return REPORT.overBudget(sizes, budgets);
+    }
+
+    /**
+     * Whether a report may have a component of this name, to tell a budget of a component this executable does
+     * not have from one of a component no executable has.
+     */
+    static boolean isComponent(String name) {
+        return COMPONENT.matcher(name).matches();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * A report of named figures, such as the {@link ExecutableComposition} or the {@link StartupMeasurement}:
+ * written as properties in a fixed order and without a date, so the same figures give the same file,
+ * compared with the report of a previous build and checked against budgets.
+ */
+final class FigureReport {
+
+    private final String kind;
+
+    private final int nameWidth;
+
+    private final Function<String, String> unit;
+
+    /**
+     * @param kind      what the report is, for error messages
+     * @param nameWidth the width of the column of names in {@link #describe(Map, Map)}
+     * @param unit      the unit of each figure by its name
+     */
+    FigureReport(String kind, int nameWidth, Function<String, String> unit) {
+        this.kind = kind;
+        this.nameWidth = nameWidth;
+        this.unit = unit;
+    }
+
+    static Properties load(File report) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(report.toPath())) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * The figures of a loaded report, sorted by name.
+     *
+     * @param texts the names of the entries which are no figures
+     */
+    Map<String, Long> figures(File report, Properties properties, String... texts) throws IOException {
+        Map<String, Long> figures = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            if (Arrays.asList(texts).contains(name)) {
+                continue;
+            }
+            try {
+                figures.put(name, Long.parseLong(properties.getProperty(name).trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException(report + " is not a " + kind + " report, " + name + " is not a number");
+            }
+        }
+        return figures;
+    }
+
+    /**
+     * @param texts entries written before the figures, e.g. what a measurement stopped at
+     */
+    static void write(File report, Map<String, String> texts, Map<String, Long> figures) throws IOException {
+        Files.createDirectories(report.getAbsoluteFile().getParentFile().toPath());
+        try (Writer out = Files.newBufferedWriter(report.toPath(), StandardCharsets.ISO_8859_1)) {
+            for (Map.Entry<String, String> text : texts.entrySet()) {
+                out.write(escape(text.getKey()) + "=" + text.getValue() + "\n");
+            }
+            for (Map.Entry<String, Long> figure : figures.entrySet()) {
+                out.write(escape(figure.getKey()) + "=" + figure.getValue() + "\n");
+            }
+        }
+    }
+
+    private static String escape(String key) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : key.toCharArray()) {
+            if (c == ' ' || c == '=' || c == ':' || c == '#' || c == '!' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                escaped.append(String.format("\\u%04X", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * One line per figure, with its change since the previous report if there is one;
+     * figures gone since then are listed as 0.
+     *
+     * @param previous the figures of the previous report, or null
+     */
+    List<String> describe(Map<String, Long> figures, Map<String, Long> previous) {
+        Map<String, Long> all = new LinkedHashMap<>(figures);
+        if (previous != null) {
+            for (String name : previous.keySet()) {
+                all.putIfAbsent(name, 0L);
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Long> figure : all.entrySet()) {
+            String line = String.format("%-" + nameWidth + "s %,14d %s", figure.getKey(), figure.getValue(),
+                    unit.apply(figure.getKey()));
+            if (previous != null) {
+                Long before = previous.get(figure.getKey());
+                line += before == null ? "  new" : String.format("  %+,d", figure.getValue() - before);
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * @param budgets the highest value of each figure
+     * @return the figures over their budget, with their value and budget
+     */
+    List<String> overBudget(Map<String, Long> figures, Map<String, Long> budgets) {
+        List<String> exceeded = new ArrayList<>();
+        for (Map.Entry<String, Long> budget : budgets.entrySet()) {
+            long value = figures.getOrDefault(budget.getKey(), 0L);
+            if (value > budget.getValue()) {
+                String unitOfFigure = unit.apply(budget.getKey());
+                exceeded.add(String.format("%s is %,d %s, over its budget of %,d %s by %,d", budget.getKey(), value,
+                        unitOfFigure, budget.getValue(), unitOfFigure, value - budget.getValue()));
+            }
+        }
+        return exceeded;
+    }
+}
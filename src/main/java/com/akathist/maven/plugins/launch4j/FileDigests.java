@@ -0,0 +1,96 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SHA-256 digests of file contents. Each file is read once however often its digest is asked for,
+ * and files can be hashed ahead of time on another thread.
+ */
+class FileDigests {
+
+    private final Map<File, String> digests = new ConcurrentHashMap<>();
+
+    String of(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        String digest = digests.get(key);
+        if (digest == null) {
+            digest = compute(key);
+            digests.put(key, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * Records the digest of a file just written with content known to have that digest.
+     */
+    void remember(File file, String digest) {
+        digests.put(file.getAbsoluteFile(), digest);
+    }
+
+    /**
+     * Hashes the given files, skipping the missing ones.
+     *
+     * @param baseDir the directory relative files are resolved against
+     */
+    void prefetch(File baseDir, Collection<File> files) {
+        for (File file : files) {
+            if (file == null) {
+                continue;
+            }
+            if (!file.isAbsolute() && baseDir != null) {
+                file = new File(baseDir, file.getPath());
+            }
+            if (file.isFile()) {
+                try {
+                    of(file);
+                } catch (IOException e) {
+                    // reported when the digest is needed
+                }
+            }
+        }
+    }
+
+    private static String compute(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return Fingerprint.toHex(digest.digest());
+    }
+}
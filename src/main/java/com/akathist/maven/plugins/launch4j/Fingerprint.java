@@ -0,0 +1,237 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.config.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A SHA-256 digest over everything which ends up in the executable: the effective configuration,
+ * the content of every file it refers to and the launch4j toolchain building it.
+ * <p/>
+ * Paths which do not change the produced bytes (like the outfile) are left out on purpose,
+ * so the same launcher built in different checkouts or on different machines has the same fingerprint.
+ */
+class Fingerprint {
+
+    static final String POM_PROPERTIES =
+            "META-INF/maven/com.akathist.maven.plugins.launch4j/launch4j-maven-plugin/pom.properties";
+
+    /**
+     * The version of this plugin, so an upgrade producing other bytes does not reuse the executables of
+     * the previous version.
+     */
+    private static final String PLUGIN_VERSION = readPluginVersion(Fingerprint.class.getClassLoader());
+
+    private final MessageDigest digest;
+
+    private final File baseDir;
+
+    private final FileDigests digests;
+
+    Fingerprint(File baseDir) {
+        this(baseDir, new FileDigests());
+    }
+
+    Fingerprint(File baseDir, FileDigests digests) {
+        this.baseDir = baseDir;
+        this.digests = digests;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param config    the effective configuration, as passed to the Builder
+     * @param baseDir   the directory relative files of the configuration are resolved against
+     * @param workDir   the platform-specific launch4j work directory, custom objs and libs are relative to it
+     * @param timestamp the output timestamp, which is written into the executable
+     */
+    static String of(Config config, File baseDir, File workDir, OutputTimestamp timestamp) throws IOException {
+        return of(config, baseDir, workDir, timestamp, new FileDigests());
+    }
+
+    /**
+     * @param digests the digests of files hashed already, e.g. while the work directory was being prepared
+     */
+    static String of(Config config, File baseDir, File workDir, OutputTimestamp timestamp, FileDigests digests)
+            throws IOException {
+        return of(config, baseDir, workDir, timestamp, digests, PLUGIN_VERSION);
+    }
+
+    /**
+     * @param pluginVersion the version of the plugin building the executable
+     */
+    static String of(Config config, File baseDir, File workDir, OutputTimestamp timestamp, FileDigests digests,
+                     String pluginVersion) throws IOException {
+        Fingerprint fingerprint = new Fingerprint(baseDir, digests);
+
+        fingerprint.put("plugin", pluginVersion);
+        fingerprint.put("toolchain", workDir.getName());
+        fingerprint.put("outputTimestamp", timestamp.toString());
+        fingerprint.put("headerType", config.getHeaderType());
+        fingerprint.putFiles("headerObjects", workDir, config.getHeaderObjects());
+        fingerprint.putFiles("libs", workDir, config.getLibs());
+        fingerprint.put("dontWrapJar", config.isDontWrapJar());
+        if (config.isDontWrapJar()) {
+            fingerprint.put("jar", String.valueOf(config.getJar()));
+        } else {
+            fingerprint.putFile("jar", config.getJar());
+        }
+        fingerprint.put("errTitle", config.getErrTitle());
+        fingerprint.put("downloadUrl", config.getDownloadUrl());
+        fingerprint.put("supportUrl", config.getSupportUrl());
+        fingerprint.put("cmdLine", config.getCmdLine());
+        fingerprint.put("chdir", config.getChdir());
+        fingerprint.put("priority", config.getPriorityIndex());
+        fingerprint.put("stayAlive", config.isStayAlive());
+        fingerprint.put("restartOnCrash", config.isRestartOnCrash());
+        fingerprint.putFile("manifest", config.getManifest());
+        fingerprint.putFile("icon", config.getIcon());
+        fingerprint.put("vars", config.getVariables());
+
+        if (config.getClassPath() != null) {
+            fingerprint.put("classPath.mainClass", config.getClassPath().getMainClass());
+            fingerprint.put("classPath.paths", config.getClassPath().getPaths());
+        }
+        if (config.getJre() != null) {
+            fingerprint.put("jre.path", config.getJre().getPath());
+            fingerprint.put("jre.requires64Bit", config.getJre().getRequires64Bit());
+            fingerprint.put("jre.minVersion", config.getJre().getMinVersion());
+            fingerprint.put("jre.maxVersion", config.getJre().getMaxVersion());
+            fingerprint.put("jre.requiresJdk", config.getJre().getRequiresJdk());
+            fingerprint.put("jre.initialHeapSize", config.getJre().getInitialHeapSize());
+            fingerprint.put("jre.initialHeapPercent", config.getJre().getInitialHeapPercent());
+            fingerprint.put("jre.maxHeapSize", config.getJre().getMaxHeapSize());
+            fingerprint.put("jre.maxHeapPercent", config.getJre().getMaxHeapPercent());
+            fingerprint.put("jre.opts", config.getJre().getOptions());
+        }
+        if (config.getSingleInstance() != null) {
+            fingerprint.put("singleInstance.mutexName", config.getSingleInstance().getMutexName());
+            fingerprint.put("singleInstance.windowTitle", config.getSingleInstance().getWindowTitle());
+        }
+        if (config.getSplash() != null) {
+            fingerprint.putFile("splash.file", config.getSplash().getFile());
+            fingerprint.put("splash.waitForWindow", config.getSplash().getWaitForWindow());
+            fingerprint.put("splash.timeout", config.getSplash().getTimeout());
+            fingerprint.put("splash.timeoutErr", config.getSplash().isTimeoutErr());
+        }
+        if (config.getVersionInfo() != null) {
+            fingerprint.put("versionInfo.fileVersion", config.getVersionInfo().getFileVersion());
+            fingerprint.put("versionInfo.txtFileVersion", config.getVersionInfo().getTxtFileVersion());
+            fingerprint.put("versionInfo.fileDescription", config.getVersionInfo().getFileDescription());
+            fingerprint.put("versionInfo.copyright", config.getVersionInfo().getCopyright());
+            fingerprint.put("versionInfo.productVersion", config.getVersionInfo().getProductVersion());
+            fingerprint.put("versionInfo.txtProductVersion", config.getVersionInfo().getTxtProductVersion());
+            fingerprint.put("versionInfo.productName", config.getVersionInfo().getProductName());
+            fingerprint.put("versionInfo.companyName", config.getVersionInfo().getCompanyName());
+            fingerprint.put("versionInfo.internalName", config.getVersionInfo().getInternalName());
+            fingerprint.put("versionInfo.originalFilename", config.getVersionInfo().getOriginalFilename());
+            fingerprint.put("versionInfo.language", config.getVersionInfo().getLanguageIndex());
+            fingerprint.put("versionInfo.trademarks", config.getVersionInfo().getTrademarks());
+        }
+        if (config.getMessages() != null) {
+            fingerprint.put("messages.startupErr", config.getMessages().getStartupErr());
+            fingerprint.put("messages.jreNotFoundErr", config.getMessages().getJreNotFoundErr());
+            fingerprint.put("messages.jreVersionErr", config.getMessages().getJreVersionErr());
+            fingerprint.put("messages.launcherErr", config.getMessages().getLauncherErr());
+            fingerprint.put("messages.instanceAlreadyExistsMsg", config.getMessages().getInstanceAlreadyExistsMsg());
+        }
+
+        return fingerprint.toHex();
+    }
+
+    void put(String name, Object value) {
+        update(name);
+        update(value == null ? "\u0000null" : value.toString());
+    }
+
+    void putFile(String name, File file) throws IOException {
+        update(name);
+        if (file != null && !file.isAbsolute() && baseDir != null) {
+            file = new File(baseDir, file.getPath());
+        }
+        if (file == null || !file.isFile()) {
+            update(file == null ? "\u0000null" : "\u0000missing:" + file.getName());
+            return;
+        }
+
+        update(file.getName());
+        update(digests.of(file));
+    }
+
+    private void putFiles(String name, File workDir, List<String> paths) throws IOException {
+        if (paths == null) {
+            put(name, null);
+            return;
+        }
+        for (String path : paths) {
+            File file = new File(path);
+            putFile(name, file.isAbsolute() ? file : new File(workDir, path));
+        }
+    }
+
+    private void update(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    String toHex() {
+        return toHex(digest.digest());
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The version Maven wrote into the plugin jar's pom.properties; the jar's manifest has no
+     * Implementation-Version. Null when the plugin runs from its classes, e.g. in its own tests.
+     */
+    static String readPluginVersion(ClassLoader loader) {
+        try (InputStream in = loader.getResourceAsStream(POM_PROPERTIES)) {
+            if (in == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties.getProperty("version");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps cache entries on a plain HTTP server: GET {url}/{fingerprint}/launcher.exe looks an entry up,
+ * a 404 is a miss, and PUT stores it. Any WebDAV-like server or object store with such semantics will do,
+ * e.g. nginx with the dav module or a generic repository in Nexus or Artifactory.
+ */
+class HttpOutputCache implements OutputCache {
+
+    private final String url;
+
+    private final int timeout;
+
+    HttpOutputCache(String url, int timeout) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean fetch(String fingerprint, File exe) throws IOException {
+        HttpURLConnection connection = open(fingerprint, EXECUTABLE, "GET");
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("GET " + connection.getURL() + " failed with HTTP " + status);
+            }
+
+            Path target = exe.toPath().toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), exe.getName(), ".tmp");
+            try (InputStream in = connection.getInputStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return true;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void store(String fingerprint, File exe, File config) throws IOException {
+        if (config != null && config.isFile()) {
+            put(fingerprint, CONFIG, config);
+        }
+        put(fingerprint, EXECUTABLE, exe);
+    }
+
+    private void put(String fingerprint, String name, File file) throws IOException {
+        HttpURLConnection connection = open(fingerprint, name, "PUT");
+        try {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(file.length());
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            try (OutputStream out = connection.getOutputStream()) {
+                Files.copy(file.toPath(), out);
+            }
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("PUT " + connection.getURL() + " failed with HTTP " + status);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String fingerprint, String name, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "/" + fingerprint + "/" + name).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
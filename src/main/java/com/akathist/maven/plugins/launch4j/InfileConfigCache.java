@@ -0,0 +1,189 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.config.ClassPath;
+import net.sf.launch4j.config.Config;
+import net.sf.launch4j.config.ConfigPersister;
+import net.sf.launch4j.config.ConfigPersisterException;
+import net.sf.launch4j.config.Jre;
+import net.sf.launch4j.config.Msg;
+import net.sf.launch4j.config.SingleInstance;
+import net.sf.launch4j.config.Splash;
+import net.sf.launch4j.config.VersionInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the configurations parsed from infiles for the whole Maven session, so a launch4j XML shared
+ * by many modules of a reactor is parsed by XStream only once. An entry is reused while the file's
+ * canonical path, size, modification time and content hash stay the same.
+ * <p/>
+ * Every caller gets a copy of its own to apply the overrides to, the cached configuration is never handed out.
+ */
+class InfileConfigCache {
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the configuration stored in the infile. Loads it with the ConfigPersister if it is not cached yet,
+     * which is left blank afterwards.
+     */
+    Config load(File infile) throws ConfigPersisterException, IOException {
+        Path path = infile.toPath().toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        String hash = hash(path);
+        Entry cached = entries.get(path);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified && cached.hash.equals(hash)) {
+            return copyOf(cached.config);
+        }
+
+        Config loaded;
+        synchronized (ConfigPersister.class) {
+            try {
+                ConfigPersister.getInstance().load(path.toFile());
+                loaded = ConfigPersister.getInstance().getConfig();
+            } finally {
+                ConfigPersister.getInstance().createBlank();
+            }
+        }
+        entries.put(path, new Entry(size, lastModified, hash, copyOf(loaded)));
+        return loaded;
+    }
+
+    private static String hash(Path path) throws IOException {
+        return new FileDigests().of(path.toFile());
+    }
+
+    private static final class Entry {
+        final long size;
+        final long lastModified;
+        final String hash;
+        final Config config;
+
+        Entry(long size, long lastModified, String hash, Config config) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.config = config;
+        }
+    }
+
+    /**
+     * A deep copy of the configuration. Copies field by field, as an XStream round trip would cost about as much
+     * as parsing the infile again; InfileConfigCacheTest fails for any property of launch4j's configuration
+     * this does not copy, so a newer launch4j cannot silently lose one.
+     */
+    static Config copyOf(Config source) {
+        Config c = new Config();
+        c.setDontWrapJar(source.isDontWrapJar());
+        c.setHeaderType(source.getHeaderType());
+        c.setHeaderObjects(copyOf(source.getHeaderObjects()));
+        c.setLibs(copyOf(source.getLibs()));
+        c.setJar(source.getJar());
+        c.setOutfile(source.getOutfile());
+        c.setErrTitle(source.getErrTitle());
+        c.setCmdLine(source.getCmdLine());
+        c.setChdir(source.getChdir());
+        c.setPriority(source.getPriority());
+        c.setDownloadUrl(source.getDownloadUrl());
+        c.setSupportUrl(source.getSupportUrl());
+        c.setStayAlive(source.isStayAlive());
+        c.setRestartOnCrash(source.isRestartOnCrash());
+        c.setManifest(source.getManifest());
+        c.setIcon(source.getIcon());
+        c.setVariables(copyOf(source.getVariables()));
+
+        if (source.getSingleInstance() != null) {
+            SingleInstance singleInstance = new SingleInstance();
+            singleInstance.setMutexName(source.getSingleInstance().getMutexName());
+            singleInstance.setWindowTitle(source.getSingleInstance().getWindowTitle());
+            c.setSingleInstance(singleInstance);
+        }
+        if (source.getClassPath() != null) {
+            ClassPath classPath = new ClassPath();
+            classPath.setMainClass(source.getClassPath().getMainClass());
+            classPath.setPaths(copyOf(source.getClassPath().getPaths()));
+            c.setClassPath(classPath);
+        }
+        if (source.getJre() != null) {
+            Jre jre = new Jre();
+            jre.setPath(source.getJre().getPath());
+            jre.setRequiresJdk(source.getJre().getRequiresJdk());
+            jre.setRequires64Bit(source.getJre().getRequires64Bit());
+            jre.setMinVersion(source.getJre().getMinVersion());
+            jre.setMaxVersion(source.getJre().getMaxVersion());
+            jre.setInitialHeapSize(source.getJre().getInitialHeapSize());
+            jre.setInitialHeapPercent(source.getJre().getInitialHeapPercent());
+            jre.setMaxHeapSize(source.getJre().getMaxHeapSize());
+            jre.setMaxHeapPercent(source.getJre().getMaxHeapPercent());
+            jre.setOptions(copyOf(source.getJre().getOptions()));
+            c.setJre(jre);
+        }
+        if (source.getSplash() != null) {
+            Splash splash = new Splash();
+            splash.setFile(source.getSplash().getFile());
+            splash.setWaitForWindow(source.getSplash().getWaitForWindow());
+            splash.setTimeout(source.getSplash().getTimeout());
+            splash.setTimeoutErr(source.getSplash().isTimeoutErr());
+            c.setSplash(splash);
+        }
+        if (source.getVersionInfo() != null) {
+            VersionInfo versionInfo = new VersionInfo();
+            versionInfo.setFileVersion(source.getVersionInfo().getFileVersion());
+            versionInfo.setTxtFileVersion(source.getVersionInfo().getTxtFileVersion());
+            versionInfo.setFileDescription(source.getVersionInfo().getFileDescription());
+            versionInfo.setCopyright(source.getVersionInfo().getCopyright());
+            versionInfo.setProductVersion(source.getVersionInfo().getProductVersion());
+            versionInfo.setTxtProductVersion(source.getVersionInfo().getTxtProductVersion());
+            versionInfo.setProductName(source.getVersionInfo().getProductName());
+            versionInfo.setCompanyName(source.getVersionInfo().getCompanyName());
+            versionInfo.setInternalName(source.getVersionInfo().getInternalName());
+            versionInfo.setOriginalFilename(source.getVersionInfo().getOriginalFilename());
+            versionInfo.setTrademarks(source.getVersionInfo().getTrademarks());
+            versionInfo.setLanguage(source.getVersionInfo().getLanguage());
+            c.setVersionInfo(versionInfo);
+        }
+        if (source.getMessages() != null) {
+            Msg messages = new Msg();
+            messages.setStartupErr(source.getMessages().getStartupErr());
+            messages.setJreNotFoundErr(source.getMessages().getJreNotFoundErr());
+            messages.setJreVersionErr(source.getMessages().getJreVersionErr());
+            messages.setLauncherErr(source.getMessages().getLauncherErr());
+            messages.setInstanceAlreadyExistsMsg(source.getMessages().getInstanceAlreadyExistsMsg());
+            c.setMessages(messages);
+        }
+        return c;
+    }
+
+    private static List<String> copyOf(List<String> source) {
+        return source != null ? new ArrayList<>(source) : null;
+    }
+}
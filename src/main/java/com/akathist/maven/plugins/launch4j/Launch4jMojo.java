@@ -27,48 +27,56 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.project.ProjectDependenciesResolver;
 import org.apache.maven.repository.RepositorySystem;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * Wraps a jar in a Windows executable.
+ * The runtime dependencies are resolved by the goal itself, only if they end up on the classpath,
+ * see {@link RuntimeDependencies}.
  */
 @Mojo(
         name = "launch4j",
         defaultPhase = LifecyclePhase.PACKAGE,
-        requiresDependencyResolution = ResolutionScope.RUNTIME,
         threadSafe = true
 )
 public class Launch4jMojo extends AbstractMojo {
 
-    private static final String LAUNCH4J_ARTIFACT_ID = "launch4j";
+    static final String LAUNCH4J_ARTIFACT_ID = "launch4j";
 
-    private static final String LAUNCH4J_GROUP_ID = "net.sf.launch4j";
+    static final String LAUNCH4J_GROUP_ID = "net.sf.launch4j";
 
     /**
      * Maven Session.
@@ -77,10 +85,21 @@ public class Launch4jMojo extends AbstractMojo {
     private MavenSession session;
 
     /**
-     * The dependencies required by the project.
+     * The execution of this goal, which tags the output of launch4j.
      */
-    @Parameter(defaultValue = "${project.artifacts}", required = true, readonly = true)
-    private Set<Artifact> dependencies;
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    /**
+     * Resolves the dependencies of the project when the classpath needs them.
+     */
+    @Component(role = ProjectDependenciesResolver.class)
+    private ProjectDependenciesResolver dependenciesResolver;
+
+    /**
+     * The runtime dependencies, resolved on first use; not set for the validate goal, which does not resolve them.
+     */
+    private RuntimeDependencies runtimeDependencies;
 
     /**
      * The user's current project.
@@ -236,12 +255,14 @@ public class Launch4jMojo extends AbstractMojo {
 
     /**
      * Object files to include. Used for custom headers only.
+     * Files of the project are staged in ${project.build.directory}/launch4j next to links to the launch4j work directory.
      */
     @Parameter
     private List<String> objs;
 
     /**
      * Win32 libraries to include. Used for custom headers only.
+     * Files of the project are staged in ${project.build.directory}/launch4j next to links to the launch4j work directory.
      */
     @Parameter
     private List<String> libs;
@@ -301,6 +322,55 @@ public class Launch4jMojo extends AbstractMojo {
     @Parameter
     private File manifest;
 
+    /**
+     * Settings of a manifest generated by the plugin, an alternative to a hand-written {@link #manifest}:
+     * execution level, DPI awareness, long path awareness, segment heap and UTF-8 code page.
+     */
+    @Parameter
+    private WindowsManifest windowsManifest;
+
+    /**
+     * Branded variants of the executable listed in a table, each a copy of the executable with its own
+     * version information, icon, errTitle or messages. launch4j builds only the executable itself,
+     * the variants get their resources written over in parallel.
+     */
+    @Parameter
+    private BrandingMatrix brandingMatrix;
+
+    /**
+     * A binary patch from the executable of the previous release to the one built, written next to it
+     * with a manifest of the sizes and digests of both.
+     */
+    @Parameter
+    private DeltaPatch deltaPatch;
+
+    /**
+     * An Authenticode signature of the executable and its branded variants, made by the plugin with a key
+     * from a keystore, in place of running a signing tool on each executable afterwards.
+     */
+    @Parameter
+    private Signing signing;
+
+    /**
+     * A report of the size of the executable's headers, sections, resources, wrapped jar and signature,
+     * compared with the previous build, with budgets failing the build when a component grows over them.
+     */
+    @Parameter
+    private CompositionReport compositionReport;
+
+    /**
+     * Startup diagnostics the executable can be switched to in the field with an environment variable:
+     * a flight recording, class loading and GC logs. See README for how the switch works.
+     */
+    @Parameter
+    private StartupDiagnostics startupDiagnostics;
+
+    /**
+     * How the profile-startup goal runs the wrapped application and the budgets of its startup figures.
+     */
+    @Parameter
+    private StartupProfile startupProfile;
+
     /**
      * If set to true it will save final config into a XML file
      */
@@ -319,12 +389,78 @@ public class Launch4jMojo extends AbstractMojo {
     @Parameter(defaultValue = "false")
     private boolean parallelExecution = false;
 
+    /**
+     * How many native builds (windres and ld) may run at once, independently of Maven's thread count.
+     * The limit applies to all modules built within this JVM and, if {@link #buildLockDirectory} is set,
+     * to all Maven processes sharing that directory. Without {@link #buildWorkers}, the builds within one JVM
+     * take turns anyway, as launch4j keeps its configuration in a JVM-wide singleton, so a limit above 1
+     * only lets more Maven processes sharing the lock directory build at once.
+     * Modules configured with different limits share one count, held to the smallest limit of the builds at hand.
+     */
+    @Parameter(property = "launch4j.maxConcurrentBuilds", defaultValue = "1")
+    private int maxConcurrentBuilds = 1;
+
+    /**
+     * A directory shared by the Maven processes on a machine, e.g. parallel CI jobs on one agent,
+     * keeping lock files which limit native builds across these processes to {@link #maxConcurrentBuilds}.
+     */
+    @Parameter(property = "launch4j.buildLockDirectory")
+    private File buildLockDirectory;
+
+    /**
+     * Time in milliseconds the native build of the executable may take before it is killed and the execution fails,
+     * 0 for no limit.
+     */
+    @Parameter(property = "launch4j.buildTimeout", defaultValue = "600000")
+    private long buildTimeout = 600000;
+
+    /**
+     * Time in milliseconds each phase of the native build (compiling resources, linking, wrapping the jar)
+     * may take before the build is killed and the execution fails, 0 for no limit.
+     */
+    @Parameter(property = "launch4j.phaseTimeout", defaultValue = "300000")
+    private long phaseTimeout = 300000;
+
+    /**
+     * The lowest level of launch4j's output shown in the build log: debug (the output of windres and ld),
+     * info (progress), warn or off. The output of each execution is shown as one block after the native build,
+     * all of it is written to ${project.build.directory}/launch4j.log. All output is shown if the build fails
+     * and debug output if Maven runs with -X.
+     */
+    @Parameter(property = "launch4j.logLevel", defaultValue = "info")
+    private String logLevel = "info";
+
+    /**
+     * How many build worker JVMs build the executables, 0 builds them within Maven's JVM.
+     * Workers are started once per Maven process and keep launch4j warmed up for the following builds;
+     * each has its own launch4j configuration, so modules built with -T build in parallel,
+     * up to {@link #maxConcurrentBuilds} at a time.
+     */
+    @Parameter(property = "launch4j.buildWorkers", defaultValue = "0")
+    private int buildWorkers = 0;
+
     /**
      * If set to true, execution of the plugin will be skipped
      */
     @Parameter(defaultValue = "false")
     private boolean skip = false;
 
+    /**
+     * Details about a cache of finished executables shared between builds and CI nodes.
+     * Executables are looked up by a fingerprint of all the inputs, on a hit the cached executable is used
+     * and launch4j does not run at all, on a miss the executable built is stored in the cache.
+     */
+    @Parameter
+    private BuildCache buildCache;
+
+    /**
+     * Timestamp for reproducible output, either formatted as ISO 8601 <code>yyyy-MM-dd'T'HH:mm:ssXXX</code>
+     * or as an int representing seconds since the epoch. When set, it replaces the wall clock in the executable's
+     * header, in its modification time and in the build year of the default copyright.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
     private File getJar() {
         return new File(jar);
     }
@@ -340,40 +476,630 @@ public class Launch4jMojo extends AbstractMojo {
         }
     }
 
-    private void doExecute() throws MojoExecutionException {
+    void doExecute() throws MojoExecutionException {
         if (this.skipExecution()) {
             getLog().debug("Skipping execution of the plugin");
             return;
         }
 
-        if (!disableVersionInfoDefaults) {
+        runtimeDependencies = new RuntimeDependencies(dependenciesResolver, project, session, getLog());
+        final OutputTimestamp timestamp = parseOutputTimestamp();
+        final FileDigests digests = new FileDigests();
+        final PreparedBuild prepared = setUp(timestamp, digests);
+
+        if (getLog().isDebugEnabled()) {
+            printState(prepared.config);
+        }
+        final File outputFile = outputFile(prepared.config);
+
+        // an executable from the build cache needs neither launch4j's singleton nor the XStream instance it sets up,
+        // which takes most of a second in a fresh JVM
+        final OutputCache outputCache = createOutputCache();
+        String fingerprint = null;
+        if (outputCache != null) {
+            fingerprint = fingerprint(prepared.config, prepared.workDir, timestamp, digests);
+            if (fetchFromOutputCache(outputCache, fingerprint, outputFile, timestamp)) {
+                stageDependencies();
+                saveConfigFile(prepared.config, null);
+                publish(outputFile, timestamp);
+                return;
+            }
+        }
+
+        // launch4j keeps the configuration in a JVM-wide singleton, so executions within this JVM take turns with it
+        // until the executable is written or saved for a build worker, and hand it back blank for the next build;
+        // the native build permit is taken first, so no execution holds the singleton while it waits for a slot
+        File workerRequest = null;
+        File executable = null;
+        try (NativeBuildLimiter.Permit permit = buildWorkers <= 0 ? acquireNativeBuildPermit() : null) {
+            final long queued = System.nanoTime();
+            synchronized (ConfigPersister.class) {
+                long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queued);
+                if (waited >= NativeBuildLimiter.NOTABLE_WAIT_MILLIS) {
+                    getLog().info("Waited " + waited + " ms for another launch4j execution in this JVM");
+                } else if (waited > 0) {
+                    getLog().debug("Waited " + waited + " ms for another launch4j execution in this JVM");
+                }
+                if (buildWorkers <= 0) {
+                    BuildWatchdog.checkNoBuildLeftBehind();
+                }
+                try {
+                    ConfigPersister.getInstance().setAntConfig(prepared.config, configBaseDir());
+                    if (buildWorkers <= 0) {
+                        executable = build(prepared, outputFile, null);
+                    } else {
+                        workerRequest = saveWorkerRequest();
+                    }
+                } finally {
+                    ConfigPersister.getInstance().createBlank();
+                }
+            }
+        }
+        if (executable == null) {
+            try (NativeBuildLimiter.Permit permit = acquireNativeBuildPermit()) {
+                executable = build(prepared, outputFile, workerRequest);
+            }
+        }
+        complete(prepared, executable, workerRequest, timestamp, outputCache, fingerprint);
+    }
+
+    private NativeBuildLimiter.Permit acquireNativeBuildPermit() throws MojoExecutionException {
+        return NativeBuildLimiter.acquire(maxConcurrentBuilds, buildLockDirectory, getLog());
+    }
+
+    /**
+     * Builds the executable, in this JVM while the caller holds the launch4j singleton, or on a build worker.
+     * The caller holds a native build permit.
+     *
+     * @param workerRequest the configuration saved for a build worker, or null to build in this JVM
+     * @return the executable written
+     */
+    private File build(PreparedBuild prepared, File outputFile, File workerRequest) throws MojoExecutionException {
+        final File workDir = prepared.workDir;
+        final MavenLog launch4jLog = createLaunch4jLog();
+        final BuildWatchdog watchdog = new BuildWatchdog(buildTimeout, phaseTimeout, getLog());
+        final net.sf.launch4j.Log watchedLog = watchdog.watch(launch4jLog);
+        File executable = null;
+        try {
+            BuildWatchdog.Build build;
+            if (workerRequest == null) {
+                build = new Builder(watchedLog, workDir)::build;
+            } else {
+                BuildWorkerPool pool = BuildWorkerPool.get(buildWorkers, workerClasspath(), getLog());
+                build = () -> pool.build(workerRequest, configBaseDir(), workDir, watchedLog, getLog(), watchdog::servedBy);
+            }
+            executable = watchdog.run(build, outputFile, workDir);
+        } catch (BuilderException e) {
+            getLog().error(e);
+            throw new MojoExecutionException("Failed to build the executable; please verify your configuration.", e);
+        } finally {
+            File logFile = new File(project.getBuild().getDirectory(), "launch4j.log");
+            boolean firstInThisBuild = SessionScoped.get(session, "logFiles", ConcurrentHashMap::newKeySet)
+                    .add(logFile.getAbsolutePath());
+            launch4jLog.flush(executable == null, logFile, firstInThisBuild);
+        }
+        return executable;
+    }
+
+    /**
+     * Applies the output timestamp, stages the dependencies, saves the configuration, stores the executable
+     * in the build cache and publishes it.
+     *
+     * @param workerRequest the configuration saved for a build worker, or null if built in this JVM
+     * @param fingerprint   the executable's key in the output cache, null without a cache
+     */
+    private void complete(PreparedBuild prepared, File executable, File workerRequest, OutputTimestamp timestamp,
+                          OutputCache outputCache, String fingerprint) throws MojoExecutionException {
+        if (timestamp.isReproducible()) {
+            try {
+                getLog().debug("Stamping " + executable + " with output timestamp " + timestamp);
+                ReproducibleExecutable.normalize(executable, timestamp.getInstant());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot apply the output timestamp to " + executable, e);
+            }
+        }
+
+        stageDependencies();
+        saveConfigFile(prepared.config, workerRequest);
+
+        // the cache keeps the executable unsigned, so signing is not part of its fingerprint
+        if (outputCache != null && fingerprint != null && !buildCache.readOnly) {
+            storeInOutputCache(outputCache, fingerprint, executable);
+        }
+        publish(executable, timestamp);
+    }
+
+    /**
+     * Writes the branded variants, signs the executable and writes the patch from the previous release,
+     * in this order: variants are made from the unsigned executable and the patch leads to the signed one.
+     * The composition of the executable, as shipped, is reported last.
+     */
+    private void publish(File executable, OutputTimestamp timestamp) throws MojoExecutionException {
+        AuthenticodeSigner signer = createSigner();
+        writeBrandedVariants(executable, signer);
+        sign(executable, signer, timestamp);
+        writeDeltaPatch(executable);
+        writeCompositionReport(executable);
+        writeDiagnosticsScript(executable);
+    }
+
+    /**
+     * Prepares the work directory and the configuration, running the steps which do not depend on each other
+     * concurrently: resolving and unpacking the work directory, creating the output folder, computing the classpath
+     * and assembling the configuration. Custom objs and libs are staged in the project's overlay of the work directory
+     * as soon as the work directory is there, the files going into the build cache's fingerprint are hashed
+     * as soon as the configuration is known.
+     *
+     * @return the configuration and the directory launch4j builds in
+     */
+    private PreparedBuild setUp(OutputTimestamp timestamp, FileDigests digests) throws MojoExecutionException {
+        ExecutorService executor = SessionScoped.get(session, "setupExecutor", SetupPipeline::newExecutor);
+        try (SetupPipeline pipeline = new SetupPipeline(executor)) {
+            SetupPipeline.Task<File> workDir = pipeline.submit("work directory", this::setupBuildEnvironment);
+            SetupPipeline.Task<Void> outputFolder = pipeline.submit("output folder", () -> {
+                createParentFolder();
+                return null;
+            });
+            SetupPipeline.Task<net.sf.launch4j.config.ClassPath> l4jClassPath =
+                    pipeline.submit("classpath", this::computeClassPath);
+            SetupPipeline.Task<Config> config = pipeline.submit("configuration", () -> {
+                return assembleConfig(l4jClassPath.join(), fillOutVersionInfoDefaults(timestamp));
+            }, l4jClassPath);
+
+            SetupPipeline.Task<WorkDirOverlay> overlay = null;
+            SetupPipeline.Task<List<String>> headerObjects = null;
+            SetupPipeline.Task<List<String>> headerLibs = null;
+            if (infile == null && (isNotEmpty(objs) || isNotEmpty(libs))) {
+                overlay = pipeline.submit("overlay", () -> createOverlay(workDir.join()), workDir);
+                SetupPipeline.Task<WorkDirOverlay> staging = overlay;
+                headerObjects = pipeline.submit("objs", () -> staging.join().stage(basedir, objs, digests), overlay);
+                headerLibs = pipeline.submit("libs", () -> staging.join().stage(basedir, libs, digests), overlay);
+            }
+            SetupPipeline.Task<Void> assetHashes = null;
+            if (buildCache != null) {
+                assetHashes = pipeline.submit("asset hashes", () -> {
+                    digests.prefetch(configBaseDir(), assets(config.join()));
+                    return null;
+                }, config);
+            }
+
+            Config c = config.join();
+            if (headerObjects != null) {
+                c.setHeaderObjects(headerObjects.join());
+                c.setLibs(headerLibs.join());
+                overlay.join().complete();
+            }
+            outputFolder.join();
+            if (assetHashes != null) {
+                assetHashes.join();
+            }
+
+            getLog().debug("Set up in " + pipeline.elapsedMillis() + " ms, critical path: " + pipeline.criticalPath());
+            return new PreparedBuild(c, overlay != null ? overlay.join().getDirectory() : workDir.join());
+        }
+    }
+
+    private static final class PreparedBuild {
+        final Config config;
+        /**
+         * The work directory, or its overlay if custom objs or libs are linked.
+         */
+        final File workDir;
+
+        PreparedBuild(Config config, File workDir) {
+            this.config = config;
+            this.workDir = workDir;
+        }
+    }
+
+    private MavenLog createLaunch4jLog() throws MojoExecutionException {
+        String tag = project.getArtifactId() + (mojoExecution != null ? ":" + mojoExecution.getExecutionId() : "");
+        try {
+            return new MavenLog(getLog(), tag, MavenLog.Level.parse(logLevel));
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private static boolean isNotEmpty(List<String> paths) {
+        return paths != null && !paths.isEmpty();
+    }
+
+    /**
+     * The files the configuration refers to, which end up in the executable.
+     */
+    private static List<File> assets(Config c) {
+        List<File> assets = new ArrayList<>();
+        if (!c.isDontWrapJar()) {
+            assets.add(c.getJar());
+        }
+        assets.add(c.getIcon());
+        assets.add(c.getManifest());
+        if (c.getSplash() != null) {
+            assets.add(c.getSplash().getFile());
+        }
+        return assets;
+    }
+
+    /**
+     * Checks the whole configuration the way launch4j would before building, without touching the work directory.
+     */
+    void validateConfiguration() throws MojoExecutionException {
+        Config config = assembleConfig(computeClassPath(), fillOutVersionInfoDefaults(parseOutputTimestamp()));
+
+        List<String> problems;
+        synchronized (ConfigPersister.class) {
             try {
-                if(versionInfo == null) {
-                    versionInfo = new VersionInfo();
+                ConfigPersister.getInstance().setAntConfig(config, configBaseDir());
+
+                if (getLog().isDebugEnabled()) {
+                    printState(config);
+                }
+
+                ConfigurationValidator validator = new ConfigurationValidator(getLog());
+                problems = validator.validate(ConfigPersister.getInstance().getConfig(),
+                        ConfigPersister.getInstance().getConfigPath(), new File(project.getBuild().getDirectory()));
+            } finally {
+                ConfigPersister.getInstance().createBlank();
+            }
+        }
+        if (!problems.isEmpty()) {
+            StringBuilder message = new StringBuilder("Invalid launch4j configuration:");
+            for (String problem : problems) {
+                message.append(System.lineSeparator()).append(" - ").append(problem);
+            }
+            throw new MojoExecutionException(message.toString());
+        }
+        getLog().info("Launch4j configuration is valid");
+    }
+
+    /**
+     * Writes the version information, icon and manifest of the configuration into the outfile built earlier,
+     * changing nothing but its resource section.
+     */
+    void restamp() throws MojoExecutionException {
+        OutputTimestamp timestamp = parseOutputTimestamp();
+        Config config = assembleConfig(null, fillOutVersionInfoDefaults(timestamp));
+        File executable = outputFile(config);
+        if (!executable.isFile()) {
+            throw new MojoExecutionException("Cannot restamp " + executable + ", it does not exist; run the launch4j goal first");
+        }
+
+        ResourceStamp stamp = new ResourceStamp();
+        net.sf.launch4j.config.VersionInfo version = config.getVersionInfo();
+        if (version != null) {
+            versionString(stamp, "CompanyName", version.getCompanyName());
+            versionString(stamp, "FileDescription", version.getFileDescription());
+            versionString(stamp, "FileVersion", version.getTxtFileVersion());
+            versionString(stamp, "InternalName", version.getInternalName());
+            versionString(stamp, "LegalCopyright", version.getCopyright());
+            versionString(stamp, "LegalTrademarks", version.getTrademarks());
+            versionString(stamp, "OriginalFilename", version.getOriginalFilename());
+            versionString(stamp, "ProductName", version.getProductName());
+            versionString(stamp, "ProductVersion", version.getTxtProductVersion());
+            if (version.getFileVersion() != null) {
+                stamp.fileVersion(version.getFileVersion());
+            }
+            if (version.getProductVersion() != null) {
+                stamp.productVersion(version.getProductVersion());
+            }
+        }
+        if (config.getIcon() != null) {
+            stamp.icon(resolve(config.getIcon()));
+        }
+        if (config.getManifest() != null) {
+            stamp.manifest(resolve(config.getManifest()));
+        }
+        if (stamp.isEmpty()) {
+            getLog().info("Nothing to restamp in " + executable + ", neither versionInfo, icon nor manifest is configured");
+            return;
+        }
+
+        AuthenticodeSigner signer = createSigner();
+        try {
+            long start = System.nanoTime();
+            if (signer != null && AuthenticodeSigner.unsign(executable)) {
+                getLog().debug("Removed the signature of " + executable + " to sign it again after restamping");
+            }
+            ResourceTable resources = ResourceEditor.read(executable);
+            stamp.applyTo(resources);
+            ResourceEditor.write(executable, resources, executable);
+            getLog().info("Restamped " + executable + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IllegalArgumentException | IOException e) {
+            throw new MojoExecutionException("Cannot restamp " + executable + ": " + e.getMessage(), e);
+        }
+        sign(executable, signer, timestamp);
+    }
+
+    /**
+     * Runs the main class of the configuration on the JVM of the build, with the classpath, JVM options and
+     * variables the launcher would use, and reports how it starts, compared with the previous profile.
+     */
+    void profileStartup() throws MojoExecutionException {
+        StartupProfile settings = startupProfile != null ? startupProfile : new StartupProfile();
+        runtimeDependencies = new RuntimeDependencies(dependenciesResolver, project, session, getLog());
+        Config config = assembleConfig(computeClassPath(), fillOutVersionInfoDefaults(parseOutputTimestamp()));
+        File executable = outputFile(config).getAbsoluteFile();
+        File exeDir = executable.getParentFile();
+        File directory = config.getChdir() != null && !config.getChdir().isEmpty()
+                ? new File(exeDir, config.getChdir()) : getBaseDir();
+
+        Map<String, String> variables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        variables.putAll(System.getenv());
+        variables.put("EXEDIR", exeDir.getPath());
+        variables.put("EXEFILE", executable.getPath());
+        variables.put("PWD", directory.getPath());
+        variables.put("OLDPWD", getBaseDir().getPath());
+        variables.put("JREHOMEDIR", System.getProperty("java.home"));
+        Map<String, String> environment = new LinkedHashMap<>();
+        if (config.getVariables() != null) {
+            for (String variable : config.getVariables()) {
+                int equals = variable.indexOf('=');
+                if (equals > 0) {
+                    String value = StartupMeasurement.expand(variable.substring(equals + 1), variables);
+                    variables.put(variable.substring(0, equals), value);
+                    environment.put(variable.substring(0, equals), value);
                 }
-                versionInfo.setLog(getLog());
-                versionInfo.tryFillOutByDefaults(project, outfile);
-            } catch (RuntimeException exception) {
-                throw new MojoExecutionException("Cannot fill out VersionInfo by defaults", exception);
             }
         }
 
-        final File workDir = setupBuildEnvironment();
+        File jarFile = launchedJar(config, exeDir);
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        if (config.getJre() != null) {
+            addHeapOptions(command, config.getJre());
+            if (config.getJre().getOptions() != null) {
+                command.addAll(jvmOptions(config.getJre().getOptions(), variables));
+            }
+        }
+        command.add("-cp");
+        command.add(launcherClassPath(config, jarFile, exeDir, variables));
+
+        String mainClass = config.getClassPath() != null ? config.getClassPath().getMainClass() : mainClassOf(jarFile);
+        List<String> arguments = settings.arguments != null ? settings.arguments
+                : config.getCmdLine() != null ? splitCommandLine(StartupMeasurement.expand(config.getCmdLine(), variables))
+                : Collections.<String>emptyList();
+
+        File report = settings.file != null ? settings.file : new File(executable.getPath() + StartupProfile.SUFFIX);
+        File previous = settings.previous != null ? settings.previous : report;
+        StartupMeasurement measurement;
+        StartupMeasurement before = null;
+        List<String> exceeded;
+        try {
+            Map<String, Long> budgets = settings.parseBudgets();
+            if (previous.isFile()) {
+                before = StartupMeasurement.read(previous);
+            } else if (settings.previous != null) {
+                getLog().warn("The previous startup profile " + previous + " does not exist, nothing to compare with");
+            }
+            getLog().debug("Profiling the startup of " + mainClass + " with " + command + " in " + directory);
+            measurement = StartupMeasurement.measure(command, environment, directory, mainClass, arguments, settings,
+                    new File(project.getBuild().getDirectory(), "launch4j/startup"));
+            measurement.write(report);
+            exceeded = measurement.overBudget(budgets);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new MojoExecutionException("Cannot profile the startup of " + mainClass + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while profiling the startup of " + mainClass, e);
+        }
+
+        if (StartupProbe.TIMEOUT.equals(measurement.ready)) {
+            getLog().warn(mainClass + " was not ready within " + settings.timeout + " ms, measured as it was then");
+        }
+        getLog().info("Startup of " + mainClass + ", ready by " + measurement.ready
+                + (before != null ? ", compared with " + previous : "") + ", written to " + report);
+        for (String line : measurement.describe(before)) {
+            getLog().info("  " + line);
+        }
+        if (!exceeded.isEmpty()) {
+            for (String figure : exceeded) {
+                getLog().error(figure);
+            }
+            throw new MojoExecutionException("The startup of " + mainClass + " is over its budget: " + String.join("; ", exceeded));
+        }
+    }
+
+    /**
+     * The jar the launcher runs: the wrapped one, or with dontWrapJar the one next to the executable,
+     * falling back to the configured jar when it is not there yet.
+     */
+    private File launchedJar(Config config, File exeDir) {
+        if (config.isDontWrapJar() && !config.getJar().isAbsolute()) {
+            File nextToExecutable = new File(exeDir, config.getJar().getPath());
+            if (nextToExecutable.isFile()) {
+                return nextToExecutable;
+            }
+        }
+        return resolve(config.getJar());
+    }
+
+    /**
+     * The jar followed by the paths of the classpath, resolved against the executable's folder. A dependency
+     * which is not staged there yet is taken from the local repository instead.
+     */
+    private String launcherClassPath(Config config, File jarFile, File exeDir, Map<String, String> variables)
+            throws MojoExecutionException {
+        Map<String, File> dependencies = new LinkedHashMap<>();
+        if (classPath != null && infile == null) {
+            for (Artifact dependency : selectDependencies()) {
+                dependencies.put(dependency.getFile().getName(), dependency.getFile());
+            }
+        }
+        List<String> entries = new ArrayList<>();
+        entries.add(jarFile.getPath());
+        if (config.getClassPath() != null && config.getClassPath().getPaths() != null) {
+            for (String path : config.getClassPath().getPaths()) {
+                String expanded = StartupMeasurement.expand(path, variables).replace('\\', '/');
+                File file = new File(expanded).isAbsolute() ? new File(expanded) : new File(exeDir, expanded);
+                File dependency = dependencies.get(file.getName());
+                if (file.exists() || file.getName().contains("*")) {
+                    entries.add(file.getPath());
+                } else if (dependency != null) {
+                    entries.add(dependency.getPath());
+                } else {
+                    getLog().debug("Leaving " + path + " off the classpath, " + file + " does not exist");
+                }
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * The heap sizes as JVM options; a percentage is taken of the free physical memory of the build machine.
+     */
+    private static void addHeapOptions(List<String> command, net.sf.launch4j.config.Jre jre) {
+        long freeMegabytes = freePhysicalMemory() / (1024 * 1024);
+        if (jre.getInitialHeapSize() != null && jre.getInitialHeapSize() > 0) {
+            command.add("-Xms" + jre.getInitialHeapSize() + "m");
+        } else if (jre.getInitialHeapPercent() != null && jre.getInitialHeapPercent() > 0 && freeMegabytes > 0) {
+            command.add("-Xms" + freeMegabytes * jre.getInitialHeapPercent() / 100 + "m");
+        }
+        if (jre.getMaxHeapSize() != null && jre.getMaxHeapSize() > 0) {
+            command.add("-Xmx" + jre.getMaxHeapSize() + "m");
+        } else if (jre.getMaxHeapPercent() != null && jre.getMaxHeapPercent() > 0 && freeMegabytes > 0) {
+            command.add("-Xmx" + freeMegabytes * jre.getMaxHeapPercent() / 100 + "m");
+        }
+    }
+
+    /**
+     * The free physical memory in bytes, -1 if unknown. It matches launch4j's available physical memory;
+     * the method replacing the deprecated one, getFreeMemorySize, does not exist on Java 8.
+     */
+    @SuppressWarnings("deprecation")
+    private static long freePhysicalMemory() {
+        java.lang.management.OperatingSystemMXBean os = java.lang.management.ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+        }
+        return -1;
+    }
+
+    private static String mainClassOf(File jarFile) throws MojoExecutionException {
+        try (JarFile jar = new JarFile(jarFile)) {
+            Manifest manifest = jar.getManifest();
+            String mainClass = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS) : null;
+            if (mainClass == null) {
+                throw new MojoExecutionException("Cannot profile the startup, " + jarFile
+                        + " has no Main-Class and the configuration no classPath with a mainClass");
+            }
+            return mainClass.trim();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the manifest of " + jarFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The JVM options the launcher passes: it joins the opts into one command line after expanding
+     * the variables, so an opt may hold several options and quotes group words rather than being passed on.
+     */
+    static List<String> jvmOptions(List<String> options, Map<String, String> variables) {
+        List<String> arguments = new ArrayList<>();
+        for (String option : options) {
+            arguments.addAll(splitCommandLine(StartupMeasurement.expand(option, variables)));
+        }
+        return arguments;
+    }
+
+    /**
+     * Splits the cmdLine at spaces outside double quotes, the way the JVM gets it from the launcher.
+     */
+    static List<String> splitCommandLine(String commandLine) {
+        List<String> arguments = new ArrayList<>();
+        StringBuilder argument = new StringBuilder();
+        boolean quoted = false;
+        boolean started = false;
+        for (char c : commandLine.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                started = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (started) {
+                    arguments.add(argument.toString());
+                    argument.setLength(0);
+                    started = false;
+                }
+            } else {
+                argument.append(c);
+                started = true;
+            }
+        }
+        if (started) {
+            arguments.add(argument.toString());
+        }
+        return arguments;
+    }
+
+    private void addDiagnosticsSwitch(Config c) throws MojoExecutionException {
+        if (startupDiagnostics == null) {
+            return;
+        }
+        if (c.getJre() == null) {
+            throw new MojoExecutionException("<startupDiagnostics> needs a <jre> to add its JVM option to");
+        }
+        try {
+            c.getJre().setOptions(startupDiagnostics.withSwitch(c.getJre().getOptions()));
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private static void versionString(ResourceStamp stamp, String key, String value) {
+        if (value != null) {
+            stamp.versionString(key, value);
+        }
+    }
+
+    private OutputTimestamp parseOutputTimestamp() throws MojoExecutionException {
+        try {
+            return OutputTimestamp.parse(outputTimestamp);
+        } catch (IllegalArgumentException exception) {
+            throw new MojoExecutionException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * The defaults go into a copy, the configured versionInfo is left as it is for the next execution
+     * of the same mojo instance, as a build daemon may run it again.
+     *
+     * @return the versionInfo to build with, null if neither configured nor filled out by defaults
+     */
+    private VersionInfo fillOutVersionInfoDefaults(OutputTimestamp timestamp) throws MojoExecutionException {
+        if (disableVersionInfoDefaults) {
+            return versionInfo;
+        }
+        try {
+            VersionInfo effective = versionInfo != null ? versionInfo.copy() : new VersionInfo();
+            effective.setLog(getLog());
+            effective.tryFillOutByDefaults(project, outfile, timestamp.getYear());
+            return effective;
+        } catch (RuntimeException exception) {
+            throw new MojoExecutionException("Cannot fill out VersionInfo by defaults", exception);
+        }
+    }
+
+    /**
+     * Builds the launch4j configuration, either from the infile or from the plugin's parameters.
+     * Custom objs and libs are left where they are, see {@link #createOverlay(File)}.
+     *
+     * @param l4jClassPath the classpath computed from the plugin's parameters, ignored when loading the infile
+     * @param versionInfo  the versionInfo with its defaults filled out
+     */
+    private Config assembleConfig(net.sf.launch4j.config.ClassPath l4jClassPath, VersionInfo versionInfo)
+            throws MojoExecutionException {
         if (infile != null) {
             if (infile.exists()) {
                 try {
                     if (getLog().isDebugEnabled()) {
                         getLog().debug("Trying to load Launch4j native configuration using file=" + infile.getAbsolutePath());
                     }
-                    // load launch4j config file from <infile>
-                    ConfigPersister.getInstance().load(infile);
+                    // load launch4j config file from <infile>, parsed once per session and copied for this module
+                    InfileConfigCache infileConfigs = SessionScoped.get(session, "infileConfigs", InfileConfigCache::new);
+                    Config c = infileConfigs.load(infile);
 
                     // overwrite several properties analogous to the ANT task
                     // https://sourceforge.net/p/launch4j/git/ci/master/tree/src/net/sf/launch4j/ant/Launch4jTask.java#l84
 
-                    // retrieve the loaded configuration for manipulation
-                    Config c = ConfigPersister.getInstance().getConfig();
-
                     String jarDefaultValue = project.getBuild().getDirectory() + "/" + project.getBuild().getFinalName() + ".jar";
                     if (jar != null && !jar.equals(jarDefaultValue)) {
                         getLog().debug("Overwriting config file property 'jar' (='" + c.getJar().getAbsolutePath() + "') with local value '" + getJar().getAbsolutePath() + "'");
@@ -407,9 +1133,9 @@ public class Launch4jMojo extends AbstractMojo {
                         }
                     }
 
-                    ConfigPersister.getInstance().setAntConfig(c, infile.getParentFile());
-
-                } catch (ConfigPersisterException e) {
+                    addDiagnosticsSwitch(c);
+                    return c;
+                } catch (ConfigPersisterException | IOException e) {
                     getLog().error(e);
                     throw new MojoExecutionException("Could not load Launch4j native configuration file", e);
                 }
@@ -431,15 +1157,13 @@ public class Launch4jMojo extends AbstractMojo {
             c.setPriority(priority);
             c.setStayAlive(stayAlive);
             c.setRestartOnCrash(restartOnCrash);
-            c.setManifest(manifest);
+            c.setManifest(windowsManifest != null ? generateManifest() : manifest);
             c.setIcon(icon);
-            c.setHeaderObjects(relativizeAndCopy(workDir, objs));
-            c.setLibs(relativizeAndCopy(workDir, libs));
+            c.setHeaderObjects(objs);
+            c.setLibs(libs);
             c.setVariables(vars);
 
-            if (classPath != null) {
-                c.setClassPath(classPath.toL4j(dependencies));
-            }
+            c.setClassPath(l4jClassPath);
             if (jre != null) {
                 jre.deprecationWarning(getLog());
                 c.setJre(jre.toL4j());
@@ -459,30 +1183,368 @@ public class Launch4jMojo extends AbstractMojo {
                 }
                 c.setMessages(messages.toL4j());
             }
-            ConfigPersister.getInstance().setAntConfig(c, getBaseDir());
+            addDiagnosticsSwitch(c);
+            return c;
         }
+    }
 
-        if (getLog().isDebugEnabled()) {
-            printState();
+    /**
+     * Writes the manifest described by windowsManifest into the build directory, once for each distinct content.
+     */
+    private File generateManifest() throws MojoExecutionException {
+        if (manifest != null) {
+            throw new MojoExecutionException("Configure either <manifest> or <windowsManifest>, not both");
         }
+        File manifests = new File(project.getBuild().getDirectory(), "launch4j/manifests");
+        File generated = windowsManifest.writeTo(manifests);
+        getLog().debug("Using the generated manifest " + generated);
+        return generated;
+    }
 
-        final Builder builder = new Builder(new MavenLog(getLog()), workDir);
+    private net.sf.launch4j.config.ClassPath computeClassPath() throws MojoExecutionException {
+        if (classPath == null || infile != null) {
+            return null;
+        }
         try {
-            builder.build();
-        } catch (BuilderException e) {
-            getLog().error(e);
-            throw new MojoExecutionException("Failed to build the executable; please verify your configuration.", e);
+            return classPath.toL4j(classPathDependencies());
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The dependencies on the classpath, in their order there.
+     */
+    private List<Artifact> selectDependencies() throws MojoExecutionException {
+        try {
+            return classPath.selectDependencies(classPathDependencies());
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The dependencies to put on the classpath, resolved only if addDependencies asks for them.
+     */
+    private Set<Artifact> classPathDependencies() throws MojoExecutionException {
+        if (!classPath.addDependencies || runtimeDependencies == null) {
+            return Collections.emptySet();
         }
+        return runtimeDependencies.get();
+    }
 
+    /**
+     * The directory relative paths of the configuration are resolved against.
+     */
+    private File configBaseDir() {
+        return infile != null ? infile.getParentFile() : getBaseDir();
+    }
+
+    /**
+     * @param workerRequest the configuration already saved for a build worker, copied instead of saved again
+     */
+    private void saveConfigFile(Config config, File workerRequest) throws MojoExecutionException {
         if (saveConfig) {
             try {
-                ConfigPersister.getInstance().save(configOutfile);
-            } catch (ConfigPersisterException e) {
+                if (workerRequest != null) {
+                    LocalOutputCache.copyAtomically(workerRequest.toPath(), configOutfile.toPath());
+                } else {
+                    synchronized (ConfigPersister.class) {
+                        try {
+                            ConfigPersister.getInstance().setAntConfig(config, configBaseDir());
+                            ConfigPersister.getInstance().save(configOutfile);
+                        } finally {
+                            ConfigPersister.getInstance().createBlank();
+                        }
+                    }
+                }
+            } catch (ConfigPersisterException | IOException e) {
                 throw new MojoExecutionException("Cannot save config into a XML file", e);
             }
         }
     }
 
+    /**
+     * Where launch4j writes the executable, resolved the way {@link ConfigPersister#getOutputFile()} does,
+     * without setting up launch4j's singleton.
+     */
+    private File outputFile(Config config) {
+        return resolve(config.getOutfile());
+    }
+
+    /**
+     * Resolves a path of the configuration the way launch4j does, against the directory of the configuration.
+     */
+    private File resolve(File file) {
+        if (file.isAbsolute()) {
+            return file;
+        }
+        File parent = file.getParentFile();
+        return new File(parent != null ? new File(configBaseDir(), parent.getPath()) : configBaseDir(), file.getName());
+    }
+
+    private void writeBrandedVariants(File executable, AuthenticodeSigner signer) throws MojoExecutionException {
+        if (brandingMatrix == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            List<BrandingMatrix.Variant> variants = brandingMatrix.readVariants();
+            File outputDirectory = brandingMatrix.outputDirectory != null
+                    ? brandingMatrix.outputDirectory : executable.getAbsoluteFile().getParentFile();
+            List<BrandedVariants.Written> written = BrandedVariants.write(executable, variants, outputDirectory,
+                    getBaseDir(), brandingMatrix.threads, signer);
+            File summary = new File(outputDirectory, BrandedVariants.SUMMARY);
+            BrandedVariants.writeSummary(written, summary);
+
+            getLog().info("Wrote " + written.size() + " branded variant(s) of " + executable.getName() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, summary in " + summary);
+            for (BrandedVariants.Written variant : written) {
+                getLog().info(String.format("  %-40s %,12d bytes  %s", variant.outfile, variant.size, variant.sha256));
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            throw new MojoExecutionException("Cannot write the branded variants: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeDiagnosticsScript(File executable) throws MojoExecutionException {
+        if (startupDiagnostics == null) {
+            return;
+        }
+        String name = executable.getName().replaceFirst("(?i)\\.exe$", "");
+        File script = new File(executable.getAbsoluteFile().getParentFile(), name + StartupDiagnostics.SCRIPT_SUFFIX);
+        try {
+            Files.write(script.toPath(), startupDiagnostics.script(executable.getName()).getBytes(StandardCharsets.ISO_8859_1));
+            getLog().info("Startup diagnostics of " + executable.getName() + " are switched on by %"
+                    + startupDiagnostics.variable + "%, set by " + script);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write " + script + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void writeCompositionReport(File executable) throws MojoExecutionException {
+        if (compositionReport == null) {
+            return;
+        }
+        File report = compositionReport.file != null
+                ? compositionReport.file : new File(executable.getPath() + CompositionReport.SUFFIX);
+        File previous = compositionReport.previous != null ? compositionReport.previous : report;
+        List<String> exceeded;
+        try {
+            Map<String, Long> budgets = compositionReport.parseBudgets();
+            ExecutableComposition composition = ExecutableComposition.of(executable, compositionReport.largestEntries);
+            ExecutableComposition before = null;
+            if (previous.isFile()) {
+                before = ExecutableComposition.read(previous, compositionReport.largestEntries);
+            } else if (compositionReport.previous != null) {
+                getLog().warn("The previous composition " + previous + " does not exist, nothing to compare with");
+            }
+            composition.write(report);
+
+            getLog().info("Composition of " + executable.getName() + (before != null ? ", compared with " + previous : "")
+                    + ", written to " + report);
+            for (String line : composition.describe(before)) {
+                getLog().info("  " + line);
+            }
+            exceeded = composition.overBudget(budgets);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new MojoExecutionException("Cannot report the composition of " + executable + ": " + e.getMessage(), e);
+        }
+        if (!exceeded.isEmpty()) {
+            for (String component : exceeded) {
+                getLog().error(component);
+            }
+            throw new MojoExecutionException(executable.getName() + " is over its size budget: " + String.join("; ", exceeded));
+        }
+    }
+
+    /**
+     * @return the signer of the configured keystore, or null without signing
+     */
+    private AuthenticodeSigner createSigner() throws MojoExecutionException {
+        if (signing == null) {
+            return null;
+        }
+        try {
+            return signing.toSigner();
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException e) {
+            throw new MojoExecutionException("Cannot load the signing key from " + signing.keystore + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Signs the executable, which keeps the output timestamp as its modification time.
+     */
+    private void sign(File executable, AuthenticodeSigner signer, OutputTimestamp timestamp) throws MojoExecutionException {
+        if (signer == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            signer.sign(executable);
+            if (timestamp.isReproducible() && !executable.setLastModified(timestamp.getInstant().toEpochMilli())) {
+                throw new IOException("Cannot set the modification time of " + executable);
+            }
+            getLog().info("Signed " + executable + " as " + signer.getSubject() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException | GeneralSecurityException e) {
+            throw new MojoExecutionException("Cannot sign " + executable + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void writeDeltaPatch(File executable) throws MojoExecutionException {
+        if (deltaPatch == null) {
+            return;
+        }
+        File previous = previousRelease();
+        if (previous == null) {
+            return;
+        }
+        File outputDirectory = deltaPatch.outputDirectory != null
+                ? deltaPatch.outputDirectory : executable.getAbsoluteFile().getParentFile();
+        File patch = new File(outputDirectory, executable.getName() + DeltaPatch.PATCH_SUFFIX);
+        File manifest = new File(outputDirectory, executable.getName() + DeltaPatch.MANIFEST_SUFFIX);
+        try {
+            long start = System.nanoTime();
+            BinaryDelta.Result result = BinaryDelta.diff(previous, executable, patch, deltaPatch.blockSize);
+            DeltaPatch.writeManifest(manifest, previous, executable, patch, result);
+            getLog().info(String.format("Wrote a patch from %s to %s in %d ms: %,d bytes for %,d, %,d bytes copied from the previous release",
+                    previous.getName(), executable.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    result.patchLength, result.newLength, result.copied));
+        } catch (IllegalArgumentException | IOException e) {
+            throw new MojoExecutionException("Cannot write the patch from " + previous + " to " + executable
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The executable of the previous release, null with a warning if there is none, like before a first release.
+     */
+    private File previousRelease() throws MojoExecutionException {
+        if (deltaPatch.previousArtifact == null || deltaPatch.previousArtifact.trim().isEmpty()) {
+            if (deltaPatch.previous == null) {
+                throw new MojoExecutionException("<deltaPatch> requires either a <previous> or a <previousArtifact>");
+            }
+            File previous = resolve(deltaPatch.previous);
+            if (!previous.isFile()) {
+                getLog().warn("No patch written, the previous release " + previous + " does not exist");
+                return null;
+            }
+            return previous;
+        }
+
+        String[] coordinates;
+        try {
+            coordinates = deltaPatch.previousCoordinates();
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        Artifact artifact = factory.createArtifactWithClassifier(coordinates[0], coordinates[1], coordinates[2],
+                "exe", coordinates[3]);
+        ProjectBuildingRequest request = new DefaultProjectBuildingRequest(session.getProjectBuildingRequest());
+        request.setRemoteRepositories(project.getRemoteArtifactRepositories());
+        request.setLocalRepository(localRepository);
+        request.setProject(project);
+        try {
+            return resolver.resolveArtifact(request, artifact).getArtifact().getFile();
+        } catch (ArtifactResolverException | IllegalArgumentException e) {
+            getLog().warn("No patch written, the previous release " + deltaPatch.previousArtifact
+                    + " cannot be resolved: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the configuration handed over to launch4j for a build worker, which loads it into its own singleton.
+     */
+    private File saveWorkerRequest() throws MojoExecutionException {
+        String executionId = mojoExecution != null ? mojoExecution.getExecutionId() : "default";
+        File request = new File(project.getBuild().getDirectory(), "launch4j/worker-request-" + executionId + ".xml");
+        try {
+            Files.createDirectories(request.getParentFile().toPath());
+            ConfigPersister.getInstance().save(request);
+        } catch (ConfigPersisterException | IOException e) {
+            throw new MojoExecutionException("Cannot save the configuration for a build worker into " + request, e);
+        }
+        return request;
+    }
+
+    /**
+     * The plugin and its dependencies, which include launch4j, for starting build workers.
+     */
+    private List<File> workerClasspath() throws MojoExecutionException {
+        List<File> classpath = new ArrayList<>();
+        try {
+            classpath.add(new File(BuildWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        } catch (URISyntaxException e) {
+            throw new MojoExecutionException("Cannot locate the plugin for starting build workers", e);
+        }
+        for (Artifact artifact : pluginArtifacts) {
+            if (artifact.getFile() != null) {
+                classpath.add(artifact.getFile());
+            }
+        }
+        return classpath;
+    }
+
+    private OutputCache createOutputCache() throws MojoExecutionException {
+        if (buildCache == null) {
+            return null;
+        }
+        try {
+            return buildCache.toOutputCache();
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private String fingerprint(Config config, File workDir, OutputTimestamp timestamp, FileDigests digests) {
+        try {
+            return Fingerprint.of(config, configBaseDir(), workDir, timestamp, digests);
+        } catch (IOException e) {
+            getLog().warn("Cannot compute the fingerprint of the inputs, the build cache is not used", e);
+            return null;
+        }
+    }
+
+    /**
+     * A broken cache must never break the build, so any problem with it is reported as a miss.
+     */
+    private boolean fetchFromOutputCache(OutputCache outputCache, String fingerprint, File executable,
+                                         OutputTimestamp timestamp) {
+        if (fingerprint == null) {
+            return false;
+        }
+
+        BuildCache.Statistics statistics = SessionScoped.get(session, "buildCache", BuildCache.Statistics::new);
+        try {
+            if (outputCache.fetch(fingerprint, executable)) {
+                if (timestamp.isReproducible()) {
+                    executable.setLastModified(timestamp.getInstant().toEpochMilli());
+                }
+                statistics.hits.incrementAndGet();
+                getLog().info("Build cache hit for " + executable.getName() + " (" + fingerprint + ") in "
+                        + outputCache + ", " + statistics);
+                return true;
+            }
+        } catch (IOException e) {
+            getLog().warn("Cannot read from the build cache " + outputCache + ": " + e.getMessage());
+        }
+
+        statistics.misses.incrementAndGet();
+        getLog().info("Build cache miss (" + fingerprint + ") in " + outputCache + ", " + statistics);
+        return false;
+    }
+
+    private void storeInOutputCache(OutputCache outputCache, String fingerprint, File executable) {
+        try {
+            outputCache.store(fingerprint, executable, saveConfig ? configOutfile : null);
+            getLog().debug("Stored " + executable + " in the build cache " + outputCache);
+        } catch (IOException e) {
+            getLog().warn("Cannot store " + executable.getName() + " in the build cache " + outputCache + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Prepares a little directory for launch4j to do its thing. Launch4j needs a bunch of object files
      * (in the w32api and head directories) and the ld and windres binaries (in the bin directory).
@@ -506,10 +1568,14 @@ public class Launch4jMojo extends AbstractMojo {
      * @return the work directory.
      */
     private File setupBuildEnvironment() throws MojoExecutionException {
-        createParentFolder();
-        Artifact binaryBits = chooseBinaryBits();
-        retrieveBinaryBits(binaryBits);
-        return unpackWorkDir(binaryBits);
+        WorkDirResolver workDirs = new WorkDirResolver(factory, resolver, getLog());
+        Artifact binaryBits = workDirs.chooseBinaryBits(getLaunch4jVersion());
+
+        File prewarmed = WorkDirPrewarmer.await(session, binaryBits, getLog());
+        if (prewarmed != null) {
+            return prewarmed;
+        }
+        return workDirs.resolve(session, project, localRepository, binaryBits);
     }
 
     private void createParentFolder() {
@@ -528,169 +1594,33 @@ public class Launch4jMojo extends AbstractMojo {
     }
 
     /**
-     * Unzips the given artifact in-place and returns the newly-unzipped top-level directory.
-     * Writes a marker file to prevent unzipping more than once.
-     */
-    private File unpackWorkDir(Artifact artifact) throws MojoExecutionException {
-        Artifact localArtifact = localRepository.find(artifact);
-        if (localArtifact == null || localArtifact.getFile() == null) {
-            throw new MojoExecutionException("Cannot obtain file path to " + artifact);
-        }
-        getLog().debug("Unpacking " + localArtifact + " into " + localArtifact.getFile());
-        File platJar = localArtifact.getFile();
-        File dest = platJar.getParentFile();
-        File marker = new File(dest, platJar.getName() + ".unpacked");
-        String n = platJar.getName();
-        File workdir = new File(dest, n.substring(0, n.length() - 4));
-
-        // If the artifact is a SNAPSHOT, then a.getVersion() will report the long timestamp,
-        // but getFile() will be 1.1-SNAPSHOT.
-        // Since getFile() doesn't use the timestamp, all timestamps wind up in the same place.
-        // Therefore we need to expand the jar every time, if the marker file is stale.
-        if (marker.exists() && marker.lastModified() > platJar.lastModified()) {
-            // if (marker.exists() && marker.platJar.getName().indexOf("SNAPSHOT") == -1) {
-            getLog().info("Platform-specific work directory already exists: " + workdir.getAbsolutePath());
-        } else {
-            // trying to use plexus-archiver here is a miserable waste of time:
-            try (JarFile jf = new JarFile(platJar)) {
-                Enumeration<JarEntry> en = jf.entries();
-                while (en.hasMoreElements()) {
-                    JarEntry je = en.nextElement();
-                    File outFile = new File(dest, je.getName());
-                    if (!outFile.toPath().normalize().startsWith(dest.toPath().normalize())) {
-                        throw new RuntimeException("Bad zip entry");
-                    }
-                    File parent = outFile.getParentFile();
-                    if (parent != null) parent.mkdirs();
-                    if (je.isDirectory()) {
-                        outFile.mkdirs();
-                    } else {
-                        try (InputStream in = jf.getInputStream(je)) {
-                            try (FileOutputStream fout = new FileOutputStream(outFile)) {
-                                byte[] buf = new byte[1024];
-                                int len;
-                                while ((len = in.read(buf)) >= 0) {
-                                    fout.write(buf, 0, len);
-                                }
-                            }
-                        }
-                        outFile.setLastModified(je.getTime());
-                    }
-                }
-            } catch (IOException e) {
-                throw new MojoExecutionException("Error unarchiving " + platJar, e);
-            }
-
-            try {
-                marker.createNewFile();
-                marker.setLastModified(new Date().getTime());
-            } catch (IOException e) {
-                getLog().warn("Trouble creating marker file " + marker, e);
-            }
-        }
-
-        setPermissions(workdir);
-        return workdir;
-    }
-
-    /**
-     * Chmods the helper executables ld and windres on systems where that is necessary.
-     */
-    private void setPermissions(File workdir) {
-        if (!System.getProperty("os.name").startsWith("Windows")) {
-            try {
-                new ProcessBuilder("chmod", "755", workdir + "/bin/ld").start().waitFor();
-                new ProcessBuilder("chmod", "755", workdir + "/bin/windres").start().waitFor();
-            } catch (InterruptedException e) {
-                getLog().warn("Interrupted while chmodding platform-specific binaries", e);
-            } catch (IOException e) {
-                getLog().warn("Unable to set platform-specific binaries to 755", e);
-            }
-        }
-    }
-
-    /**
-     * If custom header objects or libraries shall be linked, they need to sit inside the launch4j working dir.
-     */
-    private List<String> relativizeAndCopy(File workdir, List<String> paths) throws MojoExecutionException {
-        if (paths == null) return null;
-
-        List<String> result = new ArrayList<>();
-        for (String path : paths) {
-            Path source = basedir.toPath().resolve(path);
-            Path dest = workdir.toPath().resolve(basedir.toPath().relativize(source));
-
-            if (!source.startsWith(basedir.toPath())) {
-                throw new MojoExecutionException("File must reside in the project directory: " + path);
-            }
-
-            if (Files.exists(source)) {
-                try {
-                    Files.createDirectories(dest.getParent());
-                    Path target = Files.copy(source, dest, StandardCopyOption.REPLACE_EXISTING);
-                    result.add(workdir.toPath().relativize(target).toString());
-                } catch (IOException e) {
-                    throw new MojoExecutionException("Can't copy file to workdir", e);
-                }
-            } else {
-                result.add(path);
-            }
-        }
-
-        return result;
-    }
-
-    /**
-     * Downloads the platform-specific parts, if necessary.
+     * If custom header objects or libraries shall be linked, they need to sit inside the directory launch4j builds in.
+     * They are staged in an overlay of the shared work directory within the project's build directory, so modules
+     * built in parallel cannot interfere.
      */
-    private void retrieveBinaryBits(Artifact a) throws MojoExecutionException {
-
-        ProjectBuildingRequest configuration = session.getProjectBuildingRequest();
-        configuration.setRemoteRepositories(project.getRemoteArtifactRepositories());
-        configuration.setLocalRepository(localRepository);
-        configuration.setProject(session.getCurrentProject());
-
-        getLog().debug("Retrieving artifact: " + a + " stored in " + a.getFile());
-
+    private WorkDirOverlay createOverlay(File workDir) throws MojoExecutionException {
+        File overlayDir = new File(project.getBuild().getDirectory(), "launch4j/" + workDir.getName());
         try {
-            resolver.resolveArtifact(configuration, a).getArtifact();
-        } catch (IllegalArgumentException e) {
-            throw new MojoExecutionException("Illegal Argument Exception", e);
-        } catch (ArtifactResolverException e) {
-            throw new MojoExecutionException("Can't retrieve platform-specific components", e);
+            return new WorkDirOverlay(workDir, overlayDir, getLog()).create();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't create the overlay of the launch4j work directory in " + overlayDir, e);
         }
     }
 
     /**
-     * Decides which platform-specific bundle we need, based on the current operating system.
+     * Puts the dependencies listed on the classpath into the jarLocation directory next to the executable.
      */
-    private Artifact chooseBinaryBits() throws MojoExecutionException {
-        String plat;
-        String os = System.getProperty("os.name");
-        String arch = System.getProperty("os.arch");
-        getLog().debug("OS = " + os);
-        getLog().debug("Architecture = " + arch);
-
-        // See here for possible values of os.name:
-        // http://lopica.sourceforge.net/os.html
-        if (os.startsWith("Windows")) {
-            plat = "win32";
-        } else if ("Linux".equals(os)) {
-            if ("amd64".equals(arch)) {
-                plat = "linux64";
-            } else {
-                plat = "linux";
-            }
-        } else if ("Solaris".equals(os) || "SunOS".equals(os)) {
-            plat = "solaris";
-        } else if ("Mac OS X".equals(os) || "Darwin".equals(os)) {
-            plat = "mac";
-        } else {
-            throw new MojoExecutionException("Sorry, Launch4j doesn't support the '" + os + "' OS.");
+    private void stageDependencies() throws MojoExecutionException {
+        // with an infile, the classpath comes from the infile and the classPath parameter is ignored
+        if (classPath == null || infile != null || !classPath.stageDependencies || !classPath.addDependencies) {
+            return;
+        }
+        if (outfile == null) {
+            throw new MojoExecutionException("Cannot stage dependencies without an outfile");
         }
 
-        return factory.createArtifactWithClassifier(LAUNCH4J_GROUP_ID, LAUNCH4J_ARTIFACT_ID,
-                getLaunch4jVersion(), "jar", "workdir-" + plat);
+        File targetDir = classPath.stagingDirectory(outfile);
+        new DependencyStager(getLog()).stage(targetDir.toPath(), selectDependencies());
     }
 
     private File getBaseDir() {
@@ -700,9 +1630,8 @@ public class Launch4jMojo extends AbstractMojo {
     /**
      * Just prints out how we were configured.
      */
-    private void printState() {
+    private void printState(Config c) {
         Log log = getLog();
-        Config c = ConfigPersister.getInstance().getConfig();
 
         log.debug("headerType = " + c.getHeaderType());
         log.debug("outfile = " + c.getOutfile());
@@ -821,7 +1750,7 @@ public class Launch4jMojo extends AbstractMojo {
      *
      * @return true to skip execution
      */
-    private boolean skipExecution() {
+    boolean skipExecution() {
         getLog().debug("skip = " + this.skip);
         getLog().debug("skipLaunch4j = " + System.getProperty("skipLaunch4j"));
         return skip || System.getProperty("skipLaunch4j") != null;
@@ -855,10 +1784,25 @@ public class Launch4jMojo extends AbstractMojo {
                 ", disableVersionInfoDefaults=" + disableVersionInfoDefaults +
                 ", messages=" + messages +
                 ", manifest=" + manifest +
+                ", windowsManifest=" + windowsManifest +
+                ", brandingMatrix=" + brandingMatrix +
+                ", deltaPatch=" + deltaPatch +
+                ", signing=" + signing +
+                ", compositionReport=" + compositionReport +
+                ", startupDiagnostics=" + startupDiagnostics +
+                ", startupProfile=" + startupProfile +
                 ", saveConfig=" + saveConfig +
                 ", configOutfile=" + configOutfile +
                 ", parallelExecution=" + parallelExecution +
+                ", maxConcurrentBuilds=" + maxConcurrentBuilds +
+                ", buildLockDirectory=" + buildLockDirectory +
+                ", buildTimeout=" + buildTimeout +
+                ", phaseTimeout=" + phaseTimeout +
+                ", logLevel='" + logLevel + '\'' +
+                ", buildWorkers=" + buildWorkers +
                 ", skip=" + skip +
+                ", buildCache=" + buildCache +
+                ", outputTimestamp='" + outputTimestamp + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Writes the version information, icon and manifest of the configuration into an executable built earlier
+ * by the launch4j goal, e.g. to give a tested build its release version. Only the resource section of the
+ * outfile is rewritten, in Java; the code, the headers other than the sizes of that section and the wrapped
+ * jar stay as they are, and neither launch4j's binaries nor the dependencies are needed.
+ * Takes the same parameters as the launch4j goal.
+ */
+@Mojo(
+        name = "restamp",
+        defaultPhase = LifecyclePhase.PACKAGE,
+        threadSafe = true
+)
+public class Launch4jRestampMojo extends Launch4jMojo {
+
+    @Override
+    void doExecute() throws MojoExecutionException {
+        if (this.skipExecution()) {
+            getLog().debug("Skipping execution of the plugin");
+            return;
+        }
+
+        restamp();
+    }
+}
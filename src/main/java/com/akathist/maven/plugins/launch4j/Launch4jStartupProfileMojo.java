@@ -0,0 +1,47 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Runs the wrapped application on the JVM of the build, with the classpath, JVM options and variables the
+ * launcher would use, until it is ready, and reports the time until the main class is loaded and until it is ready, the classes loaded
+ * from each jar, the slowest static initializers and the heap in use, compared with the previous profile.
+ * Takes the same parameters as the launch4j goal, see startupProfile for its own.
+ */
+@Mojo(
+        name = "profile-startup",
+        defaultPhase = LifecyclePhase.VERIFY,
+        threadSafe = true
+)
+public class Launch4jStartupProfileMojo extends Launch4jMojo {
+
+    @Override
+    void doExecute() throws MojoExecutionException {
+        if (this.skipExecution()) {
+            getLog().debug("Skipping execution of the plugin");
+            return;
+        }
+
+        profileStartup();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Checks the configuration of the launch4j goal without building the executable:
+ * runs the checks launch4j runs before building and verifies the formats of the icon, splash screen
+ * and manifest. Takes the same parameters as the launch4j goal and neither downloads nor unpacks
+ * the platform-specific binaries, so configuration errors show up in milliseconds.
+ */
+@Mojo(
+        name = "validate",
+        defaultPhase = LifecyclePhase.VALIDATE,
+        threadSafe = true
+)
+public class Launch4jValidateMojo extends Launch4jMojo {
+
+    @Override
+    void doExecute() throws MojoExecutionException {
+        if (this.skipExecution()) {
+            getLog().debug("Skipping execution of the plugin");
+            return;
+        }
+
+        validateConfiguration();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps cache entries in a directory, e.g. on a disk shared by the CI nodes: one sub-directory per fingerprint.
+ * Files are written to a temporary name first and moved into place, so readers never see half-written entries.
+ */
+class LocalOutputCache implements OutputCache {
+
+    private final Path directory;
+
+    LocalOutputCache(File directory) {
+        this.directory = directory.toPath();
+    }
+
+    @Override
+    public boolean fetch(String fingerprint, File exe) throws IOException {
+        Path cached = directory.resolve(fingerprint).resolve(EXECUTABLE);
+        if (!Files.isRegularFile(cached)) {
+            return false;
+        }
+
+        copyAtomically(cached, exe.toPath());
+        return true;
+    }
+
+    @Override
+    public void store(String fingerprint, File exe, File config) throws IOException {
+        Path entry = directory.resolve(fingerprint);
+        Files.createDirectories(entry);
+        if (config != null && config.isFile()) {
+            copyAtomically(config.toPath(), entry.resolve(CONFIG));
+        }
+        // the executable goes last, its presence marks a complete entry
+        copyAtomically(exe.toPath(), entry.resolve(EXECUTABLE));
+    }
+
+    static void copyAtomically(Path source, Path target) throws IOException {
+        Path temp = AtomicFiles.tempFileFor(target);
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            AtomicFiles.moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory.toString();
+    }
+}
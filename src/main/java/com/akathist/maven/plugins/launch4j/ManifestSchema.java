@@ -0,0 +1,194 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static com.akathist.maven.plugins.launch4j.WindowsManifest.*;
+
+/**
+ * The part of the application manifest schema the generated manifests use: which element may appear where,
+ * in which namespace, how often, and which values its text and attributes may take. Windows ignores or rejects
+ * a manifest with a misplaced element or a misspelled value only at runtime, this check fails the build instead.
+ */
+class ManifestSchema {
+
+    static final List<String> EXECUTION_LEVELS = Arrays.asList("asInvoker", "highestAvailable", "requireAdministrator");
+
+    private static final Pattern BOOLEAN = Pattern.compile("true|false");
+
+    private static final Map<String, Rule> RULES = new HashMap<>();
+
+    static {
+        rule(ASM_V1, "assembly", null, null, false).attribute("manifestVersion", Pattern.compile("1\\.0"));
+        rule(ASM_V3, "trustInfo", key(ASM_V1, "assembly"), null, false);
+        rule(ASM_V3, "security", key(ASM_V3, "trustInfo"), null, false);
+        rule(ASM_V3, "requestedPrivileges", key(ASM_V3, "security"), null, false);
+        rule(ASM_V3, "requestedExecutionLevel", key(ASM_V3, "requestedPrivileges"), null, false)
+                .attribute("level", Pattern.compile(String.join("|", EXECUTION_LEVELS)))
+                .attribute("uiAccess", BOOLEAN);
+        rule(COMPATIBILITY_V1, "compatibility", key(ASM_V1, "assembly"), null, false);
+        rule(COMPATIBILITY_V1, "application", key(COMPATIBILITY_V1, "compatibility"), null, false);
+        rule(COMPATIBILITY_V1, "supportedOS", key(COMPATIBILITY_V1, "application"), null, true)
+                .attribute("Id", Pattern.compile("\\{[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}}"));
+        rule(ASM_V3, "application", key(ASM_V1, "assembly"), null, false);
+        rule(ASM_V3, "windowsSettings", key(ASM_V3, "application"), null, false);
+        String windowsSettings = key(ASM_V3, "windowsSettings");
+        rule(SETTINGS_2005, "dpiAware", windowsSettings, Pattern.compile("true|false|true/pm|per monitor"), false);
+        rule(SETTINGS_2016, "dpiAwareness", windowsSettings,
+                Pattern.compile("(?i)(unaware|system|permonitor|permonitorv2)(\\s*,\\s*(unaware|system|permonitor|permonitorv2))*"), false);
+        rule(SETTINGS_2016, "longPathAware", windowsSettings, BOOLEAN, false);
+        rule(SETTINGS_2019, "activeCodePage", windowsSettings, Pattern.compile("UTF-8|Legacy"), false);
+        rule(SETTINGS_2020, "heapType", windowsSettings, Pattern.compile("SegmentHeap"), false);
+    }
+
+    private ManifestSchema() {
+    }
+
+    /**
+     * @return the problems found, empty if the manifest is valid
+     */
+    static List<String> check(String xml) {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (SAXException | IOException | ParserConfigurationException e) {
+            return Collections.singletonList("not well-formed XML: " + e.getMessage());
+        }
+
+        List<String> problems = new ArrayList<>();
+        Element root = document.getDocumentElement();
+        if (!key(ASM_V1, "assembly").equals(key(root))) {
+            problems.add("the root element must be <assembly xmlns=\"" + ASM_V1 + "\">, found <" + root.getNodeName() + ">");
+            return problems;
+        }
+        check(root, null, problems);
+        return problems;
+    }
+
+    private static void check(Element element, String parent, List<String> problems) {
+        String key = key(element);
+        Rule rule = RULES.get(key);
+        if (rule == null || !String.valueOf(rule.parent).equals(String.valueOf(parent))) {
+            problems.add("<" + element.getLocalName() + "> in namespace " + element.getNamespaceURI()
+                    + " is not allowed in " + (parent != null ? parent : "the document"));
+            return;
+        }
+
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                continue;
+            }
+            Pattern allowed = rule.attributes.get(attribute.getName());
+            if (allowed == null) {
+                problems.add("<" + element.getLocalName() + "> does not take the attribute " + attribute.getName());
+            } else if (!allowed.matcher(attribute.getValue()).matches()) {
+                problems.add("<" + element.getLocalName() + " " + attribute.getName() + "=\"" + attribute.getValue()
+                        + "\"> is not one of " + allowed.pattern());
+            }
+        }
+        for (String name : rule.attributes.keySet()) {
+            if (!element.hasAttribute(name)) {
+                problems.add("<" + element.getLocalName() + "> needs the attribute " + name);
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        Set<String> seen = new HashSet<>();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                String childKey = key(child);
+                Rule childRule = RULES.get(childKey);
+                if (!seen.add(childKey) && childRule != null && !childRule.repeatable) {
+                    problems.add("<" + child.getLocalName() + "> may appear only once in <" + element.getLocalName() + ">");
+                }
+                check((Element) child, key, problems);
+            } else if (child.getNodeType() == Node.TEXT_NODE) {
+                text.append(child.getNodeValue());
+            }
+        }
+        String value = text.toString().trim();
+        if (rule.value == null && !value.isEmpty()) {
+            problems.add("<" + element.getLocalName() + "> does not take text, found '" + value + "'");
+        } else if (rule.value != null && !rule.value.matcher(value).matches()) {
+            problems.add("<" + element.getLocalName() + ">" + value + "</" + element.getLocalName()
+                    + "> is not one of " + rule.value.pattern());
+        }
+    }
+
+    private static Rule rule(String namespace, String name, String parent, Pattern value, boolean repeatable) {
+        Rule rule = new Rule(parent, value, repeatable);
+        RULES.put(key(namespace, name), rule);
+        return rule;
+    }
+
+    private static String key(Node node) {
+        return key(node.getNamespaceURI(), node.getLocalName());
+    }
+
+    private static String key(String namespace, String name) {
+        return "{" + namespace + "}" + name;
+    }
+
+    private static final class Rule {
+        final String parent;
+        final Pattern value;
+        final boolean repeatable;
+        final Map<String, Pattern> attributes = new LinkedHashMap<>();
+
+        Rule(String parent, Pattern value, boolean repeatable) {
+            this.parent = parent;
+            this.value = value;
+            this.repeatable = repeatable;
+        }
+
+        Rule attribute(String name, Pattern allowed) {
+            attributes.put(name, allowed);
+            return this;
+        }
+    }
+}
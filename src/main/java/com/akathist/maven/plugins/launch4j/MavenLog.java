@@ -18,24 +18,189 @@
  */
 package com.akathist.maven.plugins.launch4j;
 
+import net.sf.launch4j.Messages;
 import org.apache.maven.plugin.logging.Log;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Passes the output of launch4j on to the Maven log, at a level depending on the line: progress is info,
+ * launch4j's warnings are warnings and the output of windres and ld is debug.
+ * <p/>
+ * If created for an execution, the lines are kept until {@link #flush(boolean, File, boolean)} is called
+ * and then logged as one block tagged with the execution, so the output of modules built in parallel
+ * does not interleave. Lines below the threshold are then only written to the log file.
+ */
 public class MavenLog extends net.sf.launch4j.Log {
 
+    enum Level {
+        DEBUG, INFO, WARN, OFF;
+
+        static Level parse(String level) {
+            try {
+                return valueOf(level.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown log level '" + level + "', use one of debug, info, warn or off");
+            }
+        }
+    }
+
+    private static final class Line {
+        final Level level;
+        final String text;
+
+        Line(Level level, String text) {
+            this.level = level;
+            this.text = text;
+        }
+    }
+
     Log _log;
 
+    private final String tag;
+
+    private final Level threshold;
+
+    private final List<Line> lines;
+
     public MavenLog(Log log) {
         _log = log;
+        tag = null;
+        threshold = Level.DEBUG;
+        lines = null;
+    }
+
+    /**
+     * @param tag       the execution the lines belong to
+     * @param threshold the lowest level of lines shown in the Maven log, unless Maven logs debug output
+     */
+    MavenLog(Log log, String tag, Level threshold) {
+        _log = log;
+        this.tag = tag;
+        this.threshold = log.isDebugEnabled() ? Level.DEBUG : threshold;
+        lines = new ArrayList<>();
     }
 
     @Override
     public void clear() {
-        _log.info("");
+        // launch4j clears its log before each build, there is nothing to clear in Maven's
     }
 
     @Override
     public void append(String line) {
-        _log.info("launch4j: " + line);
+        for (String part : line.split("\r?\n")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            Level level = levelOf(part);
+            if (lines == null) {
+                if (level != Level.DEBUG || _log.isDebugEnabled()) {
+                    log(level, "launch4j: " + part);
+                }
+            } else {
+                synchronized (lines) {
+                    lines.add(new Line(level, part));
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs the lines kept so far as one block and writes all of them to the log file.
+     *
+     * @param failed   whether the build failed, in which case all lines are shown to explain why
+     * @param logFile  the file receiving all lines, or null
+     * @param truncate whether to replace the log file instead of appending to it
+     */
+    void flush(boolean failed, File logFile, boolean truncate) {
+        List<Line> kept;
+        synchronized (lines) {
+            kept = new ArrayList<>(lines);
+            lines.clear();
+        }
+        if (kept.isEmpty()) {
+            return;
+        }
+
+        StringBuilder block = new StringBuilder();
+        Level blockLevel = null;
+        for (Line line : kept) {
+            Level level = failed ? (line.level == Level.WARN ? Level.WARN : Level.INFO) : line.level;
+            if (!failed && level.compareTo(threshold) < 0) {
+                continue;
+            }
+            if (blockLevel != null && blockLevel != level) {
+                log(blockLevel, block.toString());
+                block.setLength(0);
+            }
+            if (block.length() > 0) {
+                block.append(System.lineSeparator());
+            }
+            block.append("launch4j (").append(tag).append("): ").append(line.text);
+            blockLevel = level;
+        }
+        if (blockLevel != null) {
+            log(blockLevel, block.toString());
+        }
+
+        if (logFile != null) {
+            write(kept, logFile, truncate);
+        }
     }
 
+    private void write(List<Line> kept, File logFile, boolean truncate) {
+        try {
+            Files.createDirectories(logFile.getAbsoluteFile().getParentFile().toPath());
+            try (BufferedWriter writer = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND)) {
+                writer.write("--- " + tag + " ---");
+                writer.newLine();
+                for (Line line : kept) {
+                    writer.write("[" + line.level + "] " + line.text);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            _log.warn("Cannot write the launch4j log to " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    private void log(Level level, String message) {
+        switch (level) {
+            case WARN:
+                _log.warn(message);
+                break;
+            case INFO:
+                _log.info(message);
+                break;
+            case DEBUG:
+                if (_log.isDebugEnabled()) {
+                    _log.debug(message);
+                }
+                break;
+            default:
+        }
+    }
+
+    static Level levelOf(String line) {
+        if (line.startsWith("WARNING")) {
+            return Level.WARN;
+        }
+        if (line.startsWith(Messages.getString("Builder.compiling.resources"))
+                || line.startsWith(Messages.getString("Builder.linking"))
+                || line.startsWith(Messages.getString("Builder.wrapping").split("\n")[0])
+                || line.startsWith(Messages.getString("Builder.success").trim())) {
+            return Level.INFO;
+        }
+        return Level.DEBUG;
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many native builds (windres and ld) run at once, independently of Maven's thread count.
+ * <p/>
+ * All builds within this JVM share one count, held to the smallest limit of the builds running or waiting,
+ * so no build runs alongside more builds than its own limit allows. If a lock directory is given, the limit
+ * applies across processes too: each build holds an OS file lock on one of as many slot files in that
+ * directory as the limit, so several Maven processes on a build agent share the same slots as long as they
+ * use the same limit. OS file locks are dropped when a process dies, so a crashed build never leaves a slot taken.
+ */
+final class NativeBuildLimiter {
+
+    private static final Object MONITOR = new Object();
+
+    private static final long SLOT_POLL_MILLIS = 100;
+
+    /**
+     * A wait shorter than this is logged at debug level only, so a large reactor is not flooded with short waits.
+     */
+    static final long NOTABLE_WAIT_MILLIS = 1000;
+
+    /**
+     * The number of native builds running in this JVM.
+     */
+    private static int running;
+
+    /**
+     * The number of native builds running or waiting in this JVM, by their limit.
+     */
+    private static final TreeMap<Integer, Integer> limits = new TreeMap<>();
+
+    private NativeBuildLimiter() {
+    }
+
+    /**
+     * Blocks until a native build may start.
+     *
+     * @param maxConcurrentBuilds the number of native builds allowed to run at once
+     * @param lockDirectory       the directory keeping the slot files shared with other processes, or null
+     * @return the permit, to be closed when the native build has finished
+     */
+    static Permit acquire(int maxConcurrentBuilds, File lockDirectory, Log log) throws MojoExecutionException {
+        if (maxConcurrentBuilds < 1) {
+            throw new MojoExecutionException("maxConcurrentBuilds must be at least 1, but is " + maxConcurrentBuilds);
+        }
+
+        long start = System.nanoTime();
+        int limit;
+        synchronized (MONITOR) {
+            limits.merge(maxConcurrentBuilds, 1, Integer::sum);
+            try {
+                while (running >= limits.firstKey()) {
+                    MONITOR.wait();
+                }
+            } catch (InterruptedException e) {
+                forget(maxConcurrentBuilds);
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while waiting for a native build slot", e);
+            }
+            running++;
+            limit = limits.firstKey();
+        }
+
+        Permit permit = new Permit(maxConcurrentBuilds);
+        try {
+            if (lockDirectory != null) {
+                permit.slot = lockSlot(lockDirectory, limit);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            permit.close();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new MojoExecutionException("Cannot lock a native build slot in " + lockDirectory, e);
+        }
+
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        String message = "Waited " + waited + " ms for one of " + limit + " native build slot(s)"
+                + (lockDirectory != null ? " in " + lockDirectory : " in this JVM");
+        if (waited >= NOTABLE_WAIT_MILLIS) {
+            log.info(message);
+        } else {
+            log.debug(message);
+        }
+        return permit;
+    }
+
+    /**
+     * Drops a build which no longer runs or waits; the caller holds the monitor.
+     */
+    private static void forget(int limit) {
+        limits.computeIfPresent(limit, (key, count) -> count > 1 ? count - 1 : null);
+        MONITOR.notifyAll();
+    }
+
+    private static FileLock lockSlot(File lockDirectory, int slots) throws IOException, InterruptedException {
+        if (!lockDirectory.isDirectory() && !lockDirectory.mkdirs() && !lockDirectory.isDirectory()) {
+            throw new IOException("Cannot create " + lockDirectory);
+        }
+        while (true) {
+            for (int i = 0; i < slots; i++) {
+                FileChannel channel = new RandomAccessFile(new File(lockDirectory, "build-slot-" + i + ".lock"), "rw").getChannel();
+                FileLock lock = null;
+                try {
+                    lock = channel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    // held by another execution in this JVM
+                } finally {
+                    if (lock == null) {
+                        channel.close();
+                    }
+                }
+                if (lock != null) {
+                    return lock;
+                }
+            }
+            Thread.sleep(SLOT_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * The right to run one native build.
+     */
+    static final class Permit implements AutoCloseable {
+
+        private final int limit;
+
+        private FileLock slot;
+
+        private boolean released;
+
+        private Permit(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (slot != null) {
+                try {
+                    try {
+                        slot.release();
+                    } finally {
+                        slot.channel().close();
+                    }
+                } catch (IOException e) {
+                    // the lock goes away with the channel at the latest
+                }
+            }
+            synchronized (MONITOR) {
+                running--;
+                forget(limit);
+            }
+        }
+    }
+}
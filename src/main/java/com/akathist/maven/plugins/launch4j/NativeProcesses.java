@@ -0,0 +1,141 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The native processes started by launch4j, found among the processes a build started by their command line.
+ * Uses the ProcessHandle API of Java 9 and newer through reflection, as the plugin still runs on Java 8,
+ * where no processes can be found.
+ */
+final class NativeProcesses {
+
+    private static final Class<?> PROCESS_HANDLE = processHandleClass();
+
+    private NativeProcesses() {
+    }
+
+    static boolean isSupported() {
+        return PROCESS_HANDLE != null;
+    }
+
+    /**
+     * @return the processes this JVM started and which are still running, empty before Java 9
+     */
+    static Set<Object> children() {
+        if (PROCESS_HANDLE == null) {
+            return Collections.emptySet();
+        }
+        try {
+            Object current = PROCESS_HANDLE.getMethod("current").invoke(null);
+            try (Stream<?> children = (Stream<?>) PROCESS_HANDLE.getMethod("children").invoke(current)) {
+                return children.collect(Collectors.toCollection(LinkedHashSet::new));
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * @param roots   the processes to search, e.g. those started during a build
+     * @param markers strings of which one is part of the command line of each process to find
+     * @return the matching roots together with their descendants
+     */
+    static List<Object> find(Collection<Object> roots, List<String> markers) {
+        List<Object> found = new ArrayList<>();
+        try {
+            for (Object root : roots) {
+                if (markers.stream().anyMatch(commandLine(root)::contains)) {
+                    found.add(root);
+                    found.addAll(descendants(root));
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // gone already
+        }
+        return found;
+    }
+
+    /**
+     * @return the descendants of the process followed by the process itself, empty before Java 9
+     */
+    static List<Object> tree(Process process) {
+        if (PROCESS_HANDLE == null) {
+            return Collections.emptyList();
+        }
+        try {
+            Object handle = Process.class.getMethod("toHandle").invoke(process);
+            List<Object> tree = new ArrayList<>(descendants(handle));
+            tree.add(handle);
+            return tree;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    static String describe(Object handle) {
+        try {
+            return "pid " + PROCESS_HANDLE.getMethod("pid").invoke(handle) + ": " + commandLine(handle);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return String.valueOf(handle);
+        }
+    }
+
+    static void destroyForcibly(Object handle) {
+        try {
+            PROCESS_HANDLE.getMethod("destroyForcibly").invoke(handle);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // gone already or not ours to kill
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> descendants(Object handle) throws ReflectiveOperationException {
+        try (Stream<Object> descendants = (Stream<Object>) PROCESS_HANDLE.getMethod("descendants").invoke(handle)) {
+            return descendants.collect(Collectors.toList());
+        }
+    }
+
+    private static String commandLine(Object handle) throws ReflectiveOperationException {
+        Object info = PROCESS_HANDLE.getMethod("info").invoke(handle);
+        Class<?> infoClass = Class.forName("java.lang.ProcessHandle$Info");
+        Optional<?> commandLine = (Optional<?>) infoClass.getMethod("commandLine").invoke(info);
+        if (!commandLine.isPresent()) {
+            commandLine = (Optional<?>) infoClass.getMethod("command").invoke(info);
+        }
+        return commandLine.map(String::valueOf).orElse("");
+    }
+
+    private static Class<?> processHandleClass() {
+        try {
+            return Class.forName("java.lang.ProcessHandle");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
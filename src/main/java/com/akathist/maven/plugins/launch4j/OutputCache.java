@@ -0,0 +1,45 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A store of finished executables, keyed by the {@link Fingerprint} of everything they were built from.
+ * Each entry holds the executable and, if it was saved, the launch4j configuration used to build it.
+ */
+interface OutputCache {
+
+    String EXECUTABLE = "launcher.exe";
+
+    String CONFIG = "launch4j-config.xml";
+
+    /**
+     * Copies the cached executable into exe.
+     *
+     * @return true on a cache hit, false if there is no entry for the fingerprint
+     */
+    boolean fetch(String fingerprint, File exe) throws IOException;
+
+    /**
+     * Stores the executable and the optional configuration file under the fingerprint.
+     */
+    void store(String fingerprint, File exe, File config) throws IOException;
+}
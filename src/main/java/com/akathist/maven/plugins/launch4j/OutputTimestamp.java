@@ -0,0 +1,93 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The value of ${project.build.outputTimestamp}, interpreted the same way as maven-archiver does it:
+ * either seconds since the epoch or an ISO 8601 date like 2023-01-01T10:00:00Z.
+ * A missing value or a single character (used to disable the timestamp in child modules) means
+ * the build is not meant to be reproducible and the wall clock is used.
+ */
+class OutputTimestamp {
+
+    private final Instant instant;
+
+    private OutputTimestamp(Instant instant) {
+        this.instant = instant;
+    }
+
+    static OutputTimestamp parse(String outputTimestamp) {
+        if (outputTimestamp == null || outputTimestamp.trim().length() < 2) {
+            return new OutputTimestamp(null);
+        }
+
+        String value = outputTimestamp.trim();
+        if (isNumber(value)) {
+            return new OutputTimestamp(Instant.ofEpochSecond(Long.parseLong(value)));
+        }
+
+        try {
+            return new OutputTimestamp(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid project.build.outputTimestamp value '" + value + "', "
+                    + "expected seconds since the epoch or an ISO 8601 date like 2023-01-01T10:00:00Z", e);
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isReproducible() {
+        return instant != null;
+    }
+
+    /**
+     * @return the configured timestamp, or null when the build is not reproducible
+     */
+    Instant getInstant() {
+        return instant;
+    }
+
+    /**
+     * @return the year of the configured timestamp in UTC, or the current year when the build is not reproducible
+     */
+    int getYear() {
+        if (instant == null) {
+            return LocalDate.now().getYear();
+        }
+        return instant.atOffset(ZoneOffset.UTC).getYear();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(instant);
+    }
+}
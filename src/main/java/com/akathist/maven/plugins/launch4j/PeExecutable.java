@@ -0,0 +1,226 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The headers of a Windows executable: the section table, the data directories and where the data appended
+ * after the last section starts, which is the jar launch4j wraps. Only reads the headers, never the sections.
+ */
+final class PeExecutable {
+
+    static final int RESOURCE_DIRECTORY = 2;
+    static final int CERTIFICATE_DIRECTORY = 4;
+
+    private static final int DOS_SIGNATURE = 0x5A4D;
+    private static final int PE_SIGNATURE = 0x00004550;
+    private static final int PE_OFFSET_POSITION = 0x3C;
+    private static final int PE32_MAGIC = 0x10B;
+    private static final int PE32_PLUS_MAGIC = 0x20B;
+    private static final int SECTION_HEADER_SIZE = 40;
+    private static final int MAX_HEADERS_SIZE = 64 * 1024;
+
+    final File file;
+    final long length;
+    final boolean pe32Plus;
+    final int fileAlignment;
+    final int sectionAlignment;
+    final long optionalHeaderOffset;
+    final long checksumPosition;
+    final List<Section> sections;
+    /**
+     * Where the data appended after the raw data of the last section starts, the length of the file if none.
+     */
+    final long overlayOffset;
+
+    private final ByteBuffer headers;
+    private final long dataDirectoryOffset;
+    final int dataDirectoryCount;
+
+    private PeExecutable(File file, long length, ByteBuffer headers) throws IOException {
+        this.file = file;
+        this.length = length;
+        this.headers = headers;
+
+        if (headers.limit() < PE_OFFSET_POSITION + 4 || (headers.getShort(0) & 0xFFFF) != DOS_SIGNATURE) {
+            throw new IOException(file + " is not a Windows executable");
+        }
+        int peOffset = headers.getInt(PE_OFFSET_POSITION);
+        if (peOffset < 0 || peOffset + 24 > headers.limit() || headers.getInt(peOffset) != PE_SIGNATURE) {
+            throw new IOException(file + " has no valid PE header");
+        }
+        int sectionCount = headers.getShort(peOffset + 6) & 0xFFFF;
+        int optionalHeaderSize = headers.getShort(peOffset + 20) & 0xFFFF;
+        optionalHeaderOffset = peOffset + 24;
+        long sectionTable = optionalHeaderOffset + optionalHeaderSize;
+        if (sectionTable + (long) sectionCount * SECTION_HEADER_SIZE > headers.limit()) {
+            throw new IOException(file + " has a truncated section table");
+        }
+
+        int magic = headers.getShort((int) optionalHeaderOffset) & 0xFFFF;
+        if (magic != PE32_MAGIC && magic != PE32_PLUS_MAGIC) {
+            throw new IOException(file + " has an unknown optional header magic 0x" + Integer.toHexString(magic));
+        }
+        pe32Plus = magic == PE32_PLUS_MAGIC;
+        sectionAlignment = headers.getInt((int) optionalHeaderOffset + 32);
+        fileAlignment = headers.getInt((int) optionalHeaderOffset + 36);
+        checksumPosition = optionalHeaderOffset + 64;
+        dataDirectoryOffset = optionalHeaderOffset + (pe32Plus ? 112 : 96);
+        dataDirectoryCount = headers.getInt((int) dataDirectoryOffset - 4);
+
+        List<Section> table = new ArrayList<>();
+        long end = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            int offset = (int) sectionTable + i * SECTION_HEADER_SIZE;
+            byte[] name = new byte[8];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = headers.get(offset + j);
+            }
+            Section section = new Section(new String(name, StandardCharsets.US_ASCII).replace("\0", ""), offset,
+                    unsigned(headers.getInt(offset + 8)), unsigned(headers.getInt(offset + 12)),
+                    unsigned(headers.getInt(offset + 16)), unsigned(headers.getInt(offset + 20)));
+            if (section.rawSize > 0) {
+                end = Math.max(end, section.rawPointer + section.rawSize);
+            }
+            table.add(section);
+        }
+        if (end > length) {
+            throw new IOException(file + " is truncated, its sections end at " + end + " of " + length + " bytes");
+        }
+        sections = Collections.unmodifiableList(table);
+        overlayOffset = end > 0 ? end : length;
+    }
+
+    static PeExecutable read(File exe) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(exe, "r")) {
+            byte[] headers = new byte[(int) Math.min(file.length(), MAX_HEADERS_SIZE)];
+            file.readFully(headers);
+            return new PeExecutable(exe, file.length(), ByteBuffer.wrap(headers).order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * @return the virtual address and the size of the data directory, or null if the executable has none
+     */
+    long[] dataDirectory(int index) {
+        if (index >= dataDirectoryCount) {
+            return null;
+        }
+        int offset = (int) dataDirectoryOffset + index * 8;
+        long address = unsigned(headers.getInt(offset));
+        long size = unsigned(headers.getInt(offset + 4));
+        return address == 0 && size == 0 ? null : new long[]{address, size};
+    }
+
+    long dataDirectoryPosition(int index) {
+        return dataDirectoryOffset + index * 8L;
+    }
+
+    /**
+     * The section the virtual address belongs to, or null.
+     */
+    Section sectionAt(long virtualAddress) {
+        for (Section section : sections) {
+            long size = Math.max(section.virtualSize, section.rawSize);
+            if (virtualAddress >= section.virtualAddress && virtualAddress < section.virtualAddress + size) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The section holding the resources, or null if the executable has none.
+     */
+    Section resourceSection() {
+        long[] resources = dataDirectory(RESOURCE_DIRECTORY);
+        return resources != null ? sectionAt(resources[0]) : null;
+    }
+
+    /**
+     * Whether the section comes last both in the file and in memory, so it can grow without moving another one.
+     */
+    boolean isLast(Section section) {
+        for (Section other : sections) {
+            if (other != section && (other.virtualAddress > section.virtualAddress
+                    || other.rawSize > 0 && other.rawPointer > section.rawPointer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The length of the data appended after the last section.
+     */
+    long overlayLength() {
+        return length - overlayOffset;
+    }
+
+    boolean hasChecksum() {
+        return headers.getInt((int) checksumPosition) != 0;
+    }
+
+    int sizeOfInitializedData() {
+        return headers.getInt((int) optionalHeaderOffset + 8);
+    }
+
+    static long align(long value, long alignment) {
+        return alignment <= 1 ? value : (value + alignment - 1) / alignment * alignment;
+    }
+
+    private static long unsigned(int value) {
+        return value & 0xFFFFFFFFL;
+    }
+
+    static final class Section {
+        final String name;
+        /**
+         * Where the section's header sits in the file.
+         */
+        final long headerOffset;
+        final long virtualSize;
+        final long virtualAddress;
+        final long rawSize;
+        final long rawPointer;
+
+        Section(String name, long headerOffset, long virtualSize, long virtualAddress, long rawSize, long rawPointer) {
+            this.name = name;
+            this.headerOffset = headerOffset;
+            this.virtualSize = virtualSize;
+            this.virtualAddress = virtualAddress;
+            this.rawSize = rawSize;
+            this.rawPointer = rawPointer;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Instant;
+
+/**
+ * Removes the wall clock from an executable produced by launch4j.
+ * <p/>
+ * ld stamps the link time into the COFF header of the executable, so two builds of the same sources
+ * never produce the same bytes. This class overwrites that stamp (and the file's modification time)
+ * with ${project.build.outputTimestamp} and fixes the PE checksum if the linker wrote one.
+ */
+class ReproducibleExecutable {
+
+    private static final int DOS_SIGNATURE = 0x5A4D;
+    private static final int PE_SIGNATURE = 0x00004550;
+    private static final int PE_OFFSET_POSITION = 0x3C;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int OPTIONAL_HEADER_OFFSET = 24;
+    private static final int CHECKSUM_OFFSET = 64;
+
+    private ReproducibleExecutable() {
+    }
+
+    static void normalize(File exe, Instant timestamp) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(exe, "rw")) {
+            if (file.length() < PE_OFFSET_POSITION + 4 || readUnsignedShort(file, 0) != DOS_SIGNATURE) {
+                throw new IOException(exe + " is not a Windows executable");
+            }
+            long peOffset = readInt(file, PE_OFFSET_POSITION) & 0xFFFFFFFFL;
+            if (peOffset + OPTIONAL_HEADER_OFFSET + CHECKSUM_OFFSET + 4 > file.length()
+                    || readInt(file, peOffset) != PE_SIGNATURE) {
+                throw new IOException(exe + " has no valid PE header");
+            }
+
+            writeInt(file, peOffset + TIMESTAMP_OFFSET, (int) timestamp.getEpochSecond());
+
+            long checksumPosition = peOffset + OPTIONAL_HEADER_OFFSET + CHECKSUM_OFFSET;
+            if (readInt(file, checksumPosition) != 0) {
+                writeInt(file, checksumPosition, (int) checksum(file, checksumPosition));
+            }
+        }
+
+        if (!exe.setLastModified(timestamp.toEpochMilli())) {
+            throw new IOException("Cannot set the modification time of " + exe);
+        }
+    }
+
+    /**
+     * The PE image checksum: a 16 bit one's complement sum over the whole file, skipping the checksum
+     * field itself, plus the file length. Computed in a single streaming pass.
+     */
+    static long checksum(RandomAccessFile file, long checksumPosition) throws IOException {
+        long length = file.length();
+        long sum = 0;
+        byte[] buffer = new byte[64 * 1024];
+        long position = 0;
+        file.seek(0);
+
+        while (position < length) {
+            int read = file.read(buffer, 0, (int) Math.min(buffer.length, length - position));
+            if (read < 0) {
+                break;
+            }
+            // buffer size is even, so words never straddle two reads unless it is the last, odd byte
+            sum = addToChecksum(sum, buffer, read, position, checksumPosition);
+            position += read;
+        }
+        return finishChecksum(sum, length);
+    }
+
+    /**
+     * Adds the words of a part of the file to a running checksum.
+     *
+     * @param position the position of the part in the file, which must be even
+     */
+    static long addToChecksum(long sum, byte[] buffer, int length, long position, long checksumPosition) {
+        for (int i = 0; i < length; i += 2) {
+            long offset = position + i;
+            if (offset >= checksumPosition && offset < checksumPosition + 4) {
+                continue;
+            }
+            int word = buffer[i] & 0xFF;
+            if (i + 1 < length) {
+                word |= (buffer[i + 1] & 0xFF) << 8;
+            }
+            sum += word;
+            sum = (sum & 0xFFFF) + (sum >>> 16);
+        }
+        return sum;
+    }
+
+    static long finishChecksum(long sum, long length) {
+        sum = (sum & 0xFFFF) + (sum >>> 16);
+        return (sum + length) & 0xFFFFFFFFL;
+    }
+
+    private static int readUnsignedShort(RandomAccessFile file, long position) throws IOException {
+        file.seek(position);
+        return file.read() | (file.read() << 8);
+    }
+
+    private static int readInt(RandomAccessFile file, long position) throws IOException {
+        file.seek(position);
+        return file.read() | (file.read() << 8) | (file.read() << 16) | (file.read() << 24);
+    }
+
+    private static void writeInt(RandomAccessFile file, long position, int value) throws IOException {
+        file.seek(position);
+        file.write(value & 0xFF);
+        file.write((value >>> 8) & 0xFF);
+        file.write((value >>> 16) & 0xFF);
+        file.write((value >>> 24) & 0xFF);
+    }
+}
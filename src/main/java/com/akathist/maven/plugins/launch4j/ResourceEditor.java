@@ -0,0 +1,159 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and rewrites the resources of an executable built by launch4j without running windres and ld again.
+ * <p/>
+ * Only the resource section changes: the other sections and the headers stay as they are, apart from the sizes
+ * describing the resource section, and the data appended after the last section, i.e. the wrapped jar,
+ * is copied as it is. launch4j's linker puts the resource section last, so it can grow or shrink freely;
+ * in any other layout the new resources have to fit into the space of the old ones.
+ */
+final class ResourceEditor {
+
+    private ResourceEditor() {
+    }
+
+    static ResourceTable read(File exe) throws IOException {
+        PeExecutable pe = PeExecutable.read(exe);
+        PeExecutable.Section section = resourceSection(pe);
+        return ResourceTable.parse(readSection(exe, section), section.virtualAddress);
+    }
+
+    /**
+     * Writes the source executable with the given resources to the target, which may be the source itself.
+     * The target is replaced atomically, keeping the source's modification time.
+     */
+    static void write(File source, ResourceTable resources, File target) throws IOException {
+        PeExecutable pe = PeExecutable.read(source);
+        PeExecutable.Section section = resourceSection(pe);
+        if (pe.dataDirectory(PeExecutable.CERTIFICATE_DIRECTORY) != null) {
+            throw new IOException(source + " is signed; change its resources before signing it");
+        }
+
+        byte[] data = resources.toBytes(section.virtualAddress);
+        boolean last = pe.isLast(section);
+        long rawSize = PeExecutable.align(data.length, pe.fileAlignment);
+        if (!last) {
+            PeExecutable.Section next = nextSection(pe, section);
+            if (rawSize > section.rawSize || next != null && section.virtualAddress + data.length > next.virtualAddress) {
+                throw new IOException("The resources of " + source + " grew by " + (data.length - section.virtualSize)
+                        + " bytes, which do not fit before the section following them");
+            }
+            rawSize = section.rawSize;
+        }
+
+        Path temp = AtomicFiles.tempFileFor(target.toPath());
+        try {
+            try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                transfer(in, 0, section.rawPointer, out);
+                ByteBuffer padded = ByteBuffer.allocate((int) rawSize);
+                padded.put(data).rewind();
+                while (padded.hasRemaining()) {
+                    out.write(padded);
+                }
+                long rest = section.rawPointer + section.rawSize;
+                transfer(in, rest, in.size() - rest, out);
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+                writeInt(file, section.headerOffset + 8, data.length);
+                writeInt(file, section.headerOffset + 16, (int) rawSize);
+                writeInt(file, pe.dataDirectoryPosition(PeExecutable.RESOURCE_DIRECTORY) + 4, data.length);
+                writeInt(file, pe.optionalHeaderOffset + 8, (int) (pe.sizeOfInitializedData() + rawSize - section.rawSize));
+                if (last) {
+                    writeInt(file, pe.optionalHeaderOffset + 56,
+                            (int) PeExecutable.align(section.virtualAddress + data.length, pe.sectionAlignment));
+                }
+                if (pe.hasChecksum()) {
+                    writeInt(file, pe.checksumPosition, (int) ReproducibleExecutable.checksum(file, pe.checksumPosition));
+                }
+            }
+            Files.setLastModifiedTime(temp, Files.getLastModifiedTime(source.toPath()));
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(source.toPath()));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system, the temporary file is as accessible as the source
+            }
+            AtomicFiles.moveIntoPlace(temp, target.toPath());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static PeExecutable.Section resourceSection(PeExecutable pe) throws IOException {
+        PeExecutable.Section section = pe.resourceSection();
+        long[] directory = pe.dataDirectory(PeExecutable.RESOURCE_DIRECTORY);
+        if (section == null || directory[0] != section.virtualAddress) {
+            throw new IOException(pe.file + " has no resource section of its own");
+        }
+        return section;
+    }
+
+    private static PeExecutable.Section nextSection(PeExecutable pe, PeExecutable.Section section) {
+        PeExecutable.Section next = null;
+        for (PeExecutable.Section other : pe.sections) {
+            if (other.virtualAddress > section.virtualAddress
+                    && (next == null || other.virtualAddress < next.virtualAddress)) {
+                next = other;
+            }
+        }
+        return next;
+    }
+
+    private static byte[] readSection(File exe, PeExecutable.Section section) throws IOException {
+        long size = section.virtualSize > 0 ? Math.min(section.rawSize, section.virtualSize) : section.rawSize;
+        byte[] data = new byte[(int) size];
+        try (RandomAccessFile file = new RandomAccessFile(exe, "r")) {
+            file.seek(section.rawPointer);
+            file.readFully(data);
+        }
+        return data;
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long transferred = in.transferTo(position + done, count - done, out);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of file at " + (position + done));
+            }
+            done += transferred;
+        }
+    }
+
+    private static void writeInt(RandomAccessFile file, long position, int value) throws IOException {
+        file.seek(position);
+        file.write(value & 0xFF);
+        file.write((value >>> 8) & 0xFF);
+        file.write((value >>> 16) & 0xFF);
+        file.write((value >>> 24) & 0xFF);
+    }
+}
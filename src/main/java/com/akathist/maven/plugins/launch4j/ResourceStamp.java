@@ -0,0 +1,187 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Changes to the resources launch4j compiles into an executable: strings and numbers of the version
+ * information, the icon, the manifest and the texts launch4j keeps as RCDATA, i.e. errTitle and the messages.
+ * The resource ids are the ones of launch4j's resource script.
+ */
+final class ResourceStamp {
+
+    static final int ERR_TITLE = 10;
+    static final int STARTUP_ERR = 101;
+    static final int JRE_NOT_FOUND_ERR = 102;
+    static final int JRE_VERSION_ERR = 103;
+    static final int LAUNCHER_ERR = 104;
+    static final int INSTANCE_ALREADY_EXISTS_MSG = 105;
+
+    private static final int APPLICATION_ICON = 1;
+    private static final int APPLICATION_MANIFEST = 1;
+    private static final int VERSION_INFO = 1;
+    private static final int ICON_DIRECTORY_SIZE = 6;
+    private static final int ICON_FILE_ENTRY_SIZE = 16;
+
+    private final Map<String, String> versionStrings = new LinkedHashMap<>();
+    private final Map<Integer, String> texts = new TreeMap<>();
+    private String fileVersion;
+    private String productVersion;
+    private File icon;
+    private File manifest;
+
+    /**
+     * @param key a key of the version information's StringTable, e.g. ProductName
+     */
+    ResourceStamp versionString(String key, String value) {
+        versionStrings.put(key, value);
+        return this;
+    }
+
+    ResourceStamp fileVersion(String version) {
+        fileVersion = version;
+        return this;
+    }
+
+    ResourceStamp productVersion(String version) {
+        productVersion = version;
+        return this;
+    }
+
+    ResourceStamp icon(File icon) {
+        this.icon = icon;
+        return this;
+    }
+
+    ResourceStamp manifest(File manifest) {
+        this.manifest = manifest;
+        return this;
+    }
+
+    /**
+     * @param id one of the RCDATA ids of launch4j's texts, e.g. {@link #ERR_TITLE}
+     */
+    ResourceStamp text(int id, String text) {
+        texts.put(id, text);
+        return this;
+    }
+
+    boolean isEmpty() {
+        return versionStrings.isEmpty() && texts.isEmpty() && fileVersion == null && productVersion == null
+                && icon == null && manifest == null;
+    }
+
+    void applyTo(ResourceTable resources) throws IOException {
+        if (!versionStrings.isEmpty() || fileVersion != null || productVersion != null) {
+            ResourceTable.Entry entry = resources.get(ResourceTable.RT_VERSION, VERSION_INFO);
+            if (entry == null) {
+                throw new IOException("The executable has no version information to change");
+            }
+            VersionResource version = VersionResource.parse(entry.data);
+            for (Map.Entry<String, String> string : versionStrings.entrySet()) {
+                version.setString(string.getKey(), string.getValue());
+            }
+            if (fileVersion != null) {
+                version.setFileVersion(fileVersion);
+            }
+            if (productVersion != null) {
+                version.setProductVersion(productVersion);
+            }
+            resources.replace(ResourceTable.RT_VERSION, VERSION_INFO, version.toBytes());
+        }
+        for (Map.Entry<Integer, String> text : texts.entrySet()) {
+            resources.replace(ResourceTable.RT_RCDATA, text.getKey(), rcdata(text.getValue()));
+        }
+        if (icon != null) {
+            replaceIcon(resources, Files.readAllBytes(icon.toPath()));
+        }
+        if (manifest != null) {
+            resources.replace(ResourceTable.RT_MANIFEST, APPLICATION_MANIFEST, Files.readAllBytes(manifest.toPath()));
+        }
+    }
+
+    /**
+     * A text the way launch4j's resource script stores it: Latin-1, with Windows line breaks and terminated by NUL.
+     */
+    static byte[] rcdata(String text) {
+        return (text.replace("\r\n", "\n").replace("\n", "\r\n") + '\0').getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Replaces the images of the application icon by the ones of an .ico file: one RT_ICON per image,
+     * listed by the RT_GROUP_ICON, which refers to them by id instead of by offset.
+     */
+    private static void replaceIcon(ResourceTable resources, byte[] ico) throws IOException {
+        ByteBuffer file = ByteBuffer.wrap(ico).order(ByteOrder.LITTLE_ENDIAN);
+        if (ico.length < ICON_DIRECTORY_SIZE || file.getShort(0) != 0 || file.getShort(2) != 1) {
+            throw new IOException("Not an .ico file");
+        }
+        int count = file.getShort(4) & 0xFFFF;
+        if (count == 0 || ICON_DIRECTORY_SIZE + count * ICON_FILE_ENTRY_SIZE > ico.length) {
+            throw new IOException("The .ico file has no images or a truncated directory");
+        }
+
+        ResourceTable.Entry group = resources.get(ResourceTable.RT_GROUP_ICON, APPLICATION_ICON);
+        if (group != null) {
+            ByteBuffer old = ByteBuffer.wrap(group.data).order(ByteOrder.LITTLE_ENDIAN);
+            int oldCount = group.data.length >= ICON_DIRECTORY_SIZE ? old.getShort(4) & 0xFFFF : 0;
+            for (int i = 0; i < oldCount && ICON_DIRECTORY_SIZE + (i + 1) * 14 <= group.data.length; i++) {
+                resources.remove(ResourceTable.RT_ICON, old.getShort(ICON_DIRECTORY_SIZE + i * 14 + 12) & 0xFFFF);
+            }
+        }
+
+        int nextId = 1;
+        List<Integer> ids = new ArrayList<>();
+        ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        directory.write(ico, 0, ICON_DIRECTORY_SIZE);
+        for (int i = 0; i < count; i++) {
+            int entry = ICON_DIRECTORY_SIZE + i * ICON_FILE_ENTRY_SIZE;
+            int size = file.getInt(entry + 8);
+            int offset = file.getInt(entry + 12);
+            if (size < 0 || offset < 0 || (long) offset + size > ico.length) {
+                throw new IOException("Image " + (i + 1) + " of the .ico file lies outside of the file");
+            }
+            while (!resources.languages(ResourceTable.RT_ICON, nextId).isEmpty() || ids.contains(nextId)) {
+                nextId++;
+            }
+            ids.add(nextId);
+            byte[] image = new byte[size];
+            System.arraycopy(ico, offset, image, 0, size);
+            resources.replace(ResourceTable.RT_ICON, nextId, image);
+
+            // the group entry is the file entry with the image's id in place of its offset
+            directory.write(ico, entry, 12);
+            directory.write(nextId & 0xFF);
+            directory.write((nextId >>> 8) & 0xFF);
+        }
+        resources.replace(ResourceTable.RT_GROUP_ICON, APPLICATION_ICON, directory.toByteArray());
+    }
+}
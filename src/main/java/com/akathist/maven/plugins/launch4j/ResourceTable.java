@@ -0,0 +1,302 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The resources of a Windows executable, as a tree of type, name and language, each of them either
+ * a number or a string. Parsed from and written to the contents of the resource section.
+ */
+final class ResourceTable {
+
+    static final int RT_ICON = 3;
+    static final int RT_RCDATA = 10;
+    static final int RT_GROUP_ICON = 14;
+    static final int RT_VERSION = 16;
+    static final int RT_MANIFEST = 24;
+
+    /**
+     * LANG_NEUTRAL, SUBLANG_DEFAULT: the language launch4j's resource script declares.
+     */
+    static final int DEFAULT_LANGUAGE = 0x400;
+
+    private static final int DIRECTORY_SIZE = 16;
+    private static final int DIRECTORY_ENTRY_SIZE = 8;
+    private static final int DATA_ENTRY_SIZE = 16;
+    private static final int HIGH_BIT = 0x80000000;
+    private static final int LEVELS = 3;
+
+    /**
+     * Names come before numbers, as the format requires.
+     */
+    private static final Comparator<Object> KEY_ORDER = (a, b) -> {
+        if (a instanceof String) {
+            return b instanceof String ? ((String) a).compareTo((String) b) : -1;
+        }
+        return b instanceof String ? 1 : Integer.compare((Integer) a, (Integer) b);
+    };
+
+    private final Map<Object, Map<Object, Map<Object, Entry>>> types = new TreeMap<>(KEY_ORDER);
+
+    static final class Entry {
+        final byte[] data;
+        final int codePage;
+
+        Entry(byte[] data, int codePage) {
+            this.data = data;
+            this.codePage = codePage;
+        }
+    }
+
+    /**
+     * @param section        the contents of the resource section
+     * @param sectionAddress the virtual address of the section, the data entries point at
+     */
+    static ResourceTable parse(byte[] section, long sectionAddress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(section).order(ByteOrder.LITTLE_ENDIAN);
+        ResourceTable table = new ResourceTable();
+        try {
+            for (Map.Entry<Object, Integer> type : entries(buffer, 0).entrySet()) {
+                for (Map.Entry<Object, Integer> name : entries(buffer, subdirectory(type.getValue())).entrySet()) {
+                    for (Map.Entry<Object, Integer> language : entries(buffer, subdirectory(name.getValue())).entrySet()) {
+                        int dataEntry = language.getValue();
+                        if ((dataEntry & HIGH_BIT) != 0) {
+                            throw new IOException("The resource tree is deeper than " + LEVELS + " levels");
+                        }
+                        long address = buffer.getInt(dataEntry) & 0xFFFFFFFFL;
+                        int size = buffer.getInt(dataEntry + 4);
+                        long offset = address - sectionAddress;
+                        if (offset < 0 || size < 0 || offset + size > section.length) {
+                            throw new IOException("Resource " + type.getKey() + "/" + name.getKey()
+                                    + " lies outside of the resource section");
+                        }
+                        byte[] data = new byte[size];
+                        System.arraycopy(section, (int) offset, data, 0, size);
+                        table.put(type.getKey(), name.getKey(), language.getKey(),
+                                new Entry(data, buffer.getInt(dataEntry + 8)));
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("The resource section is truncated", e);
+        }
+        return table;
+    }
+
+    private static int subdirectory(int offset) throws IOException {
+        if ((offset & HIGH_BIT) == 0) {
+            throw new IOException("The resource tree is shallower than " + LEVELS + " levels");
+        }
+        return offset & ~HIGH_BIT;
+    }
+
+    /**
+     * The entries of a directory: their number or name and the offset they point at.
+     */
+    private static Map<Object, Integer> entries(ByteBuffer buffer, int directory) throws IOException {
+        int count = (buffer.getShort(directory + 12) & 0xFFFF) + (buffer.getShort(directory + 14) & 0xFFFF);
+        Map<Object, Integer> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int entry = directory + DIRECTORY_SIZE + i * DIRECTORY_ENTRY_SIZE;
+            int id = buffer.getInt(entry);
+            Object key = (id & HIGH_BIT) != 0 ? readName(buffer, id & ~HIGH_BIT) : (Object) id;
+            int offset = buffer.getInt(entry + 4);
+            if ((offset & HIGH_BIT) != 0 && (offset & ~HIGH_BIT) <= directory) {
+                throw new IOException("The resource tree has a loop");
+            }
+            entries.put(key, offset);
+        }
+        return entries;
+    }
+
+    private static String readName(ByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        char[] name = new char[length];
+        for (int i = 0; i < length; i++) {
+            name[i] = buffer.getChar(offset + 2 + i * 2);
+        }
+        return new String(name);
+    }
+
+    Set<Object> types() {
+        return Collections.unmodifiableSet(types.keySet());
+    }
+
+    Set<Object> names(Object type) {
+        Map<Object, Map<Object, Entry>> names = types.get(type);
+        return names != null ? Collections.unmodifiableSet(names.keySet()) : Collections.emptySet();
+    }
+
+    /**
+     * The resource in each of its languages, empty if there is none.
+     */
+    Map<Object, Entry> languages(Object type, Object name) {
+        Map<Object, Map<Object, Entry>> names = types.get(type);
+        Map<Object, Entry> languages = names != null ? names.get(name) : null;
+        return languages != null ? Collections.unmodifiableMap(languages) : Collections.emptyMap();
+    }
+
+    /**
+     * The resource in its first language, or null.
+     */
+    Entry get(Object type, Object name) {
+        Map<Object, Entry> languages = languages(type, name);
+        return languages.isEmpty() ? null : languages.values().iterator().next();
+    }
+
+    void put(Object type, Object name, Object language, Entry entry) {
+        types.computeIfAbsent(type, t -> new TreeMap<>(KEY_ORDER))
+                .computeIfAbsent(name, n -> new TreeMap<>(KEY_ORDER))
+                .put(language, entry);
+    }
+
+    /**
+     * Replaces the data of the resource in all its languages, or adds it in the default language of the table.
+     */
+    void replace(Object type, Object name, byte[] data) {
+        Map<Object, Entry> languages = languages(type, name);
+        if (languages.isEmpty()) {
+            put(type, name, defaultLanguage(), new Entry(data, 0));
+            return;
+        }
+        for (Map.Entry<Object, Entry> language : new ArrayList<>(languages.entrySet())) {
+            put(type, name, language.getKey(), new Entry(data, language.getValue().codePage));
+        }
+    }
+
+    void remove(Object type, Object name) {
+        Map<Object, Map<Object, Entry>> names = types.get(type);
+        if (names != null) {
+            names.remove(name);
+            if (names.isEmpty()) {
+                types.remove(type);
+            }
+        }
+    }
+
+    /**
+     * The language of the version information, which launch4j gives all of its resources.
+     */
+    Object defaultLanguage() {
+        Map<Object, Map<Object, Entry>> versions = types.get(RT_VERSION);
+        if (versions != null && !versions.isEmpty()) {
+            return versions.values().iterator().next().keySet().iterator().next();
+        }
+        return DEFAULT_LANGUAGE;
+    }
+
+    /**
+     * Lays the tree out the way resource compilers do: the directories breadth first, then the names,
+     * the data entries and the data, each of it aligned to 8 bytes.
+     *
+     * @param sectionAddress the virtual address of the section, the data entries point at
+     */
+    byte[] toBytes(long sectionAddress) {
+        List<Map<Object, ?>> directories = new ArrayList<>();
+        directories.add(types);
+        for (Map<Object, Map<Object, Entry>> names : types.values()) {
+            directories.add(names);
+        }
+        for (Map<Object, Map<Object, Entry>> names : types.values()) {
+            directories.addAll(names.values());
+        }
+
+        Map<Object, Integer> directoryOffsets = new IdentityHashMap<>();
+        int size = 0;
+        for (Map<Object, ?> directory : directories) {
+            directoryOffsets.put(directory, size);
+            size += DIRECTORY_SIZE + directory.size() * DIRECTORY_ENTRY_SIZE;
+        }
+
+        Map<String, Integer> nameOffsets = new LinkedHashMap<>();
+        List<Entry> entries = new ArrayList<>();
+        for (Map<Object, ?> directory : directories) {
+            for (Map.Entry<Object, ?> entry : directory.entrySet()) {
+                if (entry.getKey() instanceof String && !nameOffsets.containsKey(entry.getKey())) {
+                    nameOffsets.put((String) entry.getKey(), size);
+                    size += 2 + 2 * ((String) entry.getKey()).length();
+                }
+                if (entry.getValue() instanceof Entry) {
+                    entries.add((Entry) entry.getValue());
+                }
+            }
+        }
+
+        size = (int) PeExecutable.align(size, 8);
+        Map<Entry, Integer> dataEntryOffsets = new IdentityHashMap<>();
+        for (Entry entry : entries) {
+            dataEntryOffsets.put(entry, size);
+            size += DATA_ENTRY_SIZE;
+        }
+        Map<Entry, Integer> dataOffsets = new IdentityHashMap<>();
+        for (Entry entry : entries) {
+            dataOffsets.put(entry, size);
+            size = (int) PeExecutable.align(size + entry.data.length, 8);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (Map<Object, ?> directory : directories) {
+            int offset = directoryOffsets.get(directory);
+            int named = 0;
+            for (Object key : directory.keySet()) {
+                if (key instanceof String) {
+                    named++;
+                }
+            }
+            buffer.putShort(offset + 12, (short) named);
+            buffer.putShort(offset + 14, (short) (directory.size() - named));
+            int entry = offset + DIRECTORY_SIZE;
+            for (Map.Entry<Object, ?> child : directory.entrySet()) {
+                buffer.putInt(entry, child.getKey() instanceof String
+                        ? HIGH_BIT | nameOffsets.get(child.getKey()) : (Integer) child.getKey());
+                buffer.putInt(entry + 4, child.getValue() instanceof Entry
+                        ? dataEntryOffsets.get(child.getValue()) : HIGH_BIT | directoryOffsets.get(child.getValue()));
+                entry += DIRECTORY_ENTRY_SIZE;
+            }
+        }
+        for (Map.Entry<String, Integer> name : nameOffsets.entrySet()) {
+            buffer.putShort(name.getValue(), (short) name.getKey().length());
+            byte[] chars = name.getKey().getBytes(StandardCharsets.UTF_16LE);
+            buffer.position(name.getValue() + 2);
+            buffer.put(chars);
+        }
+        for (Entry entry : entries) {
+            int offset = dataEntryOffsets.get(entry);
+            buffer.putInt(offset, (int) (sectionAddress + dataOffsets.get(entry)));
+            buffer.putInt(offset + 4, entry.data.length);
+            buffer.putInt(offset + 8, entry.codePage);
+            buffer.position(dataOffsets.get(entry));
+            buffer.put(entry.data);
+        }
+        return buffer.array();
+    }
+}
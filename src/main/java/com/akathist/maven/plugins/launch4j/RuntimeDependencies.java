@@ -0,0 +1,100 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.DependencyResolutionResult;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.util.filter.ScopeDependencyFilter;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The runtime dependencies of the project, resolved the first time they are asked for.
+ * <p/>
+ * The launch4j goal does not make Maven resolve the dependencies before it runs, because most executions never
+ * look at them: without a classPath, with addDependencies switched off or with an infile bringing its own
+ * classpath. Only when the dependencies end up on the classpath or are staged next to the executable, the same
+ * compile and runtime scoped graph Maven would have resolved is resolved here, once per execution.
+ */
+class RuntimeDependencies {
+
+    private static final ScopeDependencyFilter RUNTIME_SCOPES =
+            new ScopeDependencyFilter(Arrays.asList(Artifact.SCOPE_COMPILE, Artifact.SCOPE_RUNTIME), null);
+
+    private final ProjectDependenciesResolver resolver;
+
+    private final MavenProject project;
+
+    private final MavenSession session;
+
+    private final Log log;
+
+    private Set<Artifact> artifacts;
+
+    RuntimeDependencies(ProjectDependenciesResolver resolver, MavenProject project, MavenSession session, Log log) {
+        this.resolver = resolver;
+        this.project = project;
+        this.session = session;
+        this.log = log;
+    }
+
+    synchronized Set<Artifact> get() throws MojoExecutionException {
+        if (artifacts == null) {
+            artifacts = resolve();
+        }
+        return artifacts;
+    }
+
+    private Set<Artifact> resolve() throws MojoExecutionException {
+        long start = System.nanoTime();
+        DefaultDependencyResolutionRequest request =
+                new DefaultDependencyResolutionRequest(project, session.getRepositorySession());
+        request.setResolutionFilter(RUNTIME_SCOPES);
+
+        DependencyResolutionResult result;
+        try {
+            result = resolver.resolve(request);
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Cannot resolve the runtime dependencies of " + project.getId(), e);
+        }
+
+        Set<Artifact> resolved = new LinkedHashSet<>();
+        for (Dependency dependency : result.getDependencies()) {
+            Artifact artifact = RepositoryUtils.toArtifact(dependency.getArtifact());
+            artifact.setScope(dependency.getScope());
+            artifact.setOptional(dependency.isOptional());
+            resolved.add(artifact);
+        }
+        log.debug("Resolved " + resolved.size() + " runtime dependencies in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return resolved;
+    }
+}
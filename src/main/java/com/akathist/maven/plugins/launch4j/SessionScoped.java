@@ -0,0 +1,63 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps state shared by all executions of the plugin within one Maven session (one build of the reactor).
+ * The state lives in the repository session's data, so it is dropped together with the session
+ * instead of surviving in static fields, which matters under the Maven daemon.
+ */
+final class SessionScoped {
+
+    private SessionScoped() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(MavenSession session, String key, Supplier<T> factory) {
+        SessionData data = session.getRepositorySession().getData();
+        String scopedKey = SessionScoped.class.getName() + "." + key;
+
+        Object value = data.get(scopedKey);
+        if (value == null) {
+            T created = factory.get();
+            if (data.set(scopedKey, null, created)) {
+                return created;
+            }
+            value = data.get(scopedKey);
+        }
+        return (T) value;
+    }
+
+    /**
+     * @return the value stored under the key, or null if there is none or it is not of the given type
+     */
+    static <T> T find(MavenSession session, String key, Class<T> type) {
+        Object value = session.getRepositorySession().getData().get(SessionScoped.class.getName() + "." + key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    static void set(MavenSession session, String key, Object value) {
+        session.getRepositorySession().getData().set(SessionScoped.class.getName() + "." + key, value);
+    }
+}
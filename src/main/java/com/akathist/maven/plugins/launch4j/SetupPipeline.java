@@ -0,0 +1,210 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the steps setting up an execution as a small task graph: each step starts as soon as the steps
+ * it depends on are done, so independent I/O overlaps. Records when each step ran, so the critical path,
+ * the chain of steps which determined how long the setup took, can be reported.
+ * <p/>
+ * The steps run on an executor shared by all executions of a session, see {@link #newExecutor()}, so a large
+ * reactor built with many threads does not start a pool of its own for every execution.
+ */
+class SetupPipeline implements AutoCloseable {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final long IDLE_SECONDS = 10;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    /**
+     * A step of the setup, which may fail like a mojo does.
+     */
+    interface Step<T> {
+        T call() throws MojoExecutionException;
+    }
+
+    private final ExecutorService executor;
+
+    private final long origin = System.nanoTime();
+
+    private final List<Task<?>> tasks = new ArrayList<>();
+
+    SetupPipeline(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * A bounded executor for the pipelines of a session. Its threads end when they have been idle for a few seconds,
+     * so it needs no shutdown when the session is over, which a long-lived JVM like a build daemon relies on.
+     */
+    static ExecutorService newExecutor() {
+        int pool = POOL_NUMBER.incrementAndGet();
+        AtomicInteger thread = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread t = new Thread(runnable, "launch4j-setup-" + pool + "-" + thread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Schedules the step to run once all the given tasks have completed. If one of them fails, the step does not run
+     * and its task fails the same way.
+     */
+    <T> Task<T> submit(String name, Step<T> step, Task<?>... dependencies) {
+        Task<T> task = new Task<>(name, Arrays.asList(dependencies));
+        CompletableFuture<?>[] before = new CompletableFuture<?>[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            before[i] = dependencies[i].future;
+        }
+
+        task.future = CompletableFuture.allOf(before).thenApplyAsync(ignored -> {
+            task.start = System.nanoTime();
+            try {
+                return step.call();
+            } catch (MojoExecutionException e) {
+                throw new CompletionException(e);
+            } finally {
+                task.end = System.nanoTime();
+                task.finished = true;
+            }
+        }, executor);
+
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        return task;
+    }
+
+    long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+
+    /**
+     * Follows the chain of steps back from the step which finished last, at each step choosing the dependency
+     * which finished last, e.g. <code>work directory (640 ms) -> objs (12 ms)</code>.
+     */
+    String criticalPath() {
+        Task<?> last = null;
+        synchronized (tasks) {
+            for (Task<?> task : tasks) {
+                if (task.hasRun() && (last == null || task.end - last.end > 0)) {
+                    last = task;
+                }
+            }
+        }
+
+        List<Task<?>> path = new ArrayList<>();
+        while (last != null) {
+            path.add(0, last);
+            Task<?> previous = null;
+            for (Task<?> dependency : last.dependencies) {
+                if (dependency.hasRun() && (previous == null || dependency.end - previous.end > 0)) {
+                    previous = dependency;
+                }
+            }
+            last = previous;
+        }
+
+        StringBuilder description = new StringBuilder();
+        for (Task<?> task : path) {
+            if (description.length() > 0) {
+                description.append(" -> ");
+            }
+            description.append(task.name).append(" (").append(task.elapsedMillis()).append(" ms)");
+        }
+        return description.length() > 0 ? description.toString() : "none";
+    }
+
+    /**
+     * Cancels the steps which have not started yet, e.g. after one failed. The shared executor keeps running.
+     */
+    @Override
+    public void close() {
+        synchronized (tasks) {
+            for (Task<?> task : tasks) {
+                task.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A scheduled step and the result it will have.
+     */
+    static final class Task<T> {
+        private final String name;
+        private final List<Task<?>> dependencies;
+        private volatile CompletableFuture<T> future;
+        private volatile long start;
+        private volatile long end;
+        private volatile boolean finished;
+
+        private Task(String name, List<Task<?>> dependencies) {
+            this.name = name;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Waits for the step and returns its result, rethrowing the exception it failed with.
+         */
+        T join() throws MojoExecutionException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof MojoExecutionException) {
+                    throw (MojoExecutionException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new MojoExecutionException("Step '" + name + "' failed", cause);
+            }
+        }
+
+        private boolean hasRun() {
+            return finished;
+        }
+
+        private long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(end - start);
+        }
+    }
+}
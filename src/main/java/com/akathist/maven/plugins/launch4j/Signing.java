@@ -0,0 +1,160 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Enumeration;
+
+/**
+ * Details about the Authenticode signature of the executables, made by the plugin itself with a key
+ * from a keystore. The passwords are best given as properties from the settings or the environment.
+ */
+public class Signing {
+
+    /**
+     * The keystore holding the key and its certificate chain.
+     */
+    @Parameter(required = true)
+    File keystore;
+
+    /**
+     * The type of the keystore, PKCS12 or JKS.
+     */
+    @Parameter(defaultValue = "PKCS12")
+    String storetype = "PKCS12";
+
+    /**
+     * The password of the keystore.
+     */
+    @Parameter
+    String storepass;
+
+    /**
+     * The alias of the key, by default the first key in the keystore.
+     */
+    @Parameter
+    String alias;
+
+    /**
+     * The password of the key, by default the password of the keystore.
+     */
+    @Parameter
+    String keypass;
+
+    /**
+     * The digest of the executable and the signature: SHA-1, SHA-256, SHA-384 or SHA-512.
+     */
+    @Parameter(defaultValue = "SHA-256")
+    String digestAlgorithm = "SHA-256";
+
+    /**
+     * The url of an RFC 3161 time stamping authority. Without it the signature is not time stamped
+     * and becomes invalid when the certificate expires.
+     */
+    @Parameter
+    String timestampUrl;
+
+    /**
+     * Connect and read timeout of the time stamping authority, in milliseconds.
+     */
+    @Parameter(defaultValue = "30000")
+    int timestampTimeout = 30000;
+
+    /**
+     * The program name shown by Windows when asking whether to run the executable.
+     */
+    @Parameter
+    String programName;
+
+    /**
+     * An url with information about the program.
+     */
+    @Parameter
+    String programUrl;
+
+    /**
+     * @throws IOException if the keystore cannot be read
+     * @throws GeneralSecurityException if the key cannot be taken out of it
+     * @throws IllegalArgumentException if the configuration is incomplete
+     */
+    AuthenticodeSigner toSigner() throws IOException, GeneralSecurityException {
+        if (keystore == null) {
+            throw new IllegalArgumentException("<signing> requires a <keystore>");
+        }
+        char[] storePassword = storepass != null ? storepass.toCharArray() : null;
+        KeyStore store = KeyStore.getInstance(storetype);
+        try (InputStream in = Files.newInputStream(keystore.toPath())) {
+            store.load(in, storePassword);
+        }
+
+        String keyAlias = alias != null ? alias : firstKeyAlias(store);
+        Key key = store.getKey(keyAlias, keypass != null ? keypass.toCharArray() : storePassword);
+        if (!(key instanceof PrivateKey)) {
+            throw new IllegalArgumentException("The keystore " + keystore + " has no private key " + keyAlias);
+        }
+        Certificate[] certificates = store.getCertificateChain(keyAlias);
+        if (certificates == null || certificates.length == 0) {
+            throw new IllegalArgumentException("The key " + keyAlias + " of " + keystore + " has no certificate");
+        }
+        X509Certificate[] chain = new X509Certificate[certificates.length];
+        for (int i = 0; i < certificates.length; i++) {
+            chain[i] = (X509Certificate) certificates[i];
+        }
+
+        TimestampClient timestamps = timestampUrl != null && !timestampUrl.trim().isEmpty()
+                ? new TimestampClient(timestampUrl.trim(), timestampTimeout)
+                : null;
+        return new AuthenticodeSigner((PrivateKey) key, chain, digestAlgorithm, timestamps, programName, programUrl);
+    }
+
+    private String firstKeyAlias(KeyStore store) throws GeneralSecurityException {
+        for (Enumeration<String> aliases = store.aliases(); aliases.hasMoreElements(); ) {
+            String candidate = aliases.nextElement();
+            if (store.isKeyEntry(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("The keystore " + keystore + " has no key");
+    }
+
+    @Override
+    public String toString() {
+        return "Signing{" +
+                "keystore=" + keystore +
+                ", storetype='" + storetype + '\'' +
+                ", alias='" + alias + '\'' +
+                ", digestAlgorithm='" + digestAlgorithm + '\'' +
+                ", timestampUrl='" + timestampUrl + '\'' +
+                ", timestampTimeout=" + timestampTimeout +
+                ", programName='" + programName + '\'' +
+                ", programUrl='" + programUrl + '\'' +
+                '}';
+    }
+}
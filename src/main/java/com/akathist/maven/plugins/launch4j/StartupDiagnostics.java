@@ -0,0 +1,158 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Startup diagnostics a launcher in the field can be switched to, without a new build: a flight recording,
+ * class loading and GC logs written to a directory on the customer's machine.
+ * <p/>
+ * The launcher cannot test whether a variable is set, it can only substitute it, and an unset variable
+ * becomes nothing. So the launcher gets one more JVM option, the {@link #variable}, which costs nothing
+ * while it is unset, and the diagnostic options are written to a script next to the executable, which sets
+ * the variable to them and starts the executable.
+ */
+public class StartupDiagnostics {
+
+    static final String SCRIPT_SUFFIX = "-diagnostics.cmd";
+
+    private static final Pattern VARIABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /**
+     * The environment variable switching the diagnostics on, substituted into the JVM options.
+     */
+    @Parameter(defaultValue = "L4J_STARTUP_DIAGNOSTICS")
+    String variable = "L4J_STARTUP_DIAGNOSTICS";
+
+    /**
+     * Where the recording and the logs are written, %TEMP% or %EXEDIR%, or any path expanded by the script.
+     */
+    @Parameter(defaultValue = "%TEMP%")
+    String directory = "%TEMP%";
+
+    /**
+     * If true, a flight recording of the first {@link #flightRecordingDuration} is made, which needs Java 11
+     * or 8u262 and later.
+     */
+    @Parameter(defaultValue = "true")
+    boolean flightRecording = true;
+
+    @Parameter(defaultValue = "60s")
+    String flightRecordingDuration = "60s";
+
+    /**
+     * The JFR settings, default or profile.
+     */
+    @Parameter(defaultValue = "profile")
+    String flightRecordingSettings = "profile";
+
+    /**
+     * If true, the classes loaded and where from are logged, which needs Java 9 or later.
+     */
+    @Parameter(defaultValue = "true")
+    boolean classLoading = true;
+
+    /**
+     * If true, the garbage collections are logged, which needs Java 9 or later.
+     */
+    @Parameter(defaultValue = "true")
+    boolean gc = true;
+
+    /**
+     * Further JVM options of the diagnostics, taken as they are.
+     */
+    @Parameter
+    List<String> options;
+
+    /**
+     * @return the JVM options of the launcher with the variable added, without changing the given list
+     * @throws IllegalArgumentException if the variable is not a valid name
+     */
+    List<String> withSwitch(List<String> opts) {
+        if (variable == null || !VARIABLE_NAME.matcher(variable).matches()) {
+            throw new IllegalArgumentException("<startupDiagnostics> needs a <variable> of letters, digits and _, not "
+                    + variable);
+        }
+        List<String> withSwitch = opts != null ? new ArrayList<>(opts) : new ArrayList<>();
+        withSwitch.add("%" + variable + "%");
+        return withSwitch;
+    }
+
+    /**
+     * The diagnostic options, each quoted, with the directory as given, so cmd expands it when the script runs.
+     *
+     * @param name the base name of the files written, usually the executable's
+     */
+    List<String> jvmOptions(String name) {
+        String base = directory.replace("%EXEDIR%", "%~dp0.") + "\\" + name;
+        List<String> jvmOptions = new ArrayList<>();
+        if (flightRecording) {
+            jvmOptions.add(quote("-XX:StartFlightRecording=duration=" + flightRecordingDuration
+                    + ",settings=" + flightRecordingSettings + ",filename=" + base + "-startup.jfr"));
+        }
+        // %p is the process id, doubled for cmd
+        if (classLoading) {
+            jvmOptions.add(quote("-Xlog:class+load=info:file=" + base + "-class-load-%%p.log"));
+        }
+        if (gc) {
+            jvmOptions.add(quote("-Xlog:gc*:file=" + base + "-gc-%%p.log"));
+        }
+        if (options != null) {
+            jvmOptions.addAll(options);
+        }
+        return jvmOptions;
+    }
+
+    /**
+     * A script starting the executable next to it with the diagnostics switched on, passing its arguments on.
+     */
+    String script(String executableName) {
+        String name = executableName.replaceFirst("(?i)\\.exe$", "");
+        return "@echo off\r\n"
+                + "rem Starts " + executableName + " with its startup diagnostics, written to " + directory + "\r\n"
+                + "set \"" + variable + "=" + String.join(" ", jvmOptions(name)) + "\"\r\n"
+                + "\"%~dp0" + executableName + "\" %*\r\n";
+    }
+
+    /**
+     * Quoted for the command line the launcher passes on, so the directory may have spaces.
+     */
+    private static String quote(String option) {
+        return "\"" + option + "\"";
+    }
+
+    @Override
+    public String toString() {
+        return "StartupDiagnostics{" +
+                "variable='" + variable + '\'' +
+                ", directory='" + directory + '\'' +
+                ", flightRecording=" + flightRecording +
+                ", flightRecordingDuration='" + flightRecordingDuration + '\'' +
+                ", flightRecordingSettings='" + flightRecordingSettings + '\'' +
+                ", classLoading=" + classLoading +
+                ", gc=" + gc +
+                ", options=" + options +
+                '}';
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+
+/**
+ * How the wrapped application starts: the milliseconds from the start of the JVM until the main class is loaded
+ * and until the application is ready, the heap in use then and what of it is still reachable, the classes
+ * loaded from each jar or directory, {@value StartupProbe#JDK} standing for the runtime's own, and the
+ * milliseconds spent in the slowest static initializers.
+ * <p/>
+ * The application runs in a JVM of its own with {@link StartupProbe} as java agent, so its static state and
+ * a call to {@link System#exit(int)} cannot affect the build.
+ */
+final class StartupMeasurement {
+
+    static final String CLASSES_TOTAL = StartupProbe.CLASSES + "total";
+
+    /**
+     * How long the JVM may take to end after the timeout before it is killed.
+     */
+    private static final long GRACE_MILLIS = 30000;
+
+    private static final FigureReport REPORT = new FigureReport("startup profile", 64, StartupMeasurement::unit);
+
+    private static final Pattern FIGURE = Pattern.compile(Pattern.quote(StartupProbe.TIME_TO_MAIN_CLASS)
+            + "|" + Pattern.quote(StartupProbe.TIME_TO_READY) + "|" + Pattern.quote(StartupProbe.HEAP_USED)
+            + "|" + Pattern.quote(StartupProbe.HEAP_LIVE) + "|" + Pattern.quote(StartupProbe.CLASSES) + ".+"
+            + "|" + Pattern.quote(StartupProbe.INITIALIZER) + ".+");
+
+    /**
+     * What made the application count as ready: pattern, main, exit or timeout.
+     */
+    final String ready;
+
+    /**
+     * The figures, in the order they are reported.
+     */
+    final Map<String, Long> figures;
+
+    private StartupMeasurement(String ready, Map<String, Long> figures) {
+        this.ready = ready;
+        this.figures = Collections.unmodifiableMap(figures);
+    }
+
+    /**
+     * Runs the application with the probe and waits until it is measured.
+     *
+     * @param command the java executable followed by the JVM options; the agent, the main class and
+     *                the arguments are added
+     * @param workDirectory where the probe, its settings and the output of the application go
+     * @throws IOException if the application does not start or ends without being measured
+     */
+    static StartupMeasurement measure(List<String> command, Map<String, String> environment, File directory,
+                                      String mainClass, List<String> arguments, StartupProfile settings,
+                                      File workDirectory) throws IOException, InterruptedException {
+        Files.createDirectories(workDirectory.toPath());
+        File probe = probeJar(new File(workDirectory, "startup-probe.jar"));
+        File raw = new File(workDirectory, "startup-probe.properties");
+        File output = new File(workDirectory, "startup-output.log");
+        Files.deleteIfExists(raw.toPath());
+
+        Properties probeSettings = new Properties();
+        probeSettings.setProperty(StartupProbe.MAIN_CLASS, mainClass);
+        probeSettings.setProperty(StartupProbe.TIMEOUT_MILLIS, Long.toString(settings.timeout));
+        probeSettings.setProperty(StartupProbe.SAMPLE_INTERVAL_MILLIS, Long.toString(settings.sampleInterval));
+        probeSettings.setProperty(StartupProbe.REPORT, raw.getAbsolutePath());
+        if (settings.readyPattern != null) {
+            Pattern.compile(settings.readyPattern);
+            probeSettings.setProperty(StartupProbe.READY_PATTERN, settings.readyPattern);
+        }
+        File settingsFile = new File(workDirectory, "startup-probe-settings.properties");
+        try (OutputStream out = Files.newOutputStream(settingsFile.toPath())) {
+            probeSettings.store(out, null);
+        }
+
+        List<String> probed = new ArrayList<>(command);
+        probed.add(1, "-javaagent:" + probe.getAbsolutePath() + "=" + settingsFile.getAbsolutePath());
+        probed.add(mainClass);
+        probed.addAll(arguments);
+        ProcessBuilder builder = new ProcessBuilder(probed)
+                .directory(directory)
+                .redirectErrorStream(true)
+                .redirectOutput(output);
+        builder.environment().putAll(environment);
+        Process application = builder.start();
+        if (!application.waitFor(settings.timeout + GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+            application.destroyForcibly();
+            throw new IOException("The application did not end within " + (settings.timeout + GRACE_MILLIS)
+                    + " ms, see " + output);
+        }
+        if (!raw.isFile()) {
+            throw new IOException("The application ended with " + application.exitValue()
+                    + " before it was measured, see " + output);
+        }
+
+        StartupMeasurement measurement = fromProbe(raw, settings.slowestInitializers);
+        if (StartupProbe.EXIT.equals(measurement.ready) && application.exitValue() != 0) {
+            throw new IOException("The application ended with " + application.exitValue()
+                    + " before it was ready, see " + output);
+        }
+        return measurement;
+    }
+
+    /**
+     * Keeps the figures of the probe in a fixed order: the times, the heap, the classes by location and
+     * the slowest initializers, slowest first.
+     */
+    static StartupMeasurement fromProbe(File raw, int slowestInitializers) throws IOException {
+        Properties report = FigureReport.load(raw);
+        Map<String, Long> figures = new LinkedHashMap<>();
+        for (String figure : new String[]{StartupProbe.TIME_TO_MAIN_CLASS, StartupProbe.TIME_TO_READY,
+                StartupProbe.HEAP_USED, StartupProbe.HEAP_LIVE}) {
+            figures.put(figure, number(raw, report, figure));
+        }
+        Map<String, Long> classes = new TreeMap<>();
+        List<Map.Entry<String, Long>> initializers = new ArrayList<>();
+        long total = 0;
+        for (String key : report.stringPropertyNames()) {
+            if (key.startsWith(StartupProbe.CLASSES)) {
+                long count = number(raw, report, key);
+                classes.put(key, count);
+                total += count;
+            } else if (key.startsWith(StartupProbe.INITIALIZER)) {
+                initializers.add(new AbstractMap.SimpleEntry<>(key, number(raw, report, key)));
+            }
+        }
+        figures.put(CLASSES_TOTAL, total);
+        figures.putAll(classes);
+        initializers.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        for (Map.Entry<String, Long> initializer : initializers.subList(0, Math.min(slowestInitializers, initializers.size()))) {
+            figures.put(initializer.getKey(), initializer.getValue());
+        }
+        return new StartupMeasurement(report.getProperty(StartupProbe.READY), figures);
+    }
+
+    static StartupMeasurement read(File report) throws IOException {
+        Properties properties = FigureReport.load(report);
+        return new StartupMeasurement(properties.getProperty(StartupProbe.READY),
+                REPORT.figures(report, properties, StartupProbe.READY));
+    }
+
+    void write(File report) throws IOException {
+        FigureReport.write(report, Collections.singletonMap(StartupProbe.READY, ready), figures);
+    }
+
+    /**
+     * One line per figure with the change since the previous measurement. Times vary from one run to another,
+     * so a difference of a few percent means little.
+     */
+    List<String> describe(StartupMeasurement previous) {
+        return REPORT.describe(figures, previous != null ? previous.figures : null);
+    }
+
+    List<String> overBudget(Map<String, Long> budgets) {
+        return REPORT.overBudget(figures, budgets);
+    }
+
+    /**
+     * Whether a profile may have a figure of this name, to tell a budget of a figure this run did not have from
+     * one of a figure no run has.
+     */
+    static boolean isFigure(String name) {
+        return FIGURE.matcher(name).matches();
+    }
+
+    /**
+     * Replaces each {@code %NAME%} the way the launcher does with the variable of that name, a variable
+     * which is not set by nothing. A {@code %} without a closing one stays.
+     */
+    static String expand(String value, Map<String, String> variables) {
+        StringBuilder expanded = new StringBuilder();
+        int position = 0;
+        while (position < value.length()) {
+            int start = value.indexOf('%', position);
+            int end = start < 0 ? -1 : value.indexOf('%', start + 1);
+            if (end < 0) {
+                expanded.append(value, position, value.length());
+                break;
+            }
+            expanded.append(value, position, start);
+            String replacement = variables.get(value.substring(start + 1, end));
+            if (replacement != null) {
+                expanded.append(replacement);
+            }
+            position = end + 1;
+        }
+        return expanded.toString();
+    }
+
+    private static String unit(String figure) {
+        if (figure.endsWith("Bytes")) {
+            return "bytes";
+        }
+        return figure.startsWith(StartupProbe.CLASSES) ? "classes" : "ms";
+    }
+
+    /**
+     * Writes a jar of the probe's classes, taken from where the plugin is loaded from, declaring it as agent.
+     */
+    static File probeJar(File jar) throws IOException {
+        String prefix = StartupProbe.class.getName().replace('.', '/');
+        File source;
+        try {
+            source = new File(StartupProbe.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Cannot locate the classes of the startup probe", e);
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("Premain-Class"), StartupProbe.class.getName());
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest)) {
+            if (source.isDirectory()) {
+                File[] classes = new File(source, prefix).getParentFile()
+                        .listFiles((dir, name) -> name.endsWith(".class") && name.startsWith(StartupProbe.class.getSimpleName()));
+                for (File clazz : classes == null ? new File[0] : classes) {
+                    out.putNextEntry(new JarEntry(prefix.substring(0, prefix.lastIndexOf('/') + 1) + clazz.getName()));
+                    out.write(Files.readAllBytes(clazz.toPath()));
+                }
+            } else {
+                try (JarFile plugin = new JarFile(source)) {
+                    for (Enumeration<JarEntry> entries = plugin.entries(); entries.hasMoreElements(); ) {
+                        JarEntry entry = entries.nextElement();
+                        if (entry.getName().equals(prefix + ".class") || entry.getName().startsWith(prefix + "$")) {
+                            out.putNextEntry(new JarEntry(entry.getName()));
+                            try (InputStream in = plugin.getInputStream(entry)) {
+                                copy(in, out);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return jar;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static long number(File report, Properties properties, String key) throws IOException {
+        String value = properties.getProperty(key);
+        try {
+            return Long.parseLong(value == null ? "" : value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(report + " is not a startup profile, " + key + " is not a number");
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * The java agent {@link StartupMeasurement} starts the application with. It notes when the main class is loaded,
+ * samples the stacks of all threads for static initializers and, once the application is ready, writes what
+ * it found to a properties file and ends the JVM.
+ * <p/>
+ * It runs inside the application's JVM, so it uses nothing but the JDK and leaves its own classes out of
+ * the count. The JDK classes it needs to write the report are loaded after the classes are counted.
+ */
+public final class StartupProbe {
+
+    static final String MAIN_CLASS = "mainClass";
+    static final String READY_PATTERN = "readyPattern";
+    static final String TIMEOUT_MILLIS = "timeoutMillis";
+    static final String SAMPLE_INTERVAL_MILLIS = "sampleIntervalMillis";
+    static final String REPORT = "report";
+
+    static final String READY = "ready";
+    /**
+     * Until the main class is loaded, before its static initializer runs and main is called.
+     */
+    static final String TIME_TO_MAIN_CLASS = "timeToMainClassMillis";
+    static final String TIME_TO_READY = "timeToReadyMillis";
+    static final String HEAP_USED = "heapUsedBytes";
+    static final String HEAP_LIVE = "heapLiveBytes";
+    static final String CLASSES = "classes.";
+    static final String INITIALIZER = "clinit.";
+    static final String JDK = "jdk";
+    static final String EXIT = "exit";
+    static final String TIMEOUT = "timeout";
+
+    private static final String CLINIT = "<clinit>";
+
+    private final Instrumentation instrumentation;
+    private final String mainClass;
+    private final File report;
+    private final long sampleIntervalMillis;
+    private final CodeSource ownCodeSource = StartupProbe.class.getProtectionDomain().getCodeSource();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final CountDownLatch written = new CountDownLatch(1);
+    private final Map<String, Long> initializerNanos = new HashMap<>();
+    private volatile long mainLoadedMillis = -1;
+
+    private StartupProbe(Instrumentation instrumentation, Properties settings) {
+        this.instrumentation = instrumentation;
+        this.mainClass = settings.getProperty(MAIN_CLASS).replace('.', '/');
+        this.report = new File(settings.getProperty(REPORT));
+        this.sampleIntervalMillis = Long.parseLong(settings.getProperty(SAMPLE_INTERVAL_MILLIS, "0"));
+    }
+
+    /**
+     * @param args the path of the settings, a properties file
+     */
+    public static void premain(String args, Instrumentation instrumentation) throws IOException {
+        Properties settings = new Properties();
+        try (InputStream in = new FileInputStream(args)) {
+            settings.load(in);
+        }
+        StartupProbe probe = new StartupProbe(instrumentation, settings);
+        probe.start(Thread.currentThread(), settings.getProperty(READY_PATTERN),
+                Long.parseLong(settings.getProperty(TIMEOUT_MILLIS)));
+    }
+
+    private void start(Thread main, String readyPattern, long timeoutMillis) {
+        instrumentation.addTransformer(new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> redefined,
+                                    ProtectionDomain domain, byte[] classfile) {
+                if (mainLoadedMillis < 0 && mainClass.equals(className)) {
+                    mainLoadedMillis = System.currentTimeMillis();
+                    instrumentation.removeTransformer(this);
+                }
+                return null;
+            }
+        });
+
+        if (readyPattern != null && !readyPattern.isEmpty()) {
+            Pattern pattern = Pattern.compile(readyPattern);
+            System.setOut(new ReadinessStream(System.out, pattern, this));
+            System.setErr(new ReadinessStream(System.err, pattern, this));
+        } else {
+            daemon("launch4j-startup-main", () -> {
+                try {
+                    main.join();
+                    ready("main");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        daemon("launch4j-startup-timeout", () -> {
+            try {
+                Thread.sleep(timeoutMillis);
+                ready(TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        if (sampleIntervalMillis > 0) {
+            daemon("launch4j-startup-sampler", this::sample);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> finish(EXIT), "launch4j-startup-exit"));
+    }
+
+    private static void daemon(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Credits each interval a thread spends in a static initializer to the innermost one, so an initializer
+     * triggering another is not charged for it.
+     */
+    private void sample() {
+        long last = System.nanoTime();
+        while (!finished.get()) {
+            try {
+                Thread.sleep(sampleIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            long elapsed = now - last;
+            last = now;
+            for (Map.Entry<Thread, StackTraceElement[]> stack : Thread.getAllStackTraces().entrySet()) {
+                for (StackTraceElement frame : stack.getValue()) {
+                    if (CLINIT.equals(frame.getMethodName())) {
+                        synchronized (initializerNanos) {
+                            initializerNanos.merge(frame.getClassName(), elapsed, Long::sum);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    void ready(String cause) {
+        if (finish(cause)) {
+            Runtime.getRuntime().halt(0);
+        }
+    }
+
+    /**
+     * Writes the report once, whatever comes first. The others wait until it is written, so the JVM does not end
+     * while a daemon thread is still writing it.
+     */
+    private boolean finish(String cause) {
+        if (!finished.compareAndSet(false, true)) {
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+        try {
+            report(cause);
+        } finally {
+            written.countDown();
+        }
+        return true;
+    }
+
+    private void report(String cause) {
+        Map<String, Long> initializers;
+        synchronized (initializerNanos) {
+            initializers = new HashMap<>(initializerNanos);
+        }
+        long now = System.currentTimeMillis();
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        Map<String, Long> classes = new TreeMap<>();
+        for (Class<?> loaded : instrumentation.getAllLoadedClasses()) {
+            if (loaded.isArray() || loaded.isPrimitive()) {
+                continue;
+            }
+            CodeSource source = loaded.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null && source.getLocation().equals(ownCodeSource.getLocation())) {
+                continue;
+            }
+            String location = source == null || source.getLocation() == null
+                    ? JDK : new File(source.getLocation().getPath()).getName();
+            classes.merge(location, 1L, Long::sum);
+        }
+        long started = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.gc();
+        long heapLive = runtime.totalMemory() - runtime.freeMemory();
+
+        Properties report = new Properties();
+        report.setProperty(READY, cause);
+        report.setProperty(TIME_TO_MAIN_CLASS, Long.toString(mainLoadedMillis < 0 ? -1 : mainLoadedMillis - started));
+        report.setProperty(TIME_TO_READY, Long.toString(now - started));
+        report.setProperty(HEAP_USED, Long.toString(heapUsed));
+        report.setProperty(HEAP_LIVE, Long.toString(heapLive));
+        for (Map.Entry<String, Long> location : classes.entrySet()) {
+            report.setProperty(CLASSES + location.getKey(), location.getValue().toString());
+        }
+        for (Map.Entry<String, Long> initializer : initializers.entrySet()) {
+            report.setProperty(INITIALIZER + initializer.getKey(), Long.toString(initializer.getValue() / 1000000));
+        }
+        try (OutputStream file = new FileOutputStream(this.report)) {
+            report.store(file, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Passes the application's output on and looks for the readiness pattern in each line.
+     */
+    private static final class ReadinessStream extends PrintStream {
+        private final Pattern pattern;
+        private final StartupProbe probe;
+        private final StringBuilder line = new StringBuilder();
+
+        ReadinessStream(PrintStream out, Pattern pattern, StartupProbe probe) {
+            super(out, true);
+            this.pattern = pattern;
+            this.probe = probe;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            super.write(b);
+            scan(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] buffer, int offset, int length) {
+            super.write(buffer, offset, length);
+            for (int i = 0; i < length; i++) {
+                scan(buffer[offset + i]);
+            }
+        }
+
+        private void scan(int b) {
+            if (b != '\n') {
+                line.append((char) (b & 0xFF));
+                return;
+            }
+            boolean ready = pattern.matcher(line).find();
+            line.setLength(0);
+            if (ready) {
+                flush();
+                probe.ready("pattern");
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the profile-startup goal runs the wrapped application and what it compares the measurement with.
+ * See {@link StartupMeasurement} for the figures.
+ */
+public class StartupProfile {
+
+    static final String SUFFIX = ".startup.properties";
+
+    /**
+     * A regular expression which, found in a line the application writes to its standard output or error,
+     * marks it as ready. Without it, the application is ready when its main method returns.
+     */
+    @Parameter
+    String readyPattern;
+
+    /**
+     * How many milliseconds the application may take to get ready; it is measured as it is then.
+     */
+    @Parameter(defaultValue = "60000")
+    long timeout = 60000;
+
+    /**
+     * How often, in milliseconds, the stacks are sampled for static initializers; 0 switches sampling off.
+     * Each sample pauses all threads of the application, so a short interval slows its startup down.
+     */
+    @Parameter(defaultValue = "10")
+    long sampleInterval = 10;
+
+    /**
+     * How many of the slowest static initializers are listed.
+     */
+    @Parameter(defaultValue = "10")
+    int slowestInitializers = 10;
+
+    /**
+     * The arguments passed to the application, by default the cmdLine of the configuration.
+     */
+    @Parameter
+    List<String> arguments;
+
+    /**
+     * The report, by default {@code <outfile>.startup.properties} next to the outfile.
+     */
+    @Parameter
+    File file;
+
+    /**
+     * The report of the build to compare with, by default the report left by the previous build in the same place.
+     */
+    @Parameter
+    File previous;
+
+    /**
+     * The highest value a figure may reach, keyed by the figure as named in the report, e.g.
+     * {@code <timeToReadyMillis>1500</timeToReadyMillis>} or {@code <heapLiveBytes>64MB</heapLiveBytes>}.
+     * A figure over its budget fails the build.
+     */
+    @Parameter
+    Map<String, String> budgets;
+
+    /**
+     * @throws IllegalArgumentException if a budget is not a number, or a number of bytes for a figure in bytes
+     */
+    Map<String, Long> parseBudgets() {
+        Map<String, Long> parsed = new LinkedHashMap<>();
+        if (budgets != null) {
+            for (Map.Entry<String, String> budget : budgets.entrySet()) {
+                if (!StartupMeasurement.isFigure(budget.getKey())) {
+                    throw new IllegalArgumentException("There is no figure " + budget.getKey() + " to budget, the"
+                            + " figures are timeToMainClassMillis, timeToReadyMillis, heapUsedBytes, heapLiveBytes,"
+                            + " classes.<total|jdk|location> and clinit.<class>");
+                }
+                String value = budget.getValue() == null ? "" : budget.getValue().trim();
+                if (budget.getKey().endsWith("Bytes")) {
+                    parsed.put(budget.getKey(), CompositionReport.parseSize(budget.getKey(), value));
+                    continue;
+                }
+                try {
+                    parsed.put(budget.getKey(), Long.parseLong(value));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("The budget of " + budget.getKey() + " must be a number, not " + value);
+                }
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        return "StartupProfile{" +
+                "readyPattern='" + readyPattern + '\'' +
+                ", timeout=" + timeout +
+                ", sampleInterval=" + sampleInterval +
+                ", slowestInitializers=" + slowestInitializers +
+                ", arguments=" + arguments +
+                ", file=" + file +
+                ", previous=" + previous +
+                ", budgets=" + budgets +
+                '}';
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Asks an RFC 3161 time stamping authority to countersign the signature of an executable, so it stays valid
+ * after the certificate expired.
+ */
+class TimestampClient {
+
+    private static final String TST_INFO = "1.2.840.113549.1.9.16.1.4";
+    private static final int GENERALIZED_TIME = 0x18;
+    private static final int STATUS_GRANTED = 0;
+    private static final int STATUS_GRANTED_WITH_MODS = 1;
+    private static final int MAX_RESPONSE_SIZE = 1024 * 1024;
+
+    private final String url;
+
+    private final int timeout;
+
+    private final SecureRandom random = new SecureRandom();
+
+    TimestampClient(String url, int timeout) {
+        this.url = url;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param signature the signature to time stamp, whose digest the authority signs
+     * @return the time stamp token, a ContentInfo with the SignedData of the authority
+     * @throws IOException if the authority cannot be reached or does not grant a token for this signature
+     */
+    byte[] timestamp(String digestAlgorithm, byte[] signature) throws IOException {
+        byte[] imprint = AuthenticodeSigner.messageDigest(digestAlgorithm).digest(signature);
+        BigInteger nonce = new BigInteger(63, random);
+        byte[] request = Der.sequence(
+                Der.integer(1),
+                Der.sequence(AuthenticodeSigner.algorithmIdentifier(digestAlgorithm), Der.octetString(imprint)),
+                Der.integer(nonce),
+                Der.tlv(0x01, new byte[]{(byte) 0xFF}));
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setUseCaches(false);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.length);
+            connection.setRequestProperty("Content-Type", "application/timestamp-query");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(request);
+            }
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("POST " + url + " failed with HTTP " + status);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return token(readResponse(in), imprint, nonce);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Takes the token out of a TimeStampResp and checks it is about the given imprint and nonce.
+     */
+    static byte[] token(byte[] response, byte[] imprint, BigInteger nonce) throws IOException {
+        List<Der.Element> parts = Der.Element.read(response).children();
+        int status = parts.get(0).child(0).integer().intValue();
+        if (status != STATUS_GRANTED && status != STATUS_GRANTED_WITH_MODS || parts.size() < 2) {
+            throw new IOException("The time stamping authority refused the request with status " + status);
+        }
+        Der.Element token = parts.get(1);
+        Der.Element content = token.child(1).child(0).child(2);
+        if (!Arrays.equals(Der.oid(TST_INFO), content.child(0).encoded())) {
+            throw new IOException("The time stamp token holds no TSTInfo");
+        }
+        List<Der.Element> info = Der.Element.read(content.child(1).child(0).content()).children();
+        if (!Arrays.equals(imprint, info.get(2).child(1).content())) {
+            throw new IOException("The time stamp token is about another signature");
+        }
+        for (Der.Element field : info.subList(4, info.size())) {
+            if (field.tag == Der.INTEGER && !nonce.equals(field.integer())) {
+                throw new IOException("The time stamp token answers another request");
+            }
+        }
+        if (info.get(4).tag != GENERALIZED_TIME) {
+            throw new IOException("The time stamp token has no time");
+        }
+        return token.encoded();
+    }
+
+    private static byte[] readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            response.write(buffer, 0, read);
+            if (response.size() > MAX_RESPONSE_SIZE) {
+                throw new IOException("The response of the time stamping authority is too big");
+            }
+        }
+        return response.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
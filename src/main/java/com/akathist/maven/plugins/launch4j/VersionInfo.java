@@ -28,6 +28,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
 import java.io.File;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -116,6 +117,14 @@ public class VersionInfo {
     @Parameter
     String trademarks;
 
+    /**
+     * If set to true, the default fileVersion and productVersion take their 4th level from the build number
+     * of ${project.version}, like "1.2.3.5" for "1.2.3+build.5" or "1.2.3.2" for "1.2.3-rc-2", unless the
+     * version has a 4th level of its own. Only a segment made of digits is a build number, the digits of "RC1" are not.
+     */
+    @Parameter(defaultValue = "false")
+    boolean buildNumberAsFourthLevel;
+
     private Log log;
 
     public VersionInfo() {
@@ -145,6 +154,16 @@ public class VersionInfo {
         this.log = log;
     }
 
+    /**
+     * A copy of the configured values, which the defaults are filled into, so the configured object stays as it was.
+     */
+    VersionInfo copy() {
+        VersionInfo copy = new VersionInfo(fileVersion, txtFileVersion, fileDescription, copyright, productVersion,
+                txtProductVersion, productName, companyName, internalName, originalFilename, language, trademarks, null);
+        copy.buildNumberAsFourthLevel = buildNumberAsFourthLevel;
+        return copy;
+    }
+
     net.sf.launch4j.config.VersionInfo toL4j() {
         net.sf.launch4j.config.VersionInfo ret = new net.sf.launch4j.config.VersionInfo();
 
@@ -173,6 +192,10 @@ public class VersionInfo {
     }
 
     void tryFillOutByDefaults(MavenProject project, File outfile) {
+        tryFillOutByDefaults(project, outfile, LocalDate.now().getYear());
+    }
+
+    void tryFillOutByDefaults(MavenProject project, File outfile, int buildYear) {
         if (project == null) {
             throw new IllegalArgumentException("'project' is required, but it is null.");
         }
@@ -192,7 +215,8 @@ public class VersionInfo {
         tryFillOutByDefaultVersionInL4jFormat(version);
         tryFillOutCopyrightByDefaults(
                 getDefaultWhenSourceIsBlankAndLogWarn(project.getInceptionYear(), "2020", "project.inceptionYear"),
-                organizationName
+                organizationName,
+                buildYear
         );
         tryFillOutOrganizationRelatedDefaults(organizationName);
         tryFillOutSimpleValuesByDefaults(
@@ -207,14 +231,14 @@ public class VersionInfo {
     }
 
     private void tryFillOutByDefaultVersionInL4jFormat(String version) {
-        String defaultFileVersion = Launch4jFileVersionGenerator.generate(version);
+        String defaultFileVersion = Launch4jFileVersionGenerator.generate(version, buildNumberAsFourthLevel);
 
         fileVersion = getDefaultWhenSourceIsBlank(fileVersion, defaultFileVersion);
         productVersion = getDefaultWhenSourceIsBlank(productVersion, defaultFileVersion);
     }
 
-    private void tryFillOutCopyrightByDefaults(String inceptionYear, String organizationName) {
-        final String defaultCopyright = CopyrightGenerator.generate(inceptionYear, organizationName);
+    private void tryFillOutCopyrightByDefaults(String inceptionYear, String organizationName, int buildYear) {
+        final String defaultCopyright = CopyrightGenerator.generate(inceptionYear, organizationName, buildYear);
         copyright = getDefaultWhenSourceIsBlank(copyright, defaultCopyright);
     }
 
@@ -274,6 +298,7 @@ public class VersionInfo {
                 ", originalFilename='" + originalFilename + '\'' +
                 ", language='" + language + '\'' +
                 ", trademarks='" + trademarks + '\'' +
+                ", buildNumberAsFourthLevel=" + buildNumberAsFourthLevel +
                 '}';
     }
 }
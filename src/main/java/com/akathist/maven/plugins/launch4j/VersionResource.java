@@ -0,0 +1,257 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The version information resource (VS_VERSIONINFO) of an executable: the fixed file and product versions
+ * and the strings of each StringTable, e.g. ProductName or LegalCopyright.
+ */
+final class VersionResource {
+
+    private static final String ROOT_KEY = "VS_VERSION_INFO";
+    private static final String STRING_FILE_INFO = "StringFileInfo";
+    private static final int FIXED_FILE_INFO_SIGNATURE = 0xFEEF04BD;
+    private static final int FIXED_FILE_INFO_SIZE = 52;
+    private static final int TEXT = 1;
+
+    private final Node root;
+
+    private VersionResource(Node root) {
+        this.root = root;
+    }
+
+    static VersionResource parse(byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            Node root = Node.parse(buffer, 0, data.length);
+            if (!ROOT_KEY.equals(root.key) || root.value.length < FIXED_FILE_INFO_SIZE
+                    || ByteBuffer.wrap(root.value).order(ByteOrder.LITTLE_ENDIAN).getInt(0) != FIXED_FILE_INFO_SIGNATURE) {
+                throw new IOException("Not a version information resource");
+            }
+            return new VersionResource(root);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("The version information resource is truncated", e);
+        }
+    }
+
+    /**
+     * The string of the first StringTable, or null.
+     */
+    String getString(String key) {
+        for (Node table : stringTables()) {
+            for (Node string : table.children) {
+                if (string.key.equals(key)) {
+                    return string.text();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the string in every StringTable, adding it where it is missing.
+     */
+    void setString(String key, String value) {
+        for (Node table : stringTables()) {
+            Node string = null;
+            for (Node child : table.children) {
+                if (child.key.equals(key)) {
+                    string = child;
+                }
+            }
+            if (string == null) {
+                string = new Node(key, TEXT, new byte[0]);
+                table.children.add(string);
+            }
+            string.setText(value);
+        }
+    }
+
+    /**
+     * @param version four numbers separated by dots, as launch4j's fileVersion
+     */
+    void setFileVersion(String version) {
+        setFixedVersion(8, version);
+    }
+
+    /**
+     * @param version four numbers separated by dots, as launch4j's productVersion
+     */
+    void setProductVersion(String version) {
+        setFixedVersion(16, version);
+    }
+
+    String getFileVersion() {
+        return fixedVersion(8);
+    }
+
+    String getProductVersion() {
+        return fixedVersion(16);
+    }
+
+    byte[] toBytes() {
+        return root.toBytes();
+    }
+
+    private List<Node> stringTables() {
+        List<Node> tables = new ArrayList<>();
+        for (Node child : root.children) {
+            if (child.key.equals(STRING_FILE_INFO)) {
+                tables.addAll(child.children);
+            }
+        }
+        return tables;
+    }
+
+    private void setFixedVersion(int offset, String version) {
+        String[] parts = version.split("\\.");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("'" + version + "' is not a version of four numbers, e.g. 1.2.3.4");
+        }
+        int[] numbers = new int[4];
+        for (int i = 0; i < 4; i++) {
+            try {
+                numbers[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                numbers[i] = -1;
+            }
+            if (numbers[i] < 0 || numbers[i] > 0xFFFF) {
+                throw new IllegalArgumentException("'" + version + "' is not a version of four numbers up to 65535");
+            }
+        }
+        ByteBuffer fixed = ByteBuffer.wrap(root.value).order(ByteOrder.LITTLE_ENDIAN);
+        fixed.putInt(offset, numbers[0] << 16 | numbers[1]);
+        fixed.putInt(offset + 4, numbers[2] << 16 | numbers[3]);
+    }
+
+    private String fixedVersion(int offset) {
+        ByteBuffer fixed = ByteBuffer.wrap(root.value).order(ByteOrder.LITTLE_ENDIAN);
+        int high = fixed.getInt(offset);
+        int low = fixed.getInt(offset + 4);
+        return (high >>> 16) + "." + (high & 0xFFFF) + "." + (low >>> 16) + "." + (low & 0xFFFF);
+    }
+
+    /**
+     * A block of the version information: a length, the length and type of its value, a key,
+     * the value and the child blocks, each of them aligned to 4 bytes.
+     */
+    private static final class Node {
+        final String key;
+        final int type;
+        byte[] value;
+        final List<Node> children = new ArrayList<>();
+
+        Node(String key, int type, byte[] value) {
+            this.key = key;
+            this.type = type;
+            this.value = value;
+        }
+
+        static Node parse(ByteBuffer buffer, int offset, int limit) throws IOException {
+            int length = buffer.getShort(offset) & 0xFFFF;
+            int valueLength = buffer.getShort(offset + 2) & 0xFFFF;
+            int type = buffer.getShort(offset + 4) & 0xFFFF;
+            int end = offset + length;
+            if (length < 6 || end > limit) {
+                throw new IOException("A version information block overruns its parent");
+            }
+
+            StringBuilder key = new StringBuilder();
+            int position = offset + 6;
+            char c;
+            while ((c = buffer.getChar(position)) != 0) {
+                key.append(c);
+                position += 2;
+            }
+            position = align(position + 2);
+
+            // the length of a text is counted in characters, some compilers count bytes all the same
+            int valueBytes = Math.min(type == TEXT ? valueLength * 2 : valueLength, Math.max(end - position, 0));
+            byte[] value = new byte[valueBytes];
+            for (int i = 0; i < valueBytes; i++) {
+                value[i] = buffer.get(position + i);
+            }
+            Node node = new Node(key.toString(), type, value);
+            position = align(position + valueBytes);
+
+            while (position + 6 <= end) {
+                Node child = parse(buffer, position, end);
+                node.children.add(child);
+                position = align(position + (buffer.getShort(position) & 0xFFFF));
+            }
+            return node;
+        }
+
+        String text() {
+            String text = new String(value, StandardCharsets.UTF_16LE);
+            int nul = text.indexOf('\0');
+            return nul >= 0 ? text.substring(0, nul) : text;
+        }
+
+        void setText(String text) {
+            value = (text + '\0').getBytes(StandardCharsets.UTF_16LE);
+        }
+
+        /**
+         * Blocks start at 4 byte boundaries, so aligning within the block aligns within the resource.
+         */
+        byte[] toBytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeShort(out, 0);
+            writeShort(out, type == TEXT ? value.length / 2 : value.length);
+            writeShort(out, type);
+            byte[] name = (key + '\0').getBytes(StandardCharsets.UTF_16LE);
+            out.write(name, 0, name.length);
+            pad(out);
+            out.write(value, 0, value.length);
+            for (Node child : children) {
+                pad(out);
+                byte[] block = child.toBytes();
+                out.write(block, 0, block.length);
+            }
+            byte[] bytes = out.toByteArray();
+            bytes[0] = (byte) bytes.length;
+            bytes[1] = (byte) (bytes.length >>> 8);
+            return bytes;
+        }
+
+        private static void pad(ByteArrayOutputStream out) {
+            while (out.size() % 4 != 0) {
+                out.write(0);
+            }
+        }
+
+        private static void writeShort(ByteArrayOutputStream out, int value) {
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+        }
+
+        private static int align(int position) {
+            return (position + 3) & ~3;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Settings of an application manifest generated by the plugin, instead of a hand-written {@code <manifest>} file.
+ * The manifest always declares the supported Windows versions, the other settings only when they are configured.
+ */
+public class WindowsManifest {
+
+    static final String ASM_V1 = "urn:schemas-microsoft-com:asm.v1";
+    static final String ASM_V3 = "urn:schemas-microsoft-com:asm.v3";
+    static final String COMPATIBILITY_V1 = "urn:schemas-microsoft-com:compatibility.v1";
+    static final String SETTINGS_2005 = "http://schemas.microsoft.com/SMI/2005/WindowsSettings";
+    static final String SETTINGS_2016 = "http://schemas.microsoft.com/SMI/2016/WindowsSettings";
+    static final String SETTINGS_2019 = "http://schemas.microsoft.com/SMI/2019/WindowsSettings";
+    static final String SETTINGS_2020 = "http://schemas.microsoft.com/SMI/2020/WindowsSettings";
+
+    /**
+     * Windows Vista, 7, 8, 8.1 and 10/11, which otherwise run the launcher in a compatibility mode.
+     */
+    static final String[] SUPPORTED_OS = {
+            "{e2011457-1546-43c5-a5fe-008deee3d3f0}",
+            "{35138b9a-5d96-4fbd-8e2d-a2440225f93a}",
+            "{4a2f28e3-53b9-4441-ba9c-d69d4a4a6e38}",
+            "{1f676c76-80e1-4239-95bb-83d0f6d0da78}",
+            "{8e0f7a12-bfb3-4fe8-b9a5-48fd50a15a9a}"
+    };
+
+    /**
+     * The privileges the launcher asks for: asInvoker, highestAvailable or requireAdministrator. Defaults to asInvoker.
+     */
+    @Parameter(defaultValue = "asInvoker")
+    String executionLevel = "asInvoker";
+
+    /**
+     * How the process handles high DPI displays: unaware, system, perMonitor or perMonitorV2.
+     * Without it Windows scales the whole window as a bitmap, which blurs a Swing UI.
+     */
+    @Parameter
+    String dpiAwareness;
+
+    /**
+     * If true, the process may use paths longer than MAX_PATH where long paths are enabled in Windows.
+     */
+    @Parameter(defaultValue = "false")
+    boolean longPathAware;
+
+    /**
+     * If true, the process uses the segment heap, which uses less memory than the default heap (Windows 10 2004+).
+     */
+    @Parameter(defaultValue = "false")
+    boolean segmentHeap;
+
+    /**
+     * If true, the process uses UTF-8 as its active code page (Windows 10 1903+).
+     */
+    @Parameter(defaultValue = "false")
+    boolean utf8CodePage;
+
+    /**
+     * Writes the manifest into the directory, named after the digest of its content, unless it is there already.
+     *
+     * @return the manifest file
+     */
+    File writeTo(File directory) throws MojoExecutionException {
+        String xml = toXml();
+        byte[] content = xml.getBytes(StandardCharsets.UTF_8);
+        Path target = directory.toPath().resolve("manifest-" + digest(content).substring(0, 16) + ".xml");
+        if (Files.isRegularFile(target)) {
+            return target.toFile();
+        }
+
+        List<String> problems = ManifestSchema.check(xml);
+        if (!problems.isEmpty()) {
+            throw new MojoExecutionException("Generated an invalid manifest: " + problems + System.lineSeparator() + xml);
+        }
+        try {
+            Path temp = AtomicFiles.tempFileFor(target);
+            try {
+                Files.write(temp, content);
+                AtomicFiles.moveIntoPlace(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the manifest " + target, e);
+        }
+        return target.toFile();
+    }
+
+    String toXml() throws MojoExecutionException {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.append("<assembly xmlns=\"").append(ASM_V1).append("\" manifestVersion=\"1.0\">\n");
+
+        xml.append("  <trustInfo xmlns=\"").append(ASM_V3).append("\">\n");
+        xml.append("    <security>\n");
+        xml.append("      <requestedPrivileges>\n");
+        xml.append("        <requestedExecutionLevel level=\"").append(executionLevel()).append("\" uiAccess=\"false\"/>\n");
+        xml.append("      </requestedPrivileges>\n");
+        xml.append("    </security>\n");
+        xml.append("  </trustInfo>\n");
+
+        xml.append("  <compatibility xmlns=\"").append(COMPATIBILITY_V1).append("\">\n");
+        xml.append("    <application>\n");
+        for (String id : SUPPORTED_OS) {
+            xml.append("      <supportedOS Id=\"").append(id).append("\"/>\n");
+        }
+        xml.append("    </application>\n");
+        xml.append("  </compatibility>\n");
+
+        StringBuilder settings = new StringBuilder();
+        if (dpiAwareness != null) {
+            String[] dpi = dpiSettings();
+            setting(settings, "dpiAware", SETTINGS_2005, dpi[0]);
+            setting(settings, "dpiAwareness", SETTINGS_2016, dpi[1]);
+        }
+        if (longPathAware) {
+            setting(settings, "longPathAware", SETTINGS_2016, "true");
+        }
+        if (utf8CodePage) {
+            setting(settings, "activeCodePage", SETTINGS_2019, "UTF-8");
+        }
+        if (segmentHeap) {
+            setting(settings, "heapType", SETTINGS_2020, "SegmentHeap");
+        }
+        if (settings.length() > 0) {
+            xml.append("  <application xmlns=\"").append(ASM_V3).append("\">\n");
+            xml.append("    <windowsSettings>\n");
+            xml.append(settings);
+            xml.append("    </windowsSettings>\n");
+            xml.append("  </application>\n");
+        }
+
+        xml.append("</assembly>\n");
+        return xml.toString();
+    }
+
+    private String executionLevel() throws MojoExecutionException {
+        if (executionLevel == null) {
+            return "asInvoker";
+        }
+        for (String level : ManifestSchema.EXECUTION_LEVELS) {
+            if (level.equalsIgnoreCase(executionLevel)) {
+                return level;
+            }
+        }
+        throw new MojoExecutionException("Unknown windowsManifest.executionLevel '" + executionLevel
+                + "', use one of asInvoker, highestAvailable, requireAdministrator");
+    }
+
+    /**
+     * The value of dpiAware, understood by all versions, and of dpiAwareness, which overrides it on Windows 10 1607+.
+     */
+    private String[] dpiSettings() throws MojoExecutionException {
+        switch (dpiAwareness.toLowerCase(Locale.ROOT)) {
+            case "unaware":
+                return new String[]{"false", "unaware"};
+            case "system":
+                return new String[]{"true", "system"};
+            case "permonitor":
+                return new String[]{"true/pm", "PerMonitor"};
+            case "permonitorv2":
+                return new String[]{"true/pm", "PerMonitorV2, PerMonitor"};
+            default:
+                throw new MojoExecutionException("Unknown windowsManifest.dpiAwareness '" + dpiAwareness
+                        + "', use one of unaware, system, perMonitor, perMonitorV2");
+        }
+    }
+
+    private static void setting(StringBuilder settings, String name, String namespace, String value) {
+        settings.append("      <").append(name).append(" xmlns=\"").append(namespace).append("\">")
+                .append(value).append("</").append(name).append(">\n");
+    }
+
+    private static String digest(byte[] content) {
+        try {
+            return Fingerprint.toHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WindowsManifest{" +
+                "executionLevel='" + executionLevel + '\'' +
+                ", dpiAwareness='" + dpiAwareness + '\'' +
+                ", longPathAware=" + longPathAware +
+                ", segmentHeap=" + segmentHeap +
+                ", utf8CodePage=" + utf8CodePage +
+                '}';
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A per-project view of the shared launch4j work directory in ~/.m2, which custom header objects
+ * and libraries are staged into. launch4j resolves them against the directory it builds in,
+ * so they used to be copied into the shared work directory, where modules built in parallel
+ * overwrote each other's files.
+ * <p/>
+ * The entries of the shared work directory are symbolic links in the overlay. Where links cannot be
+ * created (e.g. on Windows without the privilege), files are hard linked or, as a last resort, copied.
+ * The shared work directory itself is never written to. A staged file is copied again only if its
+ * content changed since the previous build, and linked or copied files which are not staged follow the shared
+ * work directory when it changes.
+ * <p/>
+ * The paths staged into the overlay are recorded in {@link DependencyStager#STAGED_LIST}. Once a project no longer
+ * stages a path, {@link #complete()} puts the entry of the shared work directory back in its place, so a file the
+ * project staged once does not shadow the shared one for good.
+ */
+class WorkDirOverlay {
+
+    private final Path shared;
+
+    private final Path overlay;
+
+    private final Log log;
+
+    /**
+     * The paths staged by earlier builds, relative to the overlay.
+     */
+    private final Set<String> previouslyStaged = new LinkedHashSet<>();
+
+    /**
+     * The paths staged by this build, relative to the overlay.
+     */
+    private final Set<String> staged = new LinkedHashSet<>();
+
+    WorkDirOverlay(File shared, File overlay, Log log) {
+        this.shared = shared.toPath().toAbsolutePath();
+        this.overlay = overlay.toPath().toAbsolutePath();
+        this.log = log;
+    }
+
+    /**
+     * Links the entries of the shared work directory into the overlay, unless an earlier build did so,
+     * and refreshes the linked or copied files which changed in the shared work directory since.
+     */
+    WorkDirOverlay create() throws IOException {
+        Files.createDirectories(overlay);
+        Path stagedList = overlay.resolve(DependencyStager.STAGED_LIST);
+        if (Files.isRegularFile(stagedList)) {
+            for (String path : Files.readAllLines(stagedList, StandardCharsets.UTF_8)) {
+                if (!path.isEmpty()) {
+                    previouslyStaged.add(path);
+                }
+            }
+        }
+        linkChildren(shared, overlay);
+        return this;
+    }
+
+    File getDirectory() {
+        return overlay.toFile();
+    }
+
+    /**
+     * Copies the given files of the project into the overlay, keeping their path relative to the project.
+     *
+     * @return the paths relative to the overlay, as expected by launch4j
+     */
+    synchronized List<String> stage(File basedir, List<String> paths, FileDigests digests) throws MojoExecutionException {
+        if (paths == null) return null;
+
+        Path projectDir = basedir.toPath().toAbsolutePath();
+        List<String> result = new ArrayList<>();
+        for (String path : paths) {
+            Path source = projectDir.resolve(path).normalize();
+            if (!source.startsWith(projectDir)) {
+                throw new MojoExecutionException("File must reside in the project directory: " + path);
+            }
+            if (!Files.exists(source)) {
+                result.add(path);
+                continue;
+            }
+
+            Path relative = projectDir.relativize(source);
+            Path target = overlay.resolve(relative);
+            try {
+                unfoldParents(relative);
+                String digest = digests.of(source.toFile());
+                if (Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS) && digest.equals(digests.of(target.toFile()))) {
+                    log.debug(relative + " is up to date in " + overlay);
+                } else {
+                    log.debug("Staging " + relative + " in " + overlay);
+                    LocalOutputCache.copyAtomically(source, target);
+                    digests.remember(target.toFile(), digest);
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Can't copy " + path + " to " + overlay, e);
+            }
+            result.add(relative.toString());
+            staged.add(normalized(relative));
+        }
+        try {
+            recordStaged();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't record the files staged in " + overlay, e);
+        }
+        return result;
+    }
+
+    /**
+     * Puts the entries of the shared work directory back in place of the files earlier builds staged
+     * and this build did not. Files which have no counterpart there are removed.
+     */
+    synchronized void complete() throws MojoExecutionException {
+        try {
+            for (String path : previouslyStaged) {
+                if (staged.contains(path)) {
+                    continue;
+                }
+                Path target = overlay.resolve(path).normalize();
+                if (!target.startsWith(overlay) || !Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                log.debug(path + " is no longer staged in " + overlay);
+                Files.delete(target);
+                Path source = shared.resolve(path).normalize();
+                if (source.startsWith(shared) && Files.exists(source)) {
+                    link(source, target);
+                }
+            }
+            previouslyStaged.clear();
+            recordStaged();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't restore the work directory entries in " + overlay, e);
+        }
+    }
+
+    /**
+     * Records the paths staged so far, together with those earlier builds staged and {@link #complete()}
+     * has not put back yet, so a build failing in between leaves no staged file unrecorded.
+     */
+    private void recordStaged() throws IOException {
+        Set<String> recorded = new LinkedHashSet<>(previouslyStaged);
+        recorded.addAll(staged);
+        Files.write(overlay.resolve(DependencyStager.STAGED_LIST), recorded, StandardCharsets.UTF_8);
+    }
+
+    private static String normalized(Path relative) {
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Makes sure the directories leading to the given path are real directories of the overlay, so staging
+     * a file never writes through a link into the shared work directory.
+     */
+    private void unfoldParents(Path relative) throws IOException {
+        Path dir = overlay;
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            dir = dir.resolve(relative.getName(i).toString());
+            if (Files.isSymbolicLink(dir)) {
+                Path linked = Files.readSymbolicLink(dir);
+                Files.delete(dir);
+                Files.createDirectory(dir);
+                if (Files.isDirectory(linked)) {
+                    linkChildren(linked, dir);
+                }
+            } else {
+                Files.createDirectories(dir);
+            }
+        }
+    }
+
+    private void linkChildren(Path sourceDir, Path targetDir) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(sourceDir)) {
+            for (Path entry : entries) {
+                link(entry, targetDir.resolve(entry.getFileName().toString()));
+            }
+        }
+    }
+
+    private void link(Path source, Path target) throws IOException {
+        if (Files.isSymbolicLink(target)) {
+            if (Files.readSymbolicLink(target).equals(source)) {
+                return;
+            }
+            Files.delete(target);
+        }
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            // a directory unfolded by staging or materialized by an earlier build gets the entries it lacks,
+            // a file staged by the project shadows the shared one, a materialized file follows it
+            if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                linkChildren(source, target);
+            } else if (!previouslyStaged.contains(normalized(overlay.relativize(target)))) {
+                materialize(source, target);
+            }
+            return;
+        }
+
+        try {
+            Files.createSymbolicLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Cannot create a symbolic link to " + source + ", linking its files instead: " + e);
+            materialize(source, target);
+        }
+    }
+
+    /**
+     * Mirrors a file or directory tree with hard links, falling back to copies, e.g. across volumes.
+     */
+    private void materialize(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path copy = target.resolve(source.relativize(file).toString());
+                if (Files.isRegularFile(copy, LinkOption.NOFOLLOW_LINKS)
+                        && Files.size(copy) == attrs.size()
+                        && Files.getLastModifiedTime(copy).equals(attrs.lastModifiedTime())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Files.deleteIfExists(copy);
+                try {
+                    Files.createLink(copy, file);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return overlay.toString();
+    }
+}
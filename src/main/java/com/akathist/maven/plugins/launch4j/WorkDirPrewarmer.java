@@ -0,0 +1,219 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.InvalidPluginDescriptorException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.PluginDescriptorParsingException;
+import org.apache.maven.plugin.PluginNotFoundException;
+import org.apache.maven.plugin.PluginResolutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
+import org.codehaus.plexus.component.repository.ComponentDependency;
+import org.codehaus.plexus.logging.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves and unpacks the launch4j work directory on a background thread as soon as the projects are read,
+ * so the work is done while the earlier phases compile and test, instead of on the critical path of the
+ * package phase. Active only when the plugin is declared with <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>,
+ * can be switched off with <code>-Dlaunch4j.prewarm=false</code>.
+ * <p/>
+ * The launch4j goal waits for the background work instead of doing it again, and does it itself if it failed.
+ */
+@Named("launch4j-workdir-prewarmer")
+@Singleton
+public class WorkDirPrewarmer extends AbstractMavenLifecycleParticipant {
+
+    static final String PREWARM_PROPERTY = "launch4j.prewarm";
+
+    private static final String PLUGIN_GROUP_ID = "com.akathist.maven.plugins.launch4j";
+
+    private static final String PLUGIN_ARTIFACT_ID = "launch4j-maven-plugin";
+
+    private final RepositorySystem factory;
+
+    private final ArtifactResolver resolver;
+
+    private final BuildPluginManager pluginManager;
+
+    private final Log log;
+
+    @Inject
+    public WorkDirPrewarmer(RepositorySystem factory, ArtifactResolver resolver, BuildPluginManager pluginManager,
+                            Logger logger) {
+        this.factory = factory;
+        this.resolver = resolver;
+        this.pluginManager = pluginManager;
+        this.log = new DefaultLog(logger);
+    }
+
+    @Override
+    public void afterProjectsRead(MavenSession session) {
+        if ("false".equalsIgnoreCase(property(session, PREWARM_PROPERTY))) {
+            log.debug("Pre-warming of the launch4j work directory is disabled");
+            return;
+        }
+        MavenProject project = firstProjectUsingPlugin(session);
+        if (project == null) {
+            return;
+        }
+        String launch4jVersion = launch4jVersion(session, project);
+        if (launch4jVersion == null) {
+            log.debug("Not pre-warming the launch4j work directory: cannot find which launch4j version the plugin uses");
+            return;
+        }
+
+        WorkDirResolver workDirs = new WorkDirResolver(factory, resolver, log);
+        Artifact binaryBits;
+        try {
+            binaryBits = workDirs.chooseBinaryBits(launch4jVersion);
+        } catch (MojoExecutionException e) {
+            log.debug("Not pre-warming the launch4j work directory: " + e.getMessage());
+            return;
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "launch4j-workdir-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.debug("Pre-warming the launch4j work directory " + binaryBits + " in the background");
+        Future<File> workDir = executor.submit(
+                () -> workDirs.resolve(session, project, session.getLocalRepository(), binaryBits));
+        executor.shutdown();
+
+        SessionScoped.set(session, key(binaryBits), workDir);
+    }
+
+    /**
+     * Waits for the work directory being prepared in the background.
+     *
+     * @return the work directory, or null if it is not pre-warmed or that failed, then the caller resolves it itself
+     */
+    static File await(MavenSession session, Artifact binaryBits, Log log) {
+        Future<?> workDir = SessionScoped.find(session, key(binaryBits), Future.class);
+        if (workDir == null) {
+            return null;
+        }
+
+        try {
+            Object result = workDir.get();
+            log.debug("Using the launch4j work directory pre-warmed in the background: " + result);
+            return result instanceof File ? (File) result : null;
+        } catch (ExecutionException e) {
+            log.debug("Pre-warming of the launch4j work directory failed, resolving it again", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    static String key(Artifact binaryBits) {
+        return "workDir." + binaryBits.getVersion() + "." + binaryBits.getClassifier();
+    }
+
+    private static MavenProject firstProjectUsingPlugin(MavenSession session) {
+        for (MavenProject project : session.getProjects()) {
+            if (usedPlugin(project) != null) {
+                return project;
+            }
+        }
+        return null;
+    }
+
+    private static Plugin usedPlugin(MavenProject project) {
+        for (Plugin plugin : project.getBuildPlugins()) {
+            if (PLUGIN_GROUP_ID.equals(plugin.getGroupId()) && PLUGIN_ARTIFACT_ID.equals(plugin.getArtifactId())
+                    && !plugin.getExecutions().isEmpty()) {
+                return plugin;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The version of launch4j the plugin depends on, which the platform-specific bundle has to match.
+     * Taken from the dependencies in the plugin's descriptor, as the launch4j goal takes it from the plugin's
+     * artifacts, and else from the launch4j jar on the plugin's classpath. Neither loads a launch4j class.
+     */
+    private String launch4jVersion(MavenSession session, MavenProject project) {
+        try {
+            PluginDescriptor descriptor = pluginManager.loadPlugin(usedPlugin(project),
+                    project.getRemotePluginRepositories(), session.getRepositorySession());
+            if (descriptor != null && descriptor.getDependencies() != null) {
+                for (ComponentDependency dependency : descriptor.getDependencies()) {
+                    if (Launch4jMojo.LAUNCH4J_GROUP_ID.equals(dependency.getGroupId())
+                            && Launch4jMojo.LAUNCH4J_ARTIFACT_ID.equals(dependency.getArtifactId())) {
+                        return dependency.getVersion();
+                    }
+                }
+            }
+            log.debug("The descriptor of the plugin lists no launch4j dependency");
+        } catch (PluginNotFoundException | PluginResolutionException | PluginDescriptorParsingException
+                 | InvalidPluginDescriptorException | RuntimeException e) {
+            log.debug("Cannot read the descriptor of the plugin: " + e);
+        }
+        return bundledLaunch4jVersion();
+    }
+
+    /**
+     * The version of launch4j in the pom.properties of the launch4j jar on the plugin's classpath.
+     */
+    static String bundledLaunch4jVersion() {
+        String pomProperties = "/META-INF/maven/" + Launch4jMojo.LAUNCH4J_GROUP_ID + "/"
+                + Launch4jMojo.LAUNCH4J_ARTIFACT_ID + "/pom.properties";
+        try (InputStream in = WorkDirPrewarmer.class.getResourceAsStream(pomProperties)) {
+            if (in == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties.getProperty("version");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String property(MavenSession session, String name) {
+        String value = session.getUserProperties().getProperty(name);
+        return value != null ? value : session.getSystemProperties().getProperty(name);
+    }
+}
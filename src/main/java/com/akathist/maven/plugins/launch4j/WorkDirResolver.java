@@ -0,0 +1,207 @@
+/*
+ * Maven Launch4j Plugin
+ * Copyright (c) 2006 Paul Jungwirth
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Resolves and unpacks the platform-specific launch4j work directory, which holds the ld and windres
+ * binaries and the object files launch4j links the executable from.
+ */
+class WorkDirResolver {
+
+    private final RepositorySystem factory;
+
+    private final ArtifactResolver resolver;
+
+    private final Log log;
+
+    WorkDirResolver(RepositorySystem factory, ArtifactResolver resolver, Log log) {
+        this.factory = factory;
+        this.resolver = resolver;
+        this.log = log;
+    }
+
+    /**
+     * Decides which platform-specific bundle we need, based on the current operating system.
+     */
+    Artifact chooseBinaryBits(String launch4jVersion) throws MojoExecutionException {
+        String plat;
+        String os = System.getProperty("os.name");
+        String arch = System.getProperty("os.arch");
+        log.debug("OS = " + os);
+        log.debug("Architecture = " + arch);
+
+        // See here for possible values of os.name:
+        // http://lopica.sourceforge.net/os.html
+        if (os.startsWith("Windows")) {
+            plat = "win32";
+        } else if ("Linux".equals(os)) {
+            if ("amd64".equals(arch)) {
+                plat = "linux64";
+            } else {
+                plat = "linux";
+            }
+        } else if ("Solaris".equals(os) || "SunOS".equals(os)) {
+            plat = "solaris";
+        } else if ("Mac OS X".equals(os) || "Darwin".equals(os)) {
+            plat = "mac";
+        } else {
+            throw new MojoExecutionException("Sorry, Launch4j doesn't support the '" + os + "' OS.");
+        }
+
+        return factory.createArtifactWithClassifier(Launch4jMojo.LAUNCH4J_GROUP_ID, Launch4jMojo.LAUNCH4J_ARTIFACT_ID,
+                launch4jVersion, "jar", "workdir-" + plat);
+    }
+
+    /**
+     * Downloads the platform-specific parts, if necessary, and unpacks them.
+     *
+     * @return the work directory.
+     */
+    File resolve(MavenSession session, MavenProject project, ArtifactRepository localRepository, Artifact binaryBits)
+            throws MojoExecutionException {
+        retrieveBinaryBits(session, project, localRepository, binaryBits);
+        return unpackWorkDir(localRepository, binaryBits);
+    }
+
+    /**
+     * Downloads the platform-specific parts, if necessary.
+     */
+    private void retrieveBinaryBits(MavenSession session, MavenProject project, ArtifactRepository localRepository,
+                                    Artifact a) throws MojoExecutionException {
+
+        // a copy, the session's request is shared by all the modules and threads of the build
+        ProjectBuildingRequest configuration = new DefaultProjectBuildingRequest(session.getProjectBuildingRequest());
+        configuration.setRemoteRepositories(project.getRemoteArtifactRepositories());
+        configuration.setLocalRepository(localRepository);
+        configuration.setProject(project);
+
+        log.debug("Retrieving artifact: " + a + " stored in " + a.getFile());
+
+        try {
+            resolver.resolveArtifact(configuration, a).getArtifact();
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Illegal Argument Exception", e);
+        } catch (ArtifactResolverException e) {
+            throw new MojoExecutionException("Can't retrieve platform-specific components", e);
+        }
+    }
+
+    /**
+     * Unzips the given artifact in-place and returns the newly-unzipped top-level directory.
+     * Writes a marker file to prevent unzipping more than once.
+     */
+    private File unpackWorkDir(ArtifactRepository localRepository, Artifact artifact) throws MojoExecutionException {
+        Artifact localArtifact = localRepository.find(artifact);
+        if (localArtifact == null || localArtifact.getFile() == null) {
+            throw new MojoExecutionException("Cannot obtain file path to " + artifact);
+        }
+        log.debug("Unpacking " + localArtifact + " into " + localArtifact.getFile());
+        File platJar = localArtifact.getFile();
+        File dest = platJar.getParentFile();
+        File marker = new File(dest, platJar.getName() + ".unpacked");
+        String n = platJar.getName();
+        File workdir = new File(dest, n.substring(0, n.length() - 4));
+
+        // If the artifact is a SNAPSHOT, then a.getVersion() will report the long timestamp,
+        // but getFile() will be 1.1-SNAPSHOT.
+        // Since getFile() doesn't use the timestamp, all timestamps wind up in the same place.
+        // Therefore we need to expand the jar every time, if the marker file is stale.
+        if (marker.exists() && marker.lastModified() > platJar.lastModified()) {
+            // if (marker.exists() && marker.platJar.getName().indexOf("SNAPSHOT") == -1) {
+            log.info("Platform-specific work directory already exists: " + workdir.getAbsolutePath());
+        } else {
+            // trying to use plexus-archiver here is a miserable waste of time:
+            try (JarFile jf = new JarFile(platJar)) {
+                Enumeration<JarEntry> en = jf.entries();
+                while (en.hasMoreElements()) {
+                    JarEntry je = en.nextElement();
+                    File outFile = new File(dest, je.getName());
+                    if (!outFile.toPath().normalize().startsWith(dest.toPath().normalize())) {
+                        throw new RuntimeException("Bad zip entry");
+                    }
+                    File parent = outFile.getParentFile();
+                    if (parent != null) parent.mkdirs();
+                    if (je.isDirectory()) {
+                        outFile.mkdirs();
+                    } else {
+                        try (InputStream in = jf.getInputStream(je)) {
+                            try (FileOutputStream fout = new FileOutputStream(outFile)) {
+                                byte[] buf = new byte[1024];
+                                int len;
+                                while ((len = in.read(buf)) >= 0) {
+                                    fout.write(buf, 0, len);
+                                }
+                            }
+                        }
+                        outFile.setLastModified(je.getTime());
+                    }
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error unarchiving " + platJar, e);
+            }
+
+            try {
+                marker.createNewFile();
+                marker.setLastModified(new Date().getTime());
+            } catch (IOException e) {
+                log.warn("Trouble creating marker file " + marker, e);
+            }
+        }
+
+        setPermissions(workdir);
+        return workdir;
+    }
+
+    /**
+     * Chmods the helper executables ld and windres on systems where that is necessary.
+     */
+    private void setPermissions(File workdir) {
+        if (!System.getProperty("os.name").startsWith("Windows")) {
+            try {
+                new ProcessBuilder("chmod", "755", workdir + "/bin/ld").start().waitFor();
+                new ProcessBuilder("chmod", "755", workdir + "/bin/windres").start().waitFor();
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while chmodding platform-specific binaries", e);
+            } catch (IOException e) {
+                log.warn("Unable to set platform-specific binaries to 755", e);
+            }
+        }
+    }
+}
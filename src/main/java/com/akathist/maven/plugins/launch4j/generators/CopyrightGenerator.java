@@ -15,8 +15,19 @@ public class CopyrightGenerator {
      * @return a string representing copyrights
      */
     public static String generate(String projectInceptionYear, String projectOrganizationName) {
+        return generate(projectInceptionYear, projectOrganizationName, LocalDate.now().getYear());
+    }
+
+    /**
+     * Same as {@link #generate(String, String)}, but with an explicit build year,
+     * e.g. taken from ${project.build.outputTimestamp} to keep the build reproducible.
+     * @param projectInceptionYear as ${project.inceptionYear}
+     * @param projectOrganizationName as ${project.organization.name}
+     * @param buildYear the year the project is built in
+     * @return a string representing copyrights
+     */
+    public static String generate(String projectInceptionYear, String projectOrganizationName, int buildYear) {
         String inceptionYear = generateInceptionYear(projectInceptionYear);
-        int buildYear = LocalDate.now().getYear();
         String organizationName = generateOrganizationName(projectOrganizationName);
 
         return String.format("Copyright © %s%d%s. All rights reserved.", inceptionYear, buildYear, organizationName);
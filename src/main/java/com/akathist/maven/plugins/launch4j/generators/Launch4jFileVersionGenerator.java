@@ -1,15 +1,12 @@
 package com.akathist.maven.plugins.launch4j.generators;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
 
 public class Launch4jFileVersionGenerator {
     private static final int REQUIRED_NESTED_VERSION_LEVELS = 4;
-    private static final String SIMPLE_PROJECT_VERSION_REGEX = "^((\\d(\\.)?)*\\d+)(-\\w+)?$";
-    private static final Pattern simpleProjectVersionPattern = Pattern.compile(
-            SIMPLE_PROJECT_VERSION_REGEX, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
-    );
+    private static final int MAX_LEVEL_VALUE = 0xFFFF;
+    private static final String VERSION_GRAMMAR =
+            "<number>[.<number>]*[(-|.)<qualifier>][+<build metadata>], e.g. 1.2.3, 1.2.3-SNAPSHOT, 2024.10.1.RC1, 1.2.3+build.5";
 
     private Launch4jFileVersionGenerator() {
     }
@@ -18,56 +15,187 @@ public class Launch4jFileVersionGenerator {
      * Converts projectVersion into a format "x.x.x.x" ('x' as a number), which is required by Launch4j.
      * <p>
      * For shorter versions like "x.x.x" it will append zeros (to the 4th level) at the end like "x.x.x.0".
-     * Every text flag like "-SNAPSHOT" or "-alpha" will be cut off.
+     * Every qualifier like "-SNAPSHOT", "-alpha-1" or ".RC1" and build metadata like "+build.5" will be cut off.
      * Too many nested numbers (more than 4 levels) will be cut off as well: "1.2.3.4.5.6" into "1.2.3.4".
+     * A Windows file version holds 16 bits per level, so a level above 65535 is rejected.
      * <p>
      * Param should be taken from MavenProject property:
      * @param projectVersion as ${project.version}
      * @return a string representing a file version of format x.x.x.x
      */
     public static String generate(String projectVersion) {
+        return generate(projectVersion, false);
+    }
+
+    /**
+     * Same as {@link #generate(String)}, but when buildNumberAsFourthLevel is true the 4th level is taken
+     * from the build number instead: the last segment of the build metadata or of the qualifier which is a number,
+     * so "1.2.3+build.5" becomes "1.2.3.5" and "1.2.3-rc-2" becomes "1.2.3.2", while the digits within a segment
+     * like "RC1" or "sha-5114f85" are ignored. A version with a 4th level of its
+     * own keeps it, so "1.2.3.4-rc-2" becomes "1.2.3.4", and one without a build number gets a zero, so
+     * "1.2.3-SNAPSHOT" becomes "1.2.3.0". A build number above 65535 is rejected like a level above it.
+     *
+     * @param projectVersion as ${project.version}
+     * @param buildNumberAsFourthLevel whether the build number should be used as the 4th level
+     * @return a string representing a file version of format x.x.x.x
+     */
+    public static String generate(String projectVersion, boolean buildNumberAsFourthLevel) {
         if(projectVersion == null) {
             return null;
         }
-        if(!simpleProjectVersionPattern.matcher(projectVersion).matches()) {
-            throw new IllegalArgumentException("'project.version' is in invalid format. Regex pattern: " + SIMPLE_PROJECT_VERSION_REGEX);
+
+        ParsedVersion version = parse(projectVersion);
+
+        StringBuilder fileVersion = new StringBuilder(projectVersion.length() + 8);
+        for (int level = 0; level < REQUIRED_NESTED_VERSION_LEVELS; level++) {
+            if (level > 0) {
+                fileVersion.append('.');
+            }
+            if (level < version.levels) {
+                appendLevel(fileVersion, projectVersion, version.levelStarts[level], version.levelEnds[level]);
+            } else if (buildNumberAsFourthLevel && level == REQUIRED_NESTED_VERSION_LEVELS - 1
+                    && version.buildNumberStart >= 0) {
+                appendLevel(fileVersion, projectVersion, version.buildNumberStart, version.buildNumberEnd);
+            } else {
+                fileVersion.append('0');
+            }
         }
 
-        String versionLevels = removeTextFlags(projectVersion);
-        String limitedVersionLevels = cutOffTooManyNestedLevels(versionLevels);
+        return fileVersion.toString();
+    }
 
-        return appendMissingNestedLevelsByZeros(limitedVersionLevels);
+    /**
+     * Appends one level, after checking it fits the 16 bits of a level of a Windows file version.
+     */
+    private static void appendLevel(StringBuilder fileVersion, String version, int start, int end) {
+        int significant = start;
+        while (significant < end - 1 && version.charAt(significant) == '0') {
+            significant++;
+        }
+        if (end - significant > 5 || Integer.parseInt(version.substring(significant, end)) > MAX_LEVEL_VALUE) {
+            throw new IllegalArgumentException("'project.version' cannot be a file version: " + version.substring(start, end)
+                    + " at position " + start + " of \"" + StringUtils.abbreviate(version, 80)
+                    + "\" is above " + MAX_LEVEL_VALUE + ", the most a level of a Windows file version can hold");
+        }
+        fileVersion.append(version, start, end);
     }
 
-    private static String removeTextFlags(String version) {
-        if(version.contains("-")) {
-            String[] parts = version.split("-");
-            return parts[0];
+    /**
+     * Parses the version in a single pass without backtracking, so the time is linear in the length of the input.
+     * Only the bounds of the first four numeric levels and of the last all-digit segment after them (the build number)
+     * are remembered, nothing is copied.
+     */
+    private static ParsedVersion parse(String version) {
+        ParsedVersion parsed = new ParsedVersion();
+        int length = version.length();
+        int pos = 0;
+
+        // numeric levels: <number>[.<number>]*
+        while (true) {
+            int start = pos;
+            while (pos < length && isDigit(version.charAt(pos))) {
+                pos++;
+            }
+            if (pos == start) {
+                throw invalid(version, pos);
+            }
+            if (parsed.levels < REQUIRED_NESTED_VERSION_LEVELS) {
+                parsed.levelStarts[parsed.levels] = start;
+                parsed.levelEnds[parsed.levels] = pos;
+            }
+            parsed.levels++;
+
+            if (pos + 1 < length && version.charAt(pos) == '.' && isDigit(version.charAt(pos + 1))) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (parsed.levels > REQUIRED_NESTED_VERSION_LEVELS) {
+            parsed.levels = REQUIRED_NESTED_VERSION_LEVELS;
         }
 
-        return version;
-    }
+        // dotted qualifier: .<alphanumeric starting with a letter>, which may be continued by a hyphenated qualifier;
+        // unlike a hyphenated one it cannot go on with a dot, as in "1.X.3" the "X" is more likely a mistyped level
+        if (pos < length && version.charAt(pos) == '.') {
+            pos++;
+            if (pos >= length || !isLetter(version.charAt(pos))) {
+                throw invalid(version, pos);
+            }
+            pos = segment(version, pos, parsed, false);
+            if (pos < length && version.charAt(pos) != '-' && version.charAt(pos) != '+') {
+                throw invalid(version, pos);
+            }
+        }
 
-    private static String cutOffTooManyNestedLevels(String versionLevels) {
-        String[] levels = versionLevels.split("\\.");
+        // hyphenated qualifier: -<segment>[(-|.)<segment>]*
+        if (pos < length && version.charAt(pos) == '-') {
+            do {
+                pos = segment(version, pos + 1, parsed, true);
+            } while (pos < length && (version.charAt(pos) == '-' || version.charAt(pos) == '.'));
+        }
 
-        if(levels.length > REQUIRED_NESTED_VERSION_LEVELS) {
-            List<String> limitedLevels = Arrays.asList(levels)
-                    .subList(0, REQUIRED_NESTED_VERSION_LEVELS);
-            return String.join(".", limitedLevels);
+        // build metadata: +<segment>[(.|-)<segment>]*
+        if (pos < length && version.charAt(pos) == '+') {
+            do {
+                pos = segment(version, pos + 1, parsed, true);
+            } while (pos < length && (version.charAt(pos) == '.' || version.charAt(pos) == '-'));
         }
 
-        return versionLevels;
-    }
+        if (pos != length) {
+            throw invalid(version, pos);
+        }
 
-    private static String appendMissingNestedLevelsByZeros(String versionLevels) {
-        String[] levels = versionLevels.split("\\.");
+        return parsed;
+    }
 
-        StringBuilder filledLevels = new StringBuilder(versionLevels);
-        for (int i = levels.length; i < REQUIRED_NESTED_VERSION_LEVELS; i++) {
-            filledLevels.append(".0");
+    /**
+     * Consumes one non-empty run of letters and digits (and underscores, if allowed)
+     * and remembers it as the build number if it is a number. The digits of an alphanumeric segment,
+     * as in "beta3" or a commit hash, are no build number.
+     */
+    private static int segment(String version, int pos, ParsedVersion parsed, boolean underscoreAllowed) {
+        int length = version.length();
+        int start = pos;
+        boolean number = true;
+        while (pos < length) {
+            char c = version.charAt(pos);
+            if (isLetter(c) || (underscoreAllowed && c == '_')) {
+                number = false;
+            } else if (!isDigit(c)) {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw invalid(version, pos);
         }
+        if (number) {
+            parsed.buildNumberStart = start;
+            parsed.buildNumberEnd = pos;
+        }
+        return pos;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static IllegalArgumentException invalid(String version, int pos) {
+        String found = pos < version.length() ? "'" + version.charAt(pos) + "'" : "end of version";
+        return new IllegalArgumentException("'project.version' is in invalid format: unexpected " + found
+                + " at position " + pos + " of \"" + StringUtils.abbreviate(version, 80) + "\". Expected format: " + VERSION_GRAMMAR);
+    }
 
-        return filledLevels.toString();
+    private static class ParsedVersion {
+        private final int[] levelStarts = new int[REQUIRED_NESTED_VERSION_LEVELS];
+        private final int[] levelEnds = new int[REQUIRED_NESTED_VERSION_LEVELS];
+        private int levels;
+        private int buildNumberStart = -1;
+        private int buildNumberEnd = -1;
     }
 }
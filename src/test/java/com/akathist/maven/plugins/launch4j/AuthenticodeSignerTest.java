@@ -0,0 +1,308 @@
+package com.akathist.maven.plugins.launch4j;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+public class AuthenticodeSignerTest {
+
+    private static final int CHECKSUM_POSITION = 0x58 + 64;
+    private static final int CERTIFICATE_ENTRY_POSITION = 0x58 + 96 + 4 * 8;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldSignTheAuthenticodeHash_AndKeepTheJarReadable() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        byte[] unsigned = Files.readAllBytes(exe.toPath());
+        Signing signing = signing(null);
+
+        // when
+        signing.toSigner().sign(exe);
+
+        // then
+        byte[] signed = Files.readAllBytes(exe.toPath());
+        ByteBuffer headers = ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN);
+        int tablePosition = headers.getInt(CERTIFICATE_ENTRY_POSITION);
+        int tableSize = headers.getInt(CERTIFICATE_ENTRY_POSITION + 4);
+        assertEquals(0, tablePosition % 8);
+        assertEquals(signed.length, tablePosition + tableSize);
+        assertEquals(tableSize, headers.getInt(tablePosition));
+        assertEquals(0x0200, headers.getShort(tablePosition + 4));
+        assertEquals(0x0002, headers.getShort(tablePosition + 6));
+
+        Der.Element signerInfo = signedData(signed, tablePosition).child(4).child(0);
+        Der.Element indirectData = signedData(signed, tablePosition).child(2).child(1).child(0);
+        byte[] peHash = indirectData.child(1).child(1).content();
+        assertArrayEquals(authenticodeHash(signed, tablePosition), peHash);
+
+        byte[] attributes = signerInfo.child(3).encoded();
+        attributes[0] = (byte) Der.SET;
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(certificate(signing));
+        signature.update(attributes);
+        assertTrue(signature.verify(signerInfo.child(5).content()));
+        assertTrue(contains(attributes, Der.octetString(MessageDigest.getInstance("SHA-256").digest(indirectData.content()))));
+
+        try (RandomAccessFile file = new RandomAccessFile(exe, "r")) {
+            assertEquals(ReproducibleExecutable.checksum(file, CHECKSUM_POSITION), headers.getInt(CHECKSUM_POSITION) & 0xFFFFFFFFL);
+        }
+        int commentLength = headers.getShort(unsigned.length - 2) & 0xFFFF;
+        assertEquals(signed.length - unsigned.length, commentLength);
+        try (ZipFile jar = new ZipFile(exe)) {
+            assertNotNull(jar.getEntry("app/Main.class"));
+        }
+    }
+
+    @Test
+    public void shouldAddTheTokenOfTheTimeStampingAuthority() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        byte[][] token = new byte[1][];
+        HttpServer authority = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        authority.createContext("/tsa", exchange -> {
+            try {
+                byte[] response = timeStampResponse(readAll(exchange.getRequestBody()));
+                token[0] = Der.Element.read(response).child(1).encoded();
+                exchange.getResponseHeaders().add("Content-Type", "application/timestamp-reply");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        });
+        authority.start();
+
+        try {
+            // when
+            signing("http://127.0.0.1:" + authority.getAddress().getPort() + "/tsa").toSigner().sign(exe);
+        } finally {
+            authority.stop(0);
+        }
+
+        // then
+        byte[] signed = Files.readAllBytes(exe.toPath());
+        int tablePosition = ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN).getInt(CERTIFICATE_ENTRY_POSITION);
+        Der.Element unsignedAttribute = signedData(signed, tablePosition).child(4).child(0).child(6).child(0);
+        assertArrayEquals(Der.oid(AuthenticodeSigner.RFC3161_TIMESTAMP), unsignedAttribute.child(0).encoded());
+        assertArrayEquals(token[0], unsignedAttribute.child(1).child(0).encoded());
+    }
+
+    @Test
+    public void shouldSignAgain_AfterTheSignatureWasRemoved() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        AuthenticodeSigner signer = signing(null).toSigner();
+        signer.sign(exe);
+
+        // when
+        assertTrue(AuthenticodeSigner.unsign(exe));
+        ResourceTable resources = ResourceEditor.read(exe);
+        new ResourceStamp().fileVersion("2.0.0.0").applyTo(resources);
+        ResourceEditor.write(exe, resources, exe);
+        signer.sign(exe);
+
+        // then
+        assertNotNull(PeExecutable.read(exe).dataDirectory(PeExecutable.CERTIFICATE_DIRECTORY));
+        try (ZipFile jar = new ZipFile(exe)) {
+            assertNotNull(jar.getEntry("app/Main.class"));
+        }
+    }
+
+    @Test
+    public void shouldSignTheBrandedVariants_KeepingTheModificationTimeOfTheExecutable() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        Instant outputTimestamp = Instant.parse("2020-01-01T00:00:00Z");
+        assertTrue(exe.setLastModified(outputTimestamp.toEpochMilli()));
+        Map<String, String> values = new HashMap<>();
+        values.put("outfile", "acme.exe");
+        values.put("productName", "Acme");
+        BrandingMatrix.Variant variant = new BrandingMatrix.Variant(values);
+
+        // when
+        List<BrandedVariants.Written> written = BrandedVariants.write(exe, Collections.singletonList(variant),
+                temporaryFolder.getRoot(), temporaryFolder.getRoot(), 1, signing(null).toSigner());
+
+        // then
+        File signed = written.get(0).file;
+        assertNotNull(PeExecutable.read(signed).dataDirectory(PeExecutable.CERTIFICATE_DIRECTORY));
+        assertEquals(outputTimestamp.toEpochMilli(), signed.lastModified());
+    }
+
+    @Test
+    public void shouldRejectSignedExecutables() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        AuthenticodeSigner signer = signing(null).toSigner();
+        signer.sign(exe);
+        byte[] signed = Files.readAllBytes(exe.toPath());
+
+        // when
+        try {
+            signer.sign(exe);
+            fail("signed twice");
+        } catch (java.io.IOException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is signed already"));
+        }
+        assertArrayEquals(signed, Files.readAllBytes(exe.toPath()));
+    }
+
+    /**
+     * A PKCS#12 keystore with an RSA key and a self-signed certificate.
+     */
+    private Signing signing(String timestampUrl) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        byte[] algorithm = Der.sequence(Der.oid("1.2.840.113549.1.1.11"), Der.nul());
+        byte[] name = Der.sequence(Der.setOf(Der.sequence(Der.oid("2.5.4.3"),
+                Der.tlv(0x0C, "launch4j test".getBytes(StandardCharsets.UTF_8)))));
+        byte[] tbs = Der.sequence(
+                Der.constructed(0xA0, Der.integer(2)),
+                Der.integer(42),
+                algorithm,
+                name,
+                Der.sequence(Der.tlv(0x17, "200101000000Z".getBytes(StandardCharsets.US_ASCII)),
+                        Der.tlv(0x17, "491231235959Z".getBytes(StandardCharsets.US_ASCII))),
+                name,
+                keyPair.getPublic().getEncoded());
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(tbs);
+        byte[] certificate = Der.sequence(tbs, algorithm, Der.tlv(Der.BIT_STRING, Der.concat(new byte[]{0}, signature.sign())));
+
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        store.load(null, null);
+        store.setKeyEntry("code", keyPair.getPrivate(), "secret".toCharArray(), new Certificate[]{
+                CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(certificate))});
+        File keystore = temporaryFolder.newFile();
+        try (OutputStream out = Files.newOutputStream(keystore.toPath())) {
+            store.store(out, "secret".toCharArray());
+        }
+
+        Signing signing = new Signing();
+        signing.keystore = keystore;
+        signing.storepass = "secret";
+        signing.programName = "App";
+        signing.timestampUrl = timestampUrl;
+        return signing;
+    }
+
+    private static X509Certificate certificate(Signing signing) throws Exception {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(signing.keystore.toPath())) {
+            store.load(in, signing.storepass.toCharArray());
+        }
+        return (X509Certificate) store.getCertificate("code");
+    }
+
+    private static Der.Element signedData(byte[] exe, int tablePosition) throws Exception {
+        return Der.Element.read(trimmed(exe, tablePosition + 8)).child(1).child(0);
+    }
+
+    /**
+     * The DER element at the position, without the padding of the certificate table.
+     */
+    private static byte[] trimmed(byte[] exe, int position) {
+        int length = exe[position + 1] & 0xFF;
+        int header = 2;
+        if (length > 0x80) {
+            int bytes = length & 0x7F;
+            length = 0;
+            for (int i = 0; i < bytes; i++) {
+                length = length << 8 | exe[position + 2 + i] & 0xFF;
+            }
+            header += bytes;
+        }
+        return Arrays.copyOfRange(exe, position, position + header + length);
+    }
+
+    /**
+     * The hash as Windows computes it: everything before the certificate table but the checksum and the entry
+     * of the certificate table.
+     */
+    private static byte[] authenticodeHash(byte[] exe, int tablePosition) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(exe, 0, CHECKSUM_POSITION);
+        digest.update(exe, CHECKSUM_POSITION + 4, CERTIFICATE_ENTRY_POSITION - CHECKSUM_POSITION - 4);
+        digest.update(exe, CERTIFICATE_ENTRY_POSITION + 8, tablePosition - CERTIFICATE_ENTRY_POSITION - 8);
+        return digest.digest();
+    }
+
+    /**
+     * A granted TimeStampResp for the request, its token holding a TSTInfo with the request's imprint and nonce.
+     */
+    private static byte[] timeStampResponse(byte[] request) throws Exception {
+        List<Der.Element> fields = Der.Element.read(request).children();
+        byte[] tstInfo = Der.sequence(
+                Der.integer(1),
+                Der.oid("1.2.3.4"),
+                fields.get(1).encoded(),
+                Der.integer(7),
+                Der.tlv(0x18, "20260101000000Z".getBytes(StandardCharsets.US_ASCII)),
+                Der.integer(fields.get(2).integer()));
+        byte[] token = Der.sequence(Der.oid(AuthenticodeSigner.SIGNED_DATA), Der.constructed(0xA0, Der.sequence(
+                Der.integer(3),
+                Der.setOf(),
+                Der.sequence(Der.oid("1.2.840.113549.1.9.16.1.4"), Der.constructed(0xA0, Der.octetString(tstInfo))),
+                Der.setOf())));
+        return Der.sequence(Der.sequence(Der.integer(BigInteger.ZERO)), token);
+    }
+
+    private static boolean contains(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(part, Arrays.copyOfRange(bytes, i, i + part.length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,141 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BinaryDeltaTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldCopyWhatMoved_AndInsertOnlyWhatChanged() throws Exception {
+        // given
+        byte[] old = random(1, 3 * 1024 * 1024);
+        ByteArrayOutputStream changed = new ByteArrayOutputStream();
+        changed.write(old, 0, 100_000);
+        changed.write(random(2, 5000), 0, 5000);               // inserted, moves the rest
+        changed.write(old, 100_000, 1_000_000);
+        changed.write(old, 1_200_000, old.length - 1_200_000);   // removed 100 KB
+        changed.write(random(3, 777), 0, 777);                  // appended
+        File oldFile = write("old.exe", old);
+        File newFile = write("new.exe", changed.toByteArray());
+        File patch = new File(temporaryFolder.getRoot(), "new.exe.patch");
+
+        // when
+        BinaryDelta.Result result = BinaryDelta.diff(oldFile, newFile, patch, BinaryDelta.DEFAULT_BLOCK_SIZE);
+
+        // then
+        assertEquals(newFile.length(), result.copied + result.inserted);
+        assertTrue("inserted " + result.inserted, result.inserted < 5000 + 777 + 2 * BinaryDelta.DEFAULT_BLOCK_SIZE);
+        assertTrue("patch of " + result.patchLength + " bytes", result.patchLength < 20_000);
+        assertEquals(new FileDigests().of(newFile), result.newSha256);
+        assertEquals(new FileDigests().of(patch), result.patchSha256);
+        assertApplies(oldFile, patch, newFile);
+    }
+
+    @Test
+    public void shouldInsertOnlyTheChangedBytes_WhenAFewBytesChanged() throws Exception {
+        // given
+        byte[] old = random(8, 1024 * 1024);
+        byte[] changed = old.clone();
+        for (int offset = 10_000; offset < changed.length; offset += 100_000) {
+            changed[offset] ^= 0x55;
+            changed[offset + 7] ^= 0x55;
+        }
+        File oldFile = write("old.exe", old);
+        File newFile = write("new.exe", changed);
+        File patch = new File(temporaryFolder.getRoot(), "new.exe.patch");
+
+        // when
+        BinaryDelta.Result result = BinaryDelta.diff(oldFile, newFile, patch, BinaryDelta.DEFAULT_BLOCK_SIZE);
+
+        // then
+        assertEquals(11 * 8, result.inserted);
+        assertApplies(oldFile, patch, newFile);
+    }
+
+    @Test
+    public void shouldMakeATinyPatch_WhenNothingChanged() throws Exception {
+        // given
+        byte[] old = random(4, 1024 * 1024 + 123);
+        File oldFile = write("old.exe", old);
+        File newFile = write("new.exe", old);
+        File patch = new File(temporaryFolder.getRoot(), "new.exe.patch");
+
+        // when
+        BinaryDelta.Result result = BinaryDelta.diff(oldFile, newFile, patch, BinaryDelta.DEFAULT_BLOCK_SIZE);
+
+        // then
+        assertEquals(123, result.inserted);
+        assertTrue("patch of " + result.patchLength + " bytes", result.patchLength < 300);
+        assertApplies(oldFile, patch, newFile);
+    }
+
+    @Test
+    public void shouldHandleRepeatedContent_AndFilesSmallerThanABlock() throws Exception {
+        // given
+        byte[] zeros = new byte[512 * 1024];
+        byte[] changed = zeros.clone();
+        changed[300_000] = 1;
+        File oldFile = write("old.exe", zeros);
+        File newFile = write("new.exe", changed);
+        File tiny = write("tiny.exe", new byte[]{1, 2, 3});
+
+        // when
+        File patch = new File(temporaryFolder.getRoot(), "new.exe.patch");
+        BinaryDelta.diff(oldFile, newFile, patch, 64);
+        File fromTiny = new File(temporaryFolder.getRoot(), "from-tiny.patch");
+        BinaryDelta.diff(tiny, newFile, fromTiny, 64);
+
+        // then
+        assertApplies(oldFile, patch, newFile);
+        assertApplies(tiny, fromTiny, newFile);
+    }
+
+    @Test
+    public void shouldRefuseToPatchAnotherFile() throws Exception {
+        // given
+        File oldFile = write("old.exe", random(5, 100_000));
+        File newFile = write("new.exe", random(6, 100_000));
+        File other = write("other.exe", random(7, 100_000));
+        File patch = new File(temporaryFolder.getRoot(), "new.exe.patch");
+        BinaryDelta.diff(oldFile, newFile, patch, BinaryDelta.DEFAULT_BLOCK_SIZE);
+
+        // when
+        try {
+            BinaryDelta.apply(other, patch, new File(temporaryFolder.getRoot(), "patched.exe"));
+            fail("The patch was made against another file");
+        } catch (IOException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("was not made against"));
+        }
+    }
+
+    private void assertApplies(File oldFile, File patch, File newFile) throws IOException {
+        File patched = new File(temporaryFolder.getRoot(), "patched.exe");
+        BinaryDelta.apply(oldFile, patch, patched);
+        assertArrayEquals(Files.readAllBytes(newFile.toPath()), Files.readAllBytes(patched.toPath()));
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] random(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,138 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BrandingMatrixTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadACsvTable_WithQuotedCells() throws Exception {
+        // given
+        BrandingMatrix matrix = matrix("brands.csv",
+                "outfile,productName,startupErr\n"
+                        + "acme.exe,\"Acme, Inc. \"\"Tools\"\"\",\n"
+                        + "globex.exe,Globex,\"Cannot start\n"
+                        + "Globex\"\n");
+
+        // when
+        List<BrandingMatrix.Variant> variants = matrix.readVariants();
+
+        // then
+        assertEquals(2, variants.size());
+        assertEquals("acme.exe", variants.get(0).outfile);
+        assertEquals("Acme, Inc. \"Tools\"", variants.get(0).values.get("productName"));
+        assertFalse(variants.get(0).values.containsKey("startupErr"));
+        assertEquals("Cannot start\nGlobex", variants.get(1).values.get("startupErr"));
+    }
+
+    @Test
+    public void shouldReadAPropertiesTable_AndNameTheOutfilesAfterTheVariants() throws Exception {
+        // given
+        BrandingMatrix matrix = matrix("brands.properties",
+                "acme.productName=Acme\n"
+                        + "globex.productName=Globex\n"
+                        + "globex.outfile=bin/globex-app.exe\n");
+
+        // when
+        List<BrandingMatrix.Variant> variants = matrix.readVariants();
+
+        // then
+        assertEquals("acme.exe", variants.get(0).outfile);
+        assertEquals("bin/globex-app.exe", variants.get(1).outfile);
+        assertEquals("Globex", variants.get(1).values.get("productName"));
+    }
+
+    @Test
+    public void shouldRejectUnknownColumns() throws Exception {
+        // given
+        BrandingMatrix matrix = matrix("brands.csv", "outfile,productname\nacme.exe,Acme\n");
+
+        // when
+        try {
+            matrix.readVariants();
+            fail("productname is not a column");
+        } catch (IllegalArgumentException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown column productname"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTheSameOutfileTwice() throws Exception {
+        matrix("brands.csv", "outfile,productName\nacme.exe,Acme\nacme.exe,Acme 2\n").readVariants();
+    }
+
+    @Test
+    public void shouldWriteEveryVariant_AndSummarizeThem() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.0.0.0");
+        StringBuilder table = new StringBuilder("outfile,productName,fileVersion\n");
+        for (int i = 0; i < 20; i++) {
+            table.append("brand").append(i).append(".exe,Brand ").append(i).append(",1.0.0.").append(i).append('\n');
+        }
+        BrandingMatrix matrix = matrix("brands.csv", table.toString());
+        File outputDirectory = new File(temporaryFolder.getRoot(), "branded");
+
+        // when
+        List<BrandedVariants.Written> written = BrandedVariants.write(exe, matrix.readVariants(), outputDirectory,
+                temporaryFolder.getRoot(), 4, null);
+        File summary = new File(outputDirectory, BrandedVariants.SUMMARY);
+        BrandedVariants.writeSummary(written, summary);
+
+        // then
+        assertEquals(20, written.size());
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            BrandedVariants.Written variant = written.get(i);
+            assertEquals(new File(outputDirectory, "brand" + i + ".exe"), variant.file);
+            VersionResource version = VersionResource.parse(
+                    ResourceEditor.read(variant.file).get(ResourceTable.RT_VERSION, 1).data);
+            assertEquals("Brand " + i, version.getString("ProductName"));
+            assertEquals("1.0.0." + i, version.getFileVersion());
+            assertFalse(hashes.contains(variant.sha256));
+            hashes.add(variant.sha256);
+        }
+        List<String> lines = Files.readAllLines(summary.toPath(), StandardCharsets.UTF_8);
+        assertEquals("outfile,size,sha256", lines.get(0));
+        assertEquals(Arrays.asList("brand0.exe", Long.toString(written.get(0).size), written.get(0).sha256),
+                Arrays.asList(lines.get(1).split(",")));
+    }
+
+    @Test
+    public void shouldWriteTheManifestOfAVariant_RelativeToTheBaseDirectory() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.0.0.0");
+        byte[] manifest = "<assembly manifestVersion=\"1.0\"/>".getBytes(StandardCharsets.UTF_8);
+        Files.write(temporaryFolder.newFile("acme.manifest").toPath(), manifest);
+        BrandingMatrix matrix = matrix("brands.csv", "outfile,manifest\nacme.exe,acme.manifest\nglobex.exe,\n");
+        File outputDirectory = new File(temporaryFolder.getRoot(), "branded");
+
+        // when
+        BrandedVariants.write(exe, matrix.readVariants(), outputDirectory, temporaryFolder.getRoot(), 1, null);
+
+        // then
+        assertArrayEquals(manifest,
+                ResourceEditor.read(new File(outputDirectory, "acme.exe")).get(ResourceTable.RT_MANIFEST, 1).data);
+        assertNull(ResourceEditor.read(new File(outputDirectory, "globex.exe")).get(ResourceTable.RT_MANIFEST, 1));
+    }
+
+    private BrandingMatrix matrix(String name, String content) throws Exception {
+        BrandingMatrix matrix = new BrandingMatrix();
+        matrix.table = temporaryFolder.newFile(name);
+        Files.write(matrix.table.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return matrix;
+    }
+}
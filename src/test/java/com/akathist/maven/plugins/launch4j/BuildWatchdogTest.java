@@ -0,0 +1,219 @@
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.BuilderException;
+import net.sf.launch4j.ExecException;
+import net.sf.launch4j.Messages;
+import net.sf.launch4j.Util;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class BuildWatchdogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CountDownLatch never = new CountDownLatch(1);
+
+    @Test
+    public void shouldReturnTheExecutable_WhenTheBuildFinishesInTime() throws Exception {
+        // given
+        File outfile = temporaryFolder.newFile("app.exe");
+        BuildWatchdog watchdog = new BuildWatchdog(5000, 5000, new SystemStreamLog());
+
+        // expect
+        assertEquals(outfile, watchdog.run(() -> outfile, outfile, temporaryFolder.getRoot()));
+    }
+
+    @Test(expected = BuilderException.class)
+    public void shouldPassOnBuildFailures() throws Exception {
+        new BuildWatchdog(5000, 5000, new SystemStreamLog())
+                .run(() -> { throw new BuilderException("broken"); }, null, temporaryFolder.getRoot());
+    }
+
+    @Test
+    public void shouldFailAndDeleteThePartialOutfile_WhenTheBuildTakesTooLong() throws Exception {
+        // given
+        File outfile = temporaryFolder.newFile("app.exe");
+        BuildWatchdog watchdog = new BuildWatchdog(300, 0, new SystemStreamLog());
+
+        try {
+            // when
+            watchdog.run(this::hang, outfile, temporaryFolder.getRoot());
+            fail("expected a timeout");
+        } catch (MojoExecutionException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().startsWith("launch4j did not finish within 300 ms"));
+            assertTrue(e.getMessage(), e.getMessage().contains("Build thread launch4j-build"));
+            assertFalse(outfile.exists());
+        }
+    }
+
+    @Test
+    public void shouldNameThePhase_WhichTakesTooLong() throws Exception {
+        // given
+        BuildWatchdog watchdog = new BuildWatchdog(0, 300, new SystemStreamLog());
+        net.sf.launch4j.Log log = watchdog.watch(new MavenLog(new SystemStreamLog()));
+
+        try {
+            // when
+            watchdog.run(() -> {
+                log.append(Messages.getString("Builder.linking"));
+                return hang();
+            }, null, temporaryFolder.getRoot());
+            fail("expected a timeout");
+        } catch (MojoExecutionException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().startsWith("launch4j did not finish linking (ld) within 300 ms"));
+        }
+    }
+
+    @Test
+    public void shouldFailTheFollowingBuilds_WhileATimedOutBuildThreadIsStillRunning() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        BuildWatchdog watchdog = new BuildWatchdog(300, 0, new SystemStreamLog());
+        try {
+            watchdog.run(() -> {
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // a builder which does not react to interrupts
+                    }
+                }
+                return null;
+            }, null, temporaryFolder.getRoot());
+            fail("expected a timeout");
+        } catch (MojoExecutionException e) {
+            // the thread is left behind
+        }
+
+        try {
+            // when
+            BuildWatchdog.checkNoBuildLeftBehind();
+            fail("expected the build to be refused");
+        } catch (MojoExecutionException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("is still running in this JVM"));
+        } finally {
+            release.countDown();
+        }
+
+        // expect
+        for (int i = 0; i < 50; i++) {
+            try {
+                BuildWatchdog.checkNoBuildLeftBehind();
+                return;
+            } catch (MojoExecutionException e) {
+                Thread.sleep(100);
+            }
+        }
+        fail("the builds stay refused after the thread ended");
+    }
+
+    @Test
+    public void shouldKillTheHangingNativeProcess() throws Exception {
+        assumeTrue(NativeProcesses.isSupported());
+        assumeTrue(!System.getProperty("os.name").toLowerCase().contains("win"));
+
+        // given
+        File workDir = temporaryFolder.newFolder("workdir");
+        File ld = new File(workDir, "bin/ld");
+        ld.getParentFile().mkdirs();
+        Files.write(ld.toPath(), "#!/bin/sh\nsleep 60\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(ld.setExecutable(true));
+        BuildWatchdog watchdog = new BuildWatchdog(1000, 0, new SystemStreamLog());
+
+        long start = System.nanoTime();
+        try {
+            // when
+            watchdog.run(() -> {
+                try {
+                    Util.exec(new String[]{ld.getPath()}, new MavenLog(new SystemStreamLog()));
+                } catch (ExecException e) {
+                    throw new BuilderException(e);
+                }
+                return null;
+            }, null, workDir);
+            fail("expected a timeout");
+        } catch (MojoExecutionException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("Killed native processes:"));
+            assertTrue(e.getMessage(), e.getMessage().contains(ld.getPath()));
+            assertTrue(NativeProcesses.find(NativeProcesses.children(), Collections.singletonList(ld.getPath())).isEmpty());
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30);
+        }
+    }
+
+    @Test
+    public void shouldLeaveTheNativeProcessesOfOtherBuildsAlone() throws Exception {
+        assumeTrue(NativeProcesses.isSupported());
+        assumeTrue(!System.getProperty("os.name").toLowerCase().contains("win"));
+
+        // given
+        File workDir = temporaryFolder.newFolder("workdir");
+        File ld = new File(workDir, "bin/ld");
+        ld.getParentFile().mkdirs();
+        Files.write(ld.toPath(), "#!/bin/sh\nsleep 60\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(ld.setExecutable(true));
+        Process otherBuild = new ProcessBuilder(ld.getPath()).start();
+        BuildWatchdog watchdog = new BuildWatchdog(300, 0, new SystemStreamLog());
+
+        try {
+            // when
+            watchdog.run(this::hang, null, workDir);
+            fail("expected a timeout");
+        } catch (MojoExecutionException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("No native process was running."));
+            assertTrue(otherBuild.isAlive());
+        } finally {
+            otherBuild.destroyForcibly();
+        }
+    }
+
+    @Test
+    public void shouldKillTheBuildWorker_ServingTheBuild() throws Exception {
+        assumeTrue(NativeProcesses.isSupported());
+        assumeTrue(!System.getProperty("os.name").toLowerCase().contains("win"));
+
+        // given
+        Process worker = new ProcessBuilder("sleep", "60").start();
+        BuildWatchdog watchdog = new BuildWatchdog(300, 0, new SystemStreamLog());
+        watchdog.servedBy(worker);
+
+        try {
+            // when
+            watchdog.run(this::hang, null, temporaryFolder.getRoot());
+            fail("expected a timeout");
+        } catch (MojoExecutionException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("Killed native processes:"));
+            assertTrue(worker.waitFor(5, TimeUnit.SECONDS));
+        } finally {
+            worker.destroyForcibly();
+        }
+    }
+
+    private File hang() {
+        try {
+            never.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
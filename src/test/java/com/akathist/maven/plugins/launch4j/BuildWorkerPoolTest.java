@@ -0,0 +1,159 @@
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.BuilderException;
+import net.sf.launch4j.config.Config;
+import net.sf.launch4j.config.ConfigPersister;
+import net.sf.launch4j.config.Jre;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class BuildWorkerPoolTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File workDir;
+
+    private File request;
+
+    private List<File> classpath;
+
+    @Before
+    public void createWorkDirAndRequest() throws Exception {
+        assumeTrue(!System.getProperty("os.name").toLowerCase().contains("win"));
+
+        workDir = temporaryFolder.newFolder("workdir");
+        request = temporaryFolder.newFile("worker-request.xml");
+        Config config = new Config();
+        config.setHeaderType(Config.CONSOLE_HEADER);
+        config.setOutfile(new File("app.exe"));
+        config.setJar(new File("app.jar"));
+        config.setDontWrapJar(true);
+        Jre jre = new Jre();
+        jre.setPath("%JAVA_HOME%");
+        config.setJre(jre);
+        synchronized (ConfigPersister.class) {
+            ConfigPersister.getInstance().setAntConfig(config, temporaryFolder.getRoot());
+            ConfigPersister.getInstance().save(request);
+        }
+
+        // a classpath of its own, so each test gets a pool of its own
+        classpath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(new File(entry));
+        }
+        classpath.add(temporaryFolder.getRoot());
+    }
+
+    @Test
+    public void shouldPassOnTheOutputAndTheFailure_AndKeepTheWorker() throws Exception {
+        // given
+        windres("echo 'app.rc:3: syntax error' >&2\nexit 1\n");
+        BuildWorkerPool pool = BuildWorkerPool.get(1, classpath, new SystemStreamLog());
+        StringBuilder output = new StringBuilder();
+
+        for (int build = 0; build < 2; build++) {
+            try {
+                // when
+                pool.build(request, temporaryFolder.getRoot(), workDir, log(output), new SystemStreamLog());
+                fail("expected the build to fail");
+            } catch (BuilderException e) {
+                // then
+                assertNotNull(e.getMessage());
+            }
+        }
+        assertTrue(output.toString(), output.toString().contains("app.rc:3: syntax error"));
+        assertEquals(1, pool.started());
+    }
+
+    @Test
+    public void shouldReplaceTheWorker_WhenTheBuildIsInterrupted() throws Exception {
+        // given
+        windres("exit 1\n");
+        BuildWorkerPool pool = BuildWorkerPool.get(1, classpath, new SystemStreamLog());
+        try {
+            pool.build(request, temporaryFolder.getRoot(), workDir, log(new StringBuilder()), new SystemStreamLog());
+            fail("expected the build to fail");
+        } catch (BuilderException e) {
+            // the worker is up and running
+        }
+        windres("sleep 5\n");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<File> hanging = executor.submit(() -> pool.build(request, temporaryFolder.getRoot(), workDir, log(new StringBuilder()), new SystemStreamLog()));
+            Thread.sleep(1000);
+
+            // when
+            executor.shutdownNow();
+
+            // then
+            try {
+                hanging.get(10, TimeUnit.SECONDS);
+                fail("expected the build to be interrupted");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertTrue(e.getCause() instanceof BuilderException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // when
+        windres("exit 1\n");
+        try {
+            pool.build(request, temporaryFolder.getRoot(), workDir, log(new StringBuilder()), new SystemStreamLog());
+            fail("expected the build to fail");
+        } catch (BuilderException e) {
+            // then
+            assertEquals(2, pool.started());
+        }
+    }
+
+    @Test
+    public void shouldEscapeTheFieldsOfTheProtocol() {
+        // given
+        String field = "C:\\path\\with\ttab\nand newline";
+
+        // expect
+        assertFalse(BuildWorker.escape(field).contains("\t"));
+        assertFalse(BuildWorker.escape(field).contains("\n"));
+        assertEquals(field, BuildWorker.unescape(BuildWorker.escape(field)));
+        assertEquals(Arrays.asList("a\\b", "c"), Arrays.asList(BuildWorker.unescape(BuildWorker.escape("a\\b")), "c"));
+    }
+
+    private void windres(String script) throws Exception {
+        File windres = new File(workDir, "bin/windres");
+        Files.createDirectories(windres.getParentFile().toPath());
+        Files.write(windres.toPath(), ("#!/bin/sh\n" + script).getBytes(StandardCharsets.UTF_8));
+        assertTrue(windres.setExecutable(true));
+    }
+
+    private static net.sf.launch4j.Log log(StringBuilder output) {
+        return new net.sf.launch4j.Log() {
+            @Override
+            public void clear() {
+            }
+
+            @Override
+            public synchronized void append(String line) {
+                output.append(line).append('\n');
+            }
+        };
+    }
+}
@@ -0,0 +1,220 @@
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.config.Config;
+import net.sf.launch4j.config.ConfigPersister;
+import net.sf.launch4j.config.Jre;
+import net.sf.launch4j.config.Splash;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigurationValidatorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    private File baseDir;
+    private File buildDirectory;
+    private Config config;
+
+    @Before
+    public void prepareValidConfiguration() throws Exception {
+        baseDir = temporaryFolder.getRoot();
+        buildDirectory = temporaryFolder.newFolder("target");
+
+        config = new Config();
+        config.setHeaderType("gui");
+        config.setOutfile(new File(buildDirectory, "app.exe"));
+        config.setJar(write("app.jar", new byte[]{'P', 'K', 3, 4}));
+        config.setIcon(write("app.ico", icon()));
+        config.setManifest(write("app.manifest", ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<assembly xmlns=\"urn:schemas-microsoft-com:asm.v1\" manifestVersion=\"1.0\"/>")
+                .getBytes(StandardCharsets.UTF_8)));
+        Splash splash = new Splash();
+        splash.setFile(write("splash.bmp", bitmap()));
+        config.setSplash(splash);
+        Jre jre = new Jre();
+        jre.setPath("%JAVA_HOME%");
+        jre.setMinVersion("1.8");
+        config.setJre(jre);
+
+        ConfigPersister.getInstance().setAntConfig(config, baseDir);
+    }
+
+    @Test
+    public void shouldAcceptValidConfiguration() {
+        // expect
+        assertEquals(0, validate().size());
+    }
+
+    @Test
+    public void shouldReportLaunch4jInvariantViolation_WhenHeapPercentIsAbove100() {
+        // given
+        config.getJre().setMaxHeapPercent(150);
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).startsWith("jre.maxHeapPercent: "));
+    }
+
+    @Test
+    public void shouldReportInvalidFileVersion() {
+        // given
+        net.sf.launch4j.config.VersionInfo versionInfo = new net.sf.launch4j.config.VersionInfo();
+        versionInfo.setFileVersion("1.0-SNAPSHOT");
+        versionInfo.setTxtFileVersion("1.0-SNAPSHOT");
+        versionInfo.setProductVersion("1.0.0.0");
+        versionInfo.setTxtProductVersion("1.0");
+        versionInfo.setFileDescription("App");
+        versionInfo.setCopyright("Nobody");
+        versionInfo.setProductName("App");
+        versionInfo.setInternalName("app");
+        versionInfo.setOriginalFilename("app.exe");
+        config.setVersionInfo(versionInfo);
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).startsWith("versionInfo.fileVersion: "));
+    }
+
+    @Test
+    public void shouldReportMissingJar_OutsideOfBuildDirectory() {
+        // given
+        config.setJar(new File(baseDir, "libs/missing.jar"));
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).startsWith("jar: "));
+    }
+
+    @Test
+    public void shouldSkipJar_WhichIsBuiltLaterInBuildDirectory() {
+        // given
+        File jar = new File(buildDirectory, "app-1.0.jar");
+        config.setJar(jar);
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(0, problems.size());
+        assertEquals(jar, config.getJar());
+        assertFalse(config.isDontWrapJar());
+        verify(log).info(contains("is not built yet"));
+    }
+
+    @Test
+    public void shouldRunTheOtherChecks_WhenTheJarIsBuiltLater() {
+        // given
+        config.setJar(new File(buildDirectory, "app-1.0.jar"));
+        config.setChdir("C:\\app");
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).startsWith("chdir: "));
+    }
+
+    @Test
+    public void shouldReportAllBrokenFiles() throws Exception {
+        // given
+        config.setIcon(write("fake.ico", "GIF89a".getBytes(StandardCharsets.US_ASCII)));
+        config.getSplash().setFile(write("fake.bmp", new byte[]{(byte) 0x89, 'P', 'N', 'G'}));
+        config.setManifest(write("broken.manifest", "<assembly>".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(3, problems.size());
+        assertTrue(problems.get(0), problems.get(0).startsWith("icon: "));
+        assertTrue(problems.get(1), problems.get(1).startsWith("splash.file: "));
+        assertTrue(problems.get(2), problems.get(2).startsWith("manifest: "));
+    }
+
+    @Test
+    public void shouldReportTruncatedIcon() throws Exception {
+        // given
+        byte[] icon = icon();
+        config.setIcon(write("truncated.ico", Arrays.copyOf(icon, icon.length - 1)));
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).contains("is truncated"));
+    }
+
+    @Test
+    public void shouldReportManifestWithWrongRootElement() throws Exception {
+        // given
+        config.setManifest(write("wrong.manifest", "<manifest/>".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        List<String> problems = validate();
+
+        // then
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0), problems.get(0).contains("must be <assembly>"));
+    }
+
+    private List<String> validate() {
+        return new ConfigurationValidator(log).validate(config, baseDir, buildDirectory);
+    }
+
+    private File write(String name, byte[] content) throws Exception {
+        File file = new File(baseDir, name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    /**
+     * A 1x1 icon with one image of 40 bytes.
+     */
+    private static byte[] icon() {
+        ByteBuffer ico = ByteBuffer.allocate(6 + 16 + 40).order(ByteOrder.LITTLE_ENDIAN);
+        ico.putShort((short) 0).putShort((short) 1).putShort((short) 1);
+        ico.put((byte) 1).put((byte) 1).put((byte) 0).put((byte) 0)
+                .putShort((short) 1).putShort((short) 32).putInt(40).putInt(22);
+        return ico.array();
+    }
+
+    private static byte[] bitmap() {
+        ByteBuffer bmp = ByteBuffer.allocate(58).order(ByteOrder.LITTLE_ENDIAN);
+        bmp.put((byte) 'B').put((byte) 'M').putInt(58).putInt(0).putInt(54).putInt(40).putInt(1).putInt(1);
+        return bmp.array();
+    }
+}
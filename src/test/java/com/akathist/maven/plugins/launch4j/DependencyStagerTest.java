@@ -0,0 +1,161 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DependencyStagerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    Log log;
+    @Mock
+    Artifact commons;
+    @Mock
+    Artifact guava;
+
+    private Path repository;
+    private Path lib;
+
+    @Before
+    public void createRepositoryAndTarget() throws Exception {
+        repository = temporaryFolder.newFolder("repository").toPath();
+        lib = temporaryFolder.getRoot().toPath().resolve("target").resolve("lib");
+
+        doReturn(jar("commons-lang3-3.12.0.jar", "commons")).when(commons).getFile();
+        doReturn(jar("guava-31.1.jar", "guava")).when(guava).getFile();
+    }
+
+    @Test
+    public void shouldStageAllDependencies() throws Exception {
+        // given
+        DependencyStager stager = new DependencyStager(log);
+
+        // when
+        stager.stage(lib, Arrays.asList(commons, guava));
+
+        // then
+        assertArrayEquals("commons".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(lib.resolve("commons-lang3-3.12.0.jar")));
+        assertArrayEquals("guava".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(lib.resolve("guava-31.1.jar")));
+        assertEquals(2, stager.linked + stager.copied);
+        assertEquals(Arrays.asList("commons-lang3-3.12.0.jar", "guava-31.1.jar"),
+                Files.readAllLines(lib.resolve(DependencyStager.STAGED_LIST)));
+    }
+
+    @Test
+    public void shouldSkipUnchangedDependencies() throws Exception {
+        // given
+        new DependencyStager(log).stage(lib, Arrays.asList(commons, guava));
+        DependencyStager stager = new DependencyStager(log);
+
+        // when
+        stager.stage(lib, Arrays.asList(commons, guava));
+
+        // then
+        assertEquals(2, stager.upToDate);
+        assertEquals(0, stager.linked + stager.copied);
+    }
+
+    @Test
+    public void shouldRemoveOnlyPreviouslyStagedDependencies() throws Exception {
+        // given
+        new DependencyStager(log).stage(lib, Arrays.asList(commons, guava));
+        Path foreign = Files.write(lib.resolve("foreign.jar"), "foreign".getBytes(StandardCharsets.UTF_8));
+        DependencyStager stager = new DependencyStager(log);
+
+        // when
+        stager.stage(lib, Collections.singletonList(commons));
+
+        // then
+        assertEquals(1, stager.removed);
+        assertFalse(Files.exists(lib.resolve("guava-31.1.jar")));
+        assertTrue(Files.exists(lib.resolve("commons-lang3-3.12.0.jar")));
+        assertTrue(Files.exists(foreign));
+    }
+
+    @Test
+    public void shouldStageTheSameDependenciesAsTheClassPath() {
+        // given
+        ClassPath classPath = new ClassPath();
+        classPath.jarLocation = "lib";
+        HashSet<Artifact> dependencies = new HashSet<>(Arrays.asList(commons, guava));
+
+        // when
+        net.sf.launch4j.config.ClassPath l4jClassPath = classPath.toL4j(dependencies);
+        File stagingDirectory = classPath.stagingDirectory(new File(temporaryFolder.getRoot(), "target/app.exe"));
+
+        // then
+        assertEquals(lib.toFile().getAbsoluteFile(), stagingDirectory);
+        for (Artifact dependency : classPath.selectDependencies(dependencies)) {
+            assertTrue(l4jClassPath.getPaths().contains("lib/" + dependency.getFile().getName()));
+        }
+    }
+
+    @Test
+    public void shouldRejectStagedDependencies_WithTheSameFileName() throws Exception {
+        // given
+        ClassPath classPath = new ClassPath();
+        classPath.stageDependencies = true;
+        Artifact fork = mock(Artifact.class);
+        Path forkJar = Files.createDirectories(repository.resolve("fork")).resolve("guava-31.1.jar");
+        doReturn(Files.write(forkJar, "fork".getBytes(StandardCharsets.UTF_8)).toFile()).when(fork).getFile();
+        doReturn("org.fork").when(fork).getGroupId();
+        HashSet<Artifact> dependencies = new HashSet<>(Arrays.asList(commons, guava, fork));
+
+        try {
+            // when
+            classPath.toL4j(dependencies);
+            fail("expected the duplicate file name to be rejected");
+        } catch (IllegalArgumentException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("same file name guava-31.1.jar"));
+        }
+        try {
+            new DependencyStager(log).stage(lib, Arrays.asList(guava, fork));
+            fail("expected the duplicate file name to be rejected");
+        } catch (MojoExecutionException e) {
+            assertFalse(Files.exists(lib.resolve("guava-31.1.jar")));
+        }
+    }
+
+    @Test
+    public void shouldAcceptDependencies_WithTheSameFileName_WhenNotStaged() throws Exception {
+        // given
+        ClassPath classPath = new ClassPath();
+        Artifact fork = mock(Artifact.class);
+        Path forkJar = Files.createDirectories(repository.resolve("fork")).resolve("guava-31.1.jar");
+        doReturn(Files.write(forkJar, "fork".getBytes(StandardCharsets.UTF_8)).toFile()).when(fork).getFile();
+        doReturn("org.fork").when(fork).getGroupId();
+        HashSet<Artifact> dependencies = new HashSet<>(Arrays.asList(commons, guava, fork));
+
+        // when
+        net.sf.launch4j.config.ClassPath l4jClassPath = classPath.toL4j(dependencies);
+
+        // then
+        assertEquals(3, l4jClassPath.getPaths().size());
+    }
+
+    private File jar(String name, String content) throws Exception {
+        return Files.write(repository.resolve(name), content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
@@ -0,0 +1,129 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ExecutableCompositionTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldBreakTheExecutableDown_IntoHeadersSectionsResourcesAndTheJar() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        byte[] jar = PeFixtures.jar("app/Main.class", "main");
+        ResourceTable resources = ResourceEditor.read(exe);
+        // the main class and the JVM options, which launch4j keeps as RCDATA next to the messages
+        resources.put(ResourceTable.RT_RCDATA, 15, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(ResourceStamp.rcdata("app.Main"), 0));
+        resources.put(ResourceTable.RT_RCDATA, 12, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(ResourceStamp.rcdata("-Xmx1g"), 0));
+        resources.put(ResourceTable.RT_RCDATA, ResourceStamp.STARTUP_ERR, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(ResourceStamp.rcdata("Cannot start"), 0));
+        ResourceEditor.write(exe, resources, exe);
+
+        // when
+        ExecutableComposition composition = ExecutableComposition.of(exe, 10);
+
+        // then
+        Map<String, Long> sizes = composition.sizes;
+        assertEquals(exe.length(), (long) sizes.get(ExecutableComposition.TOTAL));
+        assertEquals(PeFixtures.FILE_ALIGNMENT, (long) sizes.get(ExecutableComposition.HEADERS));
+        assertEquals(PeFixtures.FILE_ALIGNMENT, (long) sizes.get("section.text"));
+        assertEquals(jar.length, (long) sizes.get(ExecutableComposition.JAR));
+        assertEquals((long) sizes.get(ExecutableComposition.TOTAL), sizes.get(ExecutableComposition.HEADERS)
+                + sizes.get("section.text") + sizes.get("section.rsrc") + sizes.get(ExecutableComposition.JAR));
+        assertEquals(PeFixtures.versionInfo("App", "1.2.3.4").length, (long) sizes.get("resource.version"));
+        assertEquals(ResourceStamp.rcdata("App").length + ResourceStamp.rcdata("Cannot start").length,
+                (long) sizes.get("resource.messages"));
+        assertEquals(ResourceStamp.rcdata("app.Main").length + ResourceStamp.rcdata("-Xmx1g").length,
+                (long) sizes.get("resource.config"));
+        assertTrue(sizes.containsKey("entry.app/Main.class"));
+        assertFalse(sizes.containsKey(ExecutableComposition.SIGNATURE));
+    }
+
+    @Test
+    public void shouldReportTheChanges_SinceThePreviousReport() throws Exception {
+        // given
+        File report = new File(temporaryFolder.getRoot(), "app.exe.composition.properties");
+        ExecutableComposition.of(PeFixtures.launcher(temporaryFolder.newFile("old.exe"), "App", "1.2.3.4"), 10)
+                .write(report);
+        ResourceTable resources = new ResourceTable();
+        resources.put(ResourceTable.RT_VERSION, 1, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(PeFixtures.versionInfo("App", "1.2.3.4"), 0));
+        resources.put(ResourceTable.RT_ICON, 1, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(new byte[300], 0));
+        File exe = PeFixtures.write(temporaryFolder.newFile("app.exe"), resources, PeFixtures.jar("app/Main.class", "main"));
+
+        // when
+        ExecutableComposition previous = ExecutableComposition.read(report, 10);
+        List<String> lines = ExecutableComposition.of(exe, 10).describe(previous);
+
+        // then
+        assertTrue(lines.toString(), lines.stream().anyMatch(line -> line.matches("resource\\.icon +300 bytes  new")));
+        assertTrue(lines.toString(), lines.stream().anyMatch(line -> line.matches("resource\\.messages +0 bytes  -\\d+")));
+        assertTrue(lines.toString(), lines.stream().anyMatch(line -> line.matches("jar +[\\d,]+ bytes  \\+0")));
+    }
+
+    @Test
+    public void shouldListTheComponentsOverTheirBudget() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        CompositionReport report = new CompositionReport();
+        report.budgets = new LinkedHashMap<>();
+        report.budgets.put("total", "1KB");
+        report.budgets.put("jar", "1 MB");
+        report.budgets.put("resource.icon", "0");
+
+        // when
+        List<String> exceeded = ExecutableComposition.of(exe, 10).overBudget(report.parseBudgets());
+
+        // then
+        assertEquals(1, exceeded.size());
+        assertTrue(exceeded.get(0), exceeded.get(0).startsWith("total is " + String.format("%,d", exe.length())
+                + " bytes, over its budget of 1,024 bytes"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectBudgetsWhichAreNoSize() {
+        CompositionReport report = new CompositionReport();
+        report.budgets = Collections.singletonMap("total", "a lot");
+        report.parseBudgets();
+    }
+
+    @Test
+    public void shouldRejectBudgets_WhenTheyNameNoComponent() {
+        // given
+        CompositionReport report = new CompositionReport();
+        report.budgets = Collections.singletonMap("resource.icons", "200KB");
+
+        // when
+        try {
+            report.parseBudgets();
+            fail("A budget of no component was accepted");
+        } catch (IllegalArgumentException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().startsWith("There is no component resource.icons to budget"));
+        }
+    }
+
+    @Test
+    public void shouldAcceptBudgets_OfComponentsTheExecutableMayHave() {
+        assertTrue(ExecutableComposition.isComponent("section.rsrc"));
+        assertTrue(ExecutableComposition.isComponent("resource.type24"));
+        assertTrue(ExecutableComposition.isComponent("resource.PNG"));
+        assertTrue(ExecutableComposition.isComponent("entry.lib/report-engine.jar"));
+        assertFalse(ExecutableComposition.isComponent("jars"));
+        assertFalse(ExecutableComposition.isComponent("section."));
+    }
+}
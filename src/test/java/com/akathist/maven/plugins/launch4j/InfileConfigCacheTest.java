@@ -0,0 +1,219 @@
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.config.Config;
+import net.sf.launch4j.config.ConfigPersister;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InfileConfigCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final InfileConfigCache cache = new InfileConfigCache();
+
+    private File infile;
+
+    @Before
+    public void writeInfile() throws Exception {
+        infile = temporaryFolder.newFile("launch4j.xml");
+        write("1.0.0.0");
+    }
+
+    @Test
+    public void shouldParseOnce_AndHandOutCopies() throws Exception {
+        // given
+        Config first = cache.load(infile);
+        Config unrelated = new Config();
+        ConfigPersister.getInstance().setAntConfig(unrelated, temporaryFolder.getRoot());
+
+        // when
+        Config second = cache.load(infile);
+
+        // then
+        assertNotSame(first, second);
+        assertSame("the infile must not be parsed again", unrelated, ConfigPersister.getInstance().getConfig());
+        assertEquals(Fingerprint.of(first, temporaryFolder.getRoot(), temporaryFolder.getRoot(), OutputTimestamp.parse(null)),
+                Fingerprint.of(second, temporaryFolder.getRoot(), temporaryFolder.getRoot(), OutputTimestamp.parse(null)));
+        assertEquals(first.getOutfile(), second.getOutfile());
+    }
+
+    @Test
+    public void shouldNotLeakOverridesOfOneModule_IntoAnother() throws Exception {
+        // given
+        Config first = cache.load(infile);
+        first.setJar(new File("module-a.jar"));
+        first.getVersionInfo().setFileVersion("2.0.0.0");
+        first.getClassPath().getPaths().add("extra.jar");
+
+        // when
+        Config second = cache.load(infile);
+        second.setOutfile(new File("module-b.exe"));
+        Config third = cache.load(infile);
+
+        // then
+        assertEquals(new File("app.jar"), second.getJar());
+        assertEquals("1.0.0.0", second.getVersionInfo().getFileVersion());
+        assertEquals(1, second.getClassPath().getPaths().size());
+        assertEquals(new File("app.exe"), third.getOutfile());
+    }
+
+    @Test
+    public void shouldParseAgain_WhenInfileChanges() throws Exception {
+        // given
+        cache.load(infile);
+
+        // when
+        write("3.0.0.0");
+        Config reloaded = cache.load(infile);
+
+        // then
+        assertEquals("3.0.0.0", reloaded.getVersionInfo().getFileVersion());
+    }
+
+    @Test
+    public void shouldCopyEveryProperty_OfTheLaunch4jConfiguration() throws Exception {
+        // given
+        Config source = new Config();
+        fill(source);
+
+        // when
+        Config copy = InfileConfigCache.copyOf(source);
+
+        // then
+        assertCopied("config", source, copy);
+    }
+
+    private int counter;
+
+    /**
+     * Sets every property of a launch4j configuration bean to a value of its own, the nested beans included.
+     * A property with an index counterpart, like headerType and headerTypeIndex, is set through the index.
+     */
+    private void fill(Object bean) throws Exception {
+        for (PropertyDescriptor property : properties(bean.getClass())) {
+            Method setter = property.getWriteMethod();
+            Class<?> type = property.getPropertyType();
+            if (hasIndex(bean.getClass(), property)) {
+                continue;
+            }
+            Object value;
+            if (property.getName().endsWith("Index")) {
+                value = 1;
+            } else if (type == String.class) {
+                value = property.getName() + "-" + ++counter;
+            } else if (type == int.class || type == Integer.class) {
+                value = ++counter;
+            } else if (type == boolean.class || type == Boolean.class) {
+                value = !Boolean.TRUE.equals(property.getReadMethod().invoke(bean));
+            } else if (type == File.class) {
+                value = new File(property.getName() + "-" + ++counter);
+            } else if (type == List.class) {
+                value = new ArrayList<>(Arrays.asList(property.getName() + "-" + ++counter, property.getName() + "-" + ++counter));
+            } else if (type.isEnum()) {
+                Object[] constants = type.getEnumConstants();
+                value = constants[constants.length - 1];
+            } else if (type.getPackage() == Config.class.getPackage()) {
+                value = type.getConstructor().newInstance();
+                fill(value);
+            } else {
+                throw new AssertionError("Don't know how to fill " + bean.getClass().getSimpleName() + "." + property.getName()
+                        + " of " + type + ", teach this test and InfileConfigCache.copyOf");
+            }
+            setter.invoke(bean, value);
+        }
+    }
+
+    private static void assertCopied(String path, Object source, Object copy) throws Exception {
+        assertNotNull(path + " is not copied", copy);
+        assertNotSame(path + " is shared with the cached configuration", source, copy);
+        for (PropertyDescriptor property : properties(source.getClass())) {
+            String name = path + "." + property.getName();
+            Object expected = property.getReadMethod().invoke(source);
+            Object actual = property.getReadMethod().invoke(copy);
+            if (expected != null && expected.getClass().getPackage() == Config.class.getPackage() && !expected.getClass().isEnum()) {
+                assertCopied(name, expected, actual);
+            } else {
+                assertEquals(name + " is not copied", expected, actual);
+                if (expected instanceof List) {
+                    assertNotSame(name + " is shared with the cached configuration", expected, actual);
+                }
+            }
+        }
+    }
+
+    /**
+     * The properties with both a getter and a setter.
+     */
+    private static List<PropertyDescriptor> properties(Class<?> type) throws Exception {
+        List<PropertyDescriptor> properties = new ArrayList<>();
+        for (PropertyDescriptor property : Introspector.getBeanInfo(type, Object.class).getPropertyDescriptors()) {
+            if (property.getReadMethod() != null && property.getWriteMethod() != null) {
+                properties.add(property);
+            }
+        }
+        return properties;
+    }
+
+    private static boolean hasIndex(Class<?> type, PropertyDescriptor property) throws Exception {
+        for (PropertyDescriptor other : properties(type)) {
+            if (other.getName().equals(property.getName() + "Index")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(String fileVersion) throws Exception {
+        String xml = "<launch4jConfig>\n" +
+                "  <dontWrapJar>false</dontWrapJar>\n" +
+                "  <headerType>console</headerType>\n" +
+                "  <jar>app.jar</jar>\n" +
+                "  <outfile>app.exe</outfile>\n" +
+                "  <errTitle>App</errTitle>\n" +
+                "  <priority>high</priority>\n" +
+                "  <stayAlive>true</stayAlive>\n" +
+                "  <var>APP_HOME=%EXEDIR%</var>\n" +
+                "  <classPath>\n" +
+                "    <mainClass>com.example.App</mainClass>\n" +
+                "    <cp>lib/one.jar</cp>\n" +
+                "  </classPath>\n" +
+                "  <jre>\n" +
+                "    <path>%JAVA_HOME%</path>\n" +
+                "    <minVersion>1.8</minVersion>\n" +
+                "    <maxHeapPercent>50</maxHeapPercent>\n" +
+                "    <opt>-Dapp=1</opt>\n" +
+                "  </jre>\n" +
+                "  <versionInfo>\n" +
+                "    <fileVersion>" + fileVersion + "</fileVersion>\n" +
+                "    <txtFileVersion>" + fileVersion + "</txtFileVersion>\n" +
+                "    <fileDescription>App</fileDescription>\n" +
+                "    <copyright>Nobody</copyright>\n" +
+                "    <productVersion>1.0.0.0</productVersion>\n" +
+                "    <txtProductVersion>1.0</txtProductVersion>\n" +
+                "    <productName>App</productName>\n" +
+                "    <internalName>app</internalName>\n" +
+                "    <originalFilename>app.exe</originalFilename>\n" +
+                "    <language>ENGLISH_US</language>\n" +
+                "  </versionInfo>\n" +
+                "  <messages>\n" +
+                "    <startupErr>Oops</startupErr>\n" +
+                "  </messages>\n" +
+                "</launch4jConfig>\n";
+        Files.write(infile.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,10 +1,48 @@
 package com.akathist.maven.plugins.launch4j;
 
+import net.sf.launch4j.config.ConfigPersister;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.RepositorySystem;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.repository.LocalRepository;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Launch4jMojoTest extends AbstractMojoTestCase {
+
+    private final List<File> temporaryDirectories = new ArrayList<>();
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File directory : temporaryDirectories) {
+            try (Stream<Path> files = Files.walk(directory.toPath())) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+        super.tearDown();
+    }
+
     public void testPrintOutFulfilledConfiguration() throws Exception {
         File testPom = new File(getBasedir(), "src/test/resources/unit/launch4j-config/launch4j-full-plugin-config.xml");
 
@@ -47,7 +85,8 @@ public class Launch4jMojoTest extends AbstractMojoTestCase {
                 "addDependencies=true, " +
                 "jarLocation='null', " +
                 "preCp='anything', " +
-                "postCp='null'" +
+                "postCp='null', " +
+                "stageDependencies=false" +
                 "}, " +
                 "singleInstance=null, " +
                 "splash=null, " +
@@ -63,7 +102,8 @@ public class Launch4jMojoTest extends AbstractMojoTestCase {
                 "internalName='app', " +
                 "originalFilename='app.exe', " +
                 "language='ENGLISH_US', " +
-                "trademarks='Luk ™'" +
+                "trademarks='Luk ™', " +
+                "buildNumberAsFourthLevel=false" +
                 "}, " +
                 "disableVersionInfoDefaults=true, " +
                 "messages=Messages{" +
@@ -74,10 +114,233 @@ public class Launch4jMojoTest extends AbstractMojoTestCase {
                 "jreNotFoundErr='null'" +
                 "}, " +
                 "manifest=null, " +
+                "windowsManifest=null, " +
+                "brandingMatrix=null, " +
+                "deltaPatch=null, " +
+                "signing=null, " +
+                "compositionReport=null, " +
+                "startupDiagnostics=null, " +
+                "startupProfile=null, " +
                 "saveConfig=false, " +
                 "configOutfile=null, " +
                 "parallelExecution=false, " +
-                "skip=false" +
+                "maxConcurrentBuilds=1, " +
+                "buildLockDirectory=null, " +
+                "buildTimeout=600000, " +
+                "phaseTimeout=300000, " +
+                "logLevel='info', " +
+                "buildWorkers=0, " +
+                "skip=false, " +
+                "buildCache=null, " +
+                "outputTimestamp='null'" +
                 "}", mojo.toString());
     }
-}
\ No newline at end of file
+
+    public void testValidateGoalTakesTheSameConfiguration() throws Exception {
+        File testPom = new File(getBasedir(), "src/test/resources/unit/launch4j-config/launch4j-full-plugin-config.xml");
+
+        Launch4jMojo launch4j = (Launch4jMojo) lookupMojo("launch4j", testPom);
+        Launch4jMojo validate = (Launch4jMojo) lookupMojo("validate", testPom);
+
+        assertTrue(validate instanceof Launch4jValidateMojo);
+        assertEquals(launch4j.toString(), validate.toString());
+    }
+
+    public void testRepeatedExecutionsKeepNoState() throws Exception {
+        if (System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win")) {
+            return;
+        }
+        File testPom = new File(getBasedir(), "src/test/resources/unit/launch4j-config/launch4j-full-plugin-config.xml");
+        File projectDir = createTempDirectory("launch4j-repeated");
+        File jar = new File(projectDir, "target/app.jar");
+        assertTrue(jar.getParentFile().mkdirs());
+        Files.write(jar.toPath(), new byte[0]);
+        MavenSession session = newMavenSession(project(projectDir, "1.0"));
+        DefaultRepositorySystemSession repositorySession = (DefaultRepositorySystemSession) session.getRepositorySession();
+        repositorySession.setLocalRepositoryManager(lookup(org.eclipse.aether.RepositorySystem.class)
+                .newLocalRepositoryManager(repositorySession, new LocalRepository(createTempDirectory("launch4j-repository"))));
+        List<Artifact> pluginArtifacts = pluginArtifacts();
+        prewarmWorkDir(session, fakeWorkDir(createTempDirectory("launch4j-workdir")));
+
+        List<WeakReference<Object>> earlier = new ArrayList<>();
+        long heapAfterWarmUp = 0;
+        for (int i = 0; i < 1000; i++) {
+            Launch4jMojo mojo = (Launch4jMojo) lookupMojo("launch4j", testPom);
+            setVariableValueToObject(mojo, "session", session);
+            setVariableValueToObject(mojo, "project", project(projectDir, "1." + i));
+            setVariableValueToObject(mojo, "pluginArtifacts", pluginArtifacts);
+            setVariableValueToObject(mojo, "basedir", projectDir);
+            setVariableValueToObject(mojo, "jar", jar.getPath());
+            File outfile = new File(projectDir, "target/app" + i + ".exe");
+            setVariableValueToObject(mojo, "outfile", outfile);
+            // every other execution fills out the version info with the project's values and builds on a worker
+            setVariableValueToObject(mojo, "disableVersionInfoDefaults", i % 2 == 0);
+            setVariableValueToObject(mojo, "buildWorkers", i % 2);
+            String parameters = mojo.toString();
+
+            mojo.execute();
+
+            assertTrue(outfile + " is missing", outfile.isFile());
+            assertEquals(parameters, mojo.toString());
+            assertNull(ConfigPersister.getInstance().getConfigPath());
+            assertNull(ConfigPersister.getInstance().getConfig().getOutfile());
+            if (i % 100 == 0) {
+                earlier.add(new WeakReference<>(mojo));
+            }
+            if (i == 100) {
+                heapAfterWarmUp = usedHeapAfterGc();
+            }
+        }
+        long heapGrowth = usedHeapAfterGc() - heapAfterWarmUp;
+
+        assertTrue("no build ran on a worker", new File(projectDir, "target/launch4j/worker-request-default.xml").isFile());
+        for (WeakReference<Object> mojo : earlier) {
+            assertNull("an earlier execution is still reachable", mojo.get());
+        }
+        assertTrue("heap grew by " + heapGrowth + " bytes", heapGrowth < 16 * 1024 * 1024);
+    }
+
+    public void testRestampRewritesNothingButTheResources() throws Exception {
+        File testPom = new File(getBasedir(), "src/test/resources/unit/launch4j-config/launch4j-full-plugin-config.xml");
+        File projectDir = createTempDirectory("launch4j-restamp");
+        File exe = new File(projectDir, "target/app.exe");
+        assertTrue(exe.getParentFile().mkdirs());
+        PeFixtures.launcher(exe, "App", "1.0.0.0");
+        byte[] before = Files.readAllBytes(exe.toPath());
+
+        Launch4jMojo mojo = (Launch4jMojo) lookupMojo("restamp", testPom);
+        setVariableValueToObject(mojo, "project", project(projectDir, "2.1.0"));
+        setVariableValueToObject(mojo, "basedir", projectDir);
+        setVariableValueToObject(mojo, "outfile", new File("target/app.exe"));
+        setVariableValueToObject(mojo, "versionInfo", new VersionInfo("2.1.0.0", "2.1.0", "Launch4j Demo App",
+                "Copyright 2020-2026 Lukasz Lenart", "2.1.0.0", "2.1.0 (release)", "App", "Lukasz Lenart", "app",
+                "app.exe", "ENGLISH_US", null, null));
+
+        mojo.execute();
+
+        VersionResource version = VersionResource.parse(ResourceEditor.read(exe).get(ResourceTable.RT_VERSION, 1).data);
+        assertEquals("2.1.0.0", version.getFileVersion());
+        assertEquals("2.1.0.0", version.getProductVersion());
+        assertEquals("2.1.0 (release)", version.getString("ProductVersion"));
+        assertEquals("Copyright 2020-2026 Lukasz Lenart", version.getString("LegalCopyright"));
+        assertEquals("Lukasz Lenart", version.getString("CompanyName"));
+
+        byte[] after = Files.readAllBytes(exe.toPath());
+        assertOnlyResourcesChanged(before, after);
+    }
+
+    /**
+     * Compares two executables with the PE parser: everything before the resource section but the fields
+     * describing its size, and everything after it, must be the same.
+     */
+    private void assertOnlyResourcesChanged(byte[] before, byte[] after) throws Exception {
+        File projectDir = createTempDirectory("launch4j-compare");
+        File beforeFile = new File(projectDir, "before.exe");
+        File afterFile = new File(projectDir, "after.exe");
+        Files.write(beforeFile.toPath(), before);
+        Files.write(afterFile.toPath(), after);
+        PeExecutable original = PeExecutable.read(beforeFile);
+        PeExecutable restamped = PeExecutable.read(afterFile);
+        PeExecutable.Section originalResources = original.resourceSection();
+        PeExecutable.Section restampedResources = restamped.resourceSection();
+
+        assertEquals(original.sections.size(), restamped.sections.size());
+        assertEquals(originalResources.rawPointer, restampedResources.rawPointer);
+        assertEquals(originalResources.virtualAddress, restampedResources.virtualAddress);
+        for (int i = 0; i < original.sections.size(); i++) {
+            if (original.sections.get(i) != originalResources) {
+                assertEquals(original.sections.get(i).toString(), restamped.sections.get(i).toString());
+            }
+        }
+
+        byte[] originalHeaders = Arrays.copyOf(before, (int) originalResources.rawPointer);
+        byte[] restampedHeaders = Arrays.copyOf(after, (int) restampedResources.rawPointer);
+        for (long position : new long[]{originalResources.headerOffset + 8, originalResources.headerOffset + 16,
+                original.dataDirectoryPosition(PeExecutable.RESOURCE_DIRECTORY) + 4, original.optionalHeaderOffset + 8,
+                original.optionalHeaderOffset + 56, original.checksumPosition}) {
+            for (int i = 0; i < 4; i++) {
+                originalHeaders[(int) position + i] = 0;
+                restampedHeaders[(int) position + i] = 0;
+            }
+        }
+        assertTrue("the headers or the code changed", Arrays.equals(originalHeaders, restampedHeaders));
+
+        byte[] originalJar = Arrays.copyOfRange(before, (int) original.overlayOffset, before.length);
+        byte[] restampedJar = Arrays.copyOfRange(after, (int) restamped.overlayOffset, after.length);
+        assertTrue("the jar changed", Arrays.equals(originalJar, restampedJar));
+    }
+
+    private static MavenProject project(File projectDir, String version) {
+        Model model = new Model();
+        model.setGroupId("com.akathist.maven.plugins.launch4j.unit");
+        model.setArtifactId("repeated");
+        model.setVersion(version);
+        Build build = new Build();
+        build.setDirectory(new File(projectDir, "target").getPath());
+        build.setFinalName("app");
+        model.setBuild(build);
+        MavenProject project = new MavenProject(model);
+        project.setFile(new File(projectDir, "pom.xml"));
+        return project;
+    }
+
+    private File createTempDirectory(String prefix) throws IOException {
+        File directory = Files.createTempDirectory(prefix).toFile();
+        temporaryDirectories.add(directory);
+        return directory;
+    }
+
+    /**
+     * A work directory whose windres and ld write an empty object and an executable of two bytes.
+     */
+    private static File fakeWorkDir(File workDir) throws IOException {
+        File bin = new File(workDir, "bin");
+        assertTrue(bin.mkdirs());
+        script(new File(bin, "windres"), "for last; do :; done\nprintf '' > \"$last\"\n");
+        script(new File(bin, "ld"), "while [ $# -gt 0 ]; do\n"
+                + "  if [ \"$1\" = -o ]; then printf MZ > \"$2\"; fi\n"
+                + "  shift\n"
+                + "done\n");
+        return workDir;
+    }
+
+    private static void script(File file, String body) throws IOException {
+        Files.write(file.toPath(), ("#!/bin/sh\n" + body).getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setExecutable(true));
+    }
+
+    /**
+     * Hands the work directory over as if it had been pre-warmed, so the executions do not resolve the real one.
+     */
+    private void prewarmWorkDir(MavenSession session, File workDir) throws Exception {
+        WorkDirResolver workDirs = new WorkDirResolver(lookup(RepositorySystem.class), null, new SystemStreamLog());
+        Artifact binaryBits = workDirs.chooseBinaryBits(WorkDirPrewarmer.bundledLaunch4jVersion());
+        SessionScoped.set(session, WorkDirPrewarmer.key(binaryBits), CompletableFuture.completedFuture(workDir));
+    }
+
+    /**
+     * Launch4j's core, which gives the version of the work directory, and the classpath of this test,
+     * which build workers are started with.
+     */
+    private List<Artifact> pluginArtifacts() throws Exception {
+        RepositorySystem repositorySystem = lookup(RepositorySystem.class);
+        List<Artifact> artifacts = new ArrayList<>();
+        artifacts.add(repositorySystem.createArtifactWithClassifier(Launch4jMojo.LAUNCH4J_GROUP_ID,
+                Launch4jMojo.LAUNCH4J_ARTIFACT_ID, WorkDirPrewarmer.bundledLaunch4jVersion(), "jar", "core"));
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Artifact artifact = repositorySystem.createArtifact("test", "classpath" + artifacts.size(), "1.0", "jar");
+            artifact.setFile(new File(entry));
+            artifacts.add(artifact);
+        }
+        return artifacts;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,96 @@
+package com.akathist.maven.plugins.launch4j;
+
+import net.sf.launch4j.Messages;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MavenLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Log log;
+
+    @Test
+    public void shouldLogNothing_UntilFlushed_AndThenOneBlock() throws Exception {
+        // given
+        File logFile = new File(temporaryFolder.getRoot(), "target/launch4j.log");
+        MavenLog launch4jLog = new MavenLog(log, "app:default", MavenLog.Level.INFO);
+
+        // when
+        launch4jLog.clear();
+        launch4jLog.append(Messages.getString("Builder.compiling.resources"));
+        launch4jLog.append("Generated resource file...\n");
+        launch4jLog.append(Messages.getString("Builder.linking"));
+
+        // then
+        verify(log, never()).info(anyString());
+
+        // when
+        launch4jLog.flush(false, logFile, true);
+
+        // then
+        ArgumentCaptor<String> block = ArgumentCaptor.forClass(String.class);
+        verify(log).info(block.capture());
+        assertEquals("launch4j (app:default): Compiling resources" + System.lineSeparator()
+                + "launch4j (app:default): Linking", block.getValue());
+        verify(log, never()).debug(anyString());
+
+        List<String> written = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("--- app:default ---", written.get(0));
+        assertTrue(written.contains("[DEBUG] Generated resource file..."));
+    }
+
+    @Test
+    public void shouldShowWarnings_AndAppendToTheLogFile() throws Exception {
+        // given
+        File logFile = temporaryFolder.newFile("launch4j.log");
+        Files.write(logFile.toPath(), "--- earlier execution ---\n".getBytes(StandardCharsets.UTF_8));
+        MavenLog launch4jLog = new MavenLog(log, "app:gui", MavenLog.Level.WARN);
+
+        // when
+        launch4jLog.append(Messages.getString("Builder.wrapping"));
+        launch4jLog.flush(false, logFile, false);
+
+        // then
+        verify(log).warn(startsWith("launch4j (app:gui): WARNING: Sign the executable"));
+        verify(log, never()).info(anyString());
+        assertEquals("--- earlier execution ---", Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8).get(0));
+    }
+
+    @Test
+    public void shouldShowTheToolOutput_WhenTheBuildFailed() {
+        // given
+        MavenLog launch4jLog = new MavenLog(log, "app:default", MavenLog.Level.OFF);
+
+        // when
+        launch4jLog.append(Messages.getString("Builder.linking"));
+        launch4jLog.append("crt2.o: undefined reference to `signal'");
+        launch4jLog.flush(true, null, true);
+
+        // then
+        verify(log).info("launch4j (app:default): Linking" + System.lineSeparator()
+                + "launch4j (app:default): crt2.o: undefined reference to `signal'");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownLevels() {
+        MavenLog.Level.parse("verbose");
+    }
+}
@@ -0,0 +1,99 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class NativeBuildLimiterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldLetTheNextBuildStart_OnlyWhenAPermitIsReleased() throws Exception {
+        // given
+        NativeBuildLimiter.Permit first = NativeBuildLimiter.acquire(2, null, new SystemStreamLog());
+        NativeBuildLimiter.Permit second = NativeBuildLimiter.acquire(2, null, new SystemStreamLog());
+
+        // when
+        Future<NativeBuildLimiter.Permit> third = executor.submit(() -> NativeBuildLimiter.acquire(2, null, new SystemStreamLog()));
+
+        // then
+        assertBlocked(third);
+        first.close();
+        third.get(5, TimeUnit.SECONDS).close();
+        second.close();
+    }
+
+    @Test
+    public void shouldHoldEveryBuildToTheSmallestLimit_WhenTheirLimitsDiffer() throws Exception {
+        // given
+        NativeBuildLimiter.Permit first = NativeBuildLimiter.acquire(3, null, new SystemStreamLog());
+        NativeBuildLimiter.Permit second = NativeBuildLimiter.acquire(3, null, new SystemStreamLog());
+
+        // when
+        Future<NativeBuildLimiter.Permit> strict = executor.submit(() -> NativeBuildLimiter.acquire(2, null, new SystemStreamLog()));
+        assertBlocked(strict);
+        Future<NativeBuildLimiter.Permit> third = executor.submit(() -> NativeBuildLimiter.acquire(3, null, new SystemStreamLog()));
+
+        // then
+        assertBlocked(third);
+        first.close();
+        second.close();
+        strict.get(5, TimeUnit.SECONDS).close();
+        third.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void shouldWaitForASlot_HeldByAnotherProcess() throws Exception {
+        // given
+        File lockDirectory = temporaryFolder.newFolder("locks");
+        FileChannel channel = new RandomAccessFile(new File(lockDirectory, "build-slot-0.lock"), "rw").getChannel();
+        FileLock otherProcess = channel.lock();
+
+        // when
+        Future<NativeBuildLimiter.Permit> permit = executor.submit(() -> NativeBuildLimiter.acquire(1, lockDirectory, new SystemStreamLog()));
+
+        // then
+        assertBlocked(permit);
+        otherProcess.release();
+        channel.close();
+        permit.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void shouldFail_WhenNoBuildIsAllowed() throws Exception {
+        NativeBuildLimiter.acquire(0, null, new SystemStreamLog());
+    }
+
+    private static void assertBlocked(Future<?> future) throws Exception {
+        try {
+            future.get(300, TimeUnit.MILLISECONDS);
+            fail("expected to wait for a permit");
+        } catch (TimeoutException expected) {
+            // still waiting
+        }
+    }
+}
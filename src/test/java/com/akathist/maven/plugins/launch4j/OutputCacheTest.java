@@ -0,0 +1,173 @@
+package com.akathist.maven.plugins.launch4j;
+
+import com.sun.net.httpserver.HttpServer;
+import net.sf.launch4j.config.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+public class OutputCacheTest {
+    private static final String FINGERPRINT = "0123456789abcdef";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final Map<String, byte[]> serverContent = new ConcurrentHashMap<>();
+
+    private File exe;
+    private File config;
+
+    @Before
+    public void startStandInServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/cache", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] requestBody = readAll(exchange.getRequestBody());
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                serverContent.put(path, requestBody);
+                exchange.sendResponseHeaders(201, -1);
+            } else if (serverContent.containsKey(path)) {
+                byte[] body = serverContent.get(path);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        exe = temporaryFolder.newFile("app.exe");
+        Files.write(exe.toPath(), "MZ launcher".getBytes(StandardCharsets.UTF_8));
+        config = temporaryFolder.newFile("launch4j-config.xml");
+        Files.write(config.toPath(), "<launch4jConfig/>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void stopStandInServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldMissAndThenHit_InLocalDirectory() throws Exception {
+        // given
+        OutputCache cache = new LocalOutputCache(temporaryFolder.newFolder("cache"));
+        File fetched = new File(temporaryFolder.getRoot(), "other/app.exe");
+
+        // expect
+        assertFalse(cache.fetch(FINGERPRINT, fetched));
+        cache.store(FINGERPRINT, exe, config);
+        assertTrue(cache.fetch(FINGERPRINT, fetched));
+        assertArrayEquals(Files.readAllBytes(exe.toPath()), Files.readAllBytes(fetched.toPath()));
+        assertTrue(new File(temporaryFolder.getRoot(), "cache/" + FINGERPRINT + "/" + OutputCache.CONFIG).isFile());
+    }
+
+    @Test
+    public void shouldMissAndThenHit_OnHttpServer() throws Exception {
+        // given
+        OutputCache cache = new HttpOutputCache("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/cache/", 5000);
+        File fetched = new File(temporaryFolder.getRoot(), "other/app.exe");
+
+        // expect
+        assertFalse(cache.fetch(FINGERPRINT, fetched));
+        cache.store(FINGERPRINT, exe, config);
+        assertTrue(cache.fetch(FINGERPRINT, fetched));
+        assertArrayEquals(Files.readAllBytes(exe.toPath()), Files.readAllBytes(fetched.toPath()));
+        assertTrue(serverContent.containsKey("/cache/" + FINGERPRINT + "/" + OutputCache.CONFIG));
+    }
+
+    @Test
+    public void shouldComputeTheSameFingerprint_ForTheSameInputs_InAnotherLocation() throws Exception {
+        // given
+        File workDir = temporaryFolder.newFolder("launch4j-3.50-workdir-linux64");
+        File icon = temporaryFolder.newFile("app.ico");
+        Files.write(icon.toPath(), new byte[]{0, 0, 1, 0});
+
+        Config first = config(icon, "target/app.exe");
+        Config second = config(icon, "elsewhere/app.exe");
+
+        // expect
+        assertEquals(Fingerprint.of(first, temporaryFolder.getRoot(), workDir, OutputTimestamp.parse("1673863200")),
+                Fingerprint.of(second, temporaryFolder.getRoot(), workDir, OutputTimestamp.parse("1673863200")));
+    }
+
+    @Test
+    public void shouldComputeAnotherFingerprint_WhenAnInputFileChanges() throws Exception {
+        // given
+        File workDir = temporaryFolder.newFolder("launch4j-3.50-workdir-linux64");
+        File icon = temporaryFolder.newFile("app.ico");
+        Files.write(icon.toPath(), new byte[]{0, 0, 1, 0});
+        Config config = config(icon, "target/app.exe");
+        String before = Fingerprint.of(config, temporaryFolder.getRoot(), workDir, OutputTimestamp.parse(null));
+
+        // when
+        Files.write(icon.toPath(), new byte[]{0, 0, 1, 0, 1});
+
+        // then
+        assertNotEquals(before, Fingerprint.of(config, temporaryFolder.getRoot(), workDir, OutputTimestamp.parse(null)));
+    }
+
+    @Test
+    public void shouldComputeAnotherFingerprint_WithAnotherPluginVersion() throws Exception {
+        // given
+        File workDir = temporaryFolder.newFolder("launch4j-3.50-workdir-linux64");
+        File icon = temporaryFolder.newFile("app.ico");
+        Files.write(icon.toPath(), new byte[]{0, 0, 1, 0});
+        Config config = config(icon, "target/app.exe");
+        File pluginJar = temporaryFolder.newFolder("plugin");
+        File pomProperties = new File(pluginJar, Fingerprint.POM_PROPERTIES);
+        Files.createDirectories(pomProperties.getParentFile().toPath());
+        Files.write(pomProperties.toPath(), "version=2.4.0\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        // when
+        String pluginVersion;
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{pluginJar.toURI().toURL()}, null)) {
+            pluginVersion = Fingerprint.readPluginVersion(loader);
+        }
+
+        // then
+        assertEquals("2.4.0", pluginVersion);
+        assertNotEquals(
+                Fingerprint.of(config, temporaryFolder.getRoot(), workDir, OutputTimestamp.parse(null), new FileDigests(), "2.3.1"),
+                Fingerprint.of(config, temporaryFolder.getRoot(), workDir, OutputTimestamp.parse(null), new FileDigests(), pluginVersion));
+    }
+
+    private Config config(File icon, String outfile) {
+        Config config = new Config();
+        config.setHeaderType("gui");
+        config.setOutfile(new File(outfile));
+        config.setJar(new File("app.jar"));
+        config.setIcon(icon);
+        return config;
+    }
+
+    private static byte[] readAll(InputStream in) throws java.io.IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
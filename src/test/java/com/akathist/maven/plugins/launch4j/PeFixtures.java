@@ -0,0 +1,191 @@
+package com.akathist.maven.plugins.launch4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes small executables laid out the way launch4j's linker lays them out: the headers, a code section,
+ * the resource section last and a jar appended after it.
+ */
+class PeFixtures {
+
+    static final int FILE_ALIGNMENT = 0x200;
+    static final int SECTION_ALIGNMENT = 0x1000;
+    static final int TEXT_ADDRESS = 0x1000;
+    static final int RESOURCE_ADDRESS = 0x2000;
+    static final byte[] CODE = "pretend this is the launcher's code".getBytes(StandardCharsets.US_ASCII);
+
+    private PeFixtures() {
+    }
+
+    /**
+     * An executable with version information, errTitle and a jar holding one entry.
+     */
+    static File launcher(File exe, String productName, String fileVersion) throws IOException {
+        ResourceTable resources = new ResourceTable();
+        resources.put(ResourceTable.RT_VERSION, 1, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(versionInfo(productName, fileVersion), 0));
+        resources.put(ResourceTable.RT_RCDATA, ResourceStamp.ERR_TITLE, ResourceTable.DEFAULT_LANGUAGE,
+                new ResourceTable.Entry(ResourceStamp.rcdata("App"), 0));
+        return write(exe, resources, jar("app/Main.class", "main"));
+    }
+
+    static File write(File exe, ResourceTable resources, byte[] overlay) throws IOException {
+        byte[] rsrc = resources.toBytes(RESOURCE_ADDRESS);
+        int rsrcRaw = align(rsrc.length, FILE_ALIGNMENT);
+        ByteBuffer image = ByteBuffer.allocate(3 * FILE_ALIGNMENT + rsrcRaw).order(ByteOrder.LITTLE_ENDIAN);
+
+        image.putShort(0, (short) 0x5A4D);
+        image.putInt(0x3C, 0x40);
+        image.putInt(0x40, 0x00004550);
+        image.putShort(0x44, (short) 0x14C);
+        image.putShort(0x46, (short) 2);
+        image.putShort(0x54, (short) 224);
+        image.putShort(0x56, (short) 0x102);
+
+        int optional = 0x58;
+        image.putShort(optional, (short) 0x10B);
+        image.putInt(optional + 4, FILE_ALIGNMENT);
+        image.putInt(optional + 8, rsrcRaw);
+        image.putInt(optional + 16, TEXT_ADDRESS);
+        image.putInt(optional + 28, 0x400000);
+        image.putInt(optional + 32, SECTION_ALIGNMENT);
+        image.putInt(optional + 36, FILE_ALIGNMENT);
+        image.putInt(optional + 56, align(RESOURCE_ADDRESS + rsrc.length, SECTION_ALIGNMENT));
+        image.putInt(optional + 60, FILE_ALIGNMENT);
+        image.putShort(optional + 68, (short) 3);
+        image.putInt(optional + 92, 16);
+        image.putInt(optional + 96 + 2 * 8, RESOURCE_ADDRESS);
+        image.putInt(optional + 96 + 2 * 8 + 4, rsrc.length);
+
+        int sections = optional + 224;
+        section(image, sections, ".text", CODE.length, TEXT_ADDRESS, FILE_ALIGNMENT, FILE_ALIGNMENT);
+        section(image, sections + 40, ".rsrc", rsrc.length, RESOURCE_ADDRESS, rsrcRaw, 2 * FILE_ALIGNMENT);
+
+        image.position(FILE_ALIGNMENT);
+        image.put(CODE);
+        image.position(2 * FILE_ALIGNMENT);
+        image.put(rsrc);
+
+        byte[] bytes = new byte[2 * FILE_ALIGNMENT + rsrcRaw];
+        image.position(0);
+        image.get(bytes);
+        try (OutputStream out = Files.newOutputStream(exe.toPath())) {
+            out.write(bytes);
+            out.write(overlay);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(exe, "rw")) {
+            long checksum = ReproducibleExecutable.checksum(file, optional + 64);
+            file.seek(optional + 64);
+            file.writeInt(Integer.reverseBytes((int) checksum));
+        }
+        return exe;
+    }
+
+    private static void section(ByteBuffer image, int offset, String name, int virtualSize, int address,
+                                int rawSize, int rawPointer) {
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length; i++) {
+            image.put(offset + i, bytes[i]);
+        }
+        image.putInt(offset + 8, virtualSize);
+        image.putInt(offset + 12, address);
+        image.putInt(offset + 16, rawSize);
+        image.putInt(offset + 20, rawPointer);
+    }
+
+    /**
+     * An .ico file holding one image of each of the given sizes, filled with the size.
+     */
+    static byte[] icon(int... imageSizes) {
+        int offset = 6 + 16 * imageSizes.length;
+        ByteBuffer ico = ByteBuffer.allocate(offset + Arrays.stream(imageSizes).sum()).order(ByteOrder.LITTLE_ENDIAN);
+        ico.putShort((short) 0).putShort((short) 1).putShort((short) imageSizes.length);
+        for (int size : imageSizes) {
+            ico.put((byte) 32).put((byte) 32).put((byte) 0).put((byte) 0).putShort((short) 1).putShort((short) 32);
+            ico.putInt(size).putInt(offset);
+            offset += size;
+        }
+        for (int size : imageSizes) {
+            for (int i = 0; i < size; i++) {
+                ico.put((byte) size);
+            }
+        }
+        return ico.array();
+    }
+
+    static byte[] jar(String entry, String content) throws IOException {
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(jar)) {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return jar.toByteArray();
+    }
+
+    /**
+     * A VS_VERSIONINFO as windres compiles launch4j's VERSIONINFO block.
+     */
+    static byte[] versionInfo(String productName, String fileVersion) {
+        ByteBuffer fixed = ByteBuffer.allocate(52).order(ByteOrder.LITTLE_ENDIAN);
+        fixed.putInt(0xFEEF04BD).putInt(0x10000);
+        String[] parts = fileVersion.split("\\.");
+        int high = Integer.parseInt(parts[0]) << 16 | Integer.parseInt(parts[1]);
+        int low = Integer.parseInt(parts[2]) << 16 | Integer.parseInt(parts[3]);
+        fixed.putInt(high).putInt(low).putInt(high).putInt(low);
+
+        byte[] strings = block("040004B0", 0, 1, new byte[0],
+                text("CompanyName", "Example"), text("FileVersion", fileVersion), text("ProductName", productName));
+        byte[] translation = block("Translation", 4, 0, new byte[]{0, 4, (byte) 0xB0, 4});
+        return block("VS_VERSION_INFO", 52, 0, fixed.array(),
+                block("StringFileInfo", 0, 1, new byte[0], strings),
+                block("VarFileInfo", 0, 1, new byte[0], translation));
+    }
+
+    private static byte[] text(String key, String value) {
+        byte[] bytes = (value + '\0').getBytes(StandardCharsets.UTF_16LE);
+        return block(key, bytes.length / 2, 1, bytes);
+    }
+
+    private static byte[] block(String key, int valueLength, int type, byte[] value, byte[]... children) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0);
+        out.write(0);
+        out.write(valueLength & 0xFF);
+        out.write(valueLength >>> 8);
+        out.write(type);
+        out.write(0);
+        byte[] name = (key + '\0').getBytes(StandardCharsets.UTF_16LE);
+        out.write(name, 0, name.length);
+        pad(out);
+        out.write(value, 0, value.length);
+        for (byte[] child : children) {
+            pad(out);
+            out.write(child, 0, child.length);
+        }
+        byte[] bytes = out.toByteArray();
+        bytes[0] = (byte) bytes.length;
+        bytes[1] = (byte) (bytes.length >>> 8);
+        return bytes;
+    }
+
+    private static void pad(ByteArrayOutputStream out) {
+        while (out.size() % 4 != 0) {
+            out.write(0);
+        }
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
@@ -0,0 +1,171 @@
+package com.akathist.maven.plugins.launch4j;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.apache.maven.artifact.Artifact;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnitParamsRunner.class)
+public class ReproducibleExecutableTest {
+    private static final int PE_OFFSET = 0x80;
+    private static final int CHECKSUM_POSITION = PE_OFFSET + 24 + 64;
+    private static final Instant OUTPUT_TIMESTAMP = Instant.parse("2023-01-16T10:00:00Z");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    @Parameters({
+        "1673863200, 2023-01-16T10:00:00Z",
+        "2023-01-16T10:00:00Z, 2023-01-16T10:00:00Z",
+        "2023-01-16T12:00:00+02:00, 2023-01-16T10:00:00Z",
+    })
+    public void shouldParseOutputTimestamp(String outputTimestamp, String expected) {
+        // when
+        OutputTimestamp timestamp = OutputTimestamp.parse(outputTimestamp);
+
+        // then
+        assertTrue(timestamp.isReproducible());
+        assertEquals(Instant.parse(expected), timestamp.getInstant());
+        assertEquals(2023, timestamp.getYear());
+    }
+
+    @Test
+    public void shouldNotBeReproducible_WhenOutputTimestampIsMissingOrDisabled() {
+        // expect
+        assertFalse(OutputTimestamp.parse(null).isReproducible());
+        assertFalse(OutputTimestamp.parse("a").isReproducible());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidOutputTimestamp() {
+        // expect throws
+        OutputTimestamp.parse("yesterday");
+    }
+
+    @Test
+    public void shouldProduceByteIdenticalExecutables_FromTwoBuilds() throws Exception {
+        // given two "builds" linked at different times
+        File first = executable("first.exe", 1_600_000_000, 0x1234);
+        File second = executable("second.exe", 1_700_000_000, 0x4321);
+        assertFalse(Arrays.equals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath())));
+
+        // when
+        ReproducibleExecutable.normalize(first, OUTPUT_TIMESTAMP);
+        ReproducibleExecutable.normalize(second, OUTPUT_TIMESTAMP);
+
+        // then
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+        assertEquals(OUTPUT_TIMESTAMP.toEpochMilli(), first.lastModified());
+        assertEquals(OUTPUT_TIMESTAMP.toEpochMilli(), second.lastModified());
+    }
+
+    @Test
+    public void shouldWriteTimestamp_AndValidChecksum() throws Exception {
+        // given
+        File exe = executable("app.exe", 1_600_000_000, 0x1234);
+
+        // when
+        ReproducibleExecutable.normalize(exe, OUTPUT_TIMESTAMP);
+
+        // then
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(exe.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(OUTPUT_TIMESTAMP.getEpochSecond(), bytes.getInt(PE_OFFSET + 8) & 0xFFFFFFFFL);
+        try (RandomAccessFile file = new RandomAccessFile(exe, "r")) {
+            assertEquals(ReproducibleExecutable.checksum(file, CHECKSUM_POSITION), bytes.getInt(CHECKSUM_POSITION) & 0xFFFFFFFFL);
+        }
+    }
+
+    @Test
+    public void shouldKeepChecksumEmpty_WhenLinkerDidNotWriteOne() throws Exception {
+        // given
+        File exe = executable("app.exe", 1_600_000_000, 0);
+
+        // when
+        ReproducibleExecutable.normalize(exe, OUTPUT_TIMESTAMP);
+
+        // then
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(exe.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0, bytes.getInt(CHECKSUM_POSITION));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectFilesWhichAreNotExecutables() throws Exception {
+        // given
+        File notAnExe = temporaryFolder.newFile("app.jar");
+        Files.write(notAnExe.toPath(), new byte[512]);
+
+        // expect throws
+        ReproducibleExecutable.normalize(notAnExe, OUTPUT_TIMESTAMP);
+    }
+
+    @Test
+    public void shouldBuildTheSameClassPath_RegardlessOfDependencyOrder() {
+        // given
+        Artifact commons = artifact("org.apache.commons", "commons-lang3", "commons-lang3-3.12.0.jar");
+        Artifact guava = artifact("com.google.guava", "guava", "guava-31.1.jar");
+        Artifact xstream = artifact("com.thoughtworks.xstream", "xstream", "xstream-1.4.19.jar");
+        Set<Artifact> firstOrder = new LinkedHashSet<>(Arrays.asList(commons, guava, xstream));
+        Set<Artifact> secondOrder = new LinkedHashSet<>(Arrays.asList(xstream, commons, guava));
+
+        // when
+        List<String> first = new ClassPath().toL4j(firstOrder).getPaths();
+        List<String> second = new ClassPath().toL4j(secondOrder).getPaths();
+
+        // then
+        assertEquals(Arrays.asList("guava-31.1.jar", "xstream-1.4.19.jar", "commons-lang3-3.12.0.jar"), first);
+        assertEquals(first, second);
+    }
+
+    private Artifact artifact(String groupId, String artifactId, String fileName) {
+        Artifact artifact = mock(Artifact.class);
+        when(artifact.getGroupId()).thenReturn(groupId);
+        when(artifact.getArtifactId()).thenReturn(artifactId);
+        when(artifact.getFile()).thenReturn(new File(fileName));
+        return artifact;
+    }
+
+    /**
+     * A minimal PE image: DOS header, PE signature, COFF header and a PE32 optional header,
+     * followed by some payload standing for the sections and the wrapped jar.
+     */
+    private File executable(String name, int linkTime, int checksum) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(4097).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putShort(0, (short) 0x5A4D);
+        bytes.putInt(0x3C, PE_OFFSET);
+        bytes.putInt(PE_OFFSET, 0x00004550);
+        bytes.putShort(PE_OFFSET + 4, (short) 0x014C);
+        bytes.putInt(PE_OFFSET + 8, linkTime);
+        bytes.putShort(PE_OFFSET + 20, (short) 224);
+        bytes.putShort(PE_OFFSET + 24, (short) 0x010B);
+        bytes.putInt(CHECKSUM_POSITION, checksum);
+        byte[] payload = new byte[4097 - 0x200];
+        new Random(42).nextBytes(payload);
+        bytes.position(0x200);
+        bytes.put(payload);
+
+        File exe = temporaryFolder.newFile(name);
+        Files.write(exe.toPath(), bytes.array());
+        exe.setLastModified(linkTime * 1000L);
+        return exe;
+    }
+}
@@ -0,0 +1,137 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+public class ResourceEditorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteTheSameExecutable_WhenNothingChanged() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        File copy = new File(temporaryFolder.getRoot(), "copy.exe");
+
+        // when
+        ResourceEditor.write(exe, ResourceEditor.read(exe), copy);
+
+        // then
+        assertArrayEquals(Files.readAllBytes(exe.toPath()), Files.readAllBytes(copy.toPath()));
+        assertEquals(exe.lastModified(), copy.lastModified());
+    }
+
+    @Test
+    public void shouldChangeTheVersionInformation_AndKeepTheCodeAndTheJar() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        File branded = new File(temporaryFolder.getRoot(), "branded/acme.exe");
+        ResourceTable resources = ResourceEditor.read(exe);
+
+        // when
+        new ResourceStamp()
+                .versionString("ProductName", "Acme Application With A Much Longer Product Name")
+                .versionString("LegalTrademarks", "Acme(TM)")
+                .fileVersion("5.6.7.8")
+                .text(ResourceStamp.ERR_TITLE, "Acme")
+                .applyTo(resources);
+        ResourceEditor.write(exe, resources, branded);
+
+        // then
+        VersionResource version = VersionResource.parse(
+                ResourceEditor.read(branded).get(ResourceTable.RT_VERSION, 1).data);
+        assertEquals("Acme Application With A Much Longer Product Name", version.getString("ProductName"));
+        assertEquals("Acme(TM)", version.getString("LegalTrademarks"));
+        assertEquals("Example", version.getString("CompanyName"));
+        assertEquals("5.6.7.8", version.getFileVersion());
+        assertEquals("1.2.3.4", version.getProductVersion());
+        assertArrayEquals(ResourceStamp.rcdata("Acme"),
+                ResourceEditor.read(branded).get(ResourceTable.RT_RCDATA, ResourceStamp.ERR_TITLE).data);
+
+        byte[] code = Arrays.copyOfRange(Files.readAllBytes(branded.toPath()),
+                PeFixtures.FILE_ALIGNMENT, PeFixtures.FILE_ALIGNMENT + PeFixtures.CODE.length);
+        assertArrayEquals(PeFixtures.CODE, code);
+        assertJar(branded);
+        assertChecksum(branded);
+    }
+
+    @Test
+    public void shouldMoveTheJar_WhenTheResourcesOutgrowTheirSection() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        File ico = temporaryFolder.newFile("app.ico");
+        Files.write(ico.toPath(), PeFixtures.icon(1500, 3000));
+        ResourceTable resources = ResourceEditor.read(exe);
+
+        // when
+        new ResourceStamp().icon(ico).applyTo(resources);
+        ResourceEditor.write(exe, resources, exe);
+
+        // then
+        PeExecutable pe = PeExecutable.read(exe);
+        PeExecutable.Section section = pe.resourceSection();
+        assertTrue(section.rawSize > PeFixtures.FILE_ALIGNMENT);
+        assertEquals(0, section.rawSize % PeFixtures.FILE_ALIGNMENT);
+        assertEquals(section.virtualSize, pe.dataDirectory(PeExecutable.RESOURCE_DIRECTORY)[1]);
+        assertEquals(section.rawPointer + section.rawSize, pe.overlayOffset);
+
+        ResourceTable written = ResourceEditor.read(exe);
+        assertEquals(1500, written.get(ResourceTable.RT_ICON, 1).data.length);
+        assertEquals(3000, written.get(ResourceTable.RT_ICON, 2).data.length);
+        assertEquals(6 + 2 * 14, written.get(ResourceTable.RT_GROUP_ICON, 1).data.length);
+        assertJar(exe);
+        assertChecksum(exe);
+    }
+
+    @Test
+    public void shouldRejectSignedExecutables() throws Exception {
+        // given
+        File exe = PeFixtures.launcher(temporaryFolder.newFile("app.exe"), "App", "1.2.3.4");
+        PeExecutable pe = PeExecutable.read(exe);
+        try (RandomAccessFile file = new RandomAccessFile(exe, "rw")) {
+            file.seek(pe.dataDirectoryPosition(PeExecutable.CERTIFICATE_DIRECTORY));
+            file.writeInt(Integer.reverseBytes((int) pe.length));
+            file.writeInt(Integer.reverseBytes(8));
+        }
+
+        // when
+        try {
+            ResourceEditor.write(exe, ResourceEditor.read(exe), new File(temporaryFolder.getRoot(), "copy.exe"));
+            fail("Signed executables must not be changed");
+        } catch (IOException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().contains("is signed"));
+        }
+    }
+
+    private static void assertJar(File exe) throws IOException {
+        try (ZipFile jar = new ZipFile(exe);
+             InputStream in = jar.getInputStream(jar.getEntry("app/Main.class"))) {
+            byte[] content = new byte[4];
+            assertEquals(4, in.read(content));
+            assertEquals("main", new String(content, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void assertChecksum(File exe) throws IOException {
+        PeExecutable pe = PeExecutable.read(exe);
+        try (RandomAccessFile file = new RandomAccessFile(exe, "r")) {
+            file.seek(pe.checksumPosition);
+            long stored = Integer.toUnsignedLong(Integer.reverseBytes(file.readInt()));
+            assertEquals(ReproducibleExecutable.checksum(file, pe.checksumPosition), stored);
+        }
+    }
+}
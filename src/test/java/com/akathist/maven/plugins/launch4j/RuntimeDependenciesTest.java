@@ -0,0 +1,103 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.DependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionResult;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RuntimeDependenciesTest {
+
+    @Mock
+    private ProjectDependenciesResolver resolver;
+    @Mock
+    private MavenProject project;
+    @Mock
+    private MavenSession session;
+    @Mock
+    private RepositorySystemSession repositorySession;
+    @Mock
+    private DependencyResolutionResult result;
+    @Mock
+    private Log log;
+
+    private RuntimeDependencies runtimeDependencies;
+
+    @Before
+    public void createRuntimeDependencies() {
+        doReturn(repositorySession).when(session).getRepositorySession();
+        runtimeDependencies = new RuntimeDependencies(resolver, project, session, log);
+    }
+
+    @Test
+    public void shouldResolveTheRuntimeScopes_OnlyOnce() throws Exception {
+        // given
+        File commonsJar = new File("commons-lang3-3.12.0.jar");
+        Dependency commons = new Dependency(new DefaultArtifact("org.apache.commons:commons-lang3:3.12.0")
+                .setFile(commonsJar), "compile");
+        Dependency driver = new Dependency(new DefaultArtifact("org.postgresql:postgresql:42.5.1"), "runtime", true);
+        doReturn(Arrays.asList(commons, driver)).when(result).getDependencies();
+        doReturn(result).when(resolver).resolve(any(DependencyResolutionRequest.class));
+
+        // when
+        Set<Artifact> artifacts = runtimeDependencies.get();
+        runtimeDependencies.get();
+
+        // then
+        ArgumentCaptor<DependencyResolutionRequest> request = ArgumentCaptor.forClass(DependencyResolutionRequest.class);
+        verify(resolver, times(1)).resolve(request.capture());
+        assertSame(project, request.getValue().getMavenProject());
+        assertSame(repositorySession, request.getValue().getRepositorySession());
+        assertTrue(request.getValue().getResolutionFilter().accept(node("compile"), Collections.emptyList()));
+        assertTrue(request.getValue().getResolutionFilter().accept(node("runtime"), Collections.emptyList()));
+        assertFalse(request.getValue().getResolutionFilter().accept(node("test"), Collections.emptyList()));
+        assertFalse(request.getValue().getResolutionFilter().accept(node("provided"), Collections.emptyList()));
+
+        Iterator<Artifact> it = artifacts.iterator();
+        Artifact first = it.next();
+        assertEquals("commons-lang3", first.getArtifactId());
+        assertEquals(commonsJar, first.getFile());
+        assertEquals("compile", first.getScope());
+        Artifact second = it.next();
+        assertEquals("postgresql", second.getArtifactId());
+        assertEquals("runtime", second.getScope());
+        assertTrue(second.isOptional());
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void shouldFail_WhenTheDependenciesCannotBeResolved() throws Exception {
+        // given
+        doThrow(new DependencyResolutionException(result, "missing", null)).when(resolver).resolve(any(DependencyResolutionRequest.class));
+
+        // expect
+        runtimeDependencies.get();
+    }
+
+    private static DefaultDependencyNode node(String scope) {
+        return new DefaultDependencyNode(new Dependency(new DefaultArtifact("g:a:1"), scope));
+    }
+}
@@ -0,0 +1,114 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class SetupPipelineTest {
+
+    private final ExecutorService executor = SetupPipeline.newExecutor();
+
+    @After
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void shouldRunIndependentStepsConcurrently() throws Exception {
+        // given
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        try (SetupPipeline pipeline = new SetupPipeline(executor)) {
+            // when
+            SetupPipeline.Task<String> first = pipeline.submit("first", () -> awaitOther(bothStarted, "a"));
+            SetupPipeline.Task<String> second = pipeline.submit("second", () -> awaitOther(bothStarted, "b"));
+
+            // then
+            assertEquals("a", first.join());
+            assertEquals("b", second.join());
+        }
+    }
+
+    @Test
+    public void shouldRunStep_AfterItsDependencies() throws Exception {
+        try (SetupPipeline pipeline = new SetupPipeline(executor)) {
+            // given
+            SetupPipeline.Task<Integer> workDir = pipeline.submit("work directory", () -> {
+                sleep(50);
+                return 40;
+            });
+            SetupPipeline.Task<Integer> config = pipeline.submit("configuration", () -> 1);
+
+            // when
+            SetupPipeline.Task<Integer> objs = pipeline.submit("objs", () -> workDir.join() + config.join() + 1, workDir, config);
+
+            // then
+            assertEquals(Integer.valueOf(42), objs.join());
+            assertTrue(pipeline.criticalPath(), pipeline.criticalPath().matches("work directory \\(\\d+ ms\\) -> objs \\(\\d+ ms\\)"));
+        }
+    }
+
+    @Test
+    public void shouldRethrowFailure_AndSkipDependentSteps() {
+        AtomicBoolean dependentRan = new AtomicBoolean();
+
+        try (SetupPipeline pipeline = new SetupPipeline(executor)) {
+            // given
+            SetupPipeline.Task<Void> failing = pipeline.submit("work directory", () -> {
+                throw new MojoExecutionException("Can't retrieve platform-specific components");
+            });
+            SetupPipeline.Task<Void> dependent = pipeline.submit("objs", () -> {
+                dependentRan.set(true);
+                return null;
+            }, failing);
+
+            // when
+            dependent.join();
+            fail("MojoExecutionException expected");
+        } catch (MojoExecutionException e) {
+            // then
+            assertEquals("Can't retrieve platform-specific components", e.getMessage());
+            assertFalse(dependentRan.get());
+        }
+    }
+
+    @Test
+    public void shouldKeepTheSharedExecutor_WhenAPipelineIsClosed() throws Exception {
+        // given
+        try (SetupPipeline first = new SetupPipeline(executor)) {
+            assertEquals("a", first.submit("first", () -> "a").join());
+        }
+
+        // expect
+        try (SetupPipeline second = new SetupPipeline(executor)) {
+            assertEquals("b", second.submit("second", () -> "b").join());
+        }
+    }
+
+    private static String awaitOther(CountDownLatch bothStarted, String result) throws MojoExecutionException {
+        bothStarted.countDown();
+        try {
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new MojoExecutionException("steps did not run concurrently");
+            }
+        } catch (InterruptedException e) {
+            throw new MojoExecutionException("interrupted", e);
+        }
+        return result;
+    }
+
+    private static void sleep(long millis) throws MojoExecutionException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new MojoExecutionException("interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StartupDiagnosticsTest {
+
+    @Test
+    public void shouldAddOnlyTheVariable_ToTheLauncher() {
+        // given
+        StartupDiagnostics diagnostics = new StartupDiagnostics();
+        List<String> opts = Collections.singletonList("-Xss1m");
+
+        // when
+        List<String> withSwitch = diagnostics.withSwitch(opts);
+
+        // then
+        assertEquals(Arrays.asList("-Xss1m", "%L4J_STARTUP_DIAGNOSTICS%"), withSwitch);
+        assertEquals(Collections.singletonList("-Xss1m"), opts);
+        assertEquals(Collections.singletonList("%L4J_STARTUP_DIAGNOSTICS%"), diagnostics.withSwitch(null));
+    }
+
+    @Test
+    public void shouldWriteAScript_SettingTheVariableToTheDiagnosticOptions() {
+        // given
+        StartupDiagnostics diagnostics = new StartupDiagnostics();
+        diagnostics.variable = "APP_DIAGNOSTICS";
+        diagnostics.directory = "%EXEDIR%\\logs";
+        diagnostics.gc = false;
+        diagnostics.options = Collections.singletonList("-Xlog:startuptime");
+
+        // when
+        String script = diagnostics.script("app.exe");
+
+        // then
+        assertEquals("@echo off\r\n"
+                + "rem Starts app.exe with its startup diagnostics, written to %EXEDIR%\\logs\r\n"
+                + "set \"APP_DIAGNOSTICS="
+                + "\"-XX:StartFlightRecording=duration=60s,settings=profile,filename=%~dp0.\\logs\\app-startup.jfr\" "
+                + "\"-Xlog:class+load=info:file=%~dp0.\\logs\\app-class-load-%%p.log\" "
+                + "-Xlog:startuptime\"\r\n"
+                + "\"%~dp0app.exe\" %*\r\n", script);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectVariablesWhichAreNoNames() {
+        StartupDiagnostics diagnostics = new StartupDiagnostics();
+        diagnostics.variable = "APP DIAGNOSTICS";
+        diagnostics.withSwitch(null);
+    }
+}
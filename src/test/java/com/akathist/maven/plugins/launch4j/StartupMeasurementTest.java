@@ -0,0 +1,179 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StartupMeasurementTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldMeasureTheApplication_UntilItPrintsTheReadyPattern() throws Exception {
+        // given
+        StartupProfile settings = new StartupProfile();
+        settings.readyPattern = "listening on \\d+";
+
+        // when
+        StartupMeasurement measurement = measure(SlowApplication.class, settings, "4711");
+
+        // then
+        assertEquals("pattern", measurement.ready);
+        long timeToMain = measurement.figures.get(StartupProbe.TIME_TO_MAIN_CLASS);
+        assertTrue("time to main " + timeToMain, timeToMain > 0);
+        assertTrue(measurement.figures.get(StartupProbe.TIME_TO_READY) >= timeToMain + 100);
+        assertTrue(measurement.figures.get(StartupProbe.HEAP_USED) > 0);
+        assertTrue(measurement.figures.get(StartupProbe.HEAP_LIVE) > 0);
+        assertTrue(measurement.figures.get(StartupProbe.CLASSES + StartupProbe.JDK) > 100);
+        assertTrue(measurement.figures.get(StartupProbe.CLASSES + "test-classes") >= 1);
+        Long initializer = measurement.figures.get(StartupProbe.INITIALIZER + SlowApplication.class.getName());
+        assertNotNull(measurement.figures.toString(), initializer);
+        assertTrue("initializer " + initializer, initializer >= 50);
+    }
+
+    @Test
+    public void shouldBeReady_WhenTheMainMethodReturns() throws Exception {
+        // given
+        StartupProfile settings = new StartupProfile();
+        settings.sampleInterval = 0;
+
+        // when
+        StartupMeasurement measurement = measure(QuickApplication.class, settings);
+
+        // then
+        assertEquals("main", measurement.ready);
+        assertFalse(measurement.figures.keySet().stream().anyMatch(key -> key.startsWith(StartupProbe.INITIALIZER)));
+    }
+
+    @Test
+    public void shouldCompareWithThePreviousProfile_AndCheckTheBudgets() throws Exception {
+        // given
+        File previousReport = temporaryFolder.newFile("previous.properties");
+        Files.write(previousReport.toPath(), ("ready=pattern\ntimeToReadyMillis=900\nclasses.jdk=500\n"
+                + "clinit.app.Gone=40\n").getBytes(StandardCharsets.ISO_8859_1));
+        File probeReport = temporaryFolder.newFile("probe.properties");
+        Files.write(probeReport.toPath(), ("ready=pattern\ntimeToMainClassMillis=100\ntimeToReadyMillis=1200\n"
+                + "heapUsedBytes=4096\nheapLiveBytes=2048\nclasses.jdk=520\nclasses.app.jar=30\n"
+                + "clinit.app.Slow=80\nclinit.app.Slower=90\nclinit.app.Quick=2\n").getBytes(StandardCharsets.ISO_8859_1));
+        StartupProfile settings = new StartupProfile();
+        settings.budgets = new HashMap<>();
+        settings.budgets.put("timeToReadyMillis", "1000");
+        settings.budgets.put("heapLiveBytes", "1KB");
+
+        // when
+        StartupMeasurement measurement = StartupMeasurement.fromProbe(probeReport, 2);
+        File report = temporaryFolder.newFile("startup.properties");
+        measurement.write(report);
+        List<String> lines = StartupMeasurement.read(report).describe(StartupMeasurement.read(previousReport));
+        List<String> exceeded = measurement.overBudget(settings.parseBudgets());
+
+        // then
+        assertEquals(Arrays.asList("timeToMainClassMillis", "timeToReadyMillis", "heapUsedBytes", "heapLiveBytes",
+                "classes.total", "classes.app.jar", "classes.jdk", "clinit.app.Slower", "clinit.app.Slow"),
+                Arrays.asList(measurement.figures.keySet().toArray()));
+        assertEquals(550L, (long) measurement.figures.get(StartupMeasurement.CLASSES_TOTAL));
+        assertTrue(lines.toString(), lines.contains(String.format("%-64s %,14d ms  %+,d", "timeToReadyMillis", 1200, 300)));
+        assertTrue(lines.toString(), lines.contains(String.format("%-64s %,14d classes  %+,d", "classes.jdk", 520, 20)));
+        assertTrue(lines.toString(), lines.contains(String.format("%-64s %,14d ms  new", "clinit.app.Slower", 90)));
+        assertTrue(lines.toString(), lines.contains(String.format("%-64s %,14d ms  %+,d", "clinit.app.Gone", 0, -40)));
+        assertEquals(2, exceeded.size());
+    }
+
+    @Test
+    public void shouldRejectBudgets_WhenTheyNameNoFigure() {
+        // given
+        StartupProfile settings = new StartupProfile();
+        settings.budgets = Collections.singletonMap("timeToReadyMilis", "1000");
+
+        // when
+        try {
+            settings.parseBudgets();
+            fail("A budget of no figure was accepted");
+        } catch (IllegalArgumentException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().startsWith("There is no figure timeToReadyMilis to budget"));
+        }
+    }
+
+    @Test
+    public void shouldAcceptBudgets_OfFiguresTheProfileMayHave() {
+        assertTrue(StartupMeasurement.isFigure("heapUsedBytes"));
+        assertTrue(StartupMeasurement.isFigure(StartupMeasurement.CLASSES_TOTAL));
+        assertTrue(StartupMeasurement.isFigure("classes.app.jar"));
+        assertTrue(StartupMeasurement.isFigure("clinit.app.Slow"));
+        assertFalse(StartupMeasurement.isFigure("clinit."));
+        assertFalse(StartupMeasurement.isFigure("heapBytes"));
+    }
+
+    @Test
+    public void shouldExpandVariables_TheWayTheLauncherDoes() {
+        // given
+        Map<String, String> variables = new HashMap<>();
+        variables.put("EXEDIR", "C:\\app");
+
+        // when
+        String expanded = StartupMeasurement.expand("-Dhome=%EXEDIR%\\data %UNSET%-Dratio=50%", variables);
+
+        // then
+        assertEquals("-Dhome=C:\\app\\data -Dratio=50%", expanded);
+        assertEquals(Arrays.asList("--port", "80", "two words"), Launch4jMojo.splitCommandLine(" --port 80 \"two words\""));
+    }
+
+    @Test
+    public void shouldSplitJvmOptions_TheWayTheLauncherJoinsThem() {
+        // given
+        Map<String, String> variables = new HashMap<>();
+        variables.put("EXEDIR", "C:\\Program Files\\app");
+        variables.put("L4J_STARTUP_DIAGNOSTICS", "-verbose:class -Xlog:startuptime");
+
+        // when
+        List<String> options = Launch4jMojo.jvmOptions(Arrays.asList("-Xms64m -Xmx256m", "-Dapp.home=\"%EXEDIR%\"",
+                "%L4J_STARTUP_DIAGNOSTICS%", "%UNSET%"), variables);
+
+        // then
+        assertEquals(Arrays.asList("-Xms64m", "-Xmx256m", "-Dapp.home=C:\\Program Files\\app",
+                "-verbose:class", "-Xlog:startuptime"), options);
+    }
+
+    private StartupMeasurement measure(Class<?> application, StartupProfile settings, String... arguments) throws Exception {
+        File classes = new File(application.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> command = Arrays.asList(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-Xmx64m", "-cp", classes.getPath());
+        return StartupMeasurement.measure(command, Collections.<String, String>emptyMap(), temporaryFolder.getRoot(),
+                application.getName(), Arrays.asList(arguments), settings, temporaryFolder.newFolder("work"));
+    }
+
+    public static class SlowApplication {
+
+        static {
+            try {
+                Thread.sleep(150);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public static void main(String[] args) throws InterruptedException {
+            System.out.println("listening on " + args[0]);
+            Thread.sleep(60000);
+        }
+    }
+
+    public static class QuickApplication {
+
+        public static void main(String[] args) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class WindowsManifestTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldDeclareOnlyTheSupportedOs_ByDefault() throws Exception {
+        // given
+        WindowsManifest manifest = new WindowsManifest();
+
+        // when
+        String xml = manifest.toXml();
+
+        // then
+        assertTrue(xml, xml.contains("<requestedExecutionLevel level=\"asInvoker\" uiAccess=\"false\"/>"));
+        assertTrue(xml, xml.contains("<supportedOS Id=\"{8e0f7a12-bfb3-4fe8-b9a5-48fd50a15a9a}\"/>"));
+        assertFalse(xml, xml.contains("windowsSettings"));
+        assertEquals(Collections.emptyList(), ManifestSchema.check(xml));
+    }
+
+    @Test
+    public void shouldDeclareThePerformanceSettings() throws Exception {
+        // given
+        WindowsManifest manifest = new WindowsManifest();
+        manifest.executionLevel = "highestavailable";
+        manifest.dpiAwareness = "perMonitorV2";
+        manifest.longPathAware = true;
+        manifest.segmentHeap = true;
+        manifest.utf8CodePage = true;
+
+        // when
+        String xml = manifest.toXml();
+
+        // then
+        assertTrue(xml, xml.contains("level=\"highestAvailable\""));
+        assertTrue(xml, xml.contains("<dpiAware xmlns=\"http://schemas.microsoft.com/SMI/2005/WindowsSettings\">true/pm</dpiAware>"));
+        assertTrue(xml, xml.contains("<dpiAwareness xmlns=\"http://schemas.microsoft.com/SMI/2016/WindowsSettings\">PerMonitorV2, PerMonitor</dpiAwareness>"));
+        assertTrue(xml, xml.contains("<longPathAware xmlns=\"http://schemas.microsoft.com/SMI/2016/WindowsSettings\">true</longPathAware>"));
+        assertTrue(xml, xml.contains("<activeCodePage xmlns=\"http://schemas.microsoft.com/SMI/2019/WindowsSettings\">UTF-8</activeCodePage>"));
+        assertTrue(xml, xml.contains("<heapType xmlns=\"http://schemas.microsoft.com/SMI/2020/WindowsSettings\">SegmentHeap</heapType>"));
+        assertEquals(Collections.emptyList(), ManifestSchema.check(xml));
+    }
+
+    @Test
+    public void shouldWriteTheSameContent_OnlyOnce() throws Exception {
+        // given
+        File directory = new File(temporaryFolder.getRoot(), "target/launch4j/manifests");
+        WindowsManifest manifest = new WindowsManifest();
+        manifest.segmentHeap = true;
+
+        // when
+        File first = manifest.writeTo(directory);
+        FileTime writtenAt = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(first.toPath(), writtenAt);
+        File second = manifest.writeTo(directory);
+
+        // then
+        assertEquals(first, second);
+        assertEquals(writtenAt, Files.getLastModifiedTime(second.toPath()));
+        assertEquals(manifest.toXml(), new String(Files.readAllBytes(first.toPath()), StandardCharsets.UTF_8));
+
+        // when
+        manifest.segmentHeap = false;
+
+        // then
+        assertNotEquals(first, manifest.writeTo(directory));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void shouldRejectAnUnknownDpiAwareness() throws Exception {
+        WindowsManifest manifest = new WindowsManifest();
+        manifest.dpiAwareness = "retina";
+        manifest.toXml();
+    }
+
+    @Test
+    public void shouldReportMisplacedElementsAndWrongValues() {
+        // given
+        String xml = "<assembly xmlns=\"urn:schemas-microsoft-com:asm.v1\" manifestVersion=\"1.0\">"
+                + "<application xmlns=\"urn:schemas-microsoft-com:asm.v3\"><windowsSettings>"
+                + "<heapType xmlns=\"http://schemas.microsoft.com/SMI/2016/WindowsSettings\">SegmentHeap</heapType>"
+                + "<longPathAware xmlns=\"http://schemas.microsoft.com/SMI/2016/WindowsSettings\">yes</longPathAware>"
+                + "</windowsSettings></application></assembly>";
+
+        // expect
+        assertEquals(2, ManifestSchema.check(xml).size());
+        assertTrue(ManifestSchema.check(xml).get(0).startsWith("<heapType> in namespace http://schemas.microsoft.com/SMI/2016/WindowsSettings is not allowed"));
+        assertTrue(ManifestSchema.check(xml).get(1).startsWith("<longPathAware>yes</longPathAware> is not one of"));
+    }
+}
@@ -0,0 +1,198 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WorkDirOverlayTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File sharedWorkDir;
+
+    @Before
+    public void createSharedWorkDir() throws Exception {
+        sharedWorkDir = temporaryFolder.newFolder("launch4j-3.50-workdir-linux64");
+        write(new File(sharedWorkDir, "w32api/crt2.o"), "crt2");
+        write(new File(sharedWorkDir, "head/guihead.o"), "guihead");
+    }
+
+    @Test
+    public void shouldStageProjectFiles_NextToTheWorkDirEntries() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(project, "src/main/launch4j/custom.o"), "custom");
+
+        // when
+        WorkDirOverlay overlay = overlay(project).create();
+        List<String> staged = overlay.stage(project, Collections.singletonList("src/main/launch4j/custom.o"), new FileDigests());
+
+        // then
+        assertEquals(Collections.singletonList(new File("src/main/launch4j/custom.o").getPath()), staged);
+        assertEquals("custom", read(new File(overlay.getDirectory(), staged.get(0))));
+        assertEquals("crt2", read(new File(overlay.getDirectory(), "w32api/crt2.o")));
+        assertFalse("the shared work directory must not be written to", new File(sharedWorkDir, "src").exists());
+    }
+
+    @Test
+    public void shouldNotCopyAgain_WhenTheContentIsUnchanged() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(project, "custom.o"), "custom");
+        overlay(project).create().stage(project, Collections.singletonList("custom.o"), new FileDigests());
+        File staged = new File(project, "target/launch4j/" + sharedWorkDir.getName() + "/custom.o");
+        FileTime stagedAt = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(staged.toPath(), stagedAt);
+
+        // when
+        overlay(project).create().stage(project, Collections.singletonList("custom.o"), new FileDigests());
+
+        // then
+        assertEquals(stagedAt, Files.getLastModifiedTime(staged.toPath()));
+
+        // when
+        write(new File(project, "custom.o"), "changed");
+        overlay(project).create().stage(project, Collections.singletonList("custom.o"), new FileDigests());
+
+        // then
+        assertEquals("changed", read(staged));
+    }
+
+    @Test
+    public void shouldKeepProjectsApart_WhenTheyUseTheSamePath() throws Exception {
+        // given
+        File first = temporaryFolder.newFolder("first");
+        File second = temporaryFolder.newFolder("second");
+        write(new File(first, "custom.o"), "first");
+        write(new File(second, "custom.o"), "second");
+
+        // when
+        WorkDirOverlay firstOverlay = overlay(first).create();
+        WorkDirOverlay secondOverlay = overlay(second).create();
+        firstOverlay.stage(first, Collections.singletonList("custom.o"), new FileDigests());
+        secondOverlay.stage(second, Collections.singletonList("custom.o"), new FileDigests());
+
+        // then
+        assertEquals("first", read(new File(firstOverlay.getDirectory(), "custom.o")));
+        assertEquals("second", read(new File(secondOverlay.getDirectory(), "custom.o")));
+    }
+
+    @Test
+    public void shouldNotWriteIntoTheSharedWorkDir_WhenAProjectFileShadowsOneOfItsEntries() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(project, "w32api/crt2.o"), "patched");
+
+        // when
+        WorkDirOverlay overlay = overlay(project).create();
+        overlay.stage(project, Collections.singletonList("w32api/crt2.o"), new FileDigests());
+
+        // then
+        assertEquals("patched", read(new File(overlay.getDirectory(), "w32api/crt2.o")));
+        assertEquals("crt2", read(new File(sharedWorkDir, "w32api/crt2.o")));
+        assertEquals("guihead", read(new File(overlay.getDirectory(), "head/guihead.o")));
+    }
+
+    @Test
+    public void shouldNotCopyAgain_WhenAnUnchangedProjectFileShadowsOneOfTheEntries() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(project, "w32api/crt2.o"), "patched");
+        overlay(project).create().stage(project, Collections.singletonList("w32api/crt2.o"), new FileDigests());
+        File staged = new File(project, "target/launch4j/" + sharedWorkDir.getName() + "/w32api/crt2.o");
+        FileTime stagedAt = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(staged.toPath(), stagedAt);
+
+        // when
+        overlay(project).create().stage(project, Collections.singletonList("w32api/crt2.o"), new FileDigests());
+
+        // then
+        assertEquals("patched", read(staged));
+        assertEquals(stagedAt, Files.getLastModifiedTime(staged.toPath()));
+    }
+
+    @Test
+    public void shouldRestoreTheSharedEntry_WhenAProjectFileIsNoLongerStaged() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(project, "w32api/crt2.o"), "patched");
+        write(new File(project, "custom.o"), "custom");
+        WorkDirOverlay first = overlay(project).create();
+        first.stage(project, Arrays.asList("w32api/crt2.o", "custom.o"), new FileDigests());
+        first.complete();
+
+        // when
+        WorkDirOverlay second = overlay(project).create();
+        second.stage(project, Collections.<String>emptyList(), new FileDigests());
+        second.complete();
+
+        // then
+        assertEquals("crt2", read(new File(second.getDirectory(), "w32api/crt2.o")));
+        assertFalse(new File(second.getDirectory(), "custom.o").exists());
+        assertEquals("crt2", read(new File(sharedWorkDir, "w32api/crt2.o")));
+
+        // when
+        write(new File(sharedWorkDir, "w32api/crt2.o"), "updated");
+        WorkDirOverlay third = overlay(project).create();
+        third.complete();
+
+        // then
+        assertEquals("updated", read(new File(third.getDirectory(), "w32api/crt2.o")));
+    }
+
+    @Test
+    public void shouldKeepTheStagedFile_WhileItIsStaged() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(project, "w32api/crt2.o"), "patched");
+        WorkDirOverlay first = overlay(project).create();
+        first.stage(project, Collections.singletonList("w32api/crt2.o"), new FileDigests());
+        first.complete();
+
+        // when
+        WorkDirOverlay second = overlay(project).create();
+        second.stage(project, Collections.singletonList("w32api/crt2.o"), new FileDigests());
+        second.complete();
+
+        // then
+        assertEquals("patched", read(new File(second.getDirectory(), "w32api/crt2.o")));
+        assertEquals("crt2", read(new File(sharedWorkDir, "w32api/crt2.o")));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void shouldFail_WhenAFileIsOutsideOfTheProject() throws Exception {
+        // given
+        File project = temporaryFolder.newFolder("project");
+        write(new File(temporaryFolder.getRoot(), "elsewhere.o"), "elsewhere");
+
+        // expect
+        overlay(project).create().stage(project, Collections.singletonList("../elsewhere.o"), new FileDigests());
+    }
+
+    private WorkDirOverlay overlay(File project) {
+        return new WorkDirOverlay(sharedWorkDir, new File(project, "target/launch4j/" + sharedWorkDir.getName()), new SystemStreamLog());
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,203 @@
+package com.akathist.maven.plugins.launch4j;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.PluginResolutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResult;
+import org.codehaus.plexus.component.repository.ComponentDependency;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class WorkDirPrewarmerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private RepositorySystem factory;
+    @Mock
+    private ArtifactResolver resolver;
+    @Mock
+    private BuildPluginManager pluginManager;
+    @Mock
+    private Logger logger;
+    @Mock
+    private Log log;
+    @Mock
+    private MavenSession session;
+    @Mock
+    private RepositorySystemSession repositorySession;
+    @Mock
+    private ArtifactRepository localRepository;
+    @Mock
+    private ArtifactResult resolved;
+
+    private final Properties userProperties = new Properties();
+    private final MavenProject project = new MavenProject();
+    private Artifact binaryBits;
+
+    @Before
+    public void prepareSession() throws Exception {
+        when(session.getRepositorySession()).thenReturn(repositorySession);
+        when(repositorySession.getData()).thenReturn(new DefaultSessionData());
+        when(session.getUserProperties()).thenReturn(userProperties);
+        when(session.getSystemProperties()).thenReturn(new Properties());
+        when(session.getProjects()).thenReturn(Collections.singletonList(project));
+        when(session.getProjectBuildingRequest()).thenReturn(new DefaultProjectBuildingRequest());
+        when(session.getLocalRepository()).thenReturn(localRepository);
+
+        binaryBits = new DefaultArtifact(Launch4jMojo.LAUNCH4J_GROUP_ID, Launch4jMojo.LAUNCH4J_ARTIFACT_ID,
+                "3.50", null, "jar", "workdir-test", new DefaultArtifactHandler("jar"));
+        binaryBits.setFile(platformJar());
+        when(factory.createArtifactWithClassifier(anyString(), anyString(), anyString(), eq("jar"), anyString()))
+                .thenReturn(binaryBits);
+        when(localRepository.find(any(Artifact.class))).thenReturn(binaryBits);
+        when(resolver.resolveArtifact(any(ProjectBuildingRequest.class), any(Artifact.class))).thenReturn(resolved);
+        when(pluginManager.loadPlugin(any(Plugin.class), any(), any())).thenReturn(descriptorDependingOn("3.50"));
+    }
+
+    @Test
+    public void shouldUnpackWorkDirInBackground_ForProjectsUsingThePlugin() throws Exception {
+        // given
+        usePlugin();
+
+        // when
+        new WorkDirPrewarmer(factory, resolver, pluginManager, logger).afterProjectsRead(session);
+        File workDir = WorkDirPrewarmer.await(session, binaryBits, log);
+
+        // then
+        assertNotNull(workDir);
+        assertTrue(new File(workDir, "w32api/crt2.o").isFile());
+        verify(resolver).resolveArtifact(any(ProjectBuildingRequest.class), eq(binaryBits));
+    }
+
+    @Test
+    public void shouldTakeTheLaunch4jVersion_FromThePluginDescriptor() throws Exception {
+        // given
+        usePlugin();
+        when(pluginManager.loadPlugin(any(Plugin.class), any(), any())).thenReturn(descriptorDependingOn("3.14"));
+
+        // when
+        new WorkDirPrewarmer(factory, resolver, pluginManager, logger).afterProjectsRead(session);
+
+        // then
+        verify(factory).createArtifactWithClassifier(eq(Launch4jMojo.LAUNCH4J_GROUP_ID), eq(Launch4jMojo.LAUNCH4J_ARTIFACT_ID),
+                eq("3.14"), eq("jar"), anyString());
+    }
+
+    @Test
+    public void shouldTakeTheLaunch4jVersion_FromTheLaunch4jJar_WhenThePluginDescriptorCannotBeLoaded() throws Exception {
+        // given
+        usePlugin();
+        when(pluginManager.loadPlugin(any(Plugin.class), any(), any()))
+                .thenThrow(new PluginResolutionException(new Plugin(), new RuntimeException("offline")));
+
+        // when
+        new WorkDirPrewarmer(factory, resolver, pluginManager, logger).afterProjectsRead(session);
+
+        // then
+        verify(factory).createArtifactWithClassifier(eq(Launch4jMojo.LAUNCH4J_GROUP_ID), eq(Launch4jMojo.LAUNCH4J_ARTIFACT_ID),
+                eq(WorkDirPrewarmer.bundledLaunch4jVersion()), eq("jar"), anyString());
+    }
+
+    @Test
+    public void shouldReadTheVersion_OfTheLaunch4jJarOnTheClasspath() throws Exception {
+        // given
+        File launch4jJar = new File(net.sf.launch4j.Builder.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        // when
+        String version = WorkDirPrewarmer.bundledLaunch4jVersion();
+
+        // then
+        assertNotNull("the launch4j jar has no pom.properties", version);
+        assertTrue(launch4jJar.getName(), launch4jJar.getName().startsWith(Launch4jMojo.LAUNCH4J_ARTIFACT_ID + "-" + version + "-"));
+    }
+
+    @Test
+    public void shouldNotPrewarm_WhenNoProjectUsesThePlugin() {
+        // when
+        new WorkDirPrewarmer(factory, resolver, pluginManager, logger).afterProjectsRead(session);
+
+        // then
+        assertNull(WorkDirPrewarmer.await(session, binaryBits, log));
+        verifyNoInteractions(resolver);
+    }
+
+    @Test
+    public void shouldNotPrewarm_WhenDisabled() {
+        // given
+        usePlugin();
+        userProperties.setProperty(WorkDirPrewarmer.PREWARM_PROPERTY, "false");
+
+        // when
+        new WorkDirPrewarmer(factory, resolver, pluginManager, logger).afterProjectsRead(session);
+
+        // then
+        assertNull(WorkDirPrewarmer.await(session, binaryBits, log));
+        verifyNoInteractions(resolver);
+    }
+
+    private void usePlugin() {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("com.akathist.maven.plugins.launch4j");
+        plugin.setArtifactId("launch4j-maven-plugin");
+        plugin.addExecution(new PluginExecution());
+        project.getBuild().addPlugin(plugin);
+    }
+
+    private static PluginDescriptor descriptorDependingOn(String launch4jVersion) {
+        ComponentDependency launch4j = new ComponentDependency();
+        launch4j.setGroupId(Launch4jMojo.LAUNCH4J_GROUP_ID);
+        launch4j.setArtifactId(Launch4jMojo.LAUNCH4J_ARTIFACT_ID);
+        launch4j.setVersion(launch4jVersion);
+        PluginDescriptor descriptor = new PluginDescriptor();
+        descriptor.setDependencies(Collections.singletonList(launch4j));
+        return descriptor;
+    }
+
+    private File platformJar() throws Exception {
+        File jar = new File(temporaryFolder.newFolder("repository"), "launch4j-3.50-workdir-test.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("launch4j-3.50-workdir-test/w32api/crt2.o"));
+            out.write("object".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return jar;
+    }
+}
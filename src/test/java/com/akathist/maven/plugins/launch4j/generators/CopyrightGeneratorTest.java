@@ -76,6 +76,22 @@ public class CopyrightGeneratorTest {
         assertEquals(expected, copyright);
     }
 
+    @Test
+    public void shouldContain_GivenBuildYear_InsteadOfCurrentYear() {
+        // given
+        final String projectInceptionYear = "2020";
+        final String organizationName = "Orphan OSS";
+
+        // when
+        final String copyright = CopyrightGenerator.generate(projectInceptionYear, organizationName, 2021);
+
+        // then
+        String expected = concatAndWrapWithCopyright(
+                projectInceptionYear, "-", "2021", " ", organizationName
+        );
+        assertEquals(expected, copyright);
+    }
+
     private String concatAndWrapWithCopyright(String... elements) {
         StringBuilder builder = new StringBuilder(COPYRIGHT_PREFIX);
 
@@ -0,0 +1,73 @@
+package com.akathist.maven.plugins.launch4j.generators;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Launch4jFileVersionGenerator} on typical versions and on a long version which is rejected
+ * at its very end, the input which made the former regular expression backtrack.
+ * <p>
+ * Run it from the test classpath, e.g. with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.akathist.maven.plugins.launch4j.generators.Launch4jFileVersionGeneratorBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Launch4jFileVersionGeneratorBenchmark {
+
+    @Param({"1.2.3-SNAPSHOT", "2024.10.1.RC1", "1.2.3-rc.2+exp.sha-5114f85"})
+    public String projectVersion;
+
+    private String longInvalidVersion;
+
+    @Setup
+    public void buildLongInvalidVersion() {
+        StringBuilder version = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            version.append("1.1");
+        }
+        longInvalidVersion = version.append("+meta!").toString();
+    }
+
+    @Benchmark
+    public String generate() {
+        return Launch4jFileVersionGenerator.generate(projectVersion);
+    }
+
+    @Benchmark
+    public String generateWithBuildNumber() {
+        return Launch4jFileVersionGenerator.generate(projectVersion, true);
+    }
+
+    @Benchmark
+    public Object rejectLongInvalidVersion() {
+        try {
+            return Launch4jFileVersionGenerator.generate(longInvalidVersion);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Launch4jFileVersionGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.akathist.maven.plugins.launch4j.generators;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class Launch4jFileVersionGeneratorFuzzTest {
+    private static final long SEED = 0x4c34_4a5eL;
+    private static final int ITERATIONS = 200_000;
+    private static final char[] ALPHABET = "0123456789..--+_aZrRcC;! ".toCharArray();
+    private static final Pattern NUMERIC_LEVELS = Pattern.compile("\\d+(?:\\.\\d+)*");
+    private static final Pattern FILE_VERSION = Pattern.compile("\\d+\\.\\d+\\.\\d+\\.\\d+");
+
+    // the pattern used before the parser was introduced, every version it accepted must still be accepted
+    // unless one of its levels is too large for a file version
+    private static final Pattern LEGACY_VERSION = Pattern.compile("^((\\d(\\.)?)*\\d+)(-\\w+)?$", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_LEVEL_VALUE = 65535;
+
+    @Test(timeout = 30_000)
+    public void shouldEitherProduceFileVersion_OrRejectWithIllegalArgumentException() {
+        // given
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            String projectVersion = randomVersion(random, 1 + random.nextInt(24));
+
+            for (boolean buildNumberAsFourthLevel : new boolean[]{false, true}) {
+                // when
+                String fileVersion;
+                try {
+                    fileVersion = Launch4jFileVersionGenerator.generate(projectVersion, buildNumberAsFourthLevel);
+                } catch (IllegalArgumentException rejected) {
+                    continue;
+                }
+
+                // then
+                assertTrue("\"" + projectVersion + "\" produced \"" + fileVersion + "\"",
+                        FILE_VERSION.matcher(fileVersion).matches());
+                assertTrue("\"" + projectVersion + "\" produced \"" + fileVersion + "\"",
+                        Arrays.stream(fileVersion.split("\\.")).allMatch(level -> Long.parseLong(level) <= MAX_LEVEL_VALUE));
+            }
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void shouldAcceptEveryVersionAcceptedBefore_WithTheSameResult() {
+        // given
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            // short enough that the legacy pattern cannot blow up
+            String projectVersion = randomVersion(random, 1 + random.nextInt(12));
+            if (!LEGACY_VERSION.matcher(projectVersion).matches()) {
+                continue;
+            }
+            String expected = legacyGenerate(projectVersion);
+            if (Arrays.stream(expected.split("\\.")).anyMatch(level -> Long.parseLong(level) > MAX_LEVEL_VALUE)) {
+                continue;
+            }
+
+            // when
+            String fileVersion = Launch4jFileVersionGenerator.generate(projectVersion);
+
+            // then
+            assertEquals("\"" + projectVersion + "\"", expected, fileVersion);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void shouldTakeTheBuildNumber_OnlyFromAnAllDigitSegment() {
+        // given
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            String projectVersion = randomVersion(random, 1 + random.nextInt(24));
+            Matcher levels = NUMERIC_LEVELS.matcher(projectVersion);
+            if (!levels.lookingAt() || levels.group().split("\\.").length >= 4) {
+                continue;
+            }
+
+            // when
+            String fileVersion;
+            try {
+                fileVersion = Launch4jFileVersionGenerator.generate(projectVersion, true);
+            } catch (IllegalArgumentException rejected) {
+                continue;
+            }
+
+            // then
+            String expected = "0";
+            for (String segment : projectVersion.substring(levels.end()).split("[.+-]")) {
+                if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+                    expected = segment;
+                }
+            }
+            assertEquals("\"" + projectVersion + "\"", expected, fileVersion.substring(fileVersion.lastIndexOf('.') + 1));
+        }
+    }
+
+    private String randomVersion(Random random, int length) {
+        char[] version = new char[length];
+        for (int i = 0; i < length; i++) {
+            version[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(version);
+    }
+
+    private String legacyGenerate(String projectVersion) {
+        String levels = projectVersion.split("-")[0];
+        List<String> parts = Arrays.asList(levels.split("\\."));
+        if (parts.size() > 4) {
+            parts = parts.subList(0, 4);
+        }
+        StringBuilder result = new StringBuilder(String.join(".", parts));
+        for (int i = parts.size(); i < 4; i++) {
+            result.append(".0");
+        }
+        return result.toString();
+    }
+}
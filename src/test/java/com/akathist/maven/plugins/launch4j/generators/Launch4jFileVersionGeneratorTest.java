@@ -29,7 +29,15 @@ public class Launch4jFileVersionGeneratorTest {
         "1.2.3_11",
         "1.2.3;4",
         "1.2.3.4SNAPSHOT",
-        "1.2.3.4.SNAPSHOT"
+        "1.2.3.",
+        "1..2",
+        "1.2.3-",
+        "1.2.3+",
+        "1.2.3-alpha..1",
+        "1.2.3.RC1.4",
+        "65536",
+        "1.2.100000",
+        "1.2.3.0000065536-SNAPSHOT"
     })
     public void shouldThrowException_WhenProjectVersion_HaveWrongFormat(String projectVersion) {
         // expect throws
@@ -59,6 +67,12 @@ public class Launch4jFileVersionGeneratorTest {
         "1.2.1-alpha, 1.2.1.0",
         "1.2.3.4-beta, 1.2.3.4",
         "0.0.1-snapshot, 0.0.1.0",
+        "1.0-alpha-1, 1.0.0.0",
+        "1.2.3.4.SNAPSHOT, 1.2.3.4",
+        "2024.10.1.RC1, 2024.10.1.0",
+        "1.2.3+build.5, 1.2.3.0",
+        "1.2.3-rc.2+exp.sha-5114f85, 1.2.3.0",
+        "1.2.3.RC1-4, 1.2.3.0",
     })
     public void shouldCutOffTextFlags(String projectVersion, String expected) {
         // when
@@ -82,4 +96,72 @@ public class Launch4jFileVersionGeneratorTest {
         // then
         assertEquals(expected, launch4jFileVersion);
     }
-}
\ No newline at end of file
+
+    @Test
+    @Parameters({
+        "1.2.3+build.5, 1.2.3.5",
+        "1.2.3-45, 1.2.3.45",
+        "1.2.3-rc-2, 1.2.3.2",
+        "2024.10.1.RC1, 2024.10.1.0",
+        "1.2-SNAPSHOT, 1.2.0.0",
+        "1.2.3.4-SNAPSHOT, 1.2.3.4",
+        "1.2.3.4.5, 1.2.3.4",
+        "1.2.3.4-rc-2, 1.2.3.4",
+        "1.2.3-rc.2, 1.2.3.2",
+        "1.2.3.RC1-4, 1.2.3.4",
+        "1.2.3+build.65535, 1.2.3.65535",
+        "1.2.3-rc.2+exp.sha-5114f85, 1.2.3.2",
+        "1.0-beta3x12, 1.0.0.0",
+        "1.2.3-rc2, 1.2.3.0",
+        "1.2.3+build.007, 1.2.3.007",
+    })
+    public void shouldUseBuildNumberAsFourthLevel(String projectVersion, String expected) {
+        // when
+        final String launch4jFileVersion = Launch4jFileVersionGenerator.generate(projectVersion, true);
+
+        // then
+        assertEquals(expected, launch4jFileVersion);
+    }
+
+    @Test
+    @Parameters({
+        "0.65535.00065535, 0.65535.00065535.0",
+        "1.22.333.4444.55555.666666, 1.22.333.4444",
+    })
+    public void shouldAcceptLevelsUpTo65535(String projectVersion, String expected) {
+        // when
+        final String launch4jFileVersion = Launch4jFileVersionGenerator.generate(projectVersion);
+
+        // then
+        assertEquals(expected, launch4jFileVersion);
+    }
+
+    @Test
+    public void shouldRejectBuildNumberAbove65535() {
+        // expect
+        try {
+            Launch4jFileVersionGenerator.generate("1.2.3+build.70000", true);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("70000 at position 12"));
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void shouldRejectLongVersionInLinearTime() {
+        // given
+        StringBuilder projectVersion = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            projectVersion.append("11.");
+        }
+        projectVersion.append("1+meta!");
+
+        // expect
+        try {
+            Launch4jFileVersionGenerator.generate(projectVersion.toString());
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("'!'"));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.akathist.maven.plugins.launch4j.perf;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Builds the synthetic projects with a separate Maven against the local repository prepared by the
+ * <code>perf</code> profile, offline, and compares wall time, allocated bytes and peak RSS of each
+ * scenario with <code>src/test/resources/perf/baseline.properties</code>, together with the classes loaded by
+ * the plugin, the time to its first log line and the time spent in the plugin's mojos, which make up its startup cost.
+ * <p/>
+ * Run with <code>mvn verify -Pperf</code>; <code>-Dperf.scenarios</code> picks scenarios,
+ * <code>-Dperf.margin</code> is the tolerated overrun (0.5 = 50 %) and <code>-Dperf.updateBaseline=true</code>
+ * writes the measured figures to <code>target/perf/baseline.properties</code> instead of comparing them.
+ * The figures of each scenario are kept in <code>target/perf/&lt;scenario&gt;/metrics.properties</code>.
+ */
+public class Launch4jPerformanceIT {
+
+    private static final String[] METRICS = {"wallMillis", PerfProbe.ALLOCATED_BYTES, PerfProbe.PEAK_RSS_BYTES,
+            PerfProbe.LOADED_CLASSES, PerfProbe.TIME_TO_FIRST_LOG_MILLIS, PerfProbe.MOJO_MILLIS};
+
+    private static final long BUILD_TIMEOUT_MINUTES = 30;
+
+    private static final File PERF_DIRECTORY = new File(System.getProperty("perf.directory", "target/perf"));
+
+    private static final File LOCAL_REPOSITORY = new File(System.getProperty("perf.localRepository", "target/perf/local-repo"));
+
+    private static final List<String> SCENARIOS = Arrays.asList(System.getProperty("perf.scenarios", "").split("\\s*,\\s*"));
+
+    private static final double MARGIN = Double.parseDouble(System.getProperty("perf.margin", "0.5"));
+
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("perf.updateBaseline");
+
+    private static final Properties baseline = new Properties();
+
+    private static final Properties measured = new Properties();
+
+    private final SyntheticProjects projects = new SyntheticProjects(System.getProperty("perf.pluginVersion"));
+
+    @BeforeClass
+    public static void loadBaseline() throws IOException {
+        try (InputStream in = Launch4jPerformanceIT.class.getResourceAsStream("/perf/baseline.properties")) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void storeMeasurements() throws IOException {
+        if (UPDATE_BASELINE && !measured.isEmpty()) {
+            try (OutputStream out = Files.newOutputStream(new File(PERF_DIRECTORY, "baseline.properties").toPath())) {
+                measured.store(out, "launch4j performance baseline, " + System.getProperty("os.name")
+                        + ", " + Runtime.getRuntime().availableProcessors() + " cpu(s)");
+            }
+        }
+    }
+
+    @Test
+    public void shouldWrapAJarWithTenThousandClasses() throws Exception {
+        File project = scenario("classes10k");
+        measure("classes10k", projects.classes(project, 10000));
+    }
+
+    @Test
+    public void shouldStageAThousandDependencies() throws Exception {
+        File project = scenario("dependencies1000");
+        deleteRecursively(new File(LOCAL_REPOSITORY, "perf/deps"));
+        measure("dependencies1000", projects.dependencies(project, 1000, true));
+    }
+
+    @Test
+    public void shouldNotResolveAThousandDependencies_WhichTheClassPathDoesNotUse() throws Exception {
+        File project = scenario("unusedDependencies1000");
+        deleteRecursively(new File(LOCAL_REPOSITORY, "perf/deps"));
+        measure("unusedDependencies1000", projects.dependencies(project, 1000, false));
+    }
+
+    @Test
+    public void shouldWrapAFiveHundredMegabyteJar() throws Exception {
+        File project = scenario("jar500mb");
+        measure("jar500mb", projects.largeJar(project, 500L * 1024 * 1024));
+    }
+
+    @Test
+    public void shouldBuildAReactorOfFiftyModules() throws Exception {
+        File project = scenario("reactor50");
+        measure("reactor50", projects.reactor(project, 50), "-T", "4");
+    }
+
+    @Test
+    public void shouldSkipWithoutSettingUpLaunch4j() throws Exception {
+        File project = scenario("skipped");
+        measure("skipped", projects.classes(project, 100), "-DskipLaunch4j");
+    }
+
+    @Test
+    public void shouldFetchAnUpToDateExecutableFromTheBuildCache() throws Exception {
+        File project = scenario("upToDate");
+        projects.cached(project);
+        run(project, new File(project, "metrics-first-build.properties"), new File(project, "first-build.log"));
+        measure("upToDate", project);
+    }
+
+    @Test
+    public void shouldPatchAFiveHundredMegabyteExecutable() throws Exception {
+        File project = scenario("delta500mb");
+        long bytes = 500L * 1024 * 1024;
+        projects.delta(project, bytes);
+        run(project, new File(project, "metrics-previous-release.properties"), new File(project, "previous-release.log"));
+        measure("delta500mb", projects.nextRelease(project, bytes));
+
+        File patch = new File(project, "target/app.exe.patch");
+        assertTrue(patch + " is missing", patch.isFile());
+        assertTrue(patch + " has " + patch.length() + " bytes", patch.length() < 1024 * 1024);
+    }
+
+    private static File scenario(String name) throws IOException {
+        assumeTrue("scenario " + name + " not selected", SCENARIOS.contains(name));
+        File dir = new File(PERF_DIRECTORY, name);
+        deleteRecursively(dir);
+        Files.createDirectories(dir.toPath());
+        return dir;
+    }
+
+    private void measure(String scenario, File project, String... extraArgs) throws Exception {
+        File metricsFile = new File(project, "metrics.properties");
+        File buildLog = new File(project, "build.log");
+
+        long wallMillis = run(project, metricsFile, buildLog, extraArgs);
+
+        Properties metrics = new Properties();
+        try (InputStream in = Files.newInputStream(metricsFile.toPath())) {
+            metrics.load(in);
+        }
+        metrics.setProperty("wallMillis", Long.toString(wallMillis));
+        try (OutputStream out = Files.newOutputStream(metricsFile.toPath())) {
+            metrics.store(out, scenario);
+        }
+
+        List<String> exceeded = new ArrayList<>();
+        for (String metric : METRICS) {
+            String key = scenario + "." + metric;
+            long value = Long.parseLong(metrics.getProperty(metric));
+            measured.setProperty(key, Long.toString(value));
+            String limit = baseline.getProperty(key);
+            if (limit != null && value >= 0 && value > Long.parseLong(limit) * (1 + MARGIN)) {
+                exceeded.add(metric + " " + value + " > " + limit + " + " + Math.round(MARGIN * 100) + "%");
+            }
+        }
+        if (!UPDATE_BASELINE) {
+            assertTrue(scenario + " exceeds its baseline: " + exceeded + ", measured " + metrics + " in " + metricsFile,
+                    exceeded.isEmpty());
+        }
+    }
+
+    /**
+     * Runs <code>mvn package</code> on the project and fails unless it succeeds.
+     *
+     * @return the wall time of the build
+     */
+    private static long run(File project, File metricsFile, File buildLog, String... extraArgs) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(mavenExecutable().getPath());
+        command.addAll(Arrays.asList("-B", "-o", "-Daether.offline.protocols=file",
+                "-Dmaven.repo.local=" + LOCAL_REPOSITORY.getAbsolutePath(),
+                "-Dmaven.ext.class.path=" + new File(System.getProperty("perf.probeClasses")).getAbsolutePath(),
+                "-D" + PerfProbe.METRICS_PROPERTY + "=" + metricsFile.getAbsolutePath()));
+        command.addAll(Arrays.asList(extraArgs));
+        command.add("package");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(project)
+                .redirectErrorStream(true)
+                .redirectOutput(buildLog);
+        // lets the probe see the build log written, and ask the plugin's class realm which classes it has loaded
+        String options = builder.environment().getOrDefault("MAVEN_OPTS", "") + " -Dorg.slf4j.simpleLogger.cacheOutputStream=false";
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            options += " --add-opens java.base/java.lang=ALL-UNNAMED";
+        }
+        builder.environment().put("MAVEN_OPTS", options.trim());
+
+        long start = System.nanoTime();
+        Process maven = builder.start();
+        if (!maven.waitFor(BUILD_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            maven.destroyForcibly();
+            fail(project.getName() + " did not finish within " + BUILD_TIMEOUT_MINUTES + " minutes, see " + buildLog);
+        }
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(project.getName() + " failed, see " + buildLog, 0, maven.exitValue());
+        return wallMillis;
+    }
+
+    private static File mavenExecutable() {
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("win");
+        return new File(System.getProperty("maven.home"), windows ? "bin/mvn.cmd" : "bin/mvn");
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.isDirectory() && !Files.isSymbolicLink(file.toPath()) ? file.listFiles() : null;
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+}
@@ -0,0 +1,337 @@
+package com.akathist.maven.plugins.launch4j.perf;
+
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Measures the Maven build it is loaded into with <code>-Dmaven.ext.class.path</code>: the bytes allocated by
+ * all threads, the peak resident set size, the classes loaded by the plugin's class realm, the time from the start
+ * of the plugin's first mojo to its first line in the build log and the time spent in the plugin's mojos.
+ * Does nothing unless <code>-Dlaunch4j.perf.metrics</code> names the file the figures are written to when
+ * the build ends.
+ * <p/>
+ * Counting the classes of the realm needs <code>--add-opens java.base/java.lang=ALL-UNNAMED</code> on Java 9 and
+ * later, otherwise the figure is -1. The first log line is only seen if Maven's logger does not cache
+ * <code>System.out</code>, <code>-Dorg.slf4j.simpleLogger.cacheOutputStream=false</code>; the figure is -1 for
+ * a build whose mojos log nothing.
+ */
+@Named("launch4j-perf-probe")
+@Singleton
+public class PerfProbe extends AbstractEventSpy {
+
+    static final String METRICS_PROPERTY = "launch4j.perf.metrics";
+
+    static final String ALLOCATED_BYTES = "allocatedBytes";
+
+    static final String PEAK_RSS_BYTES = "peakRssBytes";
+
+    static final String LOADED_CLASSES = "loadedClasses";
+
+    static final String MOJO_MILLIS = "mojoMillis";
+
+    static final String TIME_TO_FIRST_LOG_MILLIS = "timeToFirstLogMillis";
+
+    private static final String PLUGIN_ARTIFACT_ID = "launch4j-maven-plugin";
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    private final Map<Long, Long> allocatedPerThread = new HashMap<>();
+
+    private final Map<Object, Long> mojoStarts = new HashMap<>();
+
+    private long mojoNanos;
+
+    /**
+     * The class realms of the plugin, usually one for the whole build.
+     */
+    private final Set<ClassLoader> pluginRealms = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * When the first of the plugin's mojos started, until the plugin logs its first line; 0 before and after.
+     */
+    private volatile long awaitingFirstLogSince;
+
+    private boolean mojoSeen;
+
+    private volatile long timeToFirstLogNanos = -1;
+
+    private File metricsFile;
+
+    private Thread sampler;
+
+    private volatile boolean running;
+
+    @Override
+    public void init(Context context) {
+        String metrics = System.getProperty(METRICS_PROPERTY);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (metrics == null || !(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        metricsFile = new File(metrics);
+        running = true;
+        sampler = new Thread(() -> {
+            while (running) {
+                sample((com.sun.management.ThreadMXBean) threads);
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "launch4j-perf-probe");
+        sampler.setDaemon(true);
+        sampler.start();
+        System.setOut(new PrintStream(new FirstLogWatcher(System.out), true));
+    }
+
+    /**
+     * Adds up the time between the start and the end of each execution of the plugin's mojos
+     * and waits for the first of them to log.
+     */
+    @Override
+    public void onEvent(Object event) {
+        if (sampler == null || !(event instanceof ExecutionEvent)) {
+            return;
+        }
+        ExecutionEvent execution = (ExecutionEvent) event;
+        if (execution.getMojoExecution() == null
+                || !PLUGIN_ARTIFACT_ID.equals(execution.getMojoExecution().getArtifactId())) {
+            return;
+        }
+        Object key = execution.getProject().getId() + "/" + execution.getMojoExecution().getExecutionId();
+        synchronized (mojoStarts) {
+            switch (execution.getType()) {
+                case MojoStarted:
+                    mojoStarts.put(key, System.nanoTime());
+                    if (!mojoSeen) {
+                        mojoSeen = true;
+                        awaitingFirstLogSince = System.nanoTime();
+                    }
+                    break;
+                case MojoSucceeded:
+                case MojoFailed:
+                    awaitingFirstLogSince = 0;
+                    // set up by the time the mojo has run
+                    pluginRealms.add(execution.getMojoExecution().getMojoDescriptor().getPluginDescriptor().getClassRealm());
+                    Long start = mojoStarts.remove(key);
+                    if (start != null) {
+                        mojoNanos += System.nanoTime() - start;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (sampler == null) {
+            return;
+        }
+        running = false;
+        sampler.join();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        sample(threads);
+
+        long allocated = 0;
+        synchronized (allocatedPerThread) {
+            for (long bytes : allocatedPerThread.values()) {
+                allocated += bytes;
+            }
+        }
+        Properties metrics = new Properties();
+        metrics.setProperty(ALLOCATED_BYTES, Long.toString(allocated));
+        metrics.setProperty(PEAK_RSS_BYTES, Long.toString(peakRss()));
+        synchronized (mojoStarts) {
+            metrics.setProperty(LOADED_CLASSES, Long.toString(pluginClasses()));
+            metrics.setProperty(MOJO_MILLIS, Long.toString(mojoNanos / 1_000_000));
+        }
+        long firstLog = timeToFirstLogNanos;
+        metrics.setProperty(TIME_TO_FIRST_LOG_MILLIS, Long.toString(firstLog < 0 ? -1 : firstLog / 1_000_000));
+        Files.createDirectories(metricsFile.getAbsoluteFile().getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(metricsFile.toPath())) {
+            metrics.store(out, "launch4j performance probe");
+        }
+    }
+
+    /**
+     * The counters of finished threads are gone, so the last value seen for each thread is kept.
+     */
+    private void sample(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        synchronized (allocatedPerThread) {
+            for (int i = 0; i < ids.length; i++) {
+                if (allocated[i] > 0) {
+                    allocatedPerThread.merge(ids[i], allocated[i], Math::max);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the classes of the plugin's jars which its realms have loaded; the caller holds the lock on mojoStarts.
+     *
+     * @return the number of classes, or -1 if the realms cannot be asked
+     */
+    private long pluginClasses() throws IOException {
+        Method findLoadedClass;
+        try {
+            findLoadedClass = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+            findLoadedClass.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+
+        long count = 0;
+        for (ClassLoader realm : pluginRealms) {
+            if (!(realm instanceof URLClassLoader)) {
+                return -1;
+            }
+            for (URL url : ((URLClassLoader) realm).getURLs()) {
+                for (String className : classNames(url)) {
+                    try {
+                        if (findLoadedClass.invoke(realm, className) != null) {
+                            count++;
+                        }
+                    } catch (ReflectiveOperationException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Set<String> classNames(URL url) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(url.toURI());
+        } catch (URISyntaxException | RuntimeException e) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<>();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                files.map(file -> path.relativize(file).toString().replace(File.separatorChar, '/'))
+                        .forEach(name -> addClassName(names, name));
+            }
+        } else if (Files.isRegularFile(path)) {
+            try (JarFile jar = new JarFile(path.toFile())) {
+                for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                    addClassName(names, entries.nextElement().getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void addClassName(Set<String> names, String entry) {
+        if (entry.endsWith(".class") && !entry.startsWith("META-INF/") && !entry.endsWith("module-info.class")) {
+            names.add(entry.substring(0, entry.length() - ".class".length()).replace('/', '.'));
+        }
+    }
+
+    /**
+     * Passes the build log through and notes when, after the start of the plugin's first mojo, a line other than
+     * the headers Maven prints for the projects and mojos is written. The synthetic projects run the plugin's mojos
+     * only, and the mojos log from other threads too, so the line may come from any thread.
+     */
+    private final class FirstLogWatcher extends OutputStream {
+
+        private final PrintStream out;
+
+        private final ThreadLocal<StringBuilder> line = ThreadLocal.withInitial(StringBuilder::new);
+
+        FirstLogWatcher(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            out.write(b);
+            watch(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            out.write(b, off, len);
+            for (int i = off; i < off + len; i++) {
+                watch(b[i]);
+            }
+        }
+
+        @Override
+        public void flush() {
+            out.flush();
+        }
+
+        private void watch(int b) {
+            long start = awaitingFirstLogSince;
+            if (start == 0) {
+                return;
+            }
+            StringBuilder current = line.get();
+            if (b != '\n') {
+                current.append((char) (b & 0xff));
+                return;
+            }
+            String text = current.toString().replaceFirst("^\\[\\w+\\]", "").trim();
+            current.setLength(0);
+            if (!text.isEmpty() && !text.startsWith("-") && !text.startsWith("Building ") && !text.startsWith("from ")) {
+                timeToFirstLogNanos = System.nanoTime() - start;
+                awaitingFirstLogSince = 0;
+            }
+        }
+    }
+
+    /**
+     * The high water mark of the resident set size, reported by Linux only; -1 elsewhere.
+     */
+    private static long peakRss() throws IOException {
+        File status = new File("/proc/self/status");
+        if (!status.isFile()) {
+            return -1;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(status.getPath()), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        }
+        return -1;
+    }
+}
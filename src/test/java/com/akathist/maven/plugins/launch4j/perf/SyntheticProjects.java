@@ -0,0 +1,228 @@
+package com.akathist.maven.plugins.launch4j.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the projects of the performance suite. They use the <code>pom</code> packaging, so the build runs
+ * nothing but the launch4j goal and needs no other plugin in the offline local repository.
+ */
+class SyntheticProjects {
+
+    private static final int CLASS_SIZE = 600;
+
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final String pluginVersion;
+
+    SyntheticProjects(String pluginVersion) {
+        this.pluginVersion = pluginVersion;
+    }
+
+    /**
+     * A single project wrapping a jar of the given number of classes.
+     */
+    File classes(File dir, int classes) throws IOException {
+        writeJar(new File(dir, "app.jar"), classes, 0);
+        write(new File(dir, "pom.xml"), pom("classes", "", launch4j(false, "")));
+        return dir;
+    }
+
+    /**
+     * A single project wrapping a small jar, with a build cache in the project's directory, so the executable
+     * comes from the cache from the second build on.
+     */
+    File cached(File dir) throws IOException {
+        writeJar(new File(dir, "app.jar"), 100, 0);
+        String buildCache = "              <buildCache><directory>${project.basedir}/build-cache</directory></buildCache>\n";
+        write(new File(dir, "pom.xml"), pom("cached", "", launch4j(false, buildCache)));
+        return dir;
+    }
+
+    /**
+     * A single project with the given number of dependencies, served by a file repository next to it
+     * and, if they go on the classpath, staged next to the executable.
+     */
+    File dependencies(File dir, int count, boolean onClassPath) throws IOException {
+        writeJar(new File(dir, "app.jar"), 1, 0);
+        File repository = new File(dir, "repository");
+        StringBuilder dependencies = new StringBuilder("  <dependencies>\n");
+        for (int i = 0; i < count; i++) {
+            String artifactId = "dep" + i;
+            File artifactDir = new File(repository, "perf/deps/" + artifactId + "/1.0");
+            writeJar(new File(artifactDir, artifactId + "-1.0.jar"), 1, 0);
+            write(new File(artifactDir, artifactId + "-1.0.pom"), "<project>\n"
+                    + "  <modelVersion>4.0.0</modelVersion>\n"
+                    + "  <groupId>perf.deps</groupId>\n"
+                    + "  <artifactId>" + artifactId + "</artifactId>\n"
+                    + "  <version>1.0</version>\n"
+                    + "</project>\n");
+            dependencies.append("    <dependency><groupId>perf.deps</groupId><artifactId>").append(artifactId)
+                    .append("</artifactId><version>1.0</version></dependency>\n");
+        }
+        dependencies.append("  </dependencies>\n");
+
+        String repositories = "  <repositories>\n"
+                + "    <repository><id>perf</id><url>" + repository.toURI() + "</url></repository>\n"
+                + "  </repositories>\n";
+        write(new File(dir, "pom.xml"), pom("dependencies", repositories + dependencies, launch4j(onClassPath, "")));
+        return dir;
+    }
+
+    /**
+     * A single project wrapping a jar of roughly the given size, made of incompressible stored entries.
+     */
+    File largeJar(File dir, long bytes) throws IOException {
+        writeJar(new File(dir, "app.jar"), 1, bytes);
+        write(new File(dir, "pom.xml"), pom("large-jar", "", launch4j(false, "")));
+        return dir;
+    }
+
+    /**
+     * A single project wrapping a jar of roughly the given size, patched against the executable of the
+     * previous release, which {@link #nextRelease(File, long)} makes of the executable it built.
+     */
+    File delta(File dir, long bytes) throws IOException {
+        writeJar(new File(dir, "app.jar"), 100, bytes);
+        String deltaPatch = "              <deltaPatch><previous>${project.basedir}/previous/app.exe</previous></deltaPatch>\n";
+        write(new File(dir, "pom.xml"), pom("delta", "", launch4j(false, deltaPatch)));
+        return dir;
+    }
+
+    /**
+     * Keeps the executable built as the previous release and changes one class of the jar, the way a small fix
+     * does: the entries after it move, their content stays.
+     */
+    File nextRelease(File dir, long bytes) throws IOException {
+        File previous = new File(dir, "previous/app.exe");
+        Files.createDirectories(previous.getParentFile().toPath());
+        Files.move(new File(dir, "target/app.exe").toPath(), previous.toPath());
+        writeJar(new File(dir, "app.jar"), 100, bytes, "perf/Fix.class");
+        return dir;
+    }
+
+    /**
+     * An aggregator of the given number of modules, each building its own executable.
+     */
+    File reactor(File dir, int modules) throws IOException {
+        StringBuilder moduleList = new StringBuilder("  <modules>\n");
+        for (int i = 0; i < modules; i++) {
+            String module = "module" + i;
+            File moduleDir = new File(dir, module);
+            writeJar(new File(moduleDir, "app.jar"), 100, 0);
+            write(new File(moduleDir, "pom.xml"), pom(module, "", launch4j(false, "")));
+            moduleList.append("    <module>").append(module).append("</module>\n");
+        }
+        moduleList.append("  </modules>\n");
+        write(new File(dir, "pom.xml"), pom("reactor", moduleList.toString(), ""));
+        return dir;
+    }
+
+    private String pom(String artifactId, String body, String build) {
+        return "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>perf</groupId>\n"
+                + "  <artifactId>" + artifactId + "</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <packaging>pom</packaging>\n"
+                + body
+                + build
+                + "</project>\n";
+    }
+
+    private String launch4j(boolean stageDependencies, String configuration) {
+        return "  <build>\n"
+                + "    <plugins>\n"
+                + "      <plugin>\n"
+                + "        <groupId>com.akathist.maven.plugins.launch4j</groupId>\n"
+                + "        <artifactId>launch4j-maven-plugin</artifactId>\n"
+                + "        <version>" + pluginVersion + "</version>\n"
+                + "        <extensions>true</extensions>\n"
+                + "        <executions>\n"
+                + "          <execution>\n"
+                + "            <id>l4j</id>\n"
+                + "            <phase>package</phase>\n"
+                + "            <goals><goal>launch4j</goal></goals>\n"
+                + "            <configuration>\n"
+                + "              <headerType>console</headerType>\n"
+                + "              <jar>${project.basedir}/app.jar</jar>\n"
+                + "              <outfile>${project.build.directory}/app.exe</outfile>\n"
+                + "              <classPath>\n"
+                + "                <mainClass>perf.Main</mainClass>\n"
+                + "                <addDependencies>" + stageDependencies + "</addDependencies>\n"
+                + "                <jarLocation>lib</jarLocation>\n"
+                + "                <stageDependencies>" + stageDependencies + "</stageDependencies>\n"
+                + "              </classPath>\n"
+                + "              <jre><path>%JAVA_HOME%</path></jre>\n"
+                + configuration
+                + "            </configuration>\n"
+                + "          </execution>\n"
+                + "        </executions>\n"
+                + "      </plugin>\n"
+                + "    </plugins>\n"
+                + "  </build>\n";
+    }
+
+    /**
+     * Writes a jar with the given number of class entries and, when padding is positive, stored entries
+     * of random bytes adding up to it. The content is seeded, so every run wraps the same jar.
+     */
+    private static void writeJar(File jar, int classes, long padding) throws IOException {
+        writeJar(jar, classes, padding, null);
+    }
+
+    /**
+     * @param extraClass an entry written after the manifest, not taking from the seeded content
+     */
+    private static void writeJar(File jar, int classes, long padding, String extraClass) throws IOException {
+        Files.createDirectories(jar.getParentFile().toPath());
+        Random random = new Random(classes + padding);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write("Manifest-Version: 1.0\r\nMain-Class: perf.Main\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            if (extraClass != null) {
+                out.putNextEntry(new ZipEntry(extraClass));
+                out.write(new byte[CLASS_SIZE]);
+            }
+            byte[] clazz = new byte[CLASS_SIZE];
+            for (int i = 0; i < classes; i++) {
+                out.putNextEntry(new ZipEntry(String.format("perf/p%03d/C%05d.class", i / 100, i)));
+                random.nextBytes(clazz);
+                out.write(clazz);
+            }
+            byte[] chunk = new byte[CHUNK_SIZE];
+            for (int i = 0; padding > 0; i++) {
+                int size = (int) Math.min(chunk.length, padding);
+                random.nextBytes(chunk);
+                storeEntry(out, "data/chunk" + i + ".bin", chunk, size);
+                padding -= size;
+            }
+        }
+    }
+
+    private static void storeEntry(ZipOutputStream out, String name, byte[] data, int size) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, size);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(data, 0, size);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}